@@ -0,0 +1,22 @@
+package com.gdin.inspection.graphrag.bench;
+
+import com.gdin.inspection.graphrag.util.SpringBootUtil;
+import com.gdin.inspection.graphrag.v2.util.TokenUtil;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * SortContext / MixedContextBuilder 通过 SpringBootUtil.getBean(TokenUtil.class) 取 token 计数器，
+ * 基准测试里只起一个包含这两个 bean 的最小容器，不加载整个应用（不连 Milvus / 大模型）。
+ */
+public final class BenchSpringContext {
+
+    private static AnnotationConfigApplicationContext context;
+
+    private BenchSpringContext() {
+    }
+
+    public static synchronized TokenUtil start() {
+        if (context == null) context = new AnnotationConfigApplicationContext(SpringBootUtil.class, TokenUtil.class);
+        return context.getBean(TokenUtil.class);
+    }
+}
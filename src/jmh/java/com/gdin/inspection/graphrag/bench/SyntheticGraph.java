@@ -0,0 +1,305 @@
+package com.gdin.inspection.graphrag.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gdin.inspection.graphrag.v2.models.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * 基准测试用的合成图数据。
+ * 词表来自 src/test/resources 下的 sample-entity.json / sample-textunit.json，按固定种子扩展到任意规模，
+ * 同一个种子、同样的参数每次生成的数据完全一致，不同轮次的结果可以直接对比。
+ * 标题从 [0, titleSpace) 中取，old / delta 两批数据用同一个 titleSpace 就会有一部分重名（走 update 的合并路径）。
+ */
+public final class SyntheticGraph {
+
+    public static final long DEFAULT_SEED = 20241001L;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Random random;
+    private final List<String> titles = new ArrayList<>();
+    private final List<String> types = new ArrayList<>();
+    private final List<String> sentences = new ArrayList<>();
+    private final String documentId;
+
+    private SyntheticGraph(long seed, JsonNode entity, JsonNode textUnit) {
+        this.random = new Random(seed);
+
+        titles.add(entity.path("title").asText("实体"));
+        entity.path("aliases").forEach(a -> titles.add(a.asText()));
+
+        types.add(entity.path("type").asText("Policy"));
+        // 和默认抽取配置里的中文实体类型保持一致
+        types.addAll(List.of("组织", "人员", "地理位置", "事件"));
+
+        entity.path("description_list").forEach(d -> sentences.add(d.asText()));
+        sentences.add(entity.path("summary").asText(""));
+        sentences.add(textUnit.path("text").asText(""));
+        sentences.removeIf(String::isBlank);
+
+        this.documentId = textUnit.path("document_id").asText("doc-001");
+    }
+
+    public static SyntheticGraph fromFixtures() {
+        return fromFixtures(DEFAULT_SEED);
+    }
+
+    public static SyntheticGraph fromFixtures(long seed) {
+        return new SyntheticGraph(seed, read("/sample-entity.json"), read("/sample-textunit.json"));
+    }
+
+    private static JsonNode read(String path) {
+        try (InputStream in = SyntheticGraph.class.getResourceAsStream(path)) {
+            if (in == null) throw new IllegalStateException("找不到基准测试样例数据: " + path);
+            return MAPPER.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ==============基础取值==============
+
+    public String title(int k) {
+        return titles.get(k % titles.size()) + "-" + k;
+    }
+
+    public String type() {
+        return types.get(random.nextInt(types.size()));
+    }
+
+    /**
+     * 由样例句子拼出的描述，sentenceCount 句
+     */
+    public String description(int sentenceCount) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sentenceCount; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(sentences.get(random.nextInt(sentences.size())));
+        }
+        return sb.toString();
+    }
+
+    private List<String> pick(List<TextUnit> textUnits, int max) {
+        int n = 1 + random.nextInt(Math.max(1, max));
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(textUnits.get(random.nextInt(textUnits.size())).getId());
+        return out;
+    }
+
+    // ==============index 表==============
+
+    public List<TextUnit> textUnits(String prefix, int n) {
+        List<TextUnit> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String text = description(8);
+            out.add(TextUnit.builder()
+                    .id(prefix + "_unit-" + i)
+                    .humanReadableId(i)
+                    .text(text)
+                    .nTokens(text.length())
+                    .documentIds(List.of(documentId))
+                    .build());
+        }
+        return out;
+    }
+
+    public List<Entity> entities(String prefix, int n, int titleSpace, List<TextUnit> textUnits) {
+        List<Entity> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(Entity.builder()
+                    .id(prefix + "-ent-" + i)
+                    .humanReadableId(i)
+                    .title(title(random.nextInt(titleSpace)))
+                    .type(type())
+                    .description(description(2))
+                    .textUnitIds(pick(textUnits, 4))
+                    .frequency(1 + random.nextInt(5))
+                    .degree(random.nextInt(20))
+                    .build());
+        }
+        return out;
+    }
+
+    /**
+     * 关系的 source / target 取自给定实体的标题
+     */
+    public List<Relationship> relationships(String prefix, int n, List<Entity> entities, List<TextUnit> textUnits) {
+        List<Relationship> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Entity s = entities.get(random.nextInt(entities.size()));
+            Entity t = entities.get(random.nextInt(entities.size()));
+            out.add(Relationship.builder()
+                    .id(prefix + "-rel-" + i)
+                    .humanReadableId(i)
+                    .source(s.getTitle())
+                    .target(t.getTitle())
+                    .description(description(2))
+                    .weight(1.0 + random.nextInt(9))
+                    .combinedDegree((double) random.nextInt(40))
+                    .textUnitIds(pick(textUnits, 3))
+                    .build());
+        }
+        return out;
+    }
+
+    public List<Covariate> covariates(String prefix, int n, List<Entity> entities, List<TextUnit> textUnits) {
+        List<Covariate> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Entity s = entities.get(random.nextInt(entities.size()));
+            out.add(Covariate.builder()
+                    .id(prefix + "-cov-" + i)
+                    .humanReadableId(i)
+                    .covariateType("claim")
+                    .type(type())
+                    .description(description(1))
+                    .subjectId(s.getTitle())
+                    .objectId("NONE")
+                    .status("TRUE")
+                    .startDate(Instant.EPOCH)
+                    .endDate(Instant.EPOCH)
+                    .sourceText(description(1))
+                    .textUnitId(textUnits.get(random.nextInt(textUnits.size())).getId())
+                    .build());
+        }
+        return out;
+    }
+
+    /**
+     * 两层社区：前 n/4 个是 level 0，其余挂到某个 level 0 社区下面
+     */
+    public List<Community> communities(String prefix, int n, List<Entity> entities) {
+        int roots = Math.max(1, n / 4);
+        List<Community> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            boolean root = i < roots;
+            List<String> entityIds = new ArrayList<>();
+            for (int k = 0; k < 5; k++) entityIds.add(entities.get(random.nextInt(entities.size())).getId());
+            out.add(Community.builder()
+                    .id(prefix + "-com-" + i)
+                    .humanReadableId(i)
+                    .community(i)
+                    .level(root ? 0 : 1)
+                    .parent(root ? -1 : random.nextInt(roots))
+                    .children(List.of())
+                    .title("Community " + i)
+                    .entityIds(entityIds)
+                    .relationshipIds(List.of())
+                    .textUnitIds(List.of())
+                    .period("2024-10-01")
+                    .size(entityIds.size())
+                    .build());
+        }
+        return out;
+    }
+
+    public List<CommunityReport> communityReports(List<Community> communities) {
+        List<CommunityReport> out = new ArrayList<>(communities.size());
+        for (Community c : communities) {
+            out.add(CommunityReport.builder()
+                    .id(c.getId() + "-report")
+                    .humanReadableId(c.getCommunity())
+                    .community(c.getCommunity())
+                    .level(c.getLevel())
+                    .parent(c.getParent())
+                    .children(c.getChildren())
+                    .title(c.getTitle())
+                    .summary(description(2))
+                    .fullContent(description(12))
+                    .rank(1.0 + random.nextInt(9))
+                    .ratingExplanation(description(1))
+                    .period(c.getPeriod())
+                    .size(c.getSize())
+                    .build());
+        }
+        return out;
+    }
+
+    // ==============大模型输出 / 上下文==============
+
+    /**
+     * 形如 GraphExtractor 首轮抽取的模型输出：("entity"<|>...)##("relationship"<|>...)##...<|COMPLETE|>
+     */
+    public String extractionOutput(int entityRecords, int relationshipRecords,
+                                   String tupleDelimiter, String recordDelimiter, String completionDelimiter) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < entityRecords; i++) {
+            if (sb.length() > 0) sb.append(recordDelimiter).append('\n');
+            sb.append("(\"entity\"").append(tupleDelimiter).append(title(i))
+                    .append(tupleDelimiter).append(type())
+                    .append(tupleDelimiter).append(description(2)).append(')');
+        }
+        for (int i = 0; i < relationshipRecords; i++) {
+            if (sb.length() > 0) sb.append(recordDelimiter).append('\n');
+            sb.append("(\"relationship\"").append(tupleDelimiter).append(title(random.nextInt(entityRecords)))
+                    .append(tupleDelimiter).append(title(random.nextInt(entityRecords)))
+                    .append(tupleDelimiter).append(description(1))
+                    .append(tupleDelimiter).append(1 + random.nextInt(9)).append(')');
+        }
+        return sb.append(completionDelimiter).toString();
+    }
+
+    /**
+     * 形如社区报告模型输出：前后带说明文字，中间是 ```json 代码块
+     */
+    public String reportOutput(int findings) {
+        StringBuilder sb = new StringBuilder("以下是社区报告：\n```json\n{\"title\": \"")
+                .append(title(0)).append("\", \"summary\": \"").append(description(2))
+                .append("\", \"rating\": 5.0, \"rating_explanation\": \"").append(description(1))
+                .append("\", \"findings\": [");
+        for (int i = 0; i < findings; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append("{\"summary\": \"").append(description(1))
+                    .append("\", \"explanation\": \"").append(description(4)).append(" {嵌套} \\\"引号\\\"\"}");
+        }
+        return sb.append("]}\n```\n以上。").toString();
+    }
+
+    /**
+     * SortContext / MixedContextBuilder 的 local_context 行：每个节点带 node_details、edge_details、claim_details
+     */
+    public List<Map<String, Object>> localContext(int nodes, int edgesPerNode) {
+        List<Map<String, Object>> out = new ArrayList<>(nodes);
+        int edgeId = 0, claimId = 0;
+        for (int i = 0; i < nodes; i++) {
+            String title = title(i);
+
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("human_readable_id", i);
+            node.put("title", title);
+            node.put("description", description(2));
+            node.put("degree", random.nextInt(20));
+
+            List<Map<String, Object>> edges = new ArrayList<>();
+            for (int k = 0; k < edgesPerNode; k++) {
+                Map<String, Object> edge = new LinkedHashMap<>();
+                edge.put("human_readable_id", edgeId++);
+                edge.put("source", title);
+                edge.put("target", title(random.nextInt(nodes)));
+                edge.put("description", description(1));
+                edge.put("combined_degree", random.nextInt(40));
+                edges.add(edge);
+            }
+
+            Map<String, Object> claim = new LinkedHashMap<>();
+            claim.put("human_readable_id", claimId++);
+            claim.put("subject_id", title);
+            claim.put("type", type());
+            claim.put("status", "TRUE");
+            claim.put("description", description(1));
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("title", title);
+            row.put("node_details", node);
+            row.put("edge_details", edges);
+            row.put("claim_details", List.of(claim));
+            out.add(row);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,56 @@
+package com.gdin.inspection.graphrag.v2.index.opertation;
+
+import com.gdin.inspection.graphrag.bench.SyntheticGraph;
+import com.gdin.inspection.graphrag.v2.index.opertation.extract.GraphExtractor;
+import com.gdin.inspection.graphrag.v2.models.TextUnit;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 抽取结果合并：ExtractGraphOperation.mergeGraph（按 title/type、source/target 聚合 + 度数计算）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractGraphOperationBenchmark {
+
+    /** 原始实体提及数；关系提及数取同样规模 */
+    @Param({"10000", "100000"})
+    public int mentions;
+
+    private final ExtractGraphOperation operation = new ExtractGraphOperation();
+    private List<GraphExtractor.RawEntity> rawEntities;
+    private List<GraphExtractor.RawRelationship> rawRelationships;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticGraph graph = SyntheticGraph.fromFixtures();
+        List<TextUnit> textUnits = graph.textUnits("doc-bench", Math.max(1, mentions / 20));
+        Random random = new Random(SyntheticGraph.DEFAULT_SEED);
+        // 不同标题数约为提及数的 1/5，和真实抽取中同一实体被多次提及的比例接近
+        int titleSpace = Math.max(1, mentions / 5);
+
+        rawEntities = new ArrayList<>(mentions);
+        rawRelationships = new ArrayList<>(mentions);
+        for (int i = 0; i < mentions; i++) {
+            String textUnitId = textUnits.get(random.nextInt(textUnits.size())).getId();
+            rawEntities.add(new GraphExtractor.RawEntity(
+                    graph.title(random.nextInt(titleSpace)), graph.type(), graph.description(1), textUnitId));
+            rawRelationships.add(new GraphExtractor.RawRelationship(
+                    graph.title(random.nextInt(titleSpace)), graph.title(random.nextInt(titleSpace)),
+                    graph.description(1), textUnitId, 1 + random.nextInt(9)));
+        }
+    }
+
+    @Benchmark
+    public ExtractGraphOperation.Result mergeGraph() {
+        return operation.mergeGraph(rawEntities, rawRelationships);
+    }
+}
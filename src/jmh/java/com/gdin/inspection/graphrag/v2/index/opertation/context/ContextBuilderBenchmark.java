@@ -0,0 +1,86 @@
+package com.gdin.inspection.graphrag.v2.index.opertation.context;
+
+import com.gdin.inspection.graphrag.bench.BenchSpringContext;
+import com.gdin.inspection.graphrag.bench.SyntheticGraph;
+import com.gdin.inspection.graphrag.v2.util.CsvUtil;
+import com.gdin.inspection.graphrag.v2.util.TokenUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 社区报告上下文构建：SortContext.sortContext、MixedContextBuilder.buildMixedContext、CsvUtil.toCsv、TokenUtil.getTokenCount
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextBuilderBenchmark {
+
+    /** 社区内节点数，每个节点 3 条边 */
+    @Param({"50", "500"})
+    public int nodes;
+
+    /** 对齐 create_community_reports 的默认 max_context_tokens */
+    @Param({"8000"})
+    public int maxContextTokens;
+
+    private TokenUtil tokenUtil;
+    private List<Map<String, Object>> localContext;
+    private List<SubCommunityContext> subCommunities;
+    private List<Map<String, Object>> edgeRows;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        tokenUtil = BenchSpringContext.start();
+        SyntheticGraph graph = SyntheticGraph.fromFixtures();
+        localContext = graph.localContext(nodes, 3);
+
+        // 8 个子社区，一半有 report
+        subCommunities = new ArrayList<>();
+        int per = Math.max(1, nodes / 8);
+        for (int i = 0; i < 8; i++) {
+            List<Map<String, Object>> part = localContext.subList(Math.min(i * per, nodes), Math.min((i + 1) * per, nodes));
+            subCommunities.add(SubCommunityContext.builder()
+                    .subCommunity(i)
+                    .allContext(new ArrayList<>(part))
+                    .fullContent(i % 2 == 0 ? graph.description(20) : null)
+                    .contextSize(part.size() * 100)
+                    .build());
+        }
+
+        edgeRows = new ArrayList<>();
+        for (Map<String, Object> row : localContext) {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> edges = (List<Map<String, Object>>) row.get(SortContext.EDGE_DETAILS);
+            edgeRows.addAll(edges);
+        }
+        text = SortContext.sortContext(localContext, List.of(), null);
+    }
+
+    @Benchmark
+    public String sortContext() {
+        return SortContext.sortContext(localContext, List.of(), maxContextTokens);
+    }
+
+    @Benchmark
+    public String buildMixedContext() {
+        return MixedContextBuilder.buildMixedContext(subCommunities, maxContextTokens);
+    }
+
+    @Benchmark
+    public String toCsv() {
+        return CsvUtil.toCsv(edgeRows);
+    }
+
+    @Benchmark
+    public int getTokenCount() {
+        return tokenUtil.getTokenCount(text);
+    }
+}
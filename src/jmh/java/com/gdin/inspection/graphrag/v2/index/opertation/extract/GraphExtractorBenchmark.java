@@ -0,0 +1,60 @@
+package com.gdin.inspection.graphrag.v2.index.opertation.extract;
+
+import com.gdin.inspection.graphrag.bench.SyntheticGraph;
+import com.gdin.inspection.graphrag.v2.util.PyStrUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模型输出解析：GraphExtractor.parseRecords、PyStrUtil.cleanStr、社区报告的 JSON 提取
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphExtractorBenchmark {
+
+    /** 单个 text unit 一次抽取的记录数（实体 + 关系各一半） */
+    @Param({"20", "200"})
+    public int records;
+
+    private String extractionOutput;
+    private Map<String, String> promptArgs;
+    private String dirtyField;
+    private String reportOutput;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticGraph graph = SyntheticGraph.fromFixtures();
+        extractionOutput = graph.extractionOutput(records / 2, records / 2,
+                GraphExtractor.DEFAULT_TUPLE_DELIMITER,
+                GraphExtractor.DEFAULT_RECORD_DELIMITER,
+                GraphExtractor.DEFAULT_COMPLETION_DELIMITER);
+        promptArgs = Map.of(
+                "tuple_delimiter", GraphExtractor.DEFAULT_TUPLE_DELIMITER,
+                "record_delimiter", GraphExtractor.DEFAULT_RECORD_DELIMITER,
+                "completion_delimiter", GraphExtractor.DEFAULT_COMPLETION_DELIMITER
+        );
+        dirtyField = "  &quot;" + graph.description(3) + "&amp;\u0007\u0085&quot;  ";
+        reportOutput = graph.reportOutput(records / 20 + 1);
+    }
+
+    @Benchmark
+    public GraphExtractor.Result parseRecords() {
+        return GraphExtractor.parseRecords(extractionOutput, "tu-0", promptArgs);
+    }
+
+    @Benchmark
+    public String cleanStr() {
+        return PyStrUtil.cleanStr(dirtyField);
+    }
+
+    @Benchmark
+    public String extractFirstJsonObject() {
+        return CommunityReportsExtractor.JsonExtractors.extractFirstJsonObject(reportOutput);
+    }
+}
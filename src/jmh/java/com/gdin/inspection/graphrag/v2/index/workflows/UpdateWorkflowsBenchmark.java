@@ -0,0 +1,94 @@
+package com.gdin.inspection.graphrag.v2.index.workflows;
+
+import com.gdin.inspection.graphrag.bench.SyntheticGraph;
+import com.gdin.inspection.graphrag.v2.models.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * standard_update 的各个合并步骤（只测纯 CPU 部分，UpdateGraphWorkflow 的 summarize 需要大模型，不在这里）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateWorkflowsBenchmark {
+
+    /** 旧索引的实体数；delta 取其 1/10，文本单元、关系、社区按比例生成 */
+    @Param({"10000", "100000"})
+    public int oldEntityCount;
+
+    private final UpdateGraphWorkflow updateGraphWorkflow = new UpdateGraphWorkflow();
+    private final UpdateTextUnitsWorkflow updateTextUnitsWorkflow = new UpdateTextUnitsWorkflow();
+    private final UpdateCovariatesWorkflow updateCovariatesWorkflow = new UpdateCovariatesWorkflow();
+    private final UpdateCommunitiesWorkflow updateCommunitiesWorkflow = new UpdateCommunitiesWorkflow();
+    private final UpdateCommunityReportsWorkflow updateCommunityReportsWorkflow = new UpdateCommunityReportsWorkflow();
+
+    private List<Entity> oldEntities, deltaEntities;
+    private List<Relationship> oldRelationships, deltaRelationships;
+    private List<TextUnit> oldTextUnits, deltaTextUnits;
+    private List<Covariate> oldCovariates, deltaCovariates;
+    private List<Community> oldCommunities, deltaCommunities;
+    private List<CommunityReport> oldReports, deltaReports;
+    private Map<String, String> entityIdMapping;
+    private Map<Integer, Integer> communityIdMapping;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticGraph graph = SyntheticGraph.fromFixtures();
+        int deltaEntityCount = Math.max(1, oldEntityCount / 10);
+        // old / delta 共用标题空间，delta 中约一半实体与旧索引重名
+        int titleSpace = oldEntityCount * 2;
+
+        oldTextUnits = graph.textUnits("doc-old", oldEntityCount / 2);
+        deltaTextUnits = graph.textUnits("doc-delta", deltaEntityCount / 2 + 1);
+        oldEntities = graph.entities("old", oldEntityCount, titleSpace, oldTextUnits);
+        deltaEntities = graph.entities("delta", deltaEntityCount, titleSpace, deltaTextUnits);
+        oldRelationships = graph.relationships("old", oldEntityCount * 2, oldEntities, oldTextUnits);
+        deltaRelationships = graph.relationships("delta", deltaEntityCount * 2, deltaEntities, deltaTextUnits);
+        oldCovariates = graph.covariates("old", oldEntityCount / 2, oldEntities, oldTextUnits);
+        deltaCovariates = graph.covariates("delta", deltaEntityCount / 2 + 1, deltaEntities, deltaTextUnits);
+        oldCommunities = graph.communities("old", oldEntityCount / 20 + 1, oldEntities);
+        deltaCommunities = graph.communities("delta", deltaEntityCount / 20 + 1, deltaEntities);
+        oldReports = graph.communityReports(oldCommunities);
+        deltaReports = graph.communityReports(deltaCommunities);
+
+        entityIdMapping = updateGraphWorkflow.groupAndResolveEntities(oldEntities, deltaEntities).getEntityIdMapping();
+        communityIdMapping = updateCommunitiesWorkflow.run(oldCommunities, deltaCommunities).getCommunityIdMapping();
+    }
+
+    @Benchmark
+    public Object mergeEntities() {
+        return updateGraphWorkflow.groupAndResolveEntities(oldEntities, deltaEntities);
+    }
+
+    @Benchmark
+    public List<Relationship> mergeRelationships() {
+        return updateGraphWorkflow.updateAndMergeRelationships(oldRelationships, deltaRelationships);
+    }
+
+    @Benchmark
+    public List<TextUnit> mergeTextUnits() {
+        return updateTextUnitsWorkflow.run(oldTextUnits, deltaTextUnits, entityIdMapping);
+    }
+
+    @Benchmark
+    public List<Covariate> mergeCovariates() {
+        return updateCovariatesWorkflow.run(oldCovariates, deltaCovariates);
+    }
+
+    @Benchmark
+    public UpdateCommunitiesWorkflow.Result mergeCommunities() {
+        return updateCommunitiesWorkflow.run(oldCommunities, deltaCommunities);
+    }
+
+    @Benchmark
+    public List<CommunityReport> mergeCommunityReports() {
+        return updateCommunityReportsWorkflow.run(oldReports, deltaReports, communityIdMapping);
+    }
+}
@@ -3,11 +3,13 @@ package com.gdin.inspection.graphrag.assistant;
 import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
 
 /**
  * 普通的对话助手
+ * 继承 ChatMemoryAccess 以便复用代理时按 memoryId 释放会话内存
  */
-public interface CommonAssistant {
+public interface CommonAssistant extends ChatMemoryAccess {
 
     String chat(@MemoryId String memoryId, @UserMessage String prompt);
 
@@ -3,6 +3,8 @@ package com.gdin.inspection.graphrag.config;
 
 import com.gdin.inspection.graphrag.assistant.CommonAssistant;
 import com.gdin.inspection.graphrag.assistant.ThinkAssistant;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
+import com.gdin.inspection.graphrag.metrics.MeteredEmbeddingModel;
 import com.gdin.inspection.graphrag.store.MapChatMemoryStore;
 import dev.langchain4j.community.model.dashscope.QwenChatModel;
 import dev.langchain4j.community.model.dashscope.QwenChatRequestParameters;
@@ -18,6 +20,7 @@ import jakarta.annotation.Resource;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 @Configuration
 public class AIConfig {
@@ -51,21 +54,25 @@ public class AIConfig {
     }
 
     @Bean("thinkCm")
+    @Profile("!offline")
     public ChatModel thinkChatModel() {
         return buildChatModel(true);
     }
 
     @Bean("commonCm")
+    @Profile("!offline")
     public ChatModel commonChatModel() {
         return buildChatModel(false);
     }
 
     @Bean("thinkScm")
+    @Profile("!offline")
     public StreamingChatModel thinkStreamingChatModel() {
         return buildStreamingChatModel(true);
     }
 
     @Bean("commonScm")
+    @Profile("!offline")
     public StreamingChatModel commonStreamingChatModel() {
         return buildStreamingChatModel(false);
     }
@@ -101,10 +108,12 @@ public class AIConfig {
     }
 
     @Bean
-    public EmbeddingModel embeddingModel() {
-        return OllamaEmbeddingModel.builder()
+    @Profile("!offline")
+    public EmbeddingModel embeddingModel(GraphRagMetrics graphRagMetrics) {
+        EmbeddingModel embeddingModel = OllamaEmbeddingModel.builder()
                 .baseUrl("http://192.168.1.31:11434/")
                 .modelName("quentinz/bge-large-zh-v1.5:latest")
                 .build();
+        return new MeteredEmbeddingModel(embeddingModel, graphRagMetrics);
     }
 }
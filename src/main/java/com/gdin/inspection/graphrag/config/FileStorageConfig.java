@@ -0,0 +1,27 @@
+package com.gdin.inspection.graphrag.config;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.v2.storage.FileGraphRagIndexStorage;
+import jakarta.annotation.Resource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.nio.file.Path;
+
+/**
+ * file-storage profile：索引表读写改走本地列式文件（gdin.ai.graph.file-storage.dir），替换 MilvusGraphRagIndexStorage。
+ * 用于暂存 / 快照导出以及不想写线上 Milvus 的本地调试；知识库切片、向量检索仍走 Milvus。
+ */
+@Configuration
+@Profile("file-storage")
+public class FileStorageConfig {
+    @Resource
+    private GraphProperties graphProperties;
+
+    @Bean
+    public FileGraphRagIndexStorage fileGraphRagIndexStorage() {
+        GraphProperties.FileStorage fileStorage = graphProperties.getFileStorage();
+        return new FileGraphRagIndexStorage(Path.of(fileStorage.getDir()), Boolean.TRUE.equals(fileStorage.getCompress()));
+    }
+}
@@ -1,26 +1,40 @@
 package com.gdin.inspection.graphrag.config;
 
+import cn.hutool.core.util.StrUtil;
 import com.gdin.inspection.graphrag.config.properties.GraphProperties;
-import com.gdin.inspection.graphrag.v2.index.pipeline.PipelineFactory;
+import com.gdin.inspection.graphrag.v2.storage.KnowledgeSliceWriteBackService;
 import io.milvus.v2.client.MilvusClientV2;
 import io.milvus.v2.common.DataType;
 import io.milvus.v2.common.IndexParam;
+import io.milvus.v2.service.collection.request.AddCollectionFieldReq;
 import io.milvus.v2.service.collection.request.AddFieldReq;
 import io.milvus.v2.service.collection.request.CreateCollectionReq;
+import io.milvus.v2.service.collection.request.DescribeCollectionReq;
 import io.milvus.v2.service.collection.request.HasCollectionReq;
+import io.milvus.v2.service.collection.response.DescribeCollectionResp;
+import io.milvus.v2.service.index.request.CreateIndexReq;
+import io.milvus.v2.service.index.request.ListIndexesReq;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
-import org.springframework.context.annotation.Bean;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import java.util.*;
 
+/**
+ * 启动时建图索引 collection、给知识库切片补 scope 字段和过滤索引；offline profile 下不连 Milvus，整个跳过
+ */
+@Slf4j
 @Configuration
+@Profile("!offline")
 public class GraphConfig {
     @Resource
     private MilvusClientV2 milvusClientV2;
     @Resource
     private GraphProperties graphProperties;
+    @Resource
+    private KnowledgeSliceWriteBackService knowledgeSliceWriteBackService;
 
     @PostConstruct
     private void init() {
@@ -29,16 +43,105 @@ public class GraphConfig {
         initCommunity();
         initCommunityReport();
         initCovariate();
+        initContentScopeField();
+        initContentInputIndexes();
+    }
+
+    private boolean partitionEnabled() {
+        return Boolean.TRUE.equals(graphProperties.getScope().getPartitionEnabled());
     }
 
-    @Bean
-    protected PipelineFactory<Object> pipelineFactory() {
-        return new PipelineFactory<>();
+    /**
+     * 知识库切片上补一个 scope 标量字段 + INVERTED 索引，替代 extra["graph"] 的 JSON 路径过滤。
+     * 按 extra.graph 回填放到后台执行，不阻塞启动；字段已存在时也触发一次，补齐上次中断的回填（没有空值时只有一次查询）。
+     */
+    private void initContentScopeField() {
+        String field = graphProperties.getScope().getContentScopeField();
+        if (StrUtil.isBlank(field)) return;
+        String collectionName = graphProperties.getCollectionNames().getMain().getContentCollectionName();
+        if (Boolean.FALSE.equals(milvusClientV2.hasCollection(HasCollectionReq.builder()
+                .collectionName(collectionName)
+                .build()))) {
+            log.warn("知识库集合不存在, 跳过 scope 字段初始化: {}", collectionName);
+            return;
+        }
+        DescribeCollectionResp describe = milvusClientV2.describeCollection(DescribeCollectionReq.builder()
+                .collectionName(collectionName)
+                .build());
+        boolean exists = describe.getCollectionSchema().getFieldSchemaList().stream()
+                .anyMatch(f -> field.equals(f.getName()));
+        if (exists) {
+            knowledgeSliceWriteBackService.backfillScopeFieldAsync();
+            return;
+        }
+
+        milvusClientV2.addCollectionField(AddCollectionFieldReq.builder()
+                .collectionName(collectionName)
+                .fieldName(field)
+                .dataType(DataType.Int64)
+                .isNullable(true)
+                .build());
+        milvusClientV2.createIndex(CreateIndexReq.builder()
+                .collectionName(collectionName)
+                .indexParams(List.of(IndexParam.builder()
+                        .fieldName(field)
+                        .indexType(IndexParam.IndexType.INVERTED)
+                        .build()))
+                .build());
+        log.info("已为 {} 新增 scope 字段 {}，后台按 extra.graph 回填", collectionName, field);
+        knowledgeSliceWriteBackService.backfillScopeFieldAsync();
+    }
+
+    /**
+     * LoadInputDocumentsWorkflow 按 document_id / segment_type 过滤切片：
+     * 配置了提升的标量字段则为其建 INVERTED 索引，否则为 metadata 的两个 JSON 路径建索引，避免全表扫描
+     */
+    private void initContentInputIndexes() {
+        GraphProperties.Input input = graphProperties.getInput();
+        String collectionName = graphProperties.getCollectionNames().getMain().getContentCollectionName();
+        if (Boolean.FALSE.equals(milvusClientV2.hasCollection(HasCollectionReq.builder()
+                .collectionName(collectionName)
+                .build()))) return;
+        List<String> existing = milvusClientV2.listIndexes(ListIndexesReq.builder()
+                .collectionName(collectionName)
+                .build());
+        List<IndexParam> indexParams = new ArrayList<>();
+        for (String[] pair : List.of(
+                new String[]{input.getDocumentIdField(), "document_id"},
+                new String[]{input.getSegmentTypeField(), "segment_type"})) {
+            String scalarField = pair[0];
+            String jsonKey = pair[1];
+            if (!StrUtil.isBlank(scalarField)) {
+                String indexName = "idx_" + scalarField;
+                if (existing.contains(indexName)) continue;
+                indexParams.add(IndexParam.builder()
+                        .fieldName(scalarField)
+                        .indexName(indexName)
+                        .indexType(IndexParam.IndexType.INVERTED)
+                        .build());
+            } else if (Boolean.TRUE.equals(input.getJsonPathIndexEnabled())) {
+                String indexName = "idx_metadata_" + jsonKey;
+                if (existing.contains(indexName)) continue;
+                indexParams.add(IndexParam.builder()
+                        .fieldName("metadata")
+                        .indexName(indexName)
+                        .indexType(IndexParam.IndexType.INVERTED)
+                        .extraParams(Map.of("json_path", "metadata[\"" + jsonKey + "\"]", "json_cast_type", "varchar"))
+                        .build());
+            }
+        }
+        if (indexParams.isEmpty()) return;
+        milvusClientV2.createIndex(CreateIndexReq.builder()
+                .collectionName(collectionName)
+                .indexParams(indexParams)
+                .build());
+        log.info("已为 {} 创建切片过滤索引: {}", collectionName, indexParams.stream().map(IndexParam::getIndexName).toList());
     }
 
     private void initEntity() {
         initEntity(graphProperties.getCollectionNames().getMain().getEntityCollectionName());
-        initEntity(graphProperties.getCollectionNames().getDelta().getEntityCollectionName());
+        // 分区模式下 delta 是主 collection 的分区，不再单独建 collection
+        if (!partitionEnabled()) initEntity(graphProperties.getCollectionNames().getDelta().getEntityCollectionName());
     }
 
     private void initEntity(String collectionName) {
@@ -130,7 +233,8 @@ public class GraphConfig {
 
     private void initRelationship() {
         initRelationship(graphProperties.getCollectionNames().getMain().getRelationshipCollectionName());
-        initRelationship(graphProperties.getCollectionNames().getDelta().getRelationshipCollectionName());
+        // 分区模式下 delta 是主 collection 的分区，不再单独建 collection
+        if (!partitionEnabled()) initRelationship(graphProperties.getCollectionNames().getDelta().getRelationshipCollectionName());
     }
 
     private void initRelationship(String collectionName) {
@@ -210,7 +314,8 @@ public class GraphConfig {
 
     private void initCommunity() {
         initCommunity(graphProperties.getCollectionNames().getMain().getCommunityCollectionName());
-        initCommunity(graphProperties.getCollectionNames().getDelta().getCommunityCollectionName());
+        // 分区模式下 delta 是主 collection 的分区，不再单独建 collection
+        if (!partitionEnabled()) initCommunity(graphProperties.getCollectionNames().getDelta().getCommunityCollectionName());
     }
 
     private void initCommunity(String collectionName) {
@@ -310,7 +415,8 @@ public class GraphConfig {
 
     private void initCommunityReport() {
         initCommunityReport(graphProperties.getCollectionNames().getMain().getCommunityReportCollectionName());
-        initCommunityReport(graphProperties.getCollectionNames().getDelta().getCommunityReportCollectionName());
+        // 分区模式下 delta 是主 collection 的分区，不再单独建 collection
+        if (!partitionEnabled()) initCommunityReport(graphProperties.getCollectionNames().getDelta().getCommunityReportCollectionName());
     }
 
     private void initCommunityReport(String collectionName) {
@@ -428,7 +534,8 @@ public class GraphConfig {
 
     private void initCovariate() {
         initCovariate(graphProperties.getCollectionNames().getMain().getCovariateCollectionName());
-        initCovariate(graphProperties.getCollectionNames().getDelta().getCovariateCollectionName());
+        // 分区模式下 delta 是主 collection 的分区，不再单独建 collection
+        if (!partitionEnabled()) initCovariate(graphProperties.getCollectionNames().getDelta().getCovariateCollectionName());
     }
 
     private void initCovariate(String collectionName) {
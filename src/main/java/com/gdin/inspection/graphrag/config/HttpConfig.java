@@ -1,14 +1,32 @@
 package com.gdin.inspection.graphrag.config;
 
+import com.gdin.inspection.graphrag.config.properties.HttpProperties;
+import com.gdin.inspection.graphrag.util.HttpClientUtil;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * 出站 HTTP 统一走同一个带连接池的 httpclient5 客户端（配置见 {@link HttpProperties}）：
+ * - RestTemplate（HttpGraphClusterClient 等）
+ * - 直接使用 CloseableHttpClient 的组件（HanlpTokenizer 等）
+ */
 @Configuration
 public class HttpConfig {
 
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient pooledHttpClient(HttpProperties httpProperties) throws Exception {
+        return HttpClientUtil.createPooledClient(httpProperties);
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient pooledHttpClient, HttpProperties httpProperties) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(pooledHttpClient));
+        if (Boolean.TRUE.equals(httpProperties.getGzipRequest())) {
+            restTemplate.getInterceptors().add(new GzipRequestInterceptor(httpProperties.getGzipRequestMinBytes()));
+        }
+        return restTemplate;
     }
-}
\ No newline at end of file
+}
@@ -6,8 +6,10 @@ import io.milvus.v2.client.MilvusClientV2;
 import jakarta.annotation.Resource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 @Configuration
+@Profile("!offline")
 public class MilvusConfig {
     @Resource
     private MilvusProperties milvusProperties;
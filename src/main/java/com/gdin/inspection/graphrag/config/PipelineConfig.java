@@ -0,0 +1,17 @@
+package com.gdin.inspection.graphrag.config;
+
+import com.gdin.inspection.graphrag.v2.index.pipeline.PipelineFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 索引 pipeline 注册表，各 *PipelineRegistrar 启动时往里注册 workflow 与 pipeline
+ */
+@Configuration
+public class PipelineConfig {
+
+    @Bean
+    protected PipelineFactory<Object> pipelineFactory() {
+        return new PipelineFactory<>();
+    }
+}
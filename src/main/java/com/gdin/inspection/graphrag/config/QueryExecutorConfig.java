@@ -0,0 +1,39 @@
+package com.gdin.inspection.graphrag.config;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.util.TtlExecutorUtil;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 查询侧共享线程池。
+ * DRIFT 每个请求的 primer / 展开调用都派发到 driftExecutor，线程数即所有 DRIFT 请求合计的在途 LLM 调用上限，
+ * 不再每次查询新建线程池；队列有界，排满后由提交线程自己执行，请求多时对调用方形成背压。
+ */
+@Configuration
+public class QueryExecutorConfig {
+
+    @Bean(name = "driftExecutor", destroyMethod = "shutdown")
+    public ExecutorService driftExecutor(GraphProperties graphProperties) {
+        GraphProperties.Query.Drift cfg = graphProperties.getQuery().getDrift();
+        int threads = Math.max(1, cfg.getConcurrency());
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, cfg.getQueueCapacity())),
+                r -> {
+                    Thread t = new Thread(r, "drift-worker-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return TtlExecutorUtil.wrap(executor);
+    }
+}
@@ -5,20 +5,42 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @ConfigurationProperties(prefix = "gdin.ai.doc")
 @Component
 public class DocProperties implements Serializable {
+    // hanlp：远程 HanLP 服务（默认）；dictionary：进程内词典分词，不走网络
     private String tokenizerType;
 
     private HanlpTokenizerProperties hanlpTokenizer = new HanlpTokenizerProperties();
 
+    private DictionaryTokenizerProperties dictionaryTokenizer = new DictionaryTokenizerProperties();
+
     @Data
     public static class HanlpTokenizerProperties implements Serializable {
         private String baseUrl;
         private String model;
         private String posModel;
         private Long timeoutInSeconds;
+        // 批量接口路径，请求体 {"texts": [...]}，返回 {"results": [{"tokens": [...]}, ...]}；为空时逐条调用 /parse
+        private String batchPath;
+        // 单次批量请求最多的文本条数 / 字符数
+        private Integer batchSize = 64;
+        private Integer batchMaxChars = 20000;
+        // 同时在途的请求数，不应超过共享连接池的每路由上限（gdin.ai.http）
+        private Integer concurrency = 4;
+        // 分词结果缓存条数，0 表示不缓存
+        private Integer cacheSize = 10000;
+    }
+
+    @Data
+    public static class DictionaryTokenizerProperties implements Serializable {
+        // 用户词典（Spring 资源路径，如 classpath:dict/power.txt、file:/data/dict.txt），每行 "词 [词性 [频次]]"
+        private List<String> userDictionaries = new ArrayList<>();
+        // 未写词性时的默认词性
+        private String defaultNature = "n";
     }
 }
@@ -14,6 +14,10 @@ public class GraphProperties implements Serializable {
     private CollectionNames collectionNames = new CollectionNames();
     private Index index = new Index();
     private Leiden leiden = new Leiden();
+    private FileStorage fileStorage = new FileStorage();
+    private Scope scope = new Scope();
+    private Input input = new Input();
+    private Query query = new Query();
 
     @Data
     public static class CollectionNames implements Serializable {
@@ -44,6 +48,9 @@ public class GraphProperties implements Serializable {
     public static class Index implements Serializable {
         private Standard standard = new Standard();
         private StandardUpdate standardUpdate = new StandardUpdate();
+        private Streaming streaming = new Streaming();
+        // 单次索引 run 的截止时间（毫秒），超时后取消；0 = 不限
+        private Long runTimeoutMs = 0L;
 
         @Data
         public static class Standard implements Serializable {
@@ -96,10 +103,117 @@ public class GraphProperties implements Serializable {
         }
 
         public static class StandardUpdate extends Standard {}
+
+        /**
+         * 微批索引：文档按窗口依次走 standard_update，抽取与合并/落库流水线重叠
+         */
+        @Data
+        public static class Streaming implements Serializable {
+            // runStandardUpdate（standard_update）的文档数超过一个窗口时改走微批索引
+            private Boolean enabled = true;
+            // 每个窗口的文档数
+            private Integer windowSize = 20;
+            // 合并阶段执行期间，最多提前抽取的窗口数（决定内存上限）
+            private Integer prefetchWindows = 1;
+        }
     }
 
     @Data
     public static class Leiden implements Serializable {
         private String baseUrl;
     }
+
+    @Data
+    public static class FileStorage implements Serializable {
+        // 列式文件根目录，下分 main / delta
+        private String dir = "data/graphrag-index";
+        // 是否 gzip 压缩
+        private Boolean compress = true;
+    }
+
+    @Data
+    public static class Scope implements Serializable {
+        // true: delta 作为主 collection 的一个分区；false: 沿用独立的 delta collection
+        private Boolean partitionEnabled = true;
+        // 主索引分区，默认分区即历史数据所在分区，切换无需迁移
+        private String mainPartition = "_default";
+        private String deltaPartition = "graph_delta";
+        // 知识库切片上的 scope 标量字段（INVERTED 索引）；为空则沿用 extra["graph"] 的 JSON 过滤
+        private String contentScopeField = "graph_scope";
+    }
+
+    @Data
+    public static class Input implements Serializable {
+        // 文档 id 过多时分块查询，避免 in [...] 表达式过长
+        private Integer documentIdChunkSize = 500;
+        // QueryIterator 每批条数
+        private Integer queryBatchSize = 1000;
+        // 知识库切片上提升出来的标量字段名（配置后直接按标量字段过滤），为空则按 metadata JSON 路径过滤
+        private String documentIdField;
+        private String segmentTypeField;
+        // 未提升标量字段时，为 metadata["document_id"] / metadata["segment_type"] 建 JSON 路径索引
+        private Boolean jsonPathIndexEnabled = true;
+    }
+
+    @Data
+    public static class Query implements Serializable {
+        private Cache cache = new Cache();
+        private Drift drift = new Drift();
+        private Snapshot snapshot = new Snapshot();
+
+        @Data
+        public static class Snapshot implements Serializable {
+            // 主索引写入后延迟多久重建查询快照（毫秒），窗口内的多次写入合并为一次重建
+            private Long refreshDebounceMillis = 2000L;
+        }
+
+        /**
+         * 查询回答缓存：精确层按 规范化问题 + 检索参数 + 索引版本 命中；语义层按问题向量相似度命中。
+         * 主索引写入（PersistIndexWorkflow -> IndexSnapshotHolder.requestRefresh）后两层自动失效
+         */
+        @Data
+        public static class Cache implements Serializable {
+            private Boolean enabled = true;
+            // 精确层容量（LRU）
+            private Integer exactCapacity = 2000;
+            // 是否启用语义层（需要一次 embedding，检索时复用；候选需检索上下文一致才复用，默认关闭）
+            private Boolean semanticEnabled = false;
+            // 语义层容量，线性扫描，不宜过大
+            private Integer semanticCapacity = 1000;
+            // 余弦相似度阈值，越高越保守
+            private Double similarityThreshold = 0.95;
+            // 过期时间（分钟），0 = 只随索引刷新失效
+            private Integer ttlMinutes = 60;
+            // 命中后流式回放的分片字符数
+            private Integer replayChunkChars = 16;
+        }
+
+        /**
+         * DRIFT 检索：社区报告 primer -> 逐层展开后续问题（局部上下文回答）-> reduce
+         */
+        @Data
+        public static class Drift implements Serializable {
+            // primer 取相似度最高的社区报告数
+            private Integer primerReports = 20;
+            // primer 报告分成几组并发调用，对齐 Python primer_folds
+            private Integer primerFolds = 5;
+            // 每层最多展开的后续问题数，对齐 Python drift_k_followups
+            private Integer followUpsPerDepth = 10;
+            // 展开层数，对齐 Python n_depth
+            private Integer depth = 3;
+            // 共享线程池 driftExecutor 的线程数，即所有 DRIFT 请求合计的在途 LLM 调用上限
+            private Integer concurrency = 8;
+            // driftExecutor 的等待队列长度，排满后由提交线程自己执行
+            private Integer queueCapacity = 256;
+            // 一次检索的 token 预算（prompt + 输出，估算值），用尽后不再展开新的后续问题，直接 reduce
+            private Integer tokenBudget = 200_000;
+            // 局部上下文：文本单元 topK 与上下文 token 上限
+            private Integer localTextUnits = 10;
+            private Integer localMaxContextTokens = 8000;
+            // 局部上下文中匹配到的实体数上限（按 degree 取前若干个）
+            private Integer localEntities = 10;
+            // reduce 时按分数取前若干个中间回答
+            private Integer reduceTopAnswers = 30;
+        }
+    }
 }
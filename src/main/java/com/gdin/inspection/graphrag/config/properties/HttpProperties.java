@@ -0,0 +1,38 @@
+package com.gdin.inspection.graphrag.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 出站 HTTP 共享连接池（HttpConfig 中的 CloseableHttpClient / RestTemplate）
+ */
+@Data
+@ConfigurationProperties(prefix = "gdin.ai.http")
+@Component
+public class HttpProperties implements Serializable {
+    // 连接池总连接数 / 每路由（scheme + host + port）默认连接数
+    private Integer maxTotal = 200;
+    private Integer maxPerRoute = 20;
+    // 单独设置的每路由连接数，key 为 "http://host:port"
+    private Map<String, Integer> routeMaxConnections = new LinkedHashMap<>();
+    private Long connectTimeoutMs = 5000L;
+    // 从连接池取连接的等待时间
+    private Long connectionRequestTimeoutMs = 10000L;
+    // 等待响应的时间；Leiden 聚类大图时耗时较长，默认放宽
+    private Long responseTimeoutMs = 300000L;
+    // 空闲连接最长保活时间（秒），服务端 Keep-Alive 更短时以服务端为准；超过后由后台线程回收
+    private Long keepAliveSeconds = 60L;
+    // 连接空闲超过该时间再次使用前先做可用性检查
+    private Long validateAfterInactivityMs = 2000L;
+    // 与原 HttpClientUtil 行为一致：信任所有证书、不校验主机名
+    private Boolean trustAllCertificates = true;
+    // 请求体 gzip 压缩（响应解压始终开启）；需要服务端支持 Content-Encoding: gzip 请求，默认关闭
+    private Boolean gzipRequest = false;
+    // 请求体超过该字节数才压缩
+    private Integer gzipRequestMinBytes = 16384;
+}
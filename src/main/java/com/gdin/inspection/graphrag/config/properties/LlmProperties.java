@@ -0,0 +1,34 @@
+package com.gdin.inspection.graphrag.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+
+@Data
+@ConfigurationProperties(prefix = "gdin.ai.llm")
+@Component
+public class LlmProperties implements Serializable {
+    private ChatMemory chatMemory = new ChatMemory();
+    private Ledger ledger = new Ledger();
+
+    @Data
+    public static class ChatMemory implements Serializable {
+        // 最多保留的会话数，超出后按最近访问时间淘汰最旧的一批
+        private Integer maxSessions = 10000;
+        // 会话空闲多久后过期（分钟）
+        private Long expireAfterAccessMinutes = 60L;
+        // 过期扫描间隔（秒）
+        private Long sweepIntervalSeconds = 60L;
+    }
+
+    @Data
+    public static class Ledger implements Serializable {
+        // token 台账落盘目录，每次 pipeline run 一个文件
+        private String dir = "logs/token-ledger";
+        // 单价（元 / 千 token），用于估算费用
+        private Double promptPricePer1k = 0.002;
+        private Double completionPricePer1k = 0.008;
+    }
+}
@@ -0,0 +1,93 @@
+package com.gdin.inspection.graphrag.doc.tokenizer;
+
+import cn.hutool.core.util.StrUtil;
+import com.gdin.inspection.graphrag.config.properties.DocProperties;
+import com.gdin.inspection.graphrag.pojo.Token;
+import com.hankcs.hanlp.HanLP;
+import com.hankcs.hanlp.dictionary.CustomDictionary;
+import com.hankcs.hanlp.seg.Segment;
+import com.hankcs.hanlp.seg.common.Term;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 进程内词典分词（HanLP portable 自带核心词典 + 配置的用户词典），不走网络，输出与 {@link HanlpTokenizer} 相同的 Token(word, pos)。
+ * gdin.ai.doc.tokenizer-type=dictionary 时启用。
+ * 注意：
+ * - 词性为 HanLP 1.x 的 PKU 风格标注，与远程服务所用模型的标注集不一定一致，比对见 TokenizerComparisonTest
+ * - 用户词典写入 HanLP 的全局 CustomDictionary，同一进程内所有 HanLP 分词器共享
+ * Segment 配置完成后只读，可并发调用。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "gdin.ai.doc", name = "tokenizer-type", havingValue = "dictionary")
+public class DictionaryTokenizer implements ITokenizer {
+
+    @Resource
+    private DocProperties docProperties;
+
+    @Resource
+    private ResourceLoader resourceLoader;
+
+    private Segment segment;
+
+    @PostConstruct
+    public void init() throws IOException {
+        DocProperties.DictionaryTokenizerProperties config = docProperties.getDictionaryTokenizer();
+        long start = System.currentTimeMillis();
+        int words = 0;
+        for (String location : config.getUserDictionaries()) {
+            words += loadUserDictionary(location, config.getDefaultNature());
+        }
+        segment = HanLP.newSegment()
+                .enableCustomDictionary(true)
+                .enablePartOfSpeechTagging(true);
+        // 触发核心词典加载，避免首个请求承担加载耗时
+        segment.seg("初始化");
+        log.info("词典分词器已就绪: 用户词典 {} 个, 词条 {} 个, 耗时={}ms", config.getUserDictionaries().size(), words, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public List<Token> parse(String text) {
+        List<Token> tokenList = new ArrayList<>();
+        if (StrUtil.isBlank(text)) return tokenList;
+        for (Term term : segment.seg(text)) {
+            if (StrUtil.isBlank(term.word)) continue;
+            tokenList.add(Token.builder().word(term.word).pos(term.nature == null ? null : term.nature.toString()).build());
+        }
+        return tokenList;
+    }
+
+    /**
+     * 每行 "词 [词性 [频次]]"，# 开头为注释；只写词时使用默认词性，只写词性时频次取 1000
+     */
+    private int loadUserDictionary(String location, String defaultNature) throws IOException {
+        org.springframework.core.io.Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) throw new IllegalStateException("用户词典不存在: " + location);
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split("\\s+", 2);
+                String natureWithFrequency = parts.length > 1 ? parts[1].trim() : defaultNature;
+                // 只写了词性没写频次时补一个默认频次，HanLP 要求 "词性 频次" 成对出现
+                if (natureWithFrequency.split("\\s+").length % 2 == 1) natureWithFrequency += " 1000";
+                if (CustomDictionary.insert(parts[0], natureWithFrequency)) count++;
+            }
+        }
+        return count;
+    }
+}
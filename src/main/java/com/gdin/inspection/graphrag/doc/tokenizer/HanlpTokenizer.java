@@ -1,65 +1,210 @@
 package com.gdin.inspection.graphrag.doc.tokenizer;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.util.StrUtil;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import com.gdin.inspection.graphrag.config.properties.DocProperties;
 import com.gdin.inspection.graphrag.pojo.Token;
-import com.gdin.inspection.graphrag.util.HttpClientUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.entity.EntityBuilder;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.core5.http.ContentType;
-import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
 
+/**
+ * 远程 HanLP 分词：
+ * - 使用 HttpConfig 中共享的带连接池 HttpClient，连接保活复用，不再每次调用握手
+ * - parseBatch 把多条文本按条数 / 字符数打包成一次批量请求（需配置 batchPath），多个批次并发发送
+ * - 在途请求数由信号量限制为 concurrency（需不超过连接池的每路由上限 gdin.ai.http.max-per-route）
+ * - 相同文本的结果走 LRU 缓存，批内重复文本只请求一次
+ * gdin.ai.doc.tokenizer-type=hanlp 或未配置时启用。
+ */
 @Slf4j
 @Component
+@ConditionalOnProperty(prefix = "gdin.ai.doc", name = "tokenizer-type", havingValue = "hanlp", matchIfMissing = true)
 public class HanlpTokenizer implements ITokenizer {
     @Resource
     private DocProperties docProperties;
 
+    @Resource
+    private CloseableHttpClient httpClient;
+
+    private DocProperties.HanlpTokenizerProperties config;
+    private RequestConfig requestConfig;
+    private Semaphore permits;
+    private ExecutorService batchPool;
+    private LRUCache<String, List<Token>> cache;
+
+    @PostConstruct
+    public void init() throws Exception {
+        config = docProperties.getHanlpTokenizer();
+        int concurrency = Math.max(1, config.getConcurrency());
+        // 未配置超时则沿用共享客户端的默认值
+        requestConfig = config.getTimeoutInSeconds() == null ? null : RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofSeconds(config.getTimeoutInSeconds()))
+                .setResponseTimeout(Timeout.ofSeconds(config.getTimeoutInSeconds()))
+                .build();
+        permits = new Semaphore(concurrency);
+        batchPool = Executors.newFixedThreadPool(concurrency);
+        cache = config.getCacheSize() == null || config.getCacheSize() <= 0 ? null : CacheUtil.newLRUCache(config.getCacheSize());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        batchPool.shutdownNow();
+    }
+
     @Override
     public List<Token> parse(String text) throws Exception {
-        List<Token> tokenList = new ArrayList<>();
-        DocProperties.HanlpTokenizerProperties hanlpTokenizer = docProperties.getHanlpTokenizer();
-        try (CloseableHttpClient httpClient = HttpClientUtil.getApacheClient(hanlpTokenizer.getTimeoutInSeconds())) {
-            // 2. 构建 POST 请求
-            HttpPost post = new HttpPost(hanlpTokenizer.getBaseUrl()+"/parse");
-            post.addHeader("Accept", "application/json");
-            post.addHeader("Content-Type", "application/json");
-            // 3. 构建 请求体
-            JSONObject reqJson = new JSONObject();
-            reqJson.put("text", text);
-            if(hanlpTokenizer.getModel()!=null) reqJson.put("model", hanlpTokenizer.getModel());
-            if(hanlpTokenizer.getPosModel()!=null) reqJson.put("pos_model", hanlpTokenizer.getPosModel());
-            HttpEntity httpEntity = EntityBuilder.create()
-                    .setText(reqJson.toJSONString())
-                    .setContentType(ContentType.APPLICATION_JSON)
-                    .build();
-            post.setEntity(httpEntity);
-            // 4. 执行请求并处理响应
-            try (CloseableHttpResponse response = httpClient.execute(post)) {
-                String respBody = EntityUtils.toString(response.getEntity(), "UTF-8");
-                if(response.getCode()!=200) throw new RuntimeException("Hanlp 调用失败: " + respBody);
-                log.info("返回解析数据如下: {}", respBody);
-                JSONObject respJson = JSONObject.parseObject(respBody);
-                JSONArray tokens = respJson.getJSONArray("tokens");
-                for (int i = 0; i < tokens.size(); i++) {
-                    JSONObject tokenObj = tokens.getJSONObject(i);
-                    tokenList.add(Token.builder().word(tokenObj.getString("word")).pos(tokenObj.getString("pos")).build());
+        return parseBatch(Collections.singletonList(text)).get(0);
+    }
+
+    @Override
+    public List<List<Token>> parseBatch(List<String> texts) throws Exception {
+        List<List<Token>> out = new ArrayList<>(Collections.nCopies(texts.size(), null));
+        // 未命中缓存的文本 -> 在 texts 中的位置（重复文本只请求一次）
+        Map<String, List<Integer>> pending = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String text = StrUtil.nullToEmpty(texts.get(i));
+            if (StrUtil.isBlank(text)) {
+                out.set(i, new ArrayList<>());
+                continue;
+            }
+            List<Token> cached = cache == null ? null : cache.get(text);
+            if (cached != null) out.set(i, new ArrayList<>(cached));
+            else pending.computeIfAbsent(text, k -> new ArrayList<>()).add(i);
+        }
+        if (pending.isEmpty()) return out;
+
+        List<List<String>> batches = batches(new ArrayList<>(pending.keySet()));
+        List<List<List<Token>>> results = new ArrayList<>(batches.size());
+        try {
+            if (batches.size() == 1) {
+                results.add(requestBatch(batches.get(0)));
+            } else {
+                List<CompletableFuture<List<List<Token>>>> futures = new ArrayList<>(batches.size());
+                for (List<String> batch : batches) {
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return requestBatch(batch);
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    }, batchPool));
                 }
+                for (CompletableFuture<List<List<Token>>> f : futures) results.add(f.join());
             }
+        } catch (CompletionException e) {
+            log.error(e.getMessage(), e);
+            throw e.getCause() instanceof Exception ex ? ex : e;
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             throw e;
         }
-        return tokenList;
+
+        for (int b = 0; b < batches.size(); b++) {
+            List<String> batch = batches.get(b);
+            List<List<Token>> tokens = results.get(b);
+            for (int j = 0; j < batch.size(); j++) {
+                String text = batch.get(j);
+                List<Token> parsed = tokens.get(j);
+                if (cache != null) cache.put(text, parsed);
+                for (int pos : pending.get(text)) out.set(pos, new ArrayList<>(parsed));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 按 batchSize / batchMaxChars 切分；单条超过 batchMaxChars 的文本单独成批
+     */
+    private List<List<String>> batches(List<String> texts) {
+        int maxCount = StrUtil.isBlank(config.getBatchPath()) ? 1 : Math.max(1, config.getBatchSize());
+        int maxChars = Math.max(1, config.getBatchMaxChars());
+        List<List<String>> out = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int chars = 0;
+        for (String text : texts) {
+            if (!current.isEmpty() && (current.size() >= maxCount || chars + text.length() > maxChars)) {
+                out.add(current);
+                current = new ArrayList<>();
+                chars = 0;
+            }
+            current.add(text);
+            chars += text.length();
+        }
+        if (!current.isEmpty()) out.add(current);
+        return out;
+    }
+
+    private List<List<Token>> requestBatch(List<String> batch) throws Exception {
+        if (StrUtil.isBlank(config.getBatchPath())) {
+            List<List<Token>> out = new ArrayList<>(batch.size());
+            for (String text : batch) {
+                JSONObject reqJson = baseRequest();
+                reqJson.put("text", text);
+                out.add(toTokens(post("/parse", reqJson).getJSONArray("tokens")));
+            }
+            return out;
+        }
+        JSONObject reqJson = baseRequest();
+        reqJson.put("texts", batch);
+        JSONArray results = post(config.getBatchPath(), reqJson).getJSONArray("results");
+        if (results == null || results.size() != batch.size()) {
+            throw new RuntimeException("Hanlp 批量调用返回条数不一致: 请求 " + batch.size() + " 条, 返回 " + (results == null ? 0 : results.size()) + " 条");
+        }
+        List<List<Token>> out = new ArrayList<>(batch.size());
+        for (int i = 0; i < results.size(); i++) out.add(toTokens(results.getJSONObject(i).getJSONArray("tokens")));
+        return out;
+    }
+
+    private JSONObject baseRequest() {
+        JSONObject reqJson = new JSONObject();
+        if(config.getModel()!=null) reqJson.put("model", config.getModel());
+        if(config.getPosModel()!=null) reqJson.put("pos_model", config.getPosModel());
+        return reqJson;
+    }
+
+    private JSONObject post(String path, JSONObject body) throws Exception {
+        HttpPost post = new HttpPost(config.getBaseUrl() + path);
+        post.addHeader("Accept", "application/json");
+        if (requestConfig != null) post.setConfig(requestConfig);
+        post.setEntity(new StringEntity(body.toJSONString(), ContentType.APPLICATION_JSON));
+        permits.acquire();
+        try {
+            // 用 ResponseHandler 执行，响应体读完后连接自动归还连接池
+            return httpClient.execute(post, response -> {
+                String respBody = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+                if(response.getCode()!=200) throw new RuntimeException("Hanlp 调用失败: " + respBody);
+                log.debug("返回解析数据如下: {}", respBody);
+                return JSONObject.parseObject(respBody);
+            });
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static List<Token> toTokens(JSONArray tokens) {
+        if (tokens == null) return List.of();
+        List<Token> tokenList = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            JSONObject tokenObj = tokens.getJSONObject(i);
+            tokenList.add(Token.builder().word(tokenObj.getString("word")).pos(tokenObj.getString("pos")).build());
+        }
+        return Collections.unmodifiableList(tokenList);
     }
 }
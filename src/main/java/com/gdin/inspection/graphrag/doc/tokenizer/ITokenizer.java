@@ -2,9 +2,19 @@ package com.gdin.inspection.graphrag.doc.tokenizer;
 
 import com.gdin.inspection.graphrag.pojo.Token;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public interface ITokenizer {
 
     List<Token> parse(String text) throws Exception;
+
+    /**
+     * 批量分词，返回结果与 texts 一一对应；默认逐条调用 {@link #parse(String)}
+     */
+    default List<List<Token>> parseBatch(List<String> texts) throws Exception {
+        List<List<Token>> out = new ArrayList<>(texts.size());
+        for (String text : texts) out.add(parse(text));
+        return out;
+    }
 }
@@ -0,0 +1,206 @@
+package com.gdin.inspection.graphrag.metrics;
+
+import com.gdin.inspection.graphrag.store.MapChatMemoryStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * GraphRAG 各层的统一埋点入口，指标通过 Actuator 的 /actuator/metrics 暴露：
+ * - graphrag.pipeline.workflow：每个 workflow 步骤耗时（tag: workflow, outcome）
+ * - graphrag.llm.call / graphrag.llm.tokens：大模型调用耗时与 token（tag: component, type）
+ * - graphrag.llm.retries / graphrag.llm.gleanings：重试次数与补抽轮数
+ * - graphrag.llm.inflight：在途请求数
+ * - graphrag.embedding.call / graphrag.embedding.texts：向量化耗时与文本数
+ * - graphrag.milvus.call / graphrag.milvus.rows：Milvus 调用耗时与行数（tag: op, collection）
+ * - graphrag.query.cache：查询回答缓存命中情况（tag: tier, outcome）
+ * - graphrag.chat_memory.sessions / messages / chars / evicted：会话记忆占用与累计淘汰数
+ * 单请求的分阶段耗时见 QueryTimings。
+ * 单测可直接 new GraphRagMetrics(new SimpleMeterRegistry())。
+ */
+@Component
+public class GraphRagMetrics {
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_ERROR = "error";
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public GraphRagMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    // -------------------- pipeline --------------------
+
+    public void recordWorkflow(String workflow, long nanos, boolean success) {
+        Timer.builder("graphrag.pipeline.workflow")
+                .tag("workflow", workflow)
+                .tag("outcome", outcome(success))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // -------------------- llm --------------------
+
+    public void recordLlmCall(String component, long nanos, boolean success) {
+        Timer.builder("graphrag.llm.call")
+                .tag("component", component)
+                .tag("outcome", outcome(success))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * provider 返回 usage 时直接记录；否则由 LlmCallTracker 按发给模型的整段上下文（系统提示 + 历史 + 本轮）估算
+     */
+    public void recordLlmTokens(String component, long promptTokens, long completionTokens) {
+        tokenSummary(component, "prompt").record(promptTokens);
+        tokenSummary(component, "completion").record(completionTokens);
+    }
+
+    public void countRetry(String component) {
+        Counter.builder("graphrag.llm.retries").tag("component", component).register(registry).increment();
+    }
+
+    public void countGleaning(String component) {
+        Counter.builder("graphrag.llm.gleanings").tag("component", component).register(registry).increment();
+    }
+
+    /**
+     * 在途请求数（队列深度），同一 component 共用一个计数器
+     */
+    public AtomicInteger inFlight(String component) {
+        return inFlight.computeIfAbsent(component, k -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("graphrag.llm.inflight", counter, AtomicInteger::get)
+                    .tag("component", k)
+                    .register(registry);
+            return counter;
+        });
+    }
+
+    // -------------------- embedding --------------------
+
+    public void recordEmbedding(long nanos, int texts, boolean success) {
+        Timer.builder("graphrag.embedding.call")
+                .tag("outcome", outcome(success))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("graphrag.embedding.texts")
+                .register(registry)
+                .record(texts);
+    }
+
+    // -------------------- milvus --------------------
+
+    public <T> T timeMilvus(String op, String collection, Supplier<T> call) {
+        long t0 = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            recordMilvus(op, collection, System.nanoTime() - t0, success);
+        }
+    }
+
+    public void runMilvus(String op, String collection, Runnable call) {
+        timeMilvus(op, collection, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public void recordMilvus(String op, String collection, long nanos, boolean success) {
+        Timer.builder("graphrag.milvus.call")
+                .tag("op", op)
+                .tag("collection", collection == null ? "unknown" : collection)
+                .tag("outcome", outcome(success))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        QueryTimings.addCurrent(QueryTimings.Phase.MILVUS, nanos);
+    }
+
+    public void recordMilvusRows(String op, String collection, long rows) {
+        DistributionSummary.builder("graphrag.milvus.rows")
+                .tag("op", op)
+                .tag("collection", collection == null ? "unknown" : collection)
+                .register(registry)
+                .record(rows);
+    }
+
+    // -------------------- chat memory --------------------
+
+    /**
+     * 会话记忆占用：会话数与淘汰数直接读；消息数与字符数要遍历所有会话，抓取间隔内复用同一次统计
+     */
+    public void gaugeChatMemory(MapChatMemoryStore store) {
+        FootprintSampler sampler = new FootprintSampler(store, TimeUnit.SECONDS.toNanos(5));
+        Gauge.builder("graphrag.chat_memory.sessions", store, MapChatMemoryStore::size).register(registry);
+        Gauge.builder("graphrag.chat_memory.messages", sampler, x -> x.get().messages()).register(registry);
+        Gauge.builder("graphrag.chat_memory.chars", sampler, x -> x.get().chars()).register(registry);
+        FunctionCounter.builder("graphrag.chat_memory.evicted", store, MapChatMemoryStore::evictedCount).register(registry);
+    }
+
+    private static class FootprintSampler {
+        private final MapChatMemoryStore store;
+        private final long ttlNanos;
+        private MapChatMemoryStore.Footprint last;
+        private long sampledAt;
+
+        FootprintSampler(MapChatMemoryStore store, long ttlNanos) {
+            this.store = store;
+            this.ttlNanos = ttlNanos;
+        }
+
+        synchronized MapChatMemoryStore.Footprint get() {
+            long now = System.nanoTime();
+            if (last == null || now - sampledAt > ttlNanos) {
+                last = store.footprint();
+                sampledAt = now;
+            }
+            return last;
+        }
+    }
+
+    // -------------------- query --------------------
+
+    public void countQueryCache(String tier, boolean hit) {
+        Counter.builder("graphrag.query.cache")
+                .tag("tier", tier)
+                .tag("outcome", hit ? "hit" : "miss")
+                .register(registry)
+                .increment();
+    }
+
+    private DistributionSummary tokenSummary(String component, String type) {
+        return DistributionSummary.builder("graphrag.llm.tokens")
+                .tag("component", component)
+                .tag("type", type)
+                .baseUnit("tokens")
+                .register(registry);
+    }
+
+    private static String outcome(boolean success) {
+        return success ? OUTCOME_SUCCESS : OUTCOME_ERROR;
+    }
+}
@@ -0,0 +1,135 @@
+package com.gdin.inspection.graphrag.metrics;
+
+import com.gdin.inspection.graphrag.config.properties.LlmProperties;
+import com.gdin.inspection.graphrag.store.MapChatMemoryStore;
+import com.gdin.inspection.graphrag.util.SseUtil;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.CancellationToken;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.TokenLedger;
+import com.gdin.inspection.graphrag.v2.util.TokenUtil;
+import dev.langchain4j.data.message.*;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.service.TokenStream;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 抽取器调用大模型的统一入口：
+ * - 指标：耗时、在途数、prompt/completion token
+ * - 台账：写入当前 {@link TokenLedger.Scope}（workflow / document），provider 未返回 usage 时按 jtokkit 估算；
+ *   prompt 侧按实际发给模型的整段上下文（系统提示 + 会话历史 + 本轮用户消息，取自 memoryId 对应的会话记忆）估算，
+ *   gleaning 等多轮调用的历史不会漏算
+ * - 取消：当前 {@link CancellationToken} 取消后在途调用立即失败，已取消时不再发起
+ */
+@Component
+public class LlmCallTracker {
+
+    @Resource
+    private GraphRagMetrics graphRagMetrics;
+
+    @Resource
+    private TokenUtil tokenUtil;
+
+    @Resource
+    private LlmProperties llmProperties;
+
+    @Resource
+    private MapChatMemoryStore mapChatMemoryStore;
+
+    public CompletableFuture<String> complete(String component, String prompt, TokenStream tokenStream, String memoryId) {
+        return complete(TokenLedger.currentScope(), component, prompt, tokenStream, memoryId);
+    }
+
+    public CompletableFuture<String> complete(TokenLedger.Scope scope, String component, String prompt, TokenStream tokenStream, String memoryId) {
+        return complete(scope, CancellationToken.current(), component, prompt, tokenStream, memoryId);
+    }
+
+    /**
+     * 在回调线程上发起的调用拿不到当前线程的 Scope / 取消令牌，需要调用方显式传入
+     */
+    public CompletableFuture<String> complete(TokenLedger.Scope scope, CancellationToken cancellation, String component, String prompt, TokenStream tokenStream, String memoryId) {
+        long t0 = System.nanoTime();
+        AtomicInteger inFlight = graphRagMetrics.inFlight(component);
+        inFlight.incrementAndGet();
+        AtomicReference<TokenUsage> usage = new AtomicReference<>();
+
+        return SseUtil.completeWithoutThink(tokenStream, memoryId, SseUtil.DEFAULT_COMPLETION_TIMEOUT_MS, null,
+                        chatResponse -> usage.set(chatResponse.tokenUsage()), cancellation)
+                .whenComplete((response, e) -> {
+                    inFlight.decrementAndGet();
+                    long elapsed = System.nanoTime() - t0;
+                    graphRagMetrics.recordLlmCall(component, elapsed, e == null);
+
+                    TokenUsage u = usage.get();
+                    boolean estimated = u == null || u.inputTokenCount() == null || u.outputTokenCount() == null;
+                    long promptTokens = estimated ? estimatePrompt(memoryId, prompt) : u.inputTokenCount();
+                    long completionTokens = estimated ? estimate(response) : u.outputTokenCount();
+                    graphRagMetrics.recordLlmTokens(component, promptTokens, completionTokens);
+
+                    if (scope != null) {
+                        scope.getLedger().record(new TokenLedger.Entry(
+                                scope.getWorkflow(),
+                                component,
+                                scope.getDocumentId(),
+                                promptTokens,
+                                completionTokens,
+                                estimated,
+                                cost(promptTokens, completionTokens),
+                                TimeUnit.NANOSECONDS.toMillis(elapsed)
+                        ));
+                    }
+                });
+    }
+
+    public void countRetry(String component) {
+        graphRagMetrics.countRetry(component);
+    }
+
+    public void countGleaning(String component) {
+        graphRagMetrics.countGleaning(component);
+    }
+
+    private long estimate(String text) {
+        return text == null ? 0 : tokenUtil.getTokenCount(text);
+    }
+
+    /**
+     * 在调用方 releaseSession 之前执行（whenComplete 先于调用方的后续回调）。
+     * 会话记忆里末尾的 AiMessage 是本轮回答，不计入 prompt；拿不到会话记忆时退回只按本轮 prompt 估算。
+     */
+    long estimatePrompt(String memoryId, String prompt) {
+        List<ChatMessage> messages = memoryId == null ? List.of() : mapChatMemoryStore.getMessages(memoryId);
+        int end = messages.size();
+        if (end > 0 && messages.get(end - 1) instanceof AiMessage) end--;
+        if (end == 0) return estimate(prompt);
+        long total = 0;
+        boolean hasPrompt = false;
+        for (ChatMessage message : messages.subList(0, end)) {
+            String text = textOf(message);
+            if (prompt != null && prompt.equals(text)) hasPrompt = true;
+            total += estimate(text);
+        }
+        // 调用失败时用户消息可能还没写入会话记忆
+        if (!hasPrompt) total += estimate(prompt);
+        return total;
+    }
+
+    private static String textOf(ChatMessage message) {
+        if (message instanceof SystemMessage m) return m.text();
+        if (message instanceof UserMessage m) return m.hasSingleText() ? m.singleText() : String.valueOf(m.contents());
+        if (message instanceof AiMessage m) return m.text();
+        if (message instanceof ToolExecutionResultMessage m) return m.text();
+        return null;
+    }
+
+    private double cost(long promptTokens, long completionTokens) {
+        LlmProperties.Ledger ledger = llmProperties.getLedger();
+        return promptTokens / 1000.0 * ledger.getPromptPricePer1k()
+                + completionTokens / 1000.0 * ledger.getCompletionPricePer1k();
+    }
+}
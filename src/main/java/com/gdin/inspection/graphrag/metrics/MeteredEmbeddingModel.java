@@ -0,0 +1,45 @@
+package com.gdin.inspection.graphrag.metrics;
+
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.CancellationToken;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+
+/**
+ * 给 EmbeddingModel 加上耗时与吞吐埋点，embed(String)/embed(TextSegment) 默认都会走到 embedAll；
+ * pipeline run 已取消时不再发起请求；查询请求挂了 QueryTimings 时同时计入 EMBEDDING 阶段
+ */
+public class MeteredEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final GraphRagMetrics metrics;
+
+    public MeteredEmbeddingModel(EmbeddingModel delegate, GraphRagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        CancellationToken.checkCurrent();
+        long t0 = System.nanoTime();
+        boolean success = false;
+        try {
+            Response<List<Embedding>> response = delegate.embedAll(textSegments);
+            success = true;
+            return response;
+        } finally {
+            long elapsed = System.nanoTime() - t0;
+            metrics.recordEmbedding(elapsed, textSegments == null ? 0 : textSegments.size(), success);
+            QueryTimings.addCurrent(QueryTimings.Phase.EMBEDDING, elapsed);
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+}
@@ -0,0 +1,89 @@
+package com.gdin.inspection.graphrag.metrics;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单次查询的分阶段耗时：embedding / Milvus / 上下文构建 / 大模型，以及流式输出的首 token 时间。
+ * 全局的 graphrag.* Timer 只能看整体分布，压测时需要把每个请求的时间拆开，所以另外挂一个请求级的累加器：
+ * - 调用方在请求入口 {@link #enter(QueryTimings)}，finally 中 {@link #restore(QueryTimings)}
+ * - MeteredEmbeddingModel（EMBEDDING）、GraphRagMetrics.recordMilvus（MILVUS）、BasicSearch（包住 BasicSearchContext.buildContext 记 CONTEXT，另记 LLM）
+ *   在当前线程有累加器时顺手记一笔；BasicSearchContext 本身不记
+ * - 与 CancellationToken 一样放在 TransmittableThreadLocal 中，线程池需从 TtlExecutorUtil 获取才能传递
+ * 注意 CONTEXT 包含了上下文构建过程中的 embedding 和 Milvus 时间，纯构建耗时用 {@link #contextOnlyNanos()}。
+ */
+public class QueryTimings {
+
+    public enum Phase { EMBEDDING, MILVUS, CONTEXT, LLM }
+
+    private static final TransmittableThreadLocal<QueryTimings> CURRENT = new TransmittableThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+    private final AtomicLong firstTokenNanos = new AtomicLong(-1);
+
+    // -------------------- current --------------------
+
+    public static QueryTimings current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 设置当前线程的累加器，返回之前的累加器，配合 {@link #restore(QueryTimings)} 在 finally 中还原
+     */
+    public static QueryTimings enter(QueryTimings timings) {
+        QueryTimings previous = CURRENT.get();
+        if (timings == null) CURRENT.remove();
+        else CURRENT.set(timings);
+        return previous;
+    }
+
+    public static void restore(QueryTimings previous) {
+        if (previous == null) CURRENT.remove();
+        else CURRENT.set(previous);
+    }
+
+    /**
+     * 当前线程没有累加器时不做任何事
+     */
+    public static void addCurrent(Phase phase, long elapsedNanos) {
+        QueryTimings timings = CURRENT.get();
+        if (timings != null) timings.add(phase, elapsedNanos);
+    }
+
+    // -------------------- record --------------------
+
+    public void add(Phase phase, long elapsedNanos) {
+        nanos.addAndGet(phase.ordinal(), elapsedNanos);
+    }
+
+    /**
+     * 记录首个可见 token 的到达时间（相对创建时刻），只有第一次调用生效
+     */
+    public void markFirstToken() {
+        firstTokenNanos.compareAndSet(-1, System.nanoTime() - startNanos);
+    }
+
+    // -------------------- read --------------------
+
+    public long nanos(Phase phase) {
+        return nanos.get(phase.ordinal());
+    }
+
+    public long contextOnlyNanos() {
+        return Math.max(0, nanos(Phase.CONTEXT) - nanos(Phase.EMBEDDING) - nanos(Phase.MILVUS));
+    }
+
+    /**
+     * @return 首 token 时间，未记录过返回 -1
+     */
+    public long firstTokenNanos() {
+        return firstTokenNanos.get();
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+}
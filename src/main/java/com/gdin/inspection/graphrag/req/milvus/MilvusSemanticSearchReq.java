@@ -37,6 +37,9 @@ public class MilvusSemanticSearchReq {
     @Schema(requiredMode = Schema.RequiredMode.NOT_REQUIRED, description = "每组返回数量")
     private Integer groupSize;
 
+    @Schema(hidden = true, description = "预先算好的查询向量，设置后不再对 query 做 embedding（内部调用复用同一问题的向量）")
+    private float[] queryVector;
+
     @Builder.Default
     private Integer offset=0;
     @Builder.Default
@@ -1,7 +1,10 @@
 package com.gdin.inspection.graphrag.search;
 
 import com.gdin.inspection.graphrag.config.properties.MilvusProperties;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
 import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.milvus.orm.iterator.QueryIterator;
+import io.milvus.response.QueryResultsWrapper;
 import io.milvus.v2.client.MilvusClientV2;
 import io.milvus.v2.service.vector.request.*;
 import io.milvus.v2.service.vector.request.data.BaseVector;
@@ -15,6 +18,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -37,6 +41,9 @@ public class MilvusSearch {
     @Resource
     private MilvusClientV2 milvusClientV2;
 
+    @Resource
+    private GraphRagMetrics graphRagMetrics;
+
     @Resource
     private EmbeddingModel embeddingModel;
 
@@ -87,7 +94,7 @@ public class MilvusSearch {
         // 构建最终请求并执行搜索
         SearchReq searchReq = searchReqBuilder.build();
 //        log.info("searchReq:{}", searchReq.toString());
-        SearchResp searchResp = milvusClientV2.search(searchReq);
+        SearchResp searchResp = graphRagMetrics.timeMilvus("search", searchReq.getCollectionName(), () -> milvusClientV2.search(searchReq));
         // 单 query 的结果放在 searchResults.get(0)
         List<SearchResp.SearchResult> searchResults = searchResp.getSearchResults().get(0);
         List<SearchResp.SearchResult> out = searchResults;
@@ -180,8 +187,17 @@ public class MilvusSearch {
      */
     private List<SearchResp.SearchResult> semanticSearch(String collectionName, String query, String denseFieldName, int topK, String filter, List<String> outputFields, Float minScore, String groupByFieldName, Integer groupSize) {
         // 将自然语言查询转换为高维向量表示
-        FloatVec queryVector = getFloatVec(query);
+        return semanticSearch(collectionName, getFloatVec(query), denseFieldName, topK, filter, outputFields, minScore, groupByFieldName, groupSize);
+    }
+
+    /**
+     * 用调用方已经算好的查询向量做语义搜索（同一问题不再重复 embedding），参数同上
+     */
+    public List<SearchResp.SearchResult> semanticSearchByVector(String collectionName, float[] queryVector, String denseFieldName, int topK, String filter, List<String> outputFields, Float minScore, String groupByFieldName, Integer groupSize) {
+        return semanticSearch(collectionName, new FloatVec(queryVector), denseFieldName, topK, filter, outputFields, minScore, groupByFieldName, groupSize);
+    }
 
+    private List<SearchResp.SearchResult> semanticSearch(String collectionName, FloatVec queryVector, String denseFieldName, int topK, String filter, List<String> outputFields, Float minScore, String groupByFieldName, Integer groupSize) {
         // 构建基础搜索请求：设置集合、查询向量和结果数量
         SearchReq.SearchReqBuilder searchReqBuilder = SearchReq.builder()
                 .collectionName(collectionName)
@@ -525,7 +541,7 @@ public class MilvusSearch {
                 .build();
 
         // 执行Milvus客户端查询并获取原始响应
-        GetResp getResp = milvusClientV2.get(getReq);
+        GetResp getResp = graphRagMetrics.timeMilvus("get", collectionName, () -> milvusClientV2.get(getReq));
 
         // 返回结构化后的查询结果列表
         return getResp.getGetResults();
@@ -550,12 +566,46 @@ public class MilvusSearch {
         QueryReq queryReq = queryReqBuilder.build();
 
         // 执行Milvus客户端查询并获取原始响应
-        QueryResp queryResp = milvusClientV2.query(queryReq);
+        QueryResp queryResp = graphRagMetrics.timeMilvus("query", collectionName, () -> milvusClientV2.query(queryReq));
+        graphRagMetrics.recordMilvusRows("query", collectionName, queryResp.getQueryResults() == null ? 0 : queryResp.getQueryResults().size());
 
         // 返回结构化后的查询结果列表
         return queryResp.getQueryResults();
     }
 
+    /**
+     * 使用 QueryIterator 分批遍历满足过滤条件的数据，避免一次性拉取全部结果
+     *
+     * @param collectionName 要查询的集合名称
+     * @param filter         过滤条件
+     * @param outputFields   需要返回的字段名称列表
+     * @param batchSize      每批条数
+     * @param consumer       每批数据的处理回调
+     * @return 遍历的总条数
+     */
+    public long queryIterator(String collectionName, String filter, List<String> outputFields, int batchSize, Consumer<List<QueryResultsWrapper.RowRecord>> consumer) {
+        QueryIteratorReq iteratorReq = QueryIteratorReq.builder()
+                .collectionName(collectionName)
+                .expr(filter)
+                .outputFields(outputFields)
+                .batchSize(batchSize)
+                .build();
+        long total = 0;
+        QueryIterator iterator = graphRagMetrics.timeMilvus("query_iterator", collectionName, () -> milvusClientV2.queryIterator(iteratorReq));
+        try {
+            while (true) {
+                List<QueryResultsWrapper.RowRecord> rows = graphRagMetrics.timeMilvus("query_iterator", collectionName, iterator::next);
+                if (rows == null || rows.isEmpty()) break;
+                total += rows.size();
+                consumer.accept(rows);
+            }
+        } finally {
+            iterator.close();
+        }
+        graphRagMetrics.recordMilvusRows("query_iterator", collectionName, total);
+        return total;
+    }
+
     // -------------------- 工具：按经验进行归一化 --------------------
 
     private List<Double> normalize(List<Double> scores) {
@@ -0,0 +1,7 @@
+package com.gdin.inspection.graphrag.search.result;
+
+/**
+ * 向量检索命中：主键 + 分数 + 输出字段
+ */
+public record MilvusHit(Object id, float score, MilvusRow row) {
+}
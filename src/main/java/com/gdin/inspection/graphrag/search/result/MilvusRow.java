@@ -0,0 +1,137 @@
+package com.gdin.inspection.graphrag.search.result;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Milvus 返回的一行实体（search hit 的 entity / query、get 的结果），直接包装 SDK 给出的字段 Map：
+ * - VarChar -> String，Int64 -> Long，JSON -> gson JsonElement，Array -> List
+ * - 按字段类型取值，不再经过 JSON 字符串中转
+ */
+public final class MilvusRow {
+
+    private final Map<String, Object> fields;
+
+    public MilvusRow(Map<String, Object> fields) {
+        this.fields = fields == null ? Collections.emptyMap() : fields;
+    }
+
+    public Map<String, Object> asMap() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    public boolean has(String field) {
+        return fields.get(field) != null;
+    }
+
+    public Object get(String field) {
+        return fields.get(field);
+    }
+
+    public String getString(String field) {
+        Object v = fields.get(field);
+        if (v == null) return null;
+        if (v instanceof JsonElement je) return je.isJsonPrimitive() ? je.getAsString() : je.toString();
+        return v.toString();
+    }
+
+    public Long getLong(String field) {
+        return toLong(fields.get(field));
+    }
+
+    public Integer getInteger(String field) {
+        Long v = getLong(field);
+        return v == null ? null : v.intValue();
+    }
+
+    public Double getDouble(String field) {
+        Object v = fields.get(field);
+        if (v == null) return null;
+        if (v instanceof Number n) return n.doubleValue();
+        if (v instanceof JsonElement je) return je.isJsonPrimitive() ? je.getAsDouble() : null;
+        return Double.parseDouble(v.toString());
+    }
+
+    /**
+     * JSON 字段：SDK 通常给 JsonElement，个别版本/路径给 String，这里统一成 JsonObject
+     */
+    public JsonObject getJson(String field) {
+        Object v = fields.get(field);
+        if (v == null) return null;
+        if (v instanceof JsonObject jo) return jo;
+        if (v instanceof JsonElement je) return je.isJsonObject() ? je.getAsJsonObject() : null;
+        if (v instanceof String s) {
+            JsonElement je = JsonParser.parseString(s);
+            return je.isJsonObject() ? je.getAsJsonObject() : null;
+        }
+        return null;
+    }
+
+    public String getJsonString(String field, String key) {
+        JsonObject obj = getJson(field);
+        if (obj == null || !obj.has(key) || obj.get(key).isJsonNull()) return null;
+        return obj.get(key).getAsString();
+    }
+
+    public Integer getJsonInteger(String field, String key) {
+        JsonObject obj = getJson(field);
+        if (obj == null || !obj.has(key) || obj.get(key).isJsonNull()) return null;
+        return obj.get(key).getAsInt();
+    }
+
+    /**
+     * Array / JSON 数组字段转 List&lt;String&gt;；字段不存在返回 null
+     */
+    public List<String> getStringList(String field) {
+        Object v = fields.get(field);
+        if (v == null) return null;
+        List<String> out = new ArrayList<>();
+        if (v instanceof JsonArray arr) {
+            for (JsonElement el : arr) out.add(el == null || el.isJsonNull() ? null : el.getAsString());
+        } else if (v instanceof List<?> list) {
+            for (Object o : list) out.add(o == null ? null : o.toString());
+        } else {
+            return null;
+        }
+        return out;
+    }
+
+    /**
+     * Array / JSON 数组字段转 List&lt;Integer&gt;；字段不存在返回 null
+     */
+    public List<Integer> getIntegerList(String field) {
+        Object v = fields.get(field);
+        if (v == null) return null;
+        List<Integer> out = new ArrayList<>();
+        if (v instanceof JsonArray arr) {
+            for (JsonElement el : arr) out.add(el == null || el.isJsonNull() ? null : el.getAsInt());
+        } else if (v instanceof List<?> list) {
+            for (Object o : list) {
+                Long l = toLong(o);
+                out.add(l == null ? null : l.intValue());
+            }
+        } else {
+            return null;
+        }
+        return out;
+    }
+
+    private static Long toLong(Object v) {
+        if (v == null) return null;
+        if (v instanceof Number n) return n.longValue();
+        if (v instanceof JsonElement je) return je.isJsonPrimitive() ? je.getAsLong() : null;
+        return Long.parseLong(v.toString());
+    }
+
+    @Override
+    public String toString() {
+        return fields.toString();
+    }
+}
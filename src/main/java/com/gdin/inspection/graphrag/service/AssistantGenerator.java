@@ -1,17 +1,29 @@
 package com.gdin.inspection.graphrag.service;
 
 import com.gdin.inspection.graphrag.store.MapChatMemoryStore;
+import com.gdin.inspection.graphrag.util.SseUtil;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+@Slf4j
 @Component
 public class AssistantGenerator {
     @Resource
@@ -33,6 +45,117 @@ public class AssistantGenerator {
     @Resource
     private MapChatMemoryStore mapChatMemoryStore;
 
+    /** 复用的助手代理：同一个接口类型只构建一次 AiServices 代理 */
+    private final Map<Class<?>, Object> pooledAssistants = new ConcurrentHashMap<>();
+
+    /** 复用代理的会话级系统提示，按 memoryId 绑定 */
+    private final Map<Object, String> sessionSystemMessages = new ConcurrentHashMap<>();
+
+    /** 复用代理的会话级完成回调，按 memoryId 绑定；超过 SSE 完成超时仍未触发的视为流已放弃 */
+    private final Map<Object, CompletionSink> sessionCompletionSinks = new ConcurrentHashMap<>();
+
+    /**
+     * 复用代理的会话内存：读写仍落在 MapChatMemoryStore，
+     * 写入的最后一条是不带工具调用的 AiMessage 时说明本轮生成已结束，交给该会话登记的完成回调
+     */
+    private final ChatMemoryStore pooledMemoryStore = new ChatMemoryStore() {
+        @Override
+        public List<ChatMessage> getMessages(Object memoryId) {
+            return mapChatMemoryStore.getMessages(memoryId);
+        }
+
+        @Override
+        public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+            mapChatMemoryStore.updateMessages(memoryId, messages);
+            if (!messages.isEmpty() && messages.get(messages.size() - 1) instanceof AiMessage ai
+                    && !ai.hasToolExecutionRequests()) {
+                completeSession(memoryId, ai);
+            }
+        }
+
+        @Override
+        public void deleteMessages(Object memoryId) {
+            mapChatMemoryStore.deleteMessages(memoryId);
+        }
+    };
+
+    /**
+     * 获取复用的AI助手实例（按接口类型缓存，模型按类名选择）
+     * 会话隔离依赖 memoryId：每个 memoryId 拥有独立的窗口内存，用完后必须调用 {@link #releaseSession(Object)}
+     * @param clazz 需要获取的AI服务接口类型
+     * @param <T> 泛型类型参数
+     * @return 复用的AI服务实例
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getPooledAssistant(@NonNull Class<T> clazz) {
+        return (T) pooledAssistants.computeIfAbsent(clazz, k -> createAssistant(
+                clazz,
+                memoryId -> MessageWindowChatMemory.builder()
+                        .id(memoryId)
+                        .maxMessages(100)
+                        .chatMemoryStore(pooledMemoryStore)
+                        .build(),
+                null
+        ));
+    }
+
+    /**
+     * 获取复用的AI助手实例，并为本次会话绑定系统提示
+     * @param clazz 需要获取的AI服务接口类型
+     * @param memoryId 会话id
+     * @param systemMessage 系统提示信息（可选）
+     * @param <T> 泛型类型参数
+     * @return 复用的AI服务实例
+     */
+    public <T> T getPooledAssistant(@NonNull Class<T> clazz, @NonNull Object memoryId, String systemMessage) {
+        if (systemMessage != null) sessionSystemMessages.put(memoryId, systemMessage);
+        return getPooledAssistant(clazz);
+    }
+
+    /**
+     * 获取复用的AI助手实例，绑定系统提示与完成回调（用于流式结果已交给调用方、仍需拿到完整回答的场景）
+     * 最终回答写入会话内存时 onComplete 收到该回答（在 TokenStream 的完成回调之前），随后会话自动释放；
+     * 出错时不会触发，会话由内存存储的空闲清理回收
+     * @param clazz 需要获取的AI服务接口类型
+     * @param memoryId 会话id
+     * @param systemMessage 系统提示信息（可选）
+     * @param onComplete 完成回调
+     * @param <T> 泛型类型参数
+     * @return 复用的AI服务实例
+     */
+    public <T> T getPooledAssistant(@NonNull Class<T> clazz, @NonNull Object memoryId, String systemMessage,
+                                    @NonNull Consumer<AiMessage> onComplete) {
+        long now = System.currentTimeMillis();
+        sessionCompletionSinks.values().removeIf(sink -> sink.expired(now));
+        sessionCompletionSinks.put(memoryId, new CompletionSink(onComplete, now));
+        return getPooledAssistant(clazz, memoryId, systemMessage);
+    }
+
+    /**
+     * 结束复用助手上的一次会话，释放该 memoryId 的内存、系统提示与完成回调
+     * @param memoryId 会话id
+     */
+    public void releaseSession(@NonNull Object memoryId) {
+        sessionCompletionSinks.remove(memoryId);
+        sessionSystemMessages.remove(memoryId);
+        mapChatMemoryStore.release(memoryId);
+        for (Object assistant : pooledAssistants.values()) {
+            if (assistant instanceof ChatMemoryAccess access) access.evictChatMemory(memoryId);
+        }
+    }
+
+    private void completeSession(Object memoryId, AiMessage answer) {
+        CompletionSink sink = sessionCompletionSinks.remove(memoryId);
+        if (sink == null) return;
+        try {
+            sink.onComplete().accept(answer);
+        } catch (Exception e) {
+            log.warn("处理完整回答失败: {}", e.getMessage(), e);
+        } finally {
+            releaseSession(memoryId);
+        }
+    }
+
     public <T> T createTempAssistant(@NonNull Class<T> clazz) {
         return createTempAssistant(clazz, null);
     }
@@ -110,9 +233,16 @@ public class AssistantGenerator {
                 .streamingChatModel(streamingChatModel)
                 .chatMemoryProvider(chatMemoryProvider);
 
-        // 可选配置系统消息
+        // 可选配置系统消息；未指定时读取会话绑定的系统提示（复用代理场景）
         if (systemMessage != null) builder.systemMessageProvider(memoryId -> systemMessage);
+        else builder.systemMessageProvider(sessionSystemMessages::get);
 
         return builder.build();
     }
+
+    private record CompletionSink(Consumer<AiMessage> onComplete, long registeredAt) {
+        boolean expired(long now) {
+            return now - registeredAt > SseUtil.DEFAULT_COMPLETION_TIMEOUT_MS;
+        }
+    }
 }
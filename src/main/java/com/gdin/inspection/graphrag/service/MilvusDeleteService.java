@@ -1,5 +1,6 @@
 package com.gdin.inspection.graphrag.service;
 
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
 import com.gdin.inspection.graphrag.req.milvus.MilvusDeleteReq;
 import io.milvus.v2.client.MilvusClientV2;
 import io.milvus.v2.service.vector.request.DeleteReq;
@@ -13,12 +14,16 @@ public class MilvusDeleteService {
 
     @Resource
     private MilvusClientV2 milvusClientV2;
+
+    @Resource
+    private GraphRagMetrics graphRagMetrics;
+
     public void deleteDocument(MilvusDeleteReq milvusDeleteReq) {
         DeleteReq deleteReq = DeleteReq.builder()
                 .collectionName(milvusDeleteReq.getCollectionName())
                 .filter("metadata[\"document_id\"] == \"" + milvusDeleteReq.getDocumentId() + "\"")
                 .build();
-        milvusClientV2.delete(deleteReq);
+        graphRagMetrics.timeMilvus("delete", deleteReq.getCollectionName(), () -> milvusClientV2.delete(deleteReq));
     }
 
     public void delete(String collectionName, List<Object> ids) {
@@ -26,18 +31,27 @@ public class MilvusDeleteService {
                 .collectionName(collectionName)
                 .ids(ids)
                 .build();
-        milvusClientV2.delete(deleteReq);
+        graphRagMetrics.timeMilvus("delete", collectionName, () -> milvusClientV2.delete(deleteReq));
     }
 
     public void deleteByFilter(String collectionName, String filter) {
-        DeleteReq deleteReq = DeleteReq.builder()
+        deleteByFilter(collectionName, null, filter);
+    }
+
+    public void deleteByFilter(String collectionName, String partitionName, String filter) {
+        DeleteReq.DeleteReqBuilder builder = DeleteReq.builder()
                 .collectionName(collectionName)
-                .filter(filter)
-                .build();
-        milvusClientV2.delete(deleteReq);
+                .filter(filter);
+        if (partitionName != null) builder.partitionName(partitionName);
+        DeleteReq deleteReq = builder.build();
+        graphRagMetrics.timeMilvus("delete", collectionName, () -> milvusClientV2.delete(deleteReq));
     }
 
     public void deleteAll(String collectionName) {
-        deleteByFilter(collectionName, "id != \"\"");
+        deleteAll(collectionName, null);
+    }
+
+    public void deleteAll(String collectionName, String partitionName) {
+        deleteByFilter(collectionName, partitionName, "id != \"\"");
     }
 }
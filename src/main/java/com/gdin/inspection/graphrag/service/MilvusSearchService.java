@@ -3,10 +3,13 @@ package com.gdin.inspection.graphrag.service;
 import com.gdin.inspection.graphrag.config.properties.MilvusProperties;
 import com.gdin.inspection.graphrag.req.milvus.*;
 import com.gdin.inspection.graphrag.search.MilvusSearch;
+import com.gdin.inspection.graphrag.search.result.MilvusHit;
+import com.gdin.inspection.graphrag.search.result.MilvusRow;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import io.milvus.response.QueryResultsWrapper;
 import io.milvus.v2.client.MilvusClientV2;
 import io.milvus.v2.common.DataType;
 import io.milvus.v2.service.collection.request.CreateCollectionReq;
@@ -16,11 +19,20 @@ import io.milvus.v2.service.vector.response.QueryResp;
 import io.milvus.v2.service.vector.response.SearchResp;
 import jakarta.annotation.Resource;
 import jakarta.validation.ValidationException;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
+/**
+ * Milvus 检索服务：
+ * - *Hits / getRows / queryRows 返回类型化结果，内部调用方使用，字段按类型直接取值
+ * - 返回 String 的方法只用于对外接口边界，输出格式保持不变
+ */
 @Service
+@Profile("!offline")
 public class MilvusSearchService {
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
@@ -53,7 +65,72 @@ public class MilvusSearchService {
         return jsonArray.toString();
     }
 
+    private static List<MilvusHit> toHits(List<SearchResp.SearchResult> searchResults) {
+        List<MilvusHit> hits = new ArrayList<>(searchResults.size());
+        for (SearchResp.SearchResult r : searchResults) {
+            hits.add(new MilvusHit(r.getId(), r.getScore(), new MilvusRow(r.getEntity())));
+        }
+        return hits;
+    }
+
+    private static List<MilvusRow> toRows(List<QueryResp.QueryResult> queryResults) {
+        List<MilvusRow> rows = new ArrayList<>(queryResults.size());
+        for (QueryResp.QueryResult r : queryResults) rows.add(new MilvusRow(r.getEntity()));
+        return rows;
+    }
+
     public String semantic(MilvusSemanticSearchReq semanticSearchReq) {
+        return searchResultToJSON(semanticSearch(semanticSearchReq));
+    }
+
+    public List<MilvusHit> semanticHits(MilvusSemanticSearchReq semanticSearchReq) {
+        return toHits(semanticSearch(semanticSearchReq));
+    }
+
+    public String keyword(MilvusKeywordSearchReq keywordSearchReq) {
+        return searchResultToJSON(keywordSearch(keywordSearchReq));
+    }
+
+    public List<MilvusHit> keywordHits(MilvusKeywordSearchReq keywordSearchReq) {
+        return toHits(keywordSearch(keywordSearchReq));
+    }
+
+    public String hybrid(MilvusHybridSearchReq hybridSearchReq) {
+        return searchResultToJSON(hybridSearch(hybridSearchReq));
+    }
+
+    public List<MilvusHit> hybridHits(MilvusHybridSearchReq hybridSearchReq) {
+        return toHits(hybridSearch(hybridSearchReq));
+    }
+
+    public String get(MilvusGetReq milvusGetReq) {
+        return queryResultToJSON(getResults(milvusGetReq));
+    }
+
+    public List<MilvusRow> getRows(MilvusGetReq milvusGetReq) {
+        return toRows(getResults(milvusGetReq));
+    }
+
+    public String query(MilvusQueryReq milvusQueryReq) {
+        return queryResultToJSON(queryResults(milvusQueryReq));
+    }
+
+    public List<MilvusRow> queryRows(MilvusQueryReq milvusQueryReq) {
+        return toRows(queryResults(milvusQueryReq));
+    }
+
+    /**
+     * 分批遍历 query 结果（QueryIterator），每批回调一次；req.limit 不生效
+     */
+    public long forEachRowBatch(MilvusQueryReq milvusQueryReq, int batchSize, Consumer<List<MilvusRow>> consumer) {
+        return milvusSearch.queryIterator(milvusQueryReq.getCollectionName(), milvusQueryReq.getFilter(), milvusQueryReq.getOutputFields(), batchSize, records -> {
+            List<MilvusRow> rows = new ArrayList<>(records.size());
+            for (QueryResultsWrapper.RowRecord record : records) rows.add(new MilvusRow(record.getFieldValues()));
+            consumer.accept(rows);
+        });
+    }
+
+    private List<SearchResp.SearchResult> semanticSearch(MilvusSemanticSearchReq semanticSearchReq) {
         // 先从Milvus中查询denseFieldName
         DescribeCollectionResp describeCollectionResp = milvusClientV2.describeCollection(DescribeCollectionReq.builder()
                 .collectionName(semanticSearchReq.getCollectionName())
@@ -70,7 +147,11 @@ public class MilvusSearchService {
         if(denseFieldName==null) throw new ValidationException("集合中不存在稠密向量字段");
         int topK = semanticSearchReq.getTopK()==null?milvusProperties.getDefaultTopK():semanticSearchReq.getTopK();
         List<SearchResp.SearchResult> searchResults = null;
-        if(semanticSearchReq.getGroupByFieldName()!=null){
+        if(semanticSearchReq.getQueryVector()!=null){
+            // 调用方已算好查询向量，不再 embedding
+            searchResults = milvusSearch.semanticSearchByVector(semanticSearchReq.getCollectionName(), semanticSearchReq.getQueryVector(), denseFieldName, topK, semanticSearchReq.getFilter(), semanticSearchReq.getOutputFields(), semanticSearchReq.getGroupByFieldName()==null?semanticSearchReq.getMinScore():null, semanticSearchReq.getGroupByFieldName(), semanticSearchReq.getGroupSize());
+        }
+        else if(semanticSearchReq.getGroupByFieldName()!=null){
             // 使用分组查询功能
             searchResults = milvusSearch.semanticSearchByGroup(semanticSearchReq.getCollectionName(), semanticSearchReq.getQuery(), denseFieldName, topK, semanticSearchReq.getFilter(), semanticSearchReq.getOutputFields(), semanticSearchReq.getGroupByFieldName(), semanticSearchReq.getGroupSize());
         }
@@ -78,10 +159,10 @@ public class MilvusSearchService {
             // 使用最小分数查询功能
             searchResults = milvusSearch.semanticSearchByScore(semanticSearchReq.getCollectionName(), semanticSearchReq.getQuery(), denseFieldName, topK, semanticSearchReq.getFilter(), semanticSearchReq.getOutputFields(), semanticSearchReq.getMinScore());
         }
-        return searchResultToJSON(searchResults);
+        return searchResults;
     }
 
-    public String keyword(MilvusKeywordSearchReq keywordSearchReq) {
+    private List<SearchResp.SearchResult> keywordSearch(MilvusKeywordSearchReq keywordSearchReq) {
         // 先从Milvus中查询sparseFieldName
         DescribeCollectionResp describeCollectionResp = milvusClientV2.describeCollection(DescribeCollectionReq.builder()
                 .collectionName(keywordSearchReq.getCollectionName())
@@ -106,10 +187,10 @@ public class MilvusSearchService {
             // 使用最小分数查询功能
             searchResults = milvusSearch.keywordSearchByScore(keywordSearchReq.getCollectionName(), keywordSearchReq.getQuery(), sparseFieldName, topK, keywordSearchReq.getFilter(), keywordSearchReq.getOutputFields(), keywordSearchReq.getMinScore());
         }
-        return searchResultToJSON(searchResults);
+        return searchResults;
     }
 
-    public String hybrid(MilvusHybridSearchReq hybridSearchReq) {
+    private List<SearchResp.SearchResult> hybridSearch(MilvusHybridSearchReq hybridSearchReq) {
         // 先从Milvus中查询denseFieldName和sparseFieldName
         DescribeCollectionResp describeCollectionResp = milvusClientV2.describeCollection(DescribeCollectionReq.builder()
                 .collectionName(hybridSearchReq.getCollectionName())
@@ -127,17 +208,14 @@ public class MilvusSearchService {
         int topK = hybridSearchReq.getTopK()==null?milvusProperties.getDefaultTopK():hybridSearchReq.getTopK();
         float denseWeight = hybridSearchReq.getDenseWeight()==null?milvusProperties.getDefaultDenseWeight():hybridSearchReq.getDenseWeight();
         float sparseWeight = hybridSearchReq.getSparseWeight()==null?milvusProperties.getDefaultSparseWeight():hybridSearchReq.getSparseWeight();
-        List<SearchResp.SearchResult> searchResults = milvusSearch.hybridSearch(hybridSearchReq.getCollectionName(), hybridSearchReq.getQuery(), denseFieldName, hybridSearchReq.getQuery(), sparseFieldName, topK, denseWeight, sparseWeight, hybridSearchReq.getFilter(), hybridSearchReq.getOutputFields(), hybridSearchReq.getMinScore());
-        return searchResultToJSON(searchResults);
+        return milvusSearch.hybridSearch(hybridSearchReq.getCollectionName(), hybridSearchReq.getQuery(), denseFieldName, hybridSearchReq.getQuery(), sparseFieldName, topK, denseWeight, sparseWeight, hybridSearchReq.getFilter(), hybridSearchReq.getOutputFields(), hybridSearchReq.getMinScore());
     }
 
-    public String get(MilvusGetReq milvusGetReq) {
-        List<QueryResp.QueryResult> queryResults = milvusSearch.get(milvusGetReq.getCollectionName(), milvusGetReq.getIds(), milvusGetReq.getOutputFields());
-        return queryResultToJSON(queryResults);
+    private List<QueryResp.QueryResult> getResults(MilvusGetReq milvusGetReq) {
+        return milvusSearch.get(milvusGetReq.getCollectionName(), milvusGetReq.getIds(), milvusGetReq.getOutputFields());
     }
 
-    public String query(MilvusQueryReq milvusQueryReq) {
-        List<QueryResp.QueryResult> queryResults = milvusSearch.query(milvusQueryReq.getCollectionName(), milvusQueryReq.getFilter(), milvusQueryReq.getOutputFields(), milvusQueryReq.getLimit());
-        return queryResultToJSON(queryResults);
+    private List<QueryResp.QueryResult> queryResults(MilvusQueryReq milvusQueryReq) {
+        return milvusSearch.query(milvusQueryReq.getCollectionName(), milvusQueryReq.getFilter(), milvusQueryReq.getOutputFields(), milvusQueryReq.getLimit());
     }
 }
@@ -1,6 +1,7 @@
 package com.gdin.inspection.graphrag.service;
 
 import com.alibaba.fastjson2.JSONObject;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
 import com.gdin.inspection.graphrag.req.milvus.MilvusUpsertReq;
 import com.gdin.inspection.graphrag.util.MilvusUtil;
 import com.google.gson.*;
@@ -27,15 +28,27 @@ import java.util.*;
 public class MilvusUpsertService {
     @Resource
     private MilvusClientV2 milvusClientV2;
+
+    @Resource
+    private GraphRagMetrics graphRagMetrics;
     @Resource
     private EmbeddingModel embeddingModel;
     @Resource
     private MilvusUtil milvusUtil;
 
     public UpsertResp updateEntity(MilvusUpsertReq milvusUpsertReq) {
+        return updateEntities(milvusUpsertReq.getCollectionName(), Map.of(milvusUpsertReq.getId(), milvusUpsertReq.getValueMap()));
+    }
+
+    /**
+     * 批量按 id 局部更新：一次 describe + 一次 get 取回整行，合并 valueMap 后一次 upsert 写回。
+     * 逐行调用 updateEntity 每行要 3 次 RPC，批量回填 / 回写时用这个。id 不存在的行忽略。
+     */
+    public UpsertResp updateEntities(String collectionName, Map<Long, Map<String, Object>> valueMapsById) {
+        if (valueMapsById == null || valueMapsById.isEmpty()) return UpsertResp.builder().upsertCnt(0L).build();
         // 先查询出collection中的所有Schema信息
         DescribeCollectionResp describeCollectionResp = milvusClientV2.describeCollection(DescribeCollectionReq.builder()
-                .collectionName(milvusUpsertReq.getCollectionName())
+                .collectionName(collectionName)
                 .build());
         // 获取除了SparseFloatVector类型字段外的所有字段名
         List<String> fieldNames = new ArrayList<>();
@@ -46,19 +59,34 @@ public class MilvusUpsertService {
         }
         // 根据id查询出要更新的实体
         GetReq getReq = GetReq.builder()
-                .collectionName(milvusUpsertReq.getCollectionName())
-                .ids(Collections.singletonList(milvusUpsertReq.getId()))
+                .collectionName(collectionName)
+                .ids(new ArrayList<>(valueMapsById.keySet()))
                 .outputFields(fieldNames)
                 .build();
-        GetResp getResp = milvusClientV2.get(getReq);
+        GetResp getResp = graphRagMetrics.timeMilvus("get", collectionName, () -> milvusClientV2.get(getReq));
         List<QueryResp.QueryResult> results = getResp.getGetResults();
         if(results.isEmpty()) return null;
-        Map<String, Object> entity = results.get(0).getEntity();
-        Map<String, Object> newEntity = new HashMap<>(entity);
-        newEntity.putAll(milvusUpsertReq.getValueMap());
-        // 更新实体
         Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        JsonObject data = gson.toJsonTree(newEntity).getAsJsonObject();
+        List<JsonObject> rows = new ArrayList<>(results.size());
+        for (QueryResp.QueryResult result : results) {
+            Map<String, Object> entity = result.getEntity();
+            Map<String, Object> valueMap = valueMapsById.get(((Number) entity.get("id")).longValue());
+            if (valueMap == null) continue;
+            Map<String, Object> newEntity = new HashMap<>(entity);
+            newEntity.putAll(valueMap);
+            rows.add(toUpsertRow(gson, gson.toJsonTree(newEntity).getAsJsonObject(), fieldSchemaList));
+        }
+        if(rows.isEmpty()) return null;
+        UpsertReq upsertReq = UpsertReq.builder()
+                .collectionName(collectionName)
+                .data(rows)
+                .build();
+        UpsertResp resp = graphRagMetrics.timeMilvus("upsert", collectionName, () -> milvusClientV2.upsert(upsertReq));
+        graphRagMetrics.recordMilvusRows("upsert", collectionName, rows.size());
+        return resp;
+    }
+
+    private JsonObject toUpsertRow(Gson gson, JsonObject data, List<CreateCollectionReq.FieldSchema> fieldSchemaList) {
         // 解决Bug, 如果这里直接放入data去更新, 会导致比如JSON类型的字段无法进行过滤等Bug, 这里循环遍历所有的字段类型, 然后根据以下文档说明, 重新将字段写入一遍, 即可解决该问题
         for(CreateCollectionReq.FieldSchema fieldSchema : fieldSchemaList) {
             String fieldName = fieldSchema.getName();
@@ -104,11 +132,7 @@ public class MilvusUpsertService {
             // If dataType is JSON, use JsonObject. add(key, JsonElement) to input;
             else if(dataType == DataType.JSON) data.add(fieldName, value);
         }
-        UpsertReq upsertReq = UpsertReq.builder()
-                .collectionName(milvusUpsertReq.getCollectionName())
-                .data(Collections.singletonList(data))
-                .build();
-        return milvusClientV2.upsert(upsertReq);
+        return data;
     }
 
     public InsertResp createEntity(MilvusUpsertReq milvusUpsertReq) {
@@ -1,28 +1,202 @@
 package com.gdin.inspection.graphrag.store;
 
+import com.gdin.inspection.graphrag.config.properties.LlmProperties;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
 import dev.langchain4j.data.message.ChatMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
+/**
+ * 支持并发访问、按数量与空闲时间淘汰的会话记忆存储
+ * - 每个 memoryId 的读改写都在 ConcurrentHashMap.compute 内完成，抽取线程池并发访问不会丢更新
+ * - 超过 maxSessions 时按最近访问时间淘汰最旧的 10%，空闲超过 expireAfterAccessMinutes 的会话由后台定时清理
+ * - 会话结束时应调用 {@link #release(Object)} 主动释放
+ * - 占用情况（{@link #footprint()}）以 graphrag.chat_memory.* 指标暴露
+ */
+@Slf4j
 @Component
 public class MapChatMemoryStore implements EditableChatMemoryStore {
-    private Map<Object, List<ChatMessage>> map = new HashMap<>();
+
+    @Resource
+    private LlmProperties llmProperties;
+
+    @Resource
+    private GraphRagMetrics graphRagMetrics;
+
+    // 单测里替换成可控时钟
+    private LongSupplier clock = System::currentTimeMillis;
+
+    private final Map<Object, Session> map = new ConcurrentHashMap<>();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    public void init() {
+        long interval = Math.max(1L, llmProperties.getChatMemory().getSweepIntervalSeconds());
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chat-memory-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::evictExpired, interval, interval, TimeUnit.SECONDS);
+        if (graphRagMetrics != null) graphRagMetrics.gaugeChatMemory(this);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (sweeper != null) sweeper.shutdownNow();
+    }
+
     @Override
     public List<ChatMessage> getMessages(Object memoryId) {
-        return map.computeIfAbsent(memoryId, k -> new ArrayList<>());
+        Session session = map.get(memoryId);
+        if (session == null) return new ArrayList<>();
+        synchronized (session) {
+            session.touch(clock.getAsLong());
+            return new ArrayList<>(session.messages);
+        }
     }
 
     @Override
     public void updateMessages(Object memoryId, List<ChatMessage> list) {
-        map.put(memoryId, list);
+        map.compute(memoryId, (k, session) -> {
+            if (session == null) session = new Session();
+            synchronized (session) {
+                session.messages = new ArrayList<>(list);
+                session.touch(clock.getAsLong());
+            }
+            return session;
+        });
+        evictIfOversize();
     }
 
     @Override
     public void deleteMessages(Object memoryId) {
         map.remove(memoryId);
     }
+
+    @Override
+    public List<ChatMessage> popMessages(Object memoryId, int count) {
+        List<ChatMessage> removedMessages = new ArrayList<>();
+        map.computeIfPresent(memoryId, (k, session) -> {
+            synchronized (session) {
+                List<ChatMessage> messages = session.messages;
+                if (messages.size() >= count) {
+                    for (int i = 0; i < count; i++) {
+                        removedMessages.add(messages.remove(messages.size() - 1));
+                    }
+                }
+                session.touch(clock.getAsLong());
+            }
+            return session;
+        });
+        return removedMessages;
+    }
+
+    @Override
+    public void addMessage(Object memoryId, List<ChatMessage> messages) {
+        map.compute(memoryId, (k, session) -> {
+            if (session == null) session = new Session();
+            synchronized (session) {
+                session.messages.addAll(messages);
+                session.touch(clock.getAsLong());
+            }
+            return session;
+        });
+        evictIfOversize();
+    }
+
+    /**
+     * 抽取会话结束时主动释放
+     */
+    public void release(Object memoryId) {
+        deleteMessages(memoryId);
+    }
+
+    /**
+     * 当前占用情况：会话数、消息数、消息文本字符数（近似内存占用）、累计淘汰数
+     */
+    public Footprint footprint() {
+        long messages = 0;
+        long chars = 0;
+        for (Session session : map.values()) {
+            synchronized (session) {
+                messages += session.messages.size();
+                for (ChatMessage m : session.messages) {
+                    chars += m == null ? 0 : String.valueOf(m).length();
+                }
+            }
+        }
+        return new Footprint(map.size(), messages, chars, evictedCount.get());
+    }
+
+    public long evictedCount() {
+        return evictedCount.get();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    void evictExpired() {
+        try {
+            long ttlMillis = TimeUnit.MINUTES.toMillis(llmProperties.getChatMemory().getExpireAfterAccessMinutes());
+            long deadline = clock.getAsLong() - ttlMillis;
+            map.forEach((k, session) -> {
+                if (session.lastAccess < deadline && map.remove(k, session)) evictedCount.incrementAndGet();
+            });
+        } catch (Exception e) {
+            log.warn("清理过期会话记忆失败: {}", e.getMessage());
+        }
+    }
+
+    private void evictIfOversize() {
+        int max = llmProperties.getChatMemory().getMaxSessions();
+        if (map.size() <= max) return;
+        // 同一时刻只允许一个线程做淘汰，其余写入直接返回
+        if (!evicting.compareAndSet(false, true)) return;
+        try {
+            // 一次淘汰一批，避免每次写入都排序
+            int toEvict = map.size() - max + Math.max(1, max / 10);
+            // lastAccess 在排序期间仍会被其它线程更新，先拍快照再排序，否则比较结果前后不一致，TimSort 会抛异常
+            List<Candidate> candidates = new ArrayList<>(map.size());
+            map.forEach((k, session) -> candidates.add(new Candidate(k, session, session.lastAccess)));
+            candidates.sort(Comparator.comparingLong(Candidate::lastAccess));
+            for (int i = 0; i < Math.min(toEvict, candidates.size()); i++) {
+                Candidate c = candidates.get(i);
+                if (map.remove(c.key(), c.session())) evictedCount.incrementAndGet();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static class Session {
+        private List<ChatMessage> messages = new ArrayList<>();
+        private volatile long lastAccess;
+
+        private void touch(long now) {
+            lastAccess = now;
+        }
+    }
+
+    private record Candidate(Object key, Session session, long lastAccess) {}
+
+    public record Footprint(int sessions, long messages, long chars, long evicted) {}
 }
@@ -1,21 +1,29 @@
 package com.gdin.inspection.graphrag.util;
 
+import com.gdin.inspection.graphrag.config.properties.HttpProperties;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
 import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.config.Registry;
 import org.apache.hc.core5.http.config.RegistryBuilder;
 import org.apache.hc.core5.ssl.SSLContextBuilder;
+import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLParameters;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
+import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
@@ -23,6 +31,7 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
+import java.util.Map;
 
 public class HttpClientUtil {
 
@@ -61,6 +70,10 @@ public class HttpClientUtil {
         return httpBuilder.build();
     }
 
+    /**
+     * 以下 getApacheClient 每次新建客户端（调用方负责关闭），只适合一次性调用；
+     * 常驻组件请注入 HttpConfig 中共享的 CloseableHttpClient / RestTemplate
+     */
     public static CloseableHttpClient getApacheClient() throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException {
         return getApacheClient(null);
     }
@@ -74,15 +87,8 @@ public class HttpClientUtil {
         if(trustAllCertificates||timeoutInSeconds!=null){
             HttpClientBuilder builder = HttpClients.custom();
             if(trustAllCertificates){
-                // 1. 构建 SSLContext（信任所有证书，生产环境请使用正规 CA）
-                SSLContext sslContext = SSLContextBuilder.create()
-                        .loadTrustMaterial(null, (X509Certificate[] chain, String authType) -> true)
-                        .build();
-                // 2. 用 SSLContext 构造一个 SSLConnectionSocketFactory，并关闭主机名校验
-                SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(
-                        sslContext,
-                        (hostname, session) -> true  // NoopHostnameVerifier
-                );
+                // 1-2. 信任所有证书、关闭主机名校验的 SSLConnectionSocketFactory
+                SSLConnectionSocketFactory sslSocketFactory = trustAllSocketFactory();
                 // 3. 构造一个注册了 http/https 的 Registry
                 Registry registry = RegistryBuilder.create()
                         .register("http", PlainConnectionSocketFactory.getSocketFactory())
@@ -105,4 +111,53 @@ public class HttpClientUtil {
         else client = HttpClients.createDefault();
         return client;
     }
+
+    /**
+     * 共享的带连接池客户端，由 HttpConfig 创建为单例 bean，常驻的调用方注入使用，不要每次请求创建：
+     * - 连接池：总数 / 每路由上限，可按路由单独设置；空闲连接再次使用前按 validateAfterInactivity 做可用性检查
+     * - 保活：取服务端 Keep-Alive 与 keepAliveSeconds 的较小值，空闲超时与过期连接由后台线程回收
+     * - 响应 gzip / deflate 解压：httpclient5 默认开启（自动带 Accept-Encoding）
+     */
+    public static CloseableHttpClient createPooledClient(HttpProperties props) throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException, URISyntaxException {
+        PoolingHttpClientConnectionManagerBuilder connManagerBuilder = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(props.getMaxTotal())
+                .setMaxConnPerRoute(props.getMaxPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(props.getConnectTimeoutMs()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(props.getResponseTimeoutMs()))
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(props.getValidateAfterInactivityMs()))
+                        .build());
+        if(Boolean.TRUE.equals(props.getTrustAllCertificates())) connManagerBuilder.setSSLSocketFactory(trustAllSocketFactory());
+        PoolingHttpClientConnectionManager connManager = connManagerBuilder.build();
+        for (Map.Entry<String, Integer> e : props.getRouteMaxConnections().entrySet()) {
+            connManager.setMaxPerRoute(new HttpRoute(HttpHost.create(e.getKey())), e.getValue());
+        }
+
+        TimeValue keepAlive = TimeValue.ofSeconds(props.getKeepAliveSeconds());
+        return HttpClients.custom()
+                .setConnectionManager(connManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(props.getConnectionRequestTimeoutMs()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(props.getResponseTimeoutMs()))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> {
+                    TimeValue server = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return TimeValue.isPositive(server) && server.toMilliseconds() < keepAlive.toMilliseconds() ? server : keepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive)
+                .build();
+    }
+
+    private static SSLConnectionSocketFactory trustAllSocketFactory() throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException {
+        // 构建 SSLContext（信任所有证书，生产环境请使用正规 CA）
+        SSLContext sslContext = SSLContextBuilder.create()
+                .loadTrustMaterial(null, (X509Certificate[] chain, String authType) -> true)
+                .build();
+        // 用 SSLContext 构造一个 SSLConnectionSocketFactory，并关闭主机名校验
+        return new SSLConnectionSocketFactory(
+                sslContext,
+                (hostname, session) -> true  // NoopHostnameVerifier
+        );
+    }
 }
@@ -1,6 +1,8 @@
 package com.gdin.inspection.graphrag.util;
 
 import cn.hutool.core.collection.CollectionUtil;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.CancellationToken;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import io.milvus.v2.client.MilvusClientV2;
@@ -23,21 +25,32 @@ public class MilvusUtil {
     @Resource
     private MilvusClientV2 milvusClientV2;
 
+    @Resource
+    private GraphRagMetrics graphRagMetrics;
+
     public InsertResp insertByBatch(String collectionName, List<JsonObject> datas) throws InterruptedException {
+        return insertByBatch(collectionName, null, datas);
+    }
+
+    public InsertResp insertByBatch(String collectionName, String partitionName, List<JsonObject> datas) throws InterruptedException {
         if (CollectionUtil.isEmpty(datas)) return InsertResp.builder().InsertCnt(0L).build();
 
         int batchSize = 1000;
         InsertResp lastResp = null;
 
         for (int i = 0; i < datas.size(); i += batchSize) {
+            // pipeline run 取消后不再写后续批次
+            CancellationToken.checkCurrent();
             List<JsonObject> subList = datas.subList(i, Math.min(i + batchSize, datas.size()));
-            InsertReq insertReq = InsertReq.builder()
+            InsertReq.InsertReqBuilder builder = InsertReq.builder()
                     .collectionName(collectionName)
-                    .data(subList)
-                    .build();
+                    .data(subList);
+            if (partitionName != null) builder.partitionName(partitionName);
+            InsertReq insertReq = builder.build();
 
             try {
-                InsertResp insertResp = milvusClientV2.insert(insertReq);
+                InsertResp insertResp = graphRagMetrics.timeMilvus("insert", collectionName, () -> milvusClientV2.insert(insertReq));
+                graphRagMetrics.recordMilvusRows("insert", collectionName, subList.size());
                 ensureInserted(collectionName, insertResp); // 只要验证本批里任意一个 pk 可查到即可
                 lastResp = insertResp;
             }
@@ -67,14 +80,19 @@ public class MilvusUtil {
 
         boolean ok = false;
         for (int i = 0; i < 20 && !ok; i++) {
+            CancellationToken.checkCurrent();
             Thread.sleep(500);
-            QueryResp queryResp = milvusClientV2.query(queryReq);
+            QueryResp queryResp = graphRagMetrics.timeMilvus("insert_check", collectionName, () -> milvusClientV2.query(queryReq));
             ok = queryResp != null && queryResp.getQueryResults() != null && !queryResp.getQueryResults().isEmpty();
         }
         if (!ok) throw new RuntimeException("Milvus insert check failed, filter=" + filter);
     }
 
     public UpsertResp upsertByBatch(String collectionName, List<JsonObject> datas) {
+        return upsertByBatch(collectionName, null, datas);
+    }
+
+    public UpsertResp upsertByBatch(String collectionName, String partitionName, List<JsonObject> datas) {
         if (CollectionUtil.isEmpty(datas)) return UpsertResp.builder().upsertCnt(0L).build();
 
         int batchSize = 1000;
@@ -83,10 +101,13 @@ public class MilvusUtil {
         for (int i = 0; i < datas.size(); i += batchSize) {
             List<JsonObject> subList = datas.subList(i, Math.min(i + batchSize, datas.size()));
 
-            lastResp = milvusClientV2.upsert(UpsertReq.builder()
+            UpsertReq.UpsertReqBuilder builder = UpsertReq.builder()
                     .collectionName(collectionName)
-                    .data(subList)
-                    .build());
+                    .data(subList);
+            if (partitionName != null) builder.partitionName(partitionName);
+            UpsertReq upsertReq = builder.build();
+            lastResp = graphRagMetrics.timeMilvus("upsert", collectionName, () -> milvusClientV2.upsert(upsertReq));
+            graphRagMetrics.recordMilvusRows("upsert", collectionName, subList.size());
         }
         return lastResp == null ? UpsertResp.builder().upsertCnt(0L).build() : lastResp;
     }
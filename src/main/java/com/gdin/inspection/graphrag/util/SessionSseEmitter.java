@@ -0,0 +1,23 @@
+package com.gdin.inspection.graphrag.util;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 自带会话引用的 SseEmitter：会话结束从 {@link SseSessionManager} 移除后仍能查到其已关闭的状态
+ */
+public class SessionSseEmitter extends SseEmitter {
+
+    private volatile SseSession session;
+
+    public SessionSseEmitter(Long timeout) {
+        super(timeout);
+    }
+
+    public SseSession getSession() {
+        return session;
+    }
+
+    void setSession(SseSession session) {
+        this.session = session;
+    }
+}
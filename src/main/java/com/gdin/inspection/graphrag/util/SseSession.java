@@ -0,0 +1,161 @@
+package com.gdin.inspection.graphrag.util;
+
+import cn.hutool.core.util.IdUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.gdin.inspection.graphrag.resp.BaseSseResp;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个 SseEmitter 对应的会话状态，由 {@link SseSessionManager} 创建与回收：
+ * - alive 由 emitter 的完成 / 错误 / 超时回调以及发送失败维护，不再反射读取 ResponseBodyEmitter 内部字段
+ * - 大模型分片先进缓冲区，攒够 flushMaxChars 或距首个分片超过 flushIntervalMs 时合并成一条事件发送
+ * - 非分片事件发送前先把缓冲区冲掉，保证前端收到的顺序与产生顺序一致
+ * - 心跳只在最近一个心跳周期内没有发过任何事件时才发送
+ */
+@Slf4j
+public class SseSession {
+
+    private final SseEmitter emitter;
+    private final SseSessionManager manager;
+
+    private volatile boolean alive = true;
+    private volatile long lastSendNanos = System.nanoTime();
+
+    // 以下字段由 this 保护
+    private final StringBuilder buffer = new StringBuilder();
+    private String bufferId;
+    private ScheduledFuture<?> pendingFlush;
+    private ScheduledFuture<?> heartbeat;
+
+    SseSession(SseEmitter emitter, SseSessionManager manager) {
+        this.emitter = emitter;
+        this.manager = manager;
+    }
+
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    public boolean isAlive() {
+        return alive;
+    }
+
+    /**
+     * 立即发送一个事件（先冲掉缓冲的分片），连接已断开时返回 false
+     */
+    public synchronized boolean send(Object data) {
+        if (!alive) return false;
+        return flushBuffer() && doSend(data);
+    }
+
+    /**
+     * 同 {@link #send(Object)}，失败时抛 IOException（序列化失败 / 连接已断开），供 {@link SseUtil#send} 保持抛异常的约定
+     */
+    synchronized void sendOrThrow(Object data) throws IOException {
+        // JsonProcessingException 本身就是 IOException
+        String json = IOUtil.jsonSerializeWithNoType(data);
+        if (!alive || !flushBuffer() || !doSend(data, json)) throw new IOException("SSE 连接已断开");
+    }
+
+    /**
+     * 缓冲一个大模型分片，按大小 / 时间合并发送；连接已断开时返回 false
+     */
+    public synchronized boolean sendToken(String id, String text) {
+        if (!alive) return false;
+        if (text == null || text.isEmpty()) return true;
+        if (bufferId != null && !bufferId.equals(id) && !flushBuffer()) return false;
+        bufferId = id;
+        buffer.append(text);
+        if (buffer.length() >= manager.getFlushMaxChars()) return flushBuffer();
+        if (pendingFlush == null) {
+            pendingFlush = manager.getScheduler().schedule(this::flush, manager.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * 把缓冲的分片立即发出去，流结束时调用
+     */
+    public synchronized boolean flush() {
+        if (!alive) return false;
+        return flushBuffer();
+    }
+
+    synchronized void startHeartbeat(long intervalMs) {
+        if (!alive) return;
+        heartbeat = manager.getScheduler().scheduleWithFixedDelay(() -> heartbeat(intervalMs), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void heartbeat(long intervalMs) {
+        if (!alive || System.nanoTime() - lastSendNanos < TimeUnit.MILLISECONDS.toNanos(intervalMs)) return;
+        send(BaseSseResp.builder().text("").state(BaseSseResp.STATE_HEARTBEAT).build());
+    }
+
+    /**
+     * 标记会话结束并从管理器移除，取消心跳与待发送的合并任务；可重复调用
+     */
+    void close() {
+        ScheduledFuture<?> hb;
+        ScheduledFuture<?> pf;
+        synchronized (this) {
+            if (!alive) return;
+            alive = false;
+            buffer.setLength(0);
+            hb = heartbeat;
+            pf = pendingFlush;
+            pendingFlush = null;
+        }
+        if (hb != null) hb.cancel(false);
+        if (pf != null) pf.cancel(false);
+        manager.remove(this);
+    }
+
+    private boolean flushBuffer() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        if (buffer.isEmpty()) return true;
+        String text = buffer.toString();
+        buffer.setLength(0);
+        return doSend(BaseSseResp.builder()
+                .id(bufferId)
+                .state(BaseSseResp.STATE_ASSISTANT_GEN)
+                .text(text)
+                .build());
+    }
+
+    private boolean doSend(Object data) {
+        String json;
+        try {
+            json = IOUtil.jsonSerializeWithNoType(data);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("SSE 数据序列化失败", e);
+        }
+        return doSend(data, json);
+    }
+
+    private boolean doSend(Object data, String json) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(IdUtil.getSnowflakeNextIdStr())
+                    .name(data.getClass().getSimpleName())
+                    .data(json));
+            lastSendNanos = System.nanoTime();
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // IOException：客户端断开；IllegalStateException：emitter 已 complete
+            log.warn("sse断开连接：{}", e.getMessage());
+            close();
+            try {
+                emitter.complete();
+            } catch (Exception ignored) {}
+            return false;
+        }
+    }
+}
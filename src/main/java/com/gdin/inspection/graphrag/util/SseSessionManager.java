@@ -0,0 +1,93 @@
+package com.gdin.inspection.graphrag.util;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * SSE 会话管理：
+ * - 每个 emitter 只注册一次完成 / 错误 / 超时回调（SseEmitter 每种回调只保留最后一次注册的），
+ *   在回调里关闭会话并立即移除，调用方的回调在其中转调
+ * - 会话关闭即移除，只保留存活的会话；SseUtil 创建的是 {@link SessionSseEmitter}，移除后仍能判断已断开
+ * - 心跳与分片合并共用一个按 CPU 数定大小的调度线程池，每个会话各自排期，取消时从队列中移除
+ */
+@Slf4j
+public class SseSessionManager {
+
+    private final Map<SseEmitter, SseSession> sessions = new ConcurrentHashMap<>();
+    @Getter
+    private final ScheduledExecutorService scheduler;
+    @Getter
+    private final long heartbeatIntervalMs;
+    @Getter
+    private final long flushIntervalMs;
+    @Getter
+    private final int flushMaxChars;
+
+    public SseSessionManager(int schedulerThreads, long heartbeatIntervalMs, long flushIntervalMs, int flushMaxChars) {
+        AtomicInteger seq = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(Math.max(1, schedulerThreads), r -> {
+            Thread t = new Thread(r, "sse-scheduler-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushMaxChars = flushMaxChars;
+    }
+
+    /**
+     * 为 emitter 建立会话并注册回调、启动心跳；回调参数均可为空
+     */
+    public SseSession register(SseEmitter emitter, Runnable onCompletion, Consumer<Throwable> onError, Runnable onTimeout) {
+        SseSession session = new SseSession(emitter, this);
+        sessions.put(emitter, session);
+        if (emitter instanceof SessionSseEmitter sessionEmitter) sessionEmitter.setSession(session);
+        emitter.onCompletion(() -> {
+            session.close();
+            if (onCompletion != null) onCompletion.run();
+        });
+        emitter.onError(error -> {
+            session.close();
+            if (onError != null) onError.accept(error);
+            emitter.complete();
+        });
+        emitter.onTimeout(() -> {
+            session.close();
+            if (onTimeout != null) onTimeout.run();
+            emitter.complete();
+        });
+        if (heartbeatIntervalMs > 0) session.startHeartbeat(heartbeatIntervalMs);
+        return session;
+    }
+
+    /**
+     * 未注册的 emitter 返回 null；SessionSseEmitter 在会话移除后仍返回其（已关闭的）会话
+     */
+    public SseSession get(SseEmitter emitter) {
+        if (emitter instanceof SessionSseEmitter sessionEmitter) return sessionEmitter.getSession();
+        return emitter == null ? null : sessions.get(emitter);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    void remove(SseSession session) {
+        sessions.remove(session.getEmitter(), session);
+    }
+
+    public void shutdown() {
+        sessions.values().forEach(SseSession::close);
+        scheduler.shutdownNow();
+    }
+}
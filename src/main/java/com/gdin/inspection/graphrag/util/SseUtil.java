@@ -4,34 +4,29 @@ import cn.hutool.core.util.IdUtil;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import com.gdin.inspection.graphrag.resp.BaseSseResp;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.CancellationToken;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.PipelineCancelledException;
+import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.service.TokenStream;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 @Slf4j
 public class SseUtil {
 
-    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private static final Set<SseEmitter> sseEmitterSet = ConcurrentHashMap.newKeySet();
+    /** 心跳 10s；分片最多攒 50ms 或 256 字再推送；调度线程数随 CPU 数增长 */
+    private static final SseSessionManager sessionManager = new SseSessionManager(
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 4), 10000L, 50L, 256);
+    private static final Pattern THINK_PATTERN = Pattern.compile("<think>.*?</think>", Pattern.DOTALL);
 
-    static{
-        Runnable task = () -> {
-            sseEmitterSet.stream().toList().forEach(emitter -> {
-                try {
-                    send(emitter, BaseSseResp.builder().text("").state(BaseSseResp.STATE_HEARTBEAT).build());
-                } catch (IOException ignored) {}
-            });
-        };
-        scheduler.scheduleAtFixedRate(task, 0, 10, TimeUnit.SECONDS);
-    }
+    /** 不推送 SSE 时单次大模型调用的默认超时，与原 latch 等待时长一致 */
+    public static final long DEFAULT_COMPLETION_TIMEOUT_MS = 1800000L;
 
     public static SseEmitter createCommonSseEmitter() {
         return createCommonSseEmitter(null);
@@ -64,42 +59,185 @@ public class SseUtil {
     }
 
     public static SseEmitter createSseEmitterWithHeartbeat(Runnable onCompletion, Consumer<Throwable> onError, Runnable onTimeout) {
-        SseEmitter emitter = new SseEmitter(3600000L);
-        sseEmitterSet.add(emitter);
-        emitter.onCompletion(() -> {
-            if(onCompletion!=null) emitter.onCompletion(onCompletion);
-            sseEmitterSet.remove(emitter);
-        });
-        emitter.onError((error) -> {
-            if(onError!=null) emitter.onError(onError);
-            emitter.complete();
-        });
-        emitter.onTimeout(() -> {
-            if(onTimeout!=null) emitter.onTimeout(onTimeout);
-            emitter.complete();
-        });
+        SseEmitter emitter = new SessionSseEmitter(3600000L);
+        sessionManager.register(emitter, onCompletion, onError, onTimeout);
         return emitter;
     }
 
+    public static SseSessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    /**
+     * 经由本类创建的 emitter 走会话发送（先冲掉缓冲的分片），其它 emitter 直接发送；
+     * 两种情况下序列化失败、连接已断开都抛 IOException，由调用方处理
+     */
     public static void send(SseEmitter emitter, Object data) throws IOException {
-        if (checkConnectAlive(emitter)) {
-            emitter.send(SseEmitter.event()
-                    .id(IdUtil.getSnowflakeNextIdStr())
-                    .name(data.getClass().getSimpleName())
-                    .data(IOUtil.jsonSerializeWithNoType(data))
-                    .build()
-            );
+        if (emitter == null) return;
+        SseSession session = sessionManager.get(emitter);
+        if (session != null) {
+            // SessionSseEmitter 在会话移除后仍能查到已关闭的会话，此时同样抛 IOException
+            session.sendOrThrow(data);
+            return;
         }
+        emitter.send(SseEmitter.event()
+                .id(IdUtil.getSnowflakeNextIdStr())
+                .name(data.getClass().getSimpleName())
+                .data(IOUtil.jsonSerializeWithNoType(data)));
+    }
+
+    /**
+     * 大模型分片推送器（配合 {@link #completeWithoutThink} 的 onPartial）：
+     * 本类创建的 emitter 经 {@link SseSession#sendToken} 合并发送，其它 emitter 逐片发送；连接断开后丢弃后续分片
+     */
+    public static Consumer<String> tokenSender(SseEmitter emitter, String id) {
+        if (emitter == null) return null;
+        SseSession session = sessionManager.get(emitter);
+        if (session != null) return text -> session.sendToken(id, text);
+        AtomicBoolean closed = new AtomicBoolean();
+        return text -> {
+            if (closed.get()) return;
+            try {
+                send(emitter, BaseSseResp.builder()
+                        .id(id)
+                        .state(BaseSseResp.STATE_ASSISTANT_GEN)
+                        .text(text)
+                        .build());
+            } catch (IOException e) {
+                closed.set(true);
+                log.warn("sse断开连接：{}", e.getMessage());
+                emitter.complete();
+            }
+        };
+    }
+
+    /**
+     * 把会话中缓冲的分片立即发出去；非本类创建的 emitter 没有缓冲，不做任何事
+     */
+    public static void flush(SseEmitter emitter) {
+        if (emitter == null) return;
+        SseSession session = sessionManager.get(emitter);
+        if (session != null) session.flush();
     }
 
     public static String removeThink(String response){
-        // 去掉<think></think>标签以及其中的所有内容
-        return Pattern.compile("<think>.*?</think>", Pattern.DOTALL).matcher(response).replaceAll("");
+        // 去掉<think></think>标签以及其中的所有内容；没有 think 段时不走正则
+        if (response == null || !response.contains("<think>")) return response;
+        return THINK_PATTERN.matcher(response).replaceAll("");
     }
 
     public static String getResponseWithoutThink(SseEmitter sseEmitter, TokenStream tokenStream, String id) throws InterruptedException {
-        String result = getResponse(sseEmitter, tokenStream, id);
-        return removeThink(result);
+        if (sseEmitter == null) {
+            // 不需要推送 SSE 时直接走异步通道，不再为每次调用挂一个 latch
+            try {
+                return completeWithoutThink(tokenStream, id, DEFAULT_COMPLETION_TIMEOUT_MS).get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException re) throw re;
+                throw new RuntimeException("调用失败", cause);
+            }
+        }
+        // 分片经 think 过滤后再推送，前端不会看到 think 段
+        long timeout = sseEmitter.getTimeout() == null ? DEFAULT_COMPLETION_TIMEOUT_MS : sseEmitter.getTimeout();
+        try {
+            return completeWithoutThink(tokenStream, id, timeout, tokenSender(sseEmitter, id)).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (!(cause instanceof PipelineCancelledException)) sendError(sseEmitter, id, cause);
+            if (cause instanceof RuntimeException re) throw re;
+            throw new RuntimeException("调用失败", cause);
+        } finally {
+            flush(sseEmitter);
+        }
+    }
+
+    private static void sendError(SseEmitter sseEmitter, String id, Throwable throwable) {
+        try {
+            send(sseEmitter, BaseSseResp.builder()
+                    .id(id)
+                    .state(BaseSseResp.STATE_ERROR)
+                    .text(throwable.getMessage())
+                    .build());
+        } catch (IOException e) {
+            log.warn("sse断开连接：{}", e.getMessage());
+            sseEmitter.complete();
+        }
+    }
+
+    public static CompletableFuture<String> completeWithoutThink(TokenStream tokenStream, String id) {
+        return completeWithoutThink(tokenStream, id, DEFAULT_COMPLETION_TIMEOUT_MS);
+    }
+
+    public static CompletableFuture<String> completeWithoutThink(TokenStream tokenStream, String id, long timeoutMillis) {
+        return completeWithoutThink(tokenStream, id, timeoutMillis, null);
+    }
+
+    /**
+     * 非阻塞地获取大模型完整回答：
+     * - 不占用调用线程，回答在 TokenStream 的回调线程上完成 future
+     * - think 段按分片增量剔除，onPartial 收到的都是剔除后的内容
+     * - timeoutMillis 超时后 future 以 TimeoutException 结束，之后到达的分片直接丢弃
+     * 返回为空时与 {@link #sendStream} 一致，以 "调用失败, 返回为空" 结束。
+     */
+    public static CompletableFuture<String> completeWithoutThink(TokenStream tokenStream, String id, long timeoutMillis, Consumer<String> onPartial) {
+        return completeWithoutThink(tokenStream, id, timeoutMillis, onPartial, null);
+    }
+
+    /**
+     * 同上，onComplete 在 future 完成前收到原始 ChatResponse（可从中读取 tokenUsage）
+     */
+    public static CompletableFuture<String> completeWithoutThink(TokenStream tokenStream, String id, long timeoutMillis, Consumer<String> onPartial, Consumer<ChatResponse> onComplete) {
+        return completeWithoutThink(tokenStream, id, timeoutMillis, onPartial, onComplete, CancellationToken.current());
+    }
+
+    /**
+     * 同上，cancellation 取消时 future 立即以 PipelineCancelledException 结束，之后到达的分片与完成回调直接丢弃；
+     * 已取消时不再发起调用。回调线程上拿不到当前令牌，需要调用方显式传入。
+     */
+    public static CompletableFuture<String> completeWithoutThink(TokenStream tokenStream, String id, long timeoutMillis, Consumer<String> onPartial, Consumer<ChatResponse> onComplete, CancellationToken cancellation) {
+        if (cancellation != null && cancellation.isCancelled()) {
+            return CompletableFuture.failedFuture(new PipelineCancelledException(cancellation.getReason()));
+        }
+        CompletableFuture<String> future = new CompletableFuture<>();
+        if (cancellation != null) {
+            Runnable unregister = cancellation.onCancel(() -> future.completeExceptionally(new PipelineCancelledException(cancellation.getReason())));
+            future.whenComplete((r, e) -> unregister.run());
+        }
+        ThinkStreamFilter filter = new ThinkStreamFilter();
+        StringBuilder result = new StringBuilder();
+        long startTime = System.currentTimeMillis();
+
+        tokenStream.onPartialResponse(s -> {
+                    if (future.isDone()) return;
+                    String visible = filter.accept(s);
+                    if (visible.isEmpty()) return;
+                    result.append(visible);
+                    if (onPartial != null) onPartial.accept(visible);
+                })
+                .onCompleteResponse(chatResponse -> {
+                    if (future.isDone()) return;
+                    String tail = filter.finish();
+                    if (!tail.isEmpty()) {
+                        result.append(tail);
+                        if (onPartial != null) onPartial.accept(tail);
+                    }
+                    log.debug("LLM [{}] 耗时: {}ms", id, System.currentTimeMillis() - startTime);
+                    if (onComplete != null) onComplete.accept(chatResponse);
+                    if (result.isEmpty()) future.completeExceptionally(new RuntimeException("调用失败, 返回为空"));
+                    else future.complete(result.toString());
+                })
+                .onError(throwable -> {
+                    if (future.isDone()) return;
+                    log.error("LLM [{}] 调用失败: {}", id, throwable.getMessage(), throwable);
+                    future.completeExceptionally(throwable);
+                });
+        if (timeoutMillis > 0) future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            tokenStream.start();
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 
     public static String getResponse(SseEmitter sseEmitter, TokenStream tokenStream, String id) throws InterruptedException {
@@ -112,6 +250,8 @@ public class SseUtil {
 
     public static String sendStream(SseEmitter sseEmitter, TokenStream tokenStream, String id, CountDownLatch latch, boolean closeSse) throws InterruptedException {
         StringBuilder result = new StringBuilder();
+        // 分片经会话合并后推送；非本类创建的 emitter 逐片发送
+        SseSession session = sessionManager.get(sseEmitter);
         log.info("开始进入大模型流式响应");
         long startTime = System.currentTimeMillis();
         tokenStream.onPartialResponse(s -> {
@@ -122,7 +262,8 @@ public class SseUtil {
                     try {
 //                        log.info(s);
                         result.append(s);
-                        if(sseEmitter!=null) SseUtil.send(sseEmitter, BaseSseResp.builder()
+                        if(session!=null) session.sendToken(id, s);
+                        else if(sseEmitter!=null) SseUtil.send(sseEmitter, BaseSseResp.builder()
                                 .id(id)
                                 .state(BaseSseResp.STATE_ASSISTANT_GEN)
                                 .text(s)
@@ -134,6 +275,7 @@ public class SseUtil {
                     }
                 })
                 .onCompleteResponse(chatResponse -> {
+                    if(session!=null) session.flush();
                     if(latch!=null) latch.countDown();
                     if(closeSse&&sseEmitter!=null) sseEmitter.complete();
                     log.info("SSE [{}] 返回内容: {}", id, result);
@@ -142,21 +284,20 @@ public class SseUtil {
                 .onError(throwable -> {
                     log.error("throwable:{}", throwable);
                     result.setLength(0);
-                    try {
-                        if(sseEmitter!=null) SseUtil.send(sseEmitter, BaseSseResp.builder()
-                                .id(id)
-                                .state(BaseSseResp.STATE_ERROR)
-                                .text(throwable.getMessage())
-                                .build());
-                    } catch (IOException e) {
-                        log.warn("sse断开连接：{}", e.getMessage());
-                        if(sseEmitter!=null) sseEmitter.complete();
-                    }
+                    if(sseEmitter!=null) sendError(sseEmitter, id, throwable);
                     if(latch!=null) latch.countDown();
                     if(closeSse&&sseEmitter!=null) sseEmitter.completeWithError(throwable);
                 })
                 .start();
-        if(latch!=null) latch.await(sseEmitter==null?1800000L:sseEmitter.getTimeout(), TimeUnit.MILLISECONDS);
+        // pipeline run 取消时直接唤醒，不再等满超时
+        CancellationToken cancellation = CancellationToken.current();
+        Runnable unregister = (latch == null || cancellation == null) ? null : cancellation.onCancel(latch::countDown);
+        try {
+            if(latch!=null) latch.await(sseEmitter==null?DEFAULT_COMPLETION_TIMEOUT_MS:sseEmitter.getTimeout(), TimeUnit.MILLISECONDS);
+        } finally {
+            if (unregister != null) unregister.run();
+        }
+        if (cancellation != null) cancellation.throwIfCancelled();
         if(latch!=null&&result.isEmpty()) throw new RuntimeException("调用失败, 返回为空");
         return result.toString();
     }
@@ -194,33 +335,14 @@ public class SseUtil {
     }
 
     /**
-     * 判断sse连接是否可用 (未完成并且没有错误)
+     * 判断sse连接是否可用 (未完成并且没有错误)，状态由会话的回调维护；
+     * 非本类创建的 emitter 无从得知，按可用处理
      * @param emitter
      * @return
      */
     public static boolean checkConnectAlive(SseEmitter emitter) {
         if (emitter == null) return false;
-        return !isEmitterComplete(emitter) &&
-                !isEmitterError(emitter);
-    }
-
-    public static boolean isEmitterComplete(SseEmitter emitter) {
-        try {
-            Field completeField = ResponseBodyEmitter.class.getDeclaredField("complete");
-            completeField.setAccessible(true);
-            return (boolean) completeField.get(emitter);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    public static boolean isEmitterError(SseEmitter emitter) {
-        try {
-            Field errorOnSendField = ResponseBodyEmitter.class.getDeclaredField("ioErrorOnSend");
-            errorOnSendField.setAccessible(true);
-            return (boolean) errorOnSendField.get(emitter);
-        } catch (Exception e) {
-            return false;
-        }
+        SseSession session = sessionManager.get(emitter);
+        return session == null || session.isAlive();
     }
 }
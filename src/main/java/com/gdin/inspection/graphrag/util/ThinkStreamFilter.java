@@ -0,0 +1,69 @@
+package com.gdin.inspection.graphrag.util;
+
+/**
+ * 流式去除 &lt;think&gt;...&lt;/think&gt; 片段。
+ * 与 {@link SseUtil#removeThink(String)} 语义一致，但按分片增量处理：
+ * - 标签可能被拆在两个分片之间，末尾疑似标签前缀的部分会暂存到下一个分片再判断
+ * - 未闭合的 think 段直到流结束都不会输出
+ * 非线程安全，一个流对应一个实例（TokenStream 回调本身是串行的）。
+ */
+public class ThinkStreamFilter {
+
+    private static final String OPEN = "<think>";
+    private static final String CLOSE = "</think>";
+
+    private final StringBuilder pending = new StringBuilder();
+    private boolean inThink = false;
+
+    /**
+     * 输入一个分片，返回可以对外输出的内容（可能为空串）。
+     */
+    public String accept(String chunk) {
+        if (chunk == null || chunk.isEmpty()) return "";
+        pending.append(chunk);
+        StringBuilder out = new StringBuilder();
+
+        while (pending.length() > 0) {
+            String tag = inThink ? CLOSE : OPEN;
+            int idx = pending.indexOf(tag);
+            if (idx >= 0) {
+                if (!inThink) out.append(pending, 0, idx);
+                pending.delete(0, idx + tag.length());
+                inThink = !inThink;
+                continue;
+            }
+            // 没有完整标签：保留可能是标签前缀的尾巴，其余部分处理掉
+            int keep = partialTagSuffix(pending, tag);
+            int consume = pending.length() - keep;
+            if (!inThink) out.append(pending, 0, consume);
+            pending.delete(0, consume);
+            break;
+        }
+        return out.toString();
+    }
+
+    /**
+     * 流结束时调用，把暂存的尾巴吐出来（处于 think 段中则丢弃）。
+     */
+    public String finish() {
+        String rest = inThink ? "" : pending.toString();
+        pending.setLength(0);
+        inThink = false;
+        return rest;
+    }
+
+    private static int partialTagSuffix(CharSequence s, String tag) {
+        int max = Math.min(s.length(), tag.length() - 1);
+        for (int len = max; len > 0; len--) {
+            boolean match = true;
+            for (int i = 0; i < len; i++) {
+                if (s.charAt(s.length() - len + i) != tag.charAt(i)) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match) return len;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,34 @@
+package com.gdin.inspection.graphrag.util;
+
+import com.alibaba.ttl.threadpool.TtlExecutors;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 会把提交线程上下文带到工作线程的线程池。
+ * 以下上下文都放在 TransmittableThreadLocal 中，普通线程池的工作线程上读不到：
+ * - TokenLedger.Scope：token 台账归属的 workflow / document
+ * - CancellationToken：pipeline run 的取消令牌
+ * - QueryTimings：查询请求的分阶段耗时
+ * 在这些上下文里向线程池派发大模型调用的地方统一从这里取线程池，不要直接 Executors.newXxx。
+ */
+public final class TtlExecutorUtil {
+
+    private TtlExecutorUtil() {}
+
+    public static ExecutorService newFixedThreadPool(int threads) {
+        return TtlExecutors.getTtlExecutorService(Executors.newFixedThreadPool(Math.max(1, threads)));
+    }
+
+    public static ExecutorService newSingleThreadExecutor() {
+        return TtlExecutors.getTtlExecutorService(Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * 包装已有线程池（如共享的 bean）
+     */
+    public static ExecutorService wrap(ExecutorService executor) {
+        return TtlExecutors.getTtlExecutorService(executor);
+    }
+}
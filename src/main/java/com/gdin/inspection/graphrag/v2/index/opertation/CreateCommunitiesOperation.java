@@ -7,6 +7,7 @@ import com.gdin.inspection.graphrag.v2.index.cluster.LeidenCluster;
 import com.gdin.inspection.graphrag.v2.models.Community;
 import com.gdin.inspection.graphrag.v2.models.Entity;
 import com.gdin.inspection.graphrag.v2.models.Relationship;
+import com.gdin.inspection.graphrag.v2.util.StableIdUtil;
 import jakarta.annotation.Resource;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
@@ -25,7 +26,7 @@ import java.util.stream.Collectors;
  * 2. 把聚类结果展开成 (community, level, parent, title) 表；
  * 3. 按社区聚合 entity_ids；
  * 4. 按 (community, level, parent) 聚合 relationship_ids / text_unit_ids；
- * 5. 生成最终 Community 列表，填充 id / humanReadableId / community / level / parent / children / title /
+ * 5. 生成最终 Community 列表，填充 id（见 {@link StableIdUtil#communityId}） / humanReadableId / community / level / parent / children / title /
  *    entityIds / relationshipIds / textUnitIds / period / size / summary / metadata / createdAt。
  */
 @Slf4j
@@ -218,7 +219,12 @@ public class CreateCommunitiesOperation {
         Instant now = Instant.now();
         String period = LocalDate.now(ZoneOffset.UTC).toString();
 
-        for (CommunityRow row : rows) {
+        // id 由 level + 成员实体派生，成员不变的社区在多次索引之间 id 不变（Leiden 的社区编号则可能变化）
+        List<String> ids = StableIdUtil.dedupeIds(rows,
+                row -> StableIdUtil.communityId(row.getLevel(), row.getEntityIds()),
+                row -> StableIdUtil.communityTieKey(row.getRelationshipIds()), null);
+        for (int i = 0; i < rows.size(); i++) {
+            CommunityRow row = rows.get(i);
             int communityId = row.getCommunity();
             int level = row.getLevel();
             Integer parent = row.getParent();
@@ -228,7 +234,7 @@ public class CreateCommunitiesOperation {
                     .toList(); // 保持出现顺序即可，Python 用的是 unique()
 
             Community community = Community.builder()
-                    .id(UUID.randomUUID().toString())
+                    .id(ids.get(i))
                     .humanReadableId(communityId)
                     .community(communityId)
                     .level(level)
@@ -5,9 +5,11 @@ import com.gdin.inspection.graphrag.v2.models.Covariate;
 import com.gdin.inspection.graphrag.v2.models.Entity;
 import com.gdin.inspection.graphrag.v2.models.Relationship;
 import com.gdin.inspection.graphrag.v2.models.TextUnit;
+import com.gdin.inspection.graphrag.v2.util.TextUnitLinkTable;
 import org.springframework.stereotype.Component;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class CreateFinalTextUnitsOperation {
@@ -22,40 +24,8 @@ public class CreateFinalTextUnitsOperation {
         if (CollectionUtil.isEmpty(finalEntities)) throw new IllegalArgumentException("finalEntities 不能为空");
         if (CollectionUtil.isEmpty(finalRelationships)) throw new IllegalArgumentException("finalRelationships 不能为空");
 
-        // === _entities(df): text_unit_id -> entity_ids(unique) ===
-        Map<String, LinkedHashSet<String>> tuToEntityIds = new LinkedHashMap<>();
-        for (Entity e : finalEntities) {
-            if (e == null || e.getId() == null) continue;
-            List<String> tuIds = e.getTextUnitIds();
-            if (CollectionUtil.isEmpty(tuIds)) continue;
-            for (String tuId : tuIds) {
-                if (tuId == null) continue;
-                tuToEntityIds.computeIfAbsent(tuId, _k -> new LinkedHashSet<>()).add(e.getId());
-            }
-        }
-
-        // === _relationships(df): text_unit_id -> relationship_ids(unique) ===
-        Map<String, LinkedHashSet<String>> tuToRelationshipIds = new LinkedHashMap<>();
-        for (Relationship r : finalRelationships) {
-            if (r == null || r.getId() == null) continue;
-            List<String> tuIds = r.getTextUnitIds();
-            if (CollectionUtil.isEmpty(tuIds)) continue;
-            for (String tuId : tuIds) {
-                if (tuId == null) continue;
-                tuToRelationshipIds.computeIfAbsent(tuId, _k -> new LinkedHashSet<>()).add(r.getId());
-            }
-        }
-
-        // === _covariates(df): text_unit_id -> covariate_ids(unique) ===
-        Map<String, LinkedHashSet<String>> tuToCovariateIds = new LinkedHashMap<>();
-        if (finalCovariates != null) {
-            for (Covariate c : finalCovariates) {
-                if (c == null || c.getId() == null) continue;
-                String tuId = c.getTextUnitId();
-                if (tuId == null) continue;
-                tuToCovariateIds.computeIfAbsent(tuId, _k -> new LinkedHashSet<>()).add(c.getId());
-            }
-        }
+        // === _entities / _relationships / _covariates(df): text_unit_id -> ids(unique)，一次建好三个反向索引 ===
+        TextUnitLinkTable links = TextUnitLinkTable.forFinalize(textUnits, finalEntities, finalRelationships, finalCovariates);
 
         // === selected["human_readable_id"] = selected.index ===
         List<TextUnit> finalized = new ArrayList<>(textUnits.size());
@@ -68,9 +38,7 @@ public class CreateFinalTextUnitsOperation {
                 throw new IllegalStateException("TextUnit.id 不能为空（需要作为 join key）");
             }
 
-            List<String> entityIds = new ArrayList<>(tuToEntityIds.getOrDefault(id, new LinkedHashSet<>()));
-            List<String> relationshipIds = new ArrayList<>(tuToRelationshipIds.getOrDefault(id, new LinkedHashSet<>()));
-            List<String> covariateIds = new ArrayList<>(tuToCovariateIds.getOrDefault(id, new LinkedHashSet<>()));
+            int row = links.rowOf(id);
 
             finalized.add(TextUnit.builder()
                     .id(id)
@@ -78,9 +46,9 @@ public class CreateFinalTextUnitsOperation {
                     .text(tu.getText())
                     .nTokens(tu.getNTokens())
                     .documentIds(tu.getDocumentIds())
-                    .entityIds(entityIds)
-                    .relationshipIds(relationshipIds)
-                    .covariateIds(covariateIds)
+                    .entityIds(links.entityIds(row))
+                    .relationshipIds(links.relationshipIds(row))
+                    .covariateIds(links.covariateIds(row))
                     .build());
         }
 
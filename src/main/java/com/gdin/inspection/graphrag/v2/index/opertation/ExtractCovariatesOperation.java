@@ -2,7 +2,10 @@ package com.gdin.inspection.graphrag.v2.index.opertation;
 
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.StrUtil;
+import com.gdin.inspection.graphrag.util.TtlExecutorUtil;
 import com.gdin.inspection.graphrag.v2.index.opertation.extract.ClaimsExtractor;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.CancellationToken;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.TokenLedger;
 import com.gdin.inspection.graphrag.v2.index.strategy.ExtractClaimsStrategy;
 import com.gdin.inspection.graphrag.v2.models.Covariate;
 import com.gdin.inspection.graphrag.v2.models.TextUnit;
@@ -15,7 +18,6 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * 对齐 Python: graphrag/index/operations/extract_covariates/extract_covariates.py
@@ -47,18 +49,25 @@ public class ExtractCovariatesOperation {
         List<Covariate> rows = new ArrayList<>();
 
         int threads = Math.max(1, strategy.getConcurrentRequests());
-        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ExecutorService pool = TtlExecutorUtil.newFixedThreadPool(threads);
+        TokenLedger.Scope ledgerScope = TokenLedger.currentScope();
         try {
             List<CompletableFuture<ClaimsExtractor.ClaimExtractorResult>> futures = new ArrayList<>();
             for (TextUnit tu : textUnits) {
                 if (tu == null || StrUtil.isBlank(tu.getText())) continue;
-                futures.add(CompletableFuture.supplyAsync(() -> claimsExtractor.extract(
-                        tu.getId(),
-                        List.of(tu.getText()),
-                        entityTypesOrNames,
-                        resolvedEntitiesMap,
-                        strategy
-                ), pool));
+                TokenLedger.Scope scope = ledgerScope == null ? null
+                        : ledgerScope.withDocument(CollectionUtil.isEmpty(tu.getDocumentIds()) ? null : tu.getDocumentIds().get(0));
+                futures.add(CompletableFuture.supplyAsync(() -> TokenLedger.callInScope(scope, () -> {
+                    // 排队中的任务在取消后直接丢弃
+                    CancellationToken.checkCurrent();
+                    return claimsExtractor.extract(
+                            tu.getId(),
+                            List.of(tu.getText()),
+                            entityTypesOrNames,
+                            resolvedEntitiesMap,
+                            strategy
+                    );
+                }), pool));
             }
 
             for (CompletableFuture<ClaimsExtractor.ClaimExtractorResult> future : futures) {
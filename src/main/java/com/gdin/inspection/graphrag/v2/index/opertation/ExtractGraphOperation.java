@@ -54,6 +54,13 @@ public class ExtractGraphOperation {
         List<GraphExtractor.RawRelationship> rawRelationships = graphExtratorResult.getRelationships();
         if(CollectionUtil.isEmpty(rawEntities) || CollectionUtil.isEmpty(rawRelationships)) return new Result(List.of(), List.of());
 
+        return mergeGraph(rawEntities, rawRelationships);
+    }
+
+    /**
+     * 纯 CPU 的合并部分（不调大模型），单独拆出来便于基准测试
+     */
+    Result mergeGraph(List<GraphExtractor.RawEntity> rawEntities, List<GraphExtractor.RawRelationship> rawRelationships) {
         // 对齐 Python extract_graph._merge_entities / _merge_relationships
         List<Entity> mergedEntities = mergeEntities(rawEntities);
         List<Relationship> mergedRelationships = mergeRelationships(rawRelationships);
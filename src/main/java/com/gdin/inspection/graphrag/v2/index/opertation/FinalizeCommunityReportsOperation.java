@@ -2,6 +2,7 @@ package com.gdin.inspection.graphrag.v2.index.opertation;
 
 import com.gdin.inspection.graphrag.v2.models.Community;
 import com.gdin.inspection.graphrag.v2.models.CommunityReport;
+import com.gdin.inspection.graphrag.v2.util.StableIdUtil;
 import lombok.Value;
 import org.springframework.stereotype.Component;
 
@@ -43,9 +44,11 @@ public class FinalizeCommunityReportsOperation {
             List<Integer> children = c == null ? null : c.getChildren();
             String period = c == null ? null : c.getPeriod();
             Integer size = c == null ? null : c.getSize();
+            // 报告 id 跟随社区 id（由成员派生），社区不变则报告 id 不变；找不到社区时退回按社区编号派生
+            String reportId = StableIdUtil.communityReportId(c != null && c.getId() != null ? c.getId() : "community:" + r.getCommunity());
 
             out.add(CommunityReport.builder()
-                    .id(UUID.randomUUID().toString().replace("-", ""))
+                    .id(reportId.replace("-", ""))
                     .humanReadableId(r.getCommunity())    // Python: human_readable_id = community
                     .community(r.getCommunity())
                     .level(r.getLevel())
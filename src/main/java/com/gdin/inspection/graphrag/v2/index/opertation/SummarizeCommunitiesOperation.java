@@ -2,9 +2,12 @@ package com.gdin.inspection.graphrag.v2.index.opertation;
 
 import cn.hutool.core.collection.CollectionUtil;
 import com.gdin.inspection.graphrag.util.IOUtil;
+import com.gdin.inspection.graphrag.util.TtlExecutorUtil;
 import com.gdin.inspection.graphrag.v2.index.opertation.context.CommunityContextRow;
 import com.gdin.inspection.graphrag.v2.index.opertation.context.LevelContextBuilder;
 import com.gdin.inspection.graphrag.v2.index.opertation.extract.CommunityReportsExtractor;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.CancellationToken;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.PipelineCancelledException;
 import com.gdin.inspection.graphrag.v2.index.strategy.CommunityReportsStrategy;
 import jakarta.annotation.Resource;
 import lombok.RequiredArgsConstructor;
@@ -95,13 +98,15 @@ public class SummarizeCommunitiesOperation {
             CommunityReportsStrategy strategy
     ) {
         int threads = Math.max(1, strategy.getConcurrentRequests());
-        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ExecutorService pool = TtlExecutorUtil.newFixedThreadPool(threads);
 
         try {
             List<CompletableFuture<FinalizeCommunityReportsOperation.RawReportRow>> futures = new ArrayList<>();
 
             for (CommunityContextRow row : levelContext) {
                 futures.add(CompletableFuture.supplyAsync(() -> {
+                    // 排队中的任务在取消后直接丢弃
+                    CancellationToken.checkCurrent();
                     try {
                         Integer communityIdObj = row.getCommunity();
                         if (communityIdObj == null) return null;
@@ -130,6 +135,7 @@ public class SummarizeCommunitiesOperation {
                                 fullContentJson
                         );
                     } catch (Exception e) {
+                        if (e instanceof RuntimeException re && PipelineCancelledException.isCause(re)) throw re;
                         // 对齐 Python：单条失败当 None，不影响其他条
                         log.warn("community report failed: level={}, community={}", level, row.getCommunity(), e);
                         return null;
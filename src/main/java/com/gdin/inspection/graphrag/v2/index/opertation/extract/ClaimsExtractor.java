@@ -4,8 +4,9 @@ import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import com.gdin.inspection.graphrag.assistant.ThinkAssistant;
+import com.gdin.inspection.graphrag.metrics.LlmCallTracker;
 import com.gdin.inspection.graphrag.service.AssistantGenerator;
-import com.gdin.inspection.graphrag.util.SseUtil;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.PipelineCancelledException;
 import com.gdin.inspection.graphrag.v2.index.prompts.ExtractClaimsPromptsZh;
 import com.gdin.inspection.graphrag.v2.index.strategy.ExtractClaimsStrategy;
 import dev.langchain4j.service.TokenStream;
@@ -33,6 +34,11 @@ public class ClaimsExtractor {
     @Resource
     private AssistantGenerator assistantGenerator;
 
+    @Resource
+    private LlmCallTracker llmCallTracker;
+
+    private static final String METRIC_COMPONENT = "claims_extractor";
+
     // Python DEFAULT_* 常量对齐
     public static final String DEFAULT_TUPLE_DELIMITER = "<|>";
     public static final String DEFAULT_RECORD_DELIMITER = "##";
@@ -97,6 +103,8 @@ public class ClaimsExtractor {
                 }
                 sourceDocs.put(documentId, text);
             } catch (Exception e) {
+                // 取消不是单条失败，直接向上抛
+                if (e instanceof RuntimeException re && PipelineCancelledException.isCause(re)) throw re;
                 log.error("error extracting claim doc_index={}, text_len={}", docIndex, text.length(), e);
             }
         }
@@ -110,12 +118,26 @@ public class ClaimsExtractor {
             String doc,
             int maxGleanings
     ) {
-        String recordDelimiter = promptArgs.get(KEY_RECORD_DELIMITER);
-        String completionDelimiter = promptArgs.get(KEY_COMPLETION_DELIMITER);
-
         // 用同一个 memoryId
         String memoryId = IdUtil.getSnowflakeNextIdStr();
-        ThinkAssistant assistant = assistantGenerator.createTempAssistant(ThinkAssistant.class);
+        ThinkAssistant assistant = assistantGenerator.getPooledAssistant(ThinkAssistant.class);
+        try {
+            return doProcessDocument(assistant, memoryId, extractionPrompt, promptArgs, doc, maxGleanings);
+        } finally {
+            assistantGenerator.releaseSession(memoryId);
+        }
+    }
+
+    private List<Map<String, Object>> doProcessDocument(
+            ThinkAssistant assistant,
+            String memoryId,
+            String extractionPrompt,
+            Map<String, String> promptArgs,
+            String doc,
+            int maxGleanings
+    ) {
+        String recordDelimiter = promptArgs.get(KEY_RECORD_DELIMITER);
+        String completionDelimiter = promptArgs.get(KEY_COMPLETION_DELIMITER);
 
         String firstPrompt = extractionPrompt
                 .replace("{input_text}", doc)
@@ -131,6 +153,7 @@ public class ClaimsExtractor {
         // 对齐 Python gleanings：继续补抽 + loop check（注意 Python 是 range(max_gleanings)，这里也一致）
         if (maxGleanings > 0) {
             for (int i = 0; i < maxGleanings; i++) {
+                llmCallTracker.countGleaning(METRIC_COMPONENT);
                 String ext = callOnce(assistant, memoryId, ExtractClaimsPromptsZh.CONTINUE_PROMPT);
                 if(!StrUtil.isBlank(ext)) {
                     claims.append(recordDelimiter).append(stripSuffix(ext, completionDelimiter));
@@ -208,12 +231,7 @@ public class ClaimsExtractor {
      */
     private String callOnce(ThinkAssistant assistant, String memoryId, String userPrompt) {
         TokenStream tokenStream = assistant.streamChat(memoryId, userPrompt);
-        try {
-            return SseUtil.getResponseWithoutThink(null, tokenStream, memoryId);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("调用大模型被中断", e);
-        }
+        return llmCallTracker.complete(METRIC_COMPONENT, userPrompt, tokenStream, memoryId).join();
     }
 
     private String stripSuffix(String s, String suffix) {
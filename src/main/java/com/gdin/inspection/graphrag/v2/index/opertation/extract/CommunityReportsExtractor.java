@@ -3,12 +3,13 @@ package com.gdin.inspection.graphrag.v2.index.opertation.extract;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import com.gdin.inspection.graphrag.assistant.ThinkAssistant;
+import com.gdin.inspection.graphrag.metrics.LlmCallTracker;
 import com.gdin.inspection.graphrag.service.AssistantGenerator;
 import com.gdin.inspection.graphrag.util.IOUtil;
-import com.gdin.inspection.graphrag.util.SseUtil;
 import com.gdin.inspection.graphrag.v2.index.opertation.FindingModel;
 import com.gdin.inspection.graphrag.v2.index.opertation.CommunityReportResponse;
 import com.gdin.inspection.graphrag.v2.index.opertation.CommunityReportsResult;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.PipelineCancelledException;
 import com.gdin.inspection.graphrag.v2.index.prompts.CommunityReportPromptsZh;
 import dev.langchain4j.service.TokenStream;
 import jakarta.annotation.Resource;
@@ -28,6 +29,11 @@ public class CommunityReportsExtractor {
     @Resource
     private AssistantGenerator assistantGenerator;
 
+    @Resource
+    private LlmCallTracker llmCallTracker;
+
+    private static final String METRIC_COMPONENT = "community_reports_extractor";
+
     /**
      * 对齐 Python：__call__(input_text)
      */
@@ -42,13 +48,20 @@ public class CommunityReportsExtractor {
         while(!parsed){
             try {
                 String memoryId = IdUtil.getSnowflakeNextIdStr();
-                ThinkAssistant assistant = assistantGenerator.createTempAssistant(ThinkAssistant.class);
-                TokenStream tokenStream = assistant.streamChat(memoryId, prompt);
-                raw = SseUtil.getResponseWithoutThink(null, tokenStream, memoryId);
+                ThinkAssistant assistant = assistantGenerator.getPooledAssistant(ThinkAssistant.class);
+                try {
+                    TokenStream tokenStream = assistant.streamChat(memoryId, prompt);
+                    raw = llmCallTracker.complete(METRIC_COMPONENT, prompt, tokenStream, memoryId).join();
+                } finally {
+                    assistantGenerator.releaseSession(memoryId);
+                }
                 structured = parseAndValidate(raw);
                 parsed = true;
             } catch (Exception e) {
+                // 取消后不再重试
+                if (e instanceof RuntimeException re && PipelineCancelledException.isCause(re)) throw re;
                 log.error("error generating community report, retry", e);
+                llmCallTracker.countRetry(METRIC_COMPONENT);
                 // Python：异常 => output=""
                 /*return CommunityReportsResult.builder()
                         .structuredOutput(null)
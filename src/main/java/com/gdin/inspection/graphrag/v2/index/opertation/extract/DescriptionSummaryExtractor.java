@@ -3,9 +3,10 @@ package com.gdin.inspection.graphrag.v2.index.opertation.extract;
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.IdUtil;
 import com.gdin.inspection.graphrag.assistant.ThinkAssistant;
+import com.gdin.inspection.graphrag.metrics.LlmCallTracker;
 import com.gdin.inspection.graphrag.service.AssistantGenerator;
 import com.gdin.inspection.graphrag.util.IOUtil;
-import com.gdin.inspection.graphrag.util.SseUtil;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.PipelineCancelledException;
 import com.gdin.inspection.graphrag.v2.index.prompts.SummarizeDescriptionPromptsZh;
 import dev.langchain4j.service.TokenStream;
 import jakarta.annotation.Resource;
@@ -22,6 +23,11 @@ public class DescriptionSummaryExtractor {
     @Resource
     private AssistantGenerator assistantGenerator;
 
+    @Resource
+    private LlmCallTracker llmCallTracker;
+
+    private static final String METRIC_COMPONENT = "description_summary_extractor";
+
     /**
      * 主入口：按 Python 逻辑：
      * - 0 条描述 -> ""
@@ -41,10 +47,15 @@ public class DescriptionSummaryExtractor {
                     .replace("{entity_name}", entityName)
                     .replace("{description_list}", IOUtil.jsonSerialize(descriptions));
             String memoryId = IdUtil.getSnowflakeNextIdStr();
-            ThinkAssistant assistant = assistantGenerator.createTempAssistant(ThinkAssistant.class);
-            TokenStream tokenStream = assistant.streamChat(memoryId, summarizePrompt);
-            return SseUtil.getResponseWithoutThink(null, tokenStream, memoryId);
+            ThinkAssistant assistant = assistantGenerator.getPooledAssistant(ThinkAssistant.class);
+            try {
+                TokenStream tokenStream = assistant.streamChat(memoryId, summarizePrompt);
+                return llmCallTracker.complete(METRIC_COMPONENT, summarizePrompt, tokenStream, memoryId).join();
+            } finally {
+                assistantGenerator.releaseSession(memoryId);
+            }
         } catch (Exception e) {
+            if (e instanceof RuntimeException re && PipelineCancelledException.isCause(re)) throw re;
             log.error("summarize descriptions failed for entity={}", entityName, e);
             // Python 里如果 LLM 出错通常会走 error handler，这里先回退到拼接版，保证不丢信息
             return joinDescriptions(descriptions);
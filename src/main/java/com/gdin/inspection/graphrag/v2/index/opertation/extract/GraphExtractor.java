@@ -4,8 +4,10 @@ import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import com.gdin.inspection.graphrag.assistant.ThinkAssistant;
+import com.gdin.inspection.graphrag.metrics.LlmCallTracker;
 import com.gdin.inspection.graphrag.service.AssistantGenerator;
-import com.gdin.inspection.graphrag.util.SseUtil;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.CancellationToken;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.TokenLedger;
 import com.gdin.inspection.graphrag.v2.index.prompts.ExtractGraphPromptsZh;
 import com.gdin.inspection.graphrag.v2.index.strategy.ExtractGraphStrategy;
 import com.gdin.inspection.graphrag.v2.models.TextUnit;
@@ -18,8 +20,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.regex.Pattern;
 
 /**
@@ -34,6 +35,11 @@ public class GraphExtractor {
     @Resource
     private AssistantGenerator assistantGenerator;
 
+    @Resource
+    private LlmCallTracker llmCallTracker;
+
+    private static final String METRIC_COMPONENT = "graph_extractor";
+
     // Python DEFAULT_* 常量对齐
     public static final String DEFAULT_TUPLE_DELIMITER = "<|>";
     public static final String DEFAULT_RECORD_DELIMITER = "##";
@@ -82,33 +88,56 @@ public class GraphExtractor {
         promptArgs.put(KEY_RECORD_DELIMITER, recordDelimiter);
         promptArgs.put(KEY_COMPLETION_DELIMITER, completionDelimiter);
 
-        int threads = Math.max(1, strategy.getConcurrentRequests());
-        ExecutorService pool = Executors.newFixedThreadPool(threads);
-
-        try {
-            List<CompletableFuture<Result>> futures = new ArrayList<>();
-            for (TextUnit tu : textUnits) {
-                futures.add(CompletableFuture.supplyAsync(() -> {
-                    String rawOutput = extractForSingleTextUnit(extractionPrompt, promptArgs, tu.getText(), maxGleanings);
-                    return parseRecords(rawOutput, tu.getId(), promptArgs);
-                }, pool));
+        // 并发上限由信号量控制，在途请求不再各自占用一个阻塞线程
+        int permits = Math.max(1, strategy.getConcurrentRequests() == null ? 1 : strategy.getConcurrentRequests());
+        Semaphore inFlight = new Semaphore(permits);
+
+        // 后续轮次在回调线程上发起，台账 Scope 与取消令牌需要在这里捕获后显式传递
+        TokenLedger.Scope ledgerScope = TokenLedger.currentScope();
+        CancellationToken cancellation = CancellationToken.current();
+
+        List<CompletableFuture<Result>> futures = new ArrayList<>();
+        for (TextUnit tu : textUnits) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new RuntimeException("图抽取被中断", e);
             }
-
-            for (CompletableFuture<Result> future : futures) {
-                Result parsed = future.join();
-                rawEntities.addAll(parsed.entities);
-                rawRelationships.addAll(parsed.relationships);
+            // 取消后不再发起新的文本单元，在途调用由令牌回调结束
+            if (cancellation != null && cancellation.isCancelled()) {
+                inFlight.release();
+                futures.forEach(f -> f.cancel(true));
+                cancellation.throwIfCancelled();
             }
-        } finally {
-            pool.shutdown();
+            CompletableFuture<Result> future;
+            try {
+                TokenLedger.Scope scope = ledgerScope == null ? null : ledgerScope.withDocument(firstDocumentId(tu));
+                future = extractForSingleTextUnit(scope, cancellation, extractionPrompt, promptArgs, tu.getText(), maxGleanings)
+                        .thenApply(rawOutput -> parseRecords(rawOutput, tu.getId(), promptArgs));
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((r, e) -> inFlight.release());
+            futures.add(future);
+        }
+
+        for (CompletableFuture<Result> future : futures) {
+            Result parsed = future.join();
+            rawEntities.addAll(parsed.entities);
+            rawRelationships.addAll(parsed.relationships);
         }
         return new Result(rawEntities, rawRelationships);
     }
 
     /**
      * 对单个 TextUnit 执行完整的「首轮抽取 + 多轮 CONTINUE + LOOP 判断」。
+     * 每一轮都在上一轮回答完成的回调里发起，整个会话不阻塞任何线程。
      */
-    private String extractForSingleTextUnit(
+    private CompletableFuture<String> extractForSingleTextUnit(
+            TokenLedger.Scope scope,
+            CancellationToken cancellation,
             String extractionPrompt,
             Map<String, String> promptArgs,
             String text,
@@ -125,45 +154,66 @@ public class GraphExtractor {
                 .replace("{completion_delimiter}", completionDelimiter);
 
         // 2. 创建 Assistant 和 memoryId，同一 TextUnit 全流程复用
-        ThinkAssistant assistant = assistantGenerator.createTempAssistant(ThinkAssistant.class);
+        ThinkAssistant assistant = assistantGenerator.getPooledAssistant(ThinkAssistant.class);
         String memoryId = IdUtil.getSnowflakeNextIdStr();
 
         // 3. 第一次调用：发送需要抽取的文本
-        String results = callOnce(assistant, memoryId, firstPrompt);
-        StringBuilder graph = new StringBuilder(stripSuffix(results, completionDelimiter));
-
-        // 4. CONTINUE + LOOP，多轮 gleaning，对齐 Python 语义
-        for (int i = 0; i < maxGleanings; i++) {
-            String ext = callOnce(assistant, memoryId, ExtractGraphPromptsZh.CONTINUE_PROMPT);
-            if (StrUtil.isNotBlank(ext)) {
-                graph.append(recordDelimiter).append(stripSuffix(ext, completionDelimiter));
-            }
-
-            // 最后一轮就不再问 LOOP
-            if (i >= maxGleanings - 1) break;
-
-            String loopResp = callOnce(assistant, memoryId, ExtractGraphPromptsZh.LOOP_PROMPT);
-            String trimmed = loopResp == null ? "" : loopResp.trim().toUpperCase(Locale.ROOT);
-            if(!"Y".equals(trimmed)) break;
-        }
+        return callOnce(scope, cancellation, assistant, memoryId, firstPrompt)
+                .thenCompose(results -> {
+                    StringBuilder graph = new StringBuilder(stripSuffix(results, completionDelimiter));
+                    // 4. CONTINUE + LOOP，多轮 gleaning，对齐 Python 语义
+                    return glean(scope, cancellation, assistant, memoryId, graph, recordDelimiter, completionDelimiter, 0, maxGleanings);
+                })
+                // 5. 会话结束释放该 memoryId 的内存
+                .whenComplete((r, e) -> assistantGenerator.releaseSession(memoryId));
+    }
 
-        return graph.toString();
+    private CompletableFuture<String> glean(
+            TokenLedger.Scope scope,
+            CancellationToken cancellation,
+            ThinkAssistant assistant,
+            String memoryId,
+            StringBuilder graph,
+            String recordDelimiter,
+            String completionDelimiter,
+            int i,
+            int maxGleanings
+    ) {
+        if (i >= maxGleanings) return CompletableFuture.completedFuture(graph.toString());
+
+        llmCallTracker.countGleaning(METRIC_COMPONENT);
+        return callOnce(scope, cancellation, assistant, memoryId, ExtractGraphPromptsZh.CONTINUE_PROMPT)
+                .thenCompose(ext -> {
+                    if (StrUtil.isNotBlank(ext)) {
+                        graph.append(recordDelimiter).append(stripSuffix(ext, completionDelimiter));
+                    }
+
+                    // 最后一轮就不再问 LOOP
+                    if (i >= maxGleanings - 1) return CompletableFuture.completedFuture(graph.toString());
+
+                    return callOnce(scope, cancellation, assistant, memoryId, ExtractGraphPromptsZh.LOOP_PROMPT)
+                            .thenCompose(loopResp -> {
+                                String trimmed = loopResp == null ? "" : loopResp.trim().toUpperCase(Locale.ROOT);
+                                if (!"Y".equals(trimmed)) return CompletableFuture.completedFuture(graph.toString());
+                                return glean(scope, cancellation, assistant, memoryId, graph, recordDelimiter, completionDelimiter, i + 1, maxGleanings);
+                            });
+                });
     }
 
     /**
-     * 一次性调用大模型。
+     * 一次性调用大模型（非阻塞）。
      */
-    private String callOnce(ThinkAssistant assistant, String memoryId, String userPrompt) {
+    private CompletableFuture<String> callOnce(TokenLedger.Scope scope, CancellationToken cancellation, ThinkAssistant assistant, String memoryId, String userPrompt) {
         TokenStream tokenStream = assistant.streamChat(memoryId, userPrompt);
-        try {
-            return SseUtil.getResponseWithoutThink(null, tokenStream, memoryId);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("调用大模型被中断", e);
-        }
+        return llmCallTracker.complete(scope, cancellation, METRIC_COMPONENT, userPrompt, tokenStream, memoryId);
+    }
+
+    private String firstDocumentId(TextUnit tu) {
+        List<String> documentIds = tu.getDocumentIds();
+        return CollectionUtil.isEmpty(documentIds) ? null : documentIds.get(0);
     }
 
-    private String stripSuffix(String s, String suffix) {
+    private static String stripSuffix(String s, String suffix) {
         if (s == null) return "";
         String t = s.trim();
         if (StrUtil.isBlank(suffix)) return t;
@@ -171,7 +221,7 @@ public class GraphExtractor {
         return t;
     }
 
-    private String stripPrefix(String s, String prefix) {
+    private static String stripPrefix(String s, String prefix) {
         if (s == null) return "";
         String t = s.trim();
         if (StrUtil.isBlank(prefix)) return t;
@@ -199,7 +249,7 @@ public class GraphExtractor {
     // 解析 LLM 输出，生成“原始”实体 / 关系记录（对应 graph_extractor._process_results 的反向）
     // ----------------------------------------------------------------------
 
-    private Result parseRecords(String combined, String textUnitId, Map<String, String> promptArgs) {
+    static Result parseRecords(String combined, String textUnitId, Map<String, String> promptArgs) {
         String recordDelimiter = promptArgs.get(KEY_RECORD_DELIMITER);
         String completionDelimiter = promptArgs.get(KEY_COMPLETION_DELIMITER);
         String tupleDelimiter = promptArgs.get(KEY_TUPLE_DELIMITER);
@@ -0,0 +1,82 @@
+package com.gdin.inspection.graphrag.v2.index.pipeline;
+
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.ContextKey;
+import com.gdin.inspection.graphrag.v2.models.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * standard / standard_update pipeline 使用的 context key，名字与原先的字符串 key 保持一致
+ */
+public final class ContextKeys {
+
+    private ContextKeys() {
+    }
+
+    // ==============运行参数（GraphRagIndexRunner 写入）==============
+    public static final ContextKey<List<String>> DOCUMENT_IDS = ContextKey.param("document_ids");
+    public static final ContextKey<List<String>> UPDATE_DOCUMENT_IDS = ContextKey.param("update_document_ids");
+    public static final ContextKey<Integer> CONCURRENT_REQUESTS = ContextKey.param("concurrent_requests");
+    // extract_graph
+    public static final ContextKey<Integer> MAX_GLEANINGS = ContextKey.param("max_gleanings");
+    public static final ContextKey<String> TUPLE_DELIMITER = ContextKey.param("tuple_delimiter");
+    public static final ContextKey<String> RECORD_DELIMITER = ContextKey.param("record_delimiter");
+    public static final ContextKey<String> COMPLETION_DELIMITER = ContextKey.param("completion_delimiter");
+    public static final ContextKey<String> EXTRACTION_PROMPT = ContextKey.param("extraction_prompt");
+    public static final ContextKey<List<String>> ENTITY_TYPES = ContextKey.param("entity_types");
+    public static final ContextKey<Integer> ENTITY_SUMMARY_MAX_WORDS = ContextKey.param("entity_summary_max_words");
+    public static final ContextKey<Integer> RELATIONSHIP_SUMMARY_MAX_WORDS = ContextKey.param("relationship_summary_max_words");
+    // extract_covariates
+    public static final ContextKey<Boolean> CLAIMS_ENABLED = ContextKey.param("claims_enabled");
+    public static final ContextKey<String> CLAIMS_DESCRIPTION = ContextKey.param("claims_description");
+    public static final ContextKey<Integer> CLAIMS_MAX_GLEANINGS = ContextKey.param("claims_max_gleanings");
+    public static final ContextKey<String> CLAIMS_TUPLE_DELIMITER = ContextKey.param("claims_tuple_delimiter");
+    public static final ContextKey<String> CLAIMS_RECORD_DELIMITER = ContextKey.param("claims_record_delimiter");
+    public static final ContextKey<String> CLAIMS_COMPLETION_DELIMITER = ContextKey.param("claims_completion_delimiter");
+    public static final ContextKey<List<String>> CLAIMS_ENTITY_TYPES = ContextKey.param("claims_entity_types");
+    public static final ContextKey<String> CLAIMS_EXTRACTION_PROMPT = ContextKey.param("claims_extraction_prompt");
+    // create_communities
+    public static final ContextKey<Integer> MAX_CLUSTER_SIZE = ContextKey.param("max_cluster_size");
+    public static final ContextKey<Boolean> USE_LCC = ContextKey.param("use_lcc");
+    public static final ContextKey<Integer> CLUSTER_SEED = ContextKey.param("cluster_seed");
+    // create_community_reports
+    public static final ContextKey<Integer> MAX_CONTEXT_TOKENS = ContextKey.param("max_context_tokens");
+    public static final ContextKey<Integer> MAX_REPORT_LENGTH = ContextKey.param("max_report_length");
+
+    // ==============standard 中间表==============
+    public static final ContextKey<List<TextUnit>> TEXT_UNITS = ContextKey.table("text_units");
+    public static final ContextKey<List<Entity>> ENTITIES = ContextKey.table("entities");
+    public static final ContextKey<List<Relationship>> RELATIONSHIPS = ContextKey.table("relationships");
+    public static final ContextKey<List<Entity>> RAW_ENTITIES = ContextKey.table("raw_entities");
+    public static final ContextKey<List<Relationship>> RAW_RELATIONSHIPS = ContextKey.table("raw_relationships");
+    public static final ContextKey<List<Covariate>> COVARIATES = ContextKey.table("covariates");
+    public static final ContextKey<List<Community>> COMMUNITIES = ContextKey.table("communities");
+    public static final ContextKey<List<CommunityReport>> COMMUNITY_REPORTS = ContextKey.table("community_reports");
+
+    // ==============standard_update 中间表==============
+    public static final ContextKey<List<TextUnit>> DELTA_TEXT_UNITS = ContextKey.table("delta_text_units");
+    public static final ContextKey<List<Entity>> DELTA_ENTITIES = ContextKey.table("delta_entities");
+    public static final ContextKey<List<Relationship>> DELTA_RELATIONSHIPS = ContextKey.table("delta_relationships");
+    public static final ContextKey<List<Entity>> DELTA_RAW_ENTITIES = ContextKey.table("delta_raw_entities");
+    public static final ContextKey<List<Relationship>> DELTA_RAW_RELATIONSHIPS = ContextKey.table("delta_raw_relationships");
+    public static final ContextKey<List<Covariate>> DELTA_COVARIATES = ContextKey.table("delta_covariates");
+    public static final ContextKey<List<Community>> DELTA_COMMUNITIES = ContextKey.table("delta_communities");
+    public static final ContextKey<List<CommunityReport>> DELTA_COMMUNITY_REPORTS = ContextKey.table("delta_community_reports");
+
+    public static final ContextKey<List<TextUnit>> OLD_TEXT_UNITS = ContextKey.table("old_text_units");
+    public static final ContextKey<List<Entity>> OLD_ENTITIES = ContextKey.table("old_entities");
+    public static final ContextKey<List<Relationship>> OLD_RELATIONSHIPS = ContextKey.table("old_relationships");
+    public static final ContextKey<List<Community>> OLD_COMMUNITIES = ContextKey.table("old_communities");
+    public static final ContextKey<List<CommunityReport>> OLD_COMMUNITY_REPORTS = ContextKey.table("old_community_reports");
+    public static final ContextKey<List<Covariate>> OLD_COVARIATES = ContextKey.table("old_covariates");
+
+    public static final ContextKey<List<TextUnit>> MERGED_TEXT_UNITS = ContextKey.table("merged_text_units");
+    public static final ContextKey<List<Entity>> MERGED_ENTITIES = ContextKey.table("merged_entities");
+    public static final ContextKey<List<Relationship>> MERGED_RELATIONSHIPS = ContextKey.table("merged_relationships");
+    public static final ContextKey<List<Community>> MERGED_COMMUNITIES = ContextKey.table("merged_communities");
+    public static final ContextKey<List<CommunityReport>> MERGED_COMMUNITY_REPORTS = ContextKey.table("merged_community_reports");
+    public static final ContextKey<List<Covariate>> MERGED_COVARIATES = ContextKey.table("merged_covariates");
+    public static final ContextKey<Map<String, String>> ENTITY_ID_MAPPING = ContextKey.table("entity_id_mapping");
+    public static final ContextKey<Map<Integer, Integer>> COMMUNITY_ID_MAPPING = ContextKey.table("community_id_mapping");
+}
@@ -1,10 +1,9 @@
 package com.gdin.inspection.graphrag.v2.index.pipeline;
 
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.ContextKey;
 import lombok.Value;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
 
 public class Pipeline<C> implements Iterable<Pipeline.Step<C>> {
 
@@ -12,15 +11,49 @@ public class Pipeline<C> implements Iterable<Pipeline.Step<C>> {
     public static class Step<C> {
         String name;
         WorkflowFunction<C> fn;
+        /** 为 null 表示未声明读写 */
+        WorkflowSpec spec;
     }
 
     private final List<Step<C>> steps = new ArrayList<>();
 
+    // pipeline 结束后仍要保留的中间表（例如交给下一段 pipeline 使用）
+    private final Set<String> retained = new HashSet<>();
+
     public Pipeline<C> add(String name, WorkflowFunction<C> fn) {
-        steps.add(new Step<>(name, fn));
+        return add(name, fn, null);
+    }
+
+    public Pipeline<C> add(String name, WorkflowFunction<C> fn, WorkflowSpec spec) {
+        steps.add(new Step<>(name, fn, spec));
+        return this;
+    }
+
+    public Pipeline<C> retain(Collection<ContextKey<?>> keys) {
+        for (ContextKey<?> key : keys) retained.add(key.getName());
         return this;
     }
 
+    /**
+     * 中间表释放计划：step 下标 -> 该 step 执行完后可以释放的表。
+     * 每张表在最后一次被读或写的 step 之后释放（写了但后面没人读的表，在写入的 step 之后立即释放）；
+     * retain 的表不释放。有 step 未声明读写时无法确定生命周期，返回空计划（不自动释放）。
+     */
+    public Map<Integer, List<String>> releasePlan() {
+        Map<String, Integer> lastUse = new LinkedHashMap<>();
+        for (int i = 0; i < steps.size(); i++) {
+            WorkflowSpec spec = steps.get(i).getSpec();
+            if (spec == null) return Map.of();
+            for (ContextKey<?> key : spec.getConsumes()) if (key.isTable()) lastUse.put(key.getName(), i);
+            for (ContextKey<?> key : spec.getProduces()) if (key.isTable()) lastUse.put(key.getName(), i);
+        }
+        Map<Integer, List<String>> plan = new HashMap<>();
+        lastUse.forEach((key, step) -> {
+            if (!retained.contains(key)) plan.computeIfAbsent(step, k -> new ArrayList<>()).add(key);
+        });
+        return plan;
+    }
+
     public void remove(String name) {
         steps.removeIf(s -> s.getName().equals(name));
     }
@@ -1,18 +1,39 @@
 package com.gdin.inspection.graphrag.v2.index.pipeline;
 
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.ContextKey;
+
 import java.util.*;
 
 public class PipelineFactory<C> {
 
     private final Map<String, WorkflowFunction<C>> workflows = new HashMap<>();
+    private final Map<String, WorkflowSpec> specs = new HashMap<>();
     private final Map<String, List<String>> pipelines = new HashMap<>();
+    private final Map<String, List<ContextKey<?>>> retained = new HashMap<>();
 
+    /**
+     * 未声明读写的 workflow：所在 pipeline 不做中间表自动释放
+     */
     public void register(String name, WorkflowFunction<C> workflow) {
         workflows.put(name, workflow);
+        specs.remove(name);
+    }
+
+    public void register(String name, WorkflowSpec spec, WorkflowFunction<C> workflow) {
+        workflows.put(name, workflow);
+        specs.put(name, spec);
     }
 
     public void registerPipeline(String name, List<String> workflowNames) {
+        registerPipeline(name, workflowNames, List.of());
+    }
+
+    /**
+     * @param retainedKeys pipeline 结束后仍需保留的中间表
+     */
+    public void registerPipeline(String name, List<String> workflowNames, List<ContextKey<?>> retainedKeys) {
         pipelines.put(name, workflowNames);
+        retained.put(name, retainedKeys);
     }
 
     public Pipeline<C> createPipeline(String pipelineName) {
@@ -23,8 +44,9 @@ public class PipelineFactory<C> {
             if (wf == null) {
                 throw new IllegalStateException("Workflow not registered: " + n);
             }
-            pipeline.add(n, wf);
+            pipeline.add(n, wf, specs.get(n));
         }
+        pipeline.retain(retained.getOrDefault(pipelineName, List.of()));
         return pipeline;
     }
 }
@@ -9,6 +9,8 @@ import org.springframework.stereotype.Component;
 
 import java.util.List;
 
+import static com.gdin.inspection.graphrag.v2.index.pipeline.ContextKeys.*;
+
 @Component
 public class StandardPipelineRegistrar {
     @Resource
@@ -36,42 +38,42 @@ public class StandardPipelineRegistrar {
     public void init() {
 
         // 1) load_input_documents
-        factory.register("load_input_documents", (cfg, ctx) -> {
+        factory.register("load_input_documents", WorkflowSpec.consumes().produces(TEXT_UNITS), (cfg, ctx) -> {
             List<TextUnit> textUnits = loadInputDocumentsWorkflow.run(
-                    ctx.get("document_ids")
+                    ctx.get(DOCUMENT_IDS)
             );
-            ctx.put("text_units", textUnits);
+            ctx.put(TEXT_UNITS, textUnits);
             return WorkflowFunctionOutput.builder().result("load_input_documents_done").build();
         });
 
         // 2) extract_graph
-        factory.register("extract_graph", (cfg, ctx) -> {
+        factory.register("extract_graph", WorkflowSpec.consumes(TEXT_UNITS).produces(ENTITIES, RELATIONSHIPS, RAW_ENTITIES, RAW_RELATIONSHIPS), (cfg, ctx) -> {
             ExtractGraphWorkflow.Result out = extractGraphWorkflow.run(
-                    ctx.get("text_units"),
-                    ctx.get("max_gleanings"),
-                    ctx.get("tuple_delimiter"),
-                    ctx.get("record_delimiter"),
-                    ctx.get("completion_delimiter"),
-                    ctx.get("extraction_prompt"),
-                    ctx.get("entity_types"),
-                    ctx.get("entity_summary_max_words"),
-                    ctx.get("relationship_summary_max_words"),
-                    ctx.get("concurrent_requests")
+                    ctx.get(TEXT_UNITS),
+                    ctx.get(MAX_GLEANINGS),
+                    ctx.get(TUPLE_DELIMITER),
+                    ctx.get(RECORD_DELIMITER),
+                    ctx.get(COMPLETION_DELIMITER),
+                    ctx.get(EXTRACTION_PROMPT),
+                    ctx.get(ENTITY_TYPES),
+                    ctx.get(ENTITY_SUMMARY_MAX_WORDS),
+                    ctx.get(RELATIONSHIP_SUMMARY_MAX_WORDS),
+                    ctx.get(CONCURRENT_REQUESTS)
             );
-            ctx.put("entities", out.getEntities());
-            ctx.put("relationships", out.getRelationships());
-            ctx.put("raw_entities", out.getRawEntities());
-            ctx.put("raw_relationships", out.getRawRelationships());
+            ctx.put(ENTITIES, out.getEntities());
+            ctx.put(RELATIONSHIPS, out.getRelationships());
+            ctx.put(RAW_ENTITIES, out.getRawEntities());
+            ctx.put(RAW_RELATIONSHIPS, out.getRawRelationships());
             return WorkflowFunctionOutput.builder().result("extract_graph_done").build();
         });
 
         // 2.5) persist_temp_graph
-        factory.register("persist_temp_graph", (cfg, ctx) -> {
+        factory.register("persist_temp_graph", WorkflowSpec.consumes(ENTITIES, RELATIONSHIPS), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_MAIN,
                     null,
-                    ctx.get("entities"),
-                    ctx.get("relationships"),
+                    ctx.get(ENTITIES),
+                    ctx.get(RELATIONSHIPS),
                     null,
                     null,
                     null
@@ -81,26 +83,26 @@ public class StandardPipelineRegistrar {
         });
 
         // 3) extract_covariates —— 对齐 Python: workflows/extract_covariates.py
-        factory.register("extract_covariates", (cfg, ctx) -> {
+        factory.register("extract_covariates", WorkflowSpec.consumes(TEXT_UNITS).produces(COVARIATES), (cfg, ctx) -> {
             List<Covariate> covariates = extractCovariatesWorkflow.run(
-                    ctx.get("claims_enabled"),
-                    ctx.get("text_units"),
-                    ctx.get("claims_description"),
-                    ctx.get("claims_max_gleanings"),
-                    ctx.get("claims_tuple_delimiter"),
-                    ctx.get("claims_record_delimiter"),
-                    ctx.get("claims_completion_delimiter"),
-                    ctx.get("claims_entity_types"),
-                    ctx.get("claims_extraction_prompt"),
-                    ctx.get("concurrent_requests")
+                    ctx.get(CLAIMS_ENABLED),
+                    ctx.get(TEXT_UNITS),
+                    ctx.get(CLAIMS_DESCRIPTION),
+                    ctx.get(CLAIMS_MAX_GLEANINGS),
+                    ctx.get(CLAIMS_TUPLE_DELIMITER),
+                    ctx.get(CLAIMS_RECORD_DELIMITER),
+                    ctx.get(CLAIMS_COMPLETION_DELIMITER),
+                    ctx.get(CLAIMS_ENTITY_TYPES),
+                    ctx.get(CLAIMS_EXTRACTION_PROMPT),
+                    ctx.get(CONCURRENT_REQUESTS)
             );
 
-            ctx.put("covariates", covariates);
+            ctx.put(COVARIATES, covariates);
             return WorkflowFunctionOutput.builder().result("extract_covariates_done").build();
         });
 
         // 3.5) persist_temp_covariates
-        factory.register("persist_temp_covariates", (cfg, ctx) -> {
+        factory.register("persist_temp_covariates", WorkflowSpec.consumes(COVARIATES), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_MAIN,
                     null,
@@ -108,34 +110,34 @@ public class StandardPipelineRegistrar {
                     null,
                     null,
                     null,
-                    ctx.get("covariates")
+                    ctx.get(COVARIATES)
             );
 
             return WorkflowFunctionOutput.builder().result("persist_temp_covariates_done").build();
         });
 
         // 4) create_communities
-        factory.register("create_communities", (cfg, ctx) -> {
+        factory.register("create_communities", WorkflowSpec.consumes(ENTITIES, RELATIONSHIPS).produces(COMMUNITIES), (cfg, ctx) -> {
             List<Community> communities = createCommunitiesWorkflow.run(
-                    ctx.get("entities"),
-                    ctx.get("relationships"),
-                    ctx.get("max_cluster_size"),
-                    ctx.get("use_lcc"),
-                    ctx.get("cluster_seed")
+                    ctx.get(ENTITIES),
+                    ctx.get(RELATIONSHIPS),
+                    ctx.get(MAX_CLUSTER_SIZE),
+                    ctx.get(USE_LCC),
+                    ctx.get(CLUSTER_SEED)
             );
 
-            ctx.put("communities", communities);
+            ctx.put(COMMUNITIES, communities);
             return WorkflowFunctionOutput.builder().result("create_communities_done").build();
         });
 
         // 4.5) persist_temp_communities
-        factory.register("persist_temp_communities", (cfg, ctx) -> {
+        factory.register("persist_temp_communities", WorkflowSpec.consumes(COMMUNITIES), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_MAIN,
                     null,
                     null,
                     null,
-                    ctx.get("communities"),
+                    ctx.get(COMMUNITIES),
                     null,
                     null
             );
@@ -144,69 +146,69 @@ public class StandardPipelineRegistrar {
         });
 
         // 5) create_final_text_units
-        factory.register("create_final_text_units", (cfg, ctx) -> {
+        factory.register("create_final_text_units", WorkflowSpec.consumes(TEXT_UNITS, ENTITIES, RELATIONSHIPS, COVARIATES).produces(TEXT_UNITS), (cfg, ctx) -> {
             List<TextUnit> textUnit = createFinalTextUnitsWorkflow.run(
                     GraphRagIndexStorage.SCOPE_MAIN,
-                    ctx.get("text_units"),
-                    ctx.get("entities"),
-                    ctx.get("relationships"),
-                    ctx.get("covariates")
+                    ctx.get(TEXT_UNITS),
+                    ctx.get(ENTITIES),
+                    ctx.get(RELATIONSHIPS),
+                    ctx.get(COVARIATES)
             );
 
-            ctx.put("text_units", textUnit);
+            ctx.put(TEXT_UNITS, textUnit);
             return WorkflowFunctionOutput.builder().result("create_final_text_units_done").build();
         });
 
         // 6) create_community_reports
-        factory.register("create_community_reports", (cfg, ctx) -> {
+        factory.register("create_community_reports", WorkflowSpec.consumes(ENTITIES, RELATIONSHIPS, COMMUNITIES, COVARIATES).produces(COMMUNITY_REPORTS), (cfg, ctx) -> {
             List<CommunityReport> communityReports = createCommunityReportsWorkflow.run(
-                    ctx.get("entities"),
-                    ctx.get("relationships"),
-                    ctx.get("communities"),
-                    ctx.get("covariates"),
-                    ctx.get("max_context_tokens"),
-                    ctx.get("max_report_length"),
-                    ctx.get("concurrent_requests")
+                    ctx.get(ENTITIES),
+                    ctx.get(RELATIONSHIPS),
+                    ctx.get(COMMUNITIES),
+                    ctx.get(COVARIATES),
+                    ctx.get(MAX_CONTEXT_TOKENS),
+                    ctx.get(MAX_REPORT_LENGTH),
+                    ctx.get(CONCURRENT_REQUESTS)
             );
 
-            ctx.put("community_reports", communityReports);
+            ctx.put(COMMUNITY_REPORTS, communityReports);
             return WorkflowFunctionOutput.builder().result("create_community_reports_done").build();
         });
 
         // 7) persist_index
-        factory.register("persist_index", (cfg, ctx) -> {
+        factory.register("persist_index", WorkflowSpec.consumes(TEXT_UNITS, ENTITIES, RELATIONSHIPS, COMMUNITIES, COMMUNITY_REPORTS, COVARIATES), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_MAIN,
-                    ctx.get("text_units"),
-                    ctx.get("entities"),
-                    ctx.get("relationships"),
-                    ctx.get("communities"),
-                    ctx.get("community_reports"),
-                    ctx.get("covariates")
+                    ctx.get(TEXT_UNITS),
+                    ctx.get(ENTITIES),
+                    ctx.get(RELATIONSHIPS),
+                    ctx.get(COMMUNITIES),
+                    ctx.get(COMMUNITY_REPORTS),
+                    ctx.get(COVARIATES)
             );
 
             return WorkflowFunctionOutput.builder().result("persist_index_done").build();
         });
 
         // load_temp_graph
-        factory.register("load_temp_graph", (cfg, ctx) -> {
+        factory.register("load_temp_graph", WorkflowSpec.consumes().produces(ENTITIES, RELATIONSHIPS), (cfg, ctx) -> {
             LoadPreviousIndexWorkflow.Result result = loadPreviousIndexWorkflow.run(GraphRagIndexStorage.SCOPE_MAIN, false, true, true, false, false, false);
-            ctx.put("entities", result.getEntities());
-            ctx.put("relationships", result.getRelationships());
+            ctx.put(ENTITIES, result.getEntities());
+            ctx.put(RELATIONSHIPS, result.getRelationships());
             return WorkflowFunctionOutput.builder().result("load_temp_graph_done").build();
         });
 
         // load_temp_covariates
-        factory.register("load_temp_covariates", (cfg, ctx) -> {
+        factory.register("load_temp_covariates", WorkflowSpec.consumes().produces(COVARIATES), (cfg, ctx) -> {
             LoadPreviousIndexWorkflow.Result result = loadPreviousIndexWorkflow.run(GraphRagIndexStorage.SCOPE_MAIN, false, false, false, false, false, true);
-            ctx.put("covariates", result.getCovariates());
+            ctx.put(COVARIATES, result.getCovariates());
             return WorkflowFunctionOutput.builder().result("load_temp_covariates_done").build();
         });
 
         // load_temp_communities
-        factory.register("load_temp_communities", (cfg, ctx) -> {
+        factory.register("load_temp_communities", WorkflowSpec.consumes().produces(COMMUNITIES), (cfg, ctx) -> {
             LoadPreviousIndexWorkflow.Result result = loadPreviousIndexWorkflow.run(GraphRagIndexStorage.SCOPE_MAIN, false, false, false, true, false, false);
-            ctx.put("communities", result.getCommunities());
+            ctx.put(COMMUNITIES, result.getCommunities());
             return WorkflowFunctionOutput.builder().result("load_temp_communities_done").build();
         });
 
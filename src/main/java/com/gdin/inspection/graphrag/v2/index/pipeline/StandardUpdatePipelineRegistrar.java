@@ -1,6 +1,7 @@
 package com.gdin.inspection.graphrag.v2.index.pipeline;
 
 import cn.hutool.core.collection.CollectionUtil;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.ContextKey;
 import com.gdin.inspection.graphrag.v2.index.workflows.*;
 import com.gdin.inspection.graphrag.v2.models.*;
 import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
@@ -10,6 +11,8 @@ import org.springframework.stereotype.Component;
 
 import java.util.List;
 
+import static com.gdin.inspection.graphrag.v2.index.pipeline.ContextKeys.*;
+
 @Component
 public class StandardUpdatePipelineRegistrar {
 
@@ -62,44 +65,44 @@ public class StandardUpdatePipelineRegistrar {
     public void init() {
 
         // 1) update_load_delta_documents
-        factory.register("update_load_delta_documents", (cfg, ctx) -> {
+        factory.register("update_load_delta_documents", WorkflowSpec.consumes().produces(DELTA_TEXT_UNITS), (cfg, ctx) -> {
             List<TextUnit> textUnits = loadInputDocumentsWorkflow.run(
-                    ctx.get("update_document_ids")
+                    ctx.get(UPDATE_DOCUMENT_IDS)
             );
             boolean stop = false;
             if(CollectionUtil.isEmpty(textUnits)) stop = true;
-            else ctx.put("delta_text_units", textUnits);
+            else ctx.put(DELTA_TEXT_UNITS, textUnits);
             return WorkflowFunctionOutput.builder().result("update_load_delta_documents_done").stop(stop).build();
         });
 
         // 2) update_extract_delta_graph
-        factory.register("update_extract_delta_graph", (cfg, ctx) -> {
+        factory.register("update_extract_delta_graph", WorkflowSpec.consumes(DELTA_TEXT_UNITS).produces(DELTA_ENTITIES, DELTA_RELATIONSHIPS, DELTA_RAW_ENTITIES, DELTA_RAW_RELATIONSHIPS), (cfg, ctx) -> {
             ExtractGraphWorkflow.Result out = extractGraphWorkflow.run(
-                    ctx.get("delta_text_units"),
-                    ctx.get("max_gleanings"),
-                    ctx.get("tuple_delimiter"),
-                    ctx.get("record_delimiter"),
-                    ctx.get("completion_delimiter"),
-                    ctx.get("extraction_prompt"),
-                    ctx.get("entity_types"),
-                    ctx.get("entity_summary_max_words"),
-                    ctx.get("relationship_summary_max_words"),
-                    ctx.get("concurrent_requests")
+                    ctx.get(DELTA_TEXT_UNITS),
+                    ctx.get(MAX_GLEANINGS),
+                    ctx.get(TUPLE_DELIMITER),
+                    ctx.get(RECORD_DELIMITER),
+                    ctx.get(COMPLETION_DELIMITER),
+                    ctx.get(EXTRACTION_PROMPT),
+                    ctx.get(ENTITY_TYPES),
+                    ctx.get(ENTITY_SUMMARY_MAX_WORDS),
+                    ctx.get(RELATIONSHIP_SUMMARY_MAX_WORDS),
+                    ctx.get(CONCURRENT_REQUESTS)
             );
-            ctx.put("delta_entities", out.getEntities());
-            ctx.put("delta_relationships", out.getRelationships());
-            ctx.put("delta_raw_entities", out.getRawEntities());
-            ctx.put("delta_raw_relationships", out.getRawRelationships());
+            ctx.put(DELTA_ENTITIES, out.getEntities());
+            ctx.put(DELTA_RELATIONSHIPS, out.getRelationships());
+            ctx.put(DELTA_RAW_ENTITIES, out.getRawEntities());
+            ctx.put(DELTA_RAW_RELATIONSHIPS, out.getRawRelationships());
             return WorkflowFunctionOutput.builder().result("update_extract_delta_graph_done").build();
         });
 
         // 2.5) update_persist_temp_delta_graph
-        factory.register("update_persist_temp_delta_graph", (cfg, ctx) -> {
+        factory.register("update_persist_temp_delta_graph", WorkflowSpec.consumes(DELTA_ENTITIES, DELTA_RELATIONSHIPS), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_DELTA,
                     null,
-                    ctx.get("delta_entities"),
-                    ctx.get("delta_relationships"),
+                    ctx.get(DELTA_ENTITIES),
+                    ctx.get(DELTA_RELATIONSHIPS),
                     null,
                     null,
                     null
@@ -108,25 +111,25 @@ public class StandardUpdatePipelineRegistrar {
         });
 
         // 3) update_extract_delta_covariates
-        factory.register("update_extract_delta_covariates", (cfg, ctx) -> {
+        factory.register("update_extract_delta_covariates", WorkflowSpec.consumes(DELTA_TEXT_UNITS).produces(DELTA_COVARIATES), (cfg, ctx) -> {
             List<Covariate> covariates = extractCovariatesWorkflow.run(
-                    ctx.get("claims_enabled"),
-                    ctx.get("delta_text_units"),
-                    ctx.get("claims_description"),
-                    ctx.get("claims_max_gleanings"),
-                    ctx.get("claims_tuple_delimiter"),
-                    ctx.get("claims_record_delimiter"),
-                    ctx.get("claims_completion_delimiter"),
-                    ctx.get("claims_entity_types"),
-                    ctx.get("claims_extraction_prompt"),
-                    ctx.get("concurrent_requests")
+                    ctx.get(CLAIMS_ENABLED),
+                    ctx.get(DELTA_TEXT_UNITS),
+                    ctx.get(CLAIMS_DESCRIPTION),
+                    ctx.get(CLAIMS_MAX_GLEANINGS),
+                    ctx.get(CLAIMS_TUPLE_DELIMITER),
+                    ctx.get(CLAIMS_RECORD_DELIMITER),
+                    ctx.get(CLAIMS_COMPLETION_DELIMITER),
+                    ctx.get(CLAIMS_ENTITY_TYPES),
+                    ctx.get(CLAIMS_EXTRACTION_PROMPT),
+                    ctx.get(CONCURRENT_REQUESTS)
             );
-            ctx.put("delta_covariates", covariates);
+            ctx.put(DELTA_COVARIATES, covariates);
             return WorkflowFunctionOutput.builder().result("update_extract_delta_covariates_done").build();
         });
 
         // 3.5) update_persist_temp_delta_covariates
-        factory.register("update_persist_temp_delta_covariates", (cfg, ctx) -> {
+        factory.register("update_persist_temp_delta_covariates", WorkflowSpec.consumes(DELTA_COVARIATES), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_DELTA,
                     null,
@@ -134,32 +137,32 @@ public class StandardUpdatePipelineRegistrar {
                     null,
                     null,
                     null,
-                    ctx.get("delta_covariates")
+                    ctx.get(DELTA_COVARIATES)
             );
             return WorkflowFunctionOutput.builder().result("update_persist_temp_delta_covariates_done").build();
         });
 
         // 4) update_create_delta_communities
-        factory.register("update_create_delta_communities", (cfg, ctx) -> {
+        factory.register("update_create_delta_communities", WorkflowSpec.consumes(DELTA_ENTITIES, DELTA_RELATIONSHIPS).produces(DELTA_COMMUNITIES), (cfg, ctx) -> {
             List<Community> communities = createCommunitiesWorkflow.run(
-                    ctx.get("delta_entities"),
-                    ctx.get("delta_relationships"),
-                    ctx.get("max_cluster_size"),
-                    ctx.get("use_lcc"),
-                    ctx.get("cluster_seed")
+                    ctx.get(DELTA_ENTITIES),
+                    ctx.get(DELTA_RELATIONSHIPS),
+                    ctx.get(MAX_CLUSTER_SIZE),
+                    ctx.get(USE_LCC),
+                    ctx.get(CLUSTER_SEED)
             );
-            ctx.put("delta_communities", communities);
+            ctx.put(DELTA_COMMUNITIES, communities);
             return WorkflowFunctionOutput.builder().result("update_create_delta_communities_done").build();
         });
 
         // 4.5) update_persist_temp_delta_communities
-        factory.register("update_persist_temp_delta_communities", (cfg, ctx) -> {
+        factory.register("update_persist_temp_delta_communities", WorkflowSpec.consumes(DELTA_COMMUNITIES), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_DELTA,
                     null,
                     null,
                     null,
-                    ctx.get("delta_communities"),
+                    ctx.get(DELTA_COMMUNITIES),
                     null,
                     null
             );
@@ -167,23 +170,23 @@ public class StandardUpdatePipelineRegistrar {
         });
 
         // 5) update_create_delta_final_text_units
-        factory.register("update_create_delta_final_text_units", (cfg, ctx) -> {
+        factory.register("update_create_delta_final_text_units", WorkflowSpec.consumes(DELTA_TEXT_UNITS, DELTA_ENTITIES, DELTA_RELATIONSHIPS, DELTA_COVARIATES).produces(DELTA_TEXT_UNITS), (cfg, ctx) -> {
             List<TextUnit> textUnit = createFinalTextUnitsWorkflow.run(
                     GraphRagIndexStorage.SCOPE_DELTA,
-                    ctx.get("delta_text_units"),
-                    ctx.get("delta_entities"),
-                    ctx.get("delta_relationships"),
-                    ctx.get("delta_covariates")
+                    ctx.get(DELTA_TEXT_UNITS),
+                    ctx.get(DELTA_ENTITIES),
+                    ctx.get(DELTA_RELATIONSHIPS),
+                    ctx.get(DELTA_COVARIATES)
             );
-            ctx.put("delta_text_units", textUnit);
+            ctx.put(DELTA_TEXT_UNITS, textUnit);
             return WorkflowFunctionOutput.builder().result("update_create_delta_final_text_units_done").build();
         });
 
         // 5.5) update_persist_temp_delta_text_units
-        factory.register("update_persist_temp_delta_text_units", (cfg, ctx) -> {
+        factory.register("update_persist_temp_delta_text_units", WorkflowSpec.consumes(DELTA_TEXT_UNITS), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_DELTA,
-                    ctx.get("delta_text_units"),
+                    ctx.get(DELTA_TEXT_UNITS),
                     null,
                     null,
                     null,
@@ -194,69 +197,73 @@ public class StandardUpdatePipelineRegistrar {
         });
 
         // 6) update_create_delta_community_reports
-        factory.register("update_create_delta_community_reports", (cfg, ctx) -> {
+        factory.register("update_create_delta_community_reports", WorkflowSpec.consumes(DELTA_ENTITIES, DELTA_RELATIONSHIPS, DELTA_COMMUNITIES, DELTA_COVARIATES).produces(DELTA_COMMUNITY_REPORTS), (cfg, ctx) -> {
             List<CommunityReport> communityReports = createCommunityReportsWorkflow.run(
-                    ctx.get("delta_entities"),
-                    ctx.get("delta_relationships"),
-                    ctx.get("delta_communities"),
-                    ctx.get("delta_covariates"),
-                    ctx.get("max_context_tokens"),
-                    ctx.get("max_report_length"),
-                    ctx.get("concurrent_requests")
+                    ctx.get(DELTA_ENTITIES),
+                    ctx.get(DELTA_RELATIONSHIPS),
+                    ctx.get(DELTA_COMMUNITIES),
+                    ctx.get(DELTA_COVARIATES),
+                    ctx.get(MAX_CONTEXT_TOKENS),
+                    ctx.get(MAX_REPORT_LENGTH),
+                    ctx.get(CONCURRENT_REQUESTS)
             );
-            ctx.put("delta_community_reports", communityReports);
+            ctx.put(DELTA_COMMUNITY_REPORTS, communityReports);
             return WorkflowFunctionOutput.builder().result("update_create_delta_community_reports_done").build();
         });
 
         // 7) update_persist_delta_index
-        factory.register("update_persist_delta_index", (cfg, ctx) -> {
+        factory.register("update_persist_delta_index", WorkflowSpec.consumes(DELTA_TEXT_UNITS, DELTA_ENTITIES, DELTA_RELATIONSHIPS, DELTA_COMMUNITIES, DELTA_COMMUNITY_REPORTS, DELTA_COVARIATES), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_DELTA,
-                    ctx.get("delta_text_units"),
-                    ctx.get("delta_entities"),
-                    ctx.get("delta_relationships"),
-                    ctx.get("delta_communities"),
-                    ctx.get("delta_community_reports"),
-                    ctx.get("delta_covariates")
+                    ctx.get(DELTA_TEXT_UNITS),
+                    ctx.get(DELTA_ENTITIES),
+                    ctx.get(DELTA_RELATIONSHIPS),
+                    ctx.get(DELTA_COMMUNITIES),
+                    ctx.get(DELTA_COMMUNITY_REPORTS),
+                    ctx.get(DELTA_COVARIATES)
             );
             return WorkflowFunctionOutput.builder().result("update_persist_delta_index_done").build();
         });
 
         // 8) update_load_previous_index
-        factory.register("update_load_previous_index", (cfg, ctx) -> {
+        factory.register("update_load_previous_index", WorkflowSpec.consumes().produces(OLD_TEXT_UNITS, OLD_ENTITIES, OLD_RELATIONSHIPS, OLD_COMMUNITIES, OLD_COMMUNITY_REPORTS, OLD_COVARIATES), (cfg, ctx) -> {
+            // 微批索引的后续窗口由 GraphRagIndexRunner 带入上一个窗口的合并结果，不再从存储重读主索引
+            if (ctx.get(OLD_ENTITIES) != null) {
+                return WorkflowFunctionOutput.builder().result("update_load_previous_index_carried").build();
+            }
             LoadPreviousIndexWorkflow.Result result = loadPreviousIndexWorkflow.run(GraphRagIndexStorage.SCOPE_MAIN, true, true, true, true, true, true);
-            ctx.put("old_text_units", result.getTextUnits());
-            ctx.put("old_entities", result.getEntities());
-            ctx.put("old_relationships", result.getRelationships());
-            ctx.put("old_communities", result.getCommunities());
-            ctx.put("old_community_reports", result.getCommunityReports());
-            ctx.put("old_covariates", result.getCovariates());
+            ctx.put(OLD_TEXT_UNITS, result.getTextUnits());
+            ctx.put(OLD_ENTITIES, result.getEntities());
+            ctx.put(OLD_RELATIONSHIPS, result.getRelationships());
+            ctx.put(OLD_COMMUNITIES, result.getCommunities());
+            ctx.put(OLD_COMMUNITY_REPORTS, result.getCommunityReports());
+            ctx.put(OLD_COVARIATES, result.getCovariates());
             return WorkflowFunctionOutput.builder().result("update_load_previous_index_done").build();
         });
 
         // 9) update_merge_graph
-        factory.register("update_merge_graph", (cfg, ctx) -> {
+        factory.register("update_merge_graph", WorkflowSpec.consumes(OLD_ENTITIES, DELTA_ENTITIES, OLD_RELATIONSHIPS, DELTA_RELATIONSHIPS).produces(MERGED_ENTITIES, MERGED_RELATIONSHIPS, ENTITY_ID_MAPPING), (cfg, ctx) -> {
             UpdateGraphWorkflow.Result result = updateGraphWorkflow.run(
-                    ctx.get("old_entities"),
-                    ctx.get("delta_entities"),
-                    ctx.get("old_relationships"),
-                    ctx.get("delta_relationships"),
-                    ctx.get("entity_summary_max_words"),
-                    ctx.get("relationship_summary_max_words")
+                    ctx.get(OLD_ENTITIES),
+                    ctx.get(DELTA_ENTITIES),
+                    ctx.get(OLD_RELATIONSHIPS),
+                    ctx.get(DELTA_RELATIONSHIPS),
+                    ctx.get(ENTITY_SUMMARY_MAX_WORDS),
+                    ctx.get(RELATIONSHIP_SUMMARY_MAX_WORDS)
             );
-            ctx.put("merged_entities", result.getMergedEntities());
-            ctx.put("merged_relationships", result.getMergedRelationships());
-            ctx.put("entity_id_mapping", result.getEntityIdMapping());
+            ctx.put(MERGED_ENTITIES, result.getMergedEntities());
+            ctx.put(MERGED_RELATIONSHIPS, result.getMergedRelationships());
+            ctx.put(ENTITY_ID_MAPPING, result.getEntityIdMapping());
             return WorkflowFunctionOutput.builder().result("update_merge_graph_done").build();
         });
 
         // 9.5) update_persist_temp_merge_graph
-        factory.register("update_persist_temp_merge_graph", (cfg, ctx) -> {
+        factory.register("update_persist_temp_merge_graph", WorkflowSpec.consumes(MERGED_ENTITIES, MERGED_RELATIONSHIPS), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_MAIN,
                     null,
-                    ctx.get("merged_entities"),
-                    ctx.get("merged_relationships"),
+                    ctx.get(MERGED_ENTITIES),
+                    ctx.get(MERGED_RELATIONSHIPS),
                     null,
                     null,
                     null
@@ -265,21 +272,21 @@ public class StandardUpdatePipelineRegistrar {
         });
 
         // 10) update_merge_text_units
-        factory.register("update_merge_text_units", (cfg, ctx) -> {
+        factory.register("update_merge_text_units", WorkflowSpec.consumes(OLD_TEXT_UNITS, DELTA_TEXT_UNITS, ENTITY_ID_MAPPING).produces(MERGED_TEXT_UNITS), (cfg, ctx) -> {
             List<TextUnit> mergedTextUnits = updateTextUnitsWorkflow.run(
-                    ctx.get("old_text_units"),
-                    ctx.get("delta_text_units"),
-                    ctx.get("entity_id_mapping")
+                    ctx.get(OLD_TEXT_UNITS),
+                    ctx.get(DELTA_TEXT_UNITS),
+                    ctx.get(ENTITY_ID_MAPPING)
             );
-            ctx.put("merged_text_units", mergedTextUnits);
+            ctx.put(MERGED_TEXT_UNITS, mergedTextUnits);
             return WorkflowFunctionOutput.builder().result("update_merge_text_units_done").build();
         });
 
         // 10.5) update_persist_temp_merge_text_units
-        factory.register("update_persist_temp_merge_text_units", (cfg, ctx) -> {
+        factory.register("update_persist_temp_merge_text_units", WorkflowSpec.consumes(MERGED_TEXT_UNITS), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_MAIN,
-                    ctx.get("merged_text_units"),
+                    ctx.get(MERGED_TEXT_UNITS),
                     null,
                     null,
                     null,
@@ -290,17 +297,17 @@ public class StandardUpdatePipelineRegistrar {
         });
 
         // 11) update_merge_covariates
-        factory.register("update_merge_covariates", (cfg, ctx) -> {
+        factory.register("update_merge_covariates", WorkflowSpec.consumes(OLD_COVARIATES, DELTA_COVARIATES).produces(MERGED_COVARIATES), (cfg, ctx) -> {
             List<Covariate> mergedCovariates = updateCovariatesWorkflow.run(
-                    ctx.get("old_covariates"),
-                    ctx.get("delta_covariates")
+                    ctx.get(OLD_COVARIATES),
+                    ctx.get(DELTA_COVARIATES)
             );
-            ctx.put("merged_covariates", mergedCovariates);
+            ctx.put(MERGED_COVARIATES, mergedCovariates);
             return WorkflowFunctionOutput.builder().result("update_merge_covariates_done").build();
         });
 
         // 11.5) update_persist_temp_merge_covariates
-        factory.register("update_persist_temp_merge_covariates", (cfg, ctx) -> {
+        factory.register("update_persist_temp_merge_covariates", WorkflowSpec.consumes(MERGED_COVARIATES), (cfg, ctx) -> {
             // 你 PersistIndexWorkflow 是覆盖逻辑，所以这里给 main 写 merged 即可
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_MAIN,
@@ -309,31 +316,31 @@ public class StandardUpdatePipelineRegistrar {
                     null,
                     null,
                     null,
-                    ctx.get("merged_covariates")
+                    ctx.get(MERGED_COVARIATES)
             );
             return WorkflowFunctionOutput.builder().result("update_persist_temp_merge_covariates_done").build();
         });
 
         // 12) update_merge_communities
-        factory.register("update_merge_communities", (cfg, ctx) -> {
+        factory.register("update_merge_communities", WorkflowSpec.consumes(OLD_COMMUNITIES, DELTA_COMMUNITIES).produces(MERGED_COMMUNITIES, COMMUNITY_ID_MAPPING), (cfg, ctx) -> {
             UpdateCommunitiesWorkflow.Result out = updateCommunitiesWorkflow.run(
-                    ctx.get("old_communities"),
-                    ctx.get("delta_communities")
+                    ctx.get(OLD_COMMUNITIES),
+                    ctx.get(DELTA_COMMUNITIES)
             );
-            ctx.put("merged_communities", out.getMergedCommunities());
-            ctx.put("community_id_mapping", out.getCommunityIdMapping());
+            ctx.put(MERGED_COMMUNITIES, out.getMergedCommunities());
+            ctx.put(COMMUNITY_ID_MAPPING, out.getCommunityIdMapping());
             return WorkflowFunctionOutput.builder().result("update_merge_communities_done").build();
         });
 
         // 12.5) update_persist_temp_merge_communities
-        factory.register("update_persist_temp_merge_communities", (cfg, ctx) -> {
+        factory.register("update_persist_temp_merge_communities", WorkflowSpec.consumes(MERGED_COMMUNITIES), (cfg, ctx) -> {
             // 你 PersistIndexWorkflow 是覆盖逻辑，所以这里给 main 写 merged 即可
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_MAIN,
                     null,
                     null,
                     null,
-                    ctx.get("merged_communities"),
+                    ctx.get(MERGED_COMMUNITIES),
                     null,
                     null
             );
@@ -341,80 +348,100 @@ public class StandardUpdatePipelineRegistrar {
         });
 
         // 13) update_community_merge_reports
-        factory.register("update_community_merge_reports", (cfg, ctx) -> {
+        factory.register("update_community_merge_reports", WorkflowSpec.consumes(OLD_COMMUNITY_REPORTS, DELTA_COMMUNITY_REPORTS, COMMUNITY_ID_MAPPING).produces(MERGED_COMMUNITY_REPORTS), (cfg, ctx) -> {
             List<CommunityReport> merged = updateCommunityReportsWorkflow.run(
-                    ctx.get("old_community_reports"),
-                    ctx.get("delta_community_reports"),
-                    ctx.get("community_id_mapping")
+                    ctx.get(OLD_COMMUNITY_REPORTS),
+                    ctx.get(DELTA_COMMUNITY_REPORTS),
+                    ctx.get(COMMUNITY_ID_MAPPING)
             );
-            ctx.put("merged_community_reports", merged);
+            ctx.put(MERGED_COMMUNITY_REPORTS, merged);
             return WorkflowFunctionOutput.builder().result("update_community_merge_reports_done").build();
         });
 
         // 14) update_persist_index
-        factory.register("update_persist_index", (cfg, ctx) -> {
+        factory.register("update_persist_index", WorkflowSpec.consumes(MERGED_TEXT_UNITS, MERGED_ENTITIES, MERGED_RELATIONSHIPS, MERGED_COMMUNITIES, MERGED_COMMUNITY_REPORTS, MERGED_COVARIATES), (cfg, ctx) -> {
             persistIndexWorkflow.run(
                     GraphRagIndexStorage.SCOPE_MAIN,
-                    ctx.get("merged_text_units"),
-                    ctx.get("merged_entities"),
-                    ctx.get("merged_relationships"),
-                    ctx.get("merged_communities"),
-                    ctx.get("merged_community_reports"),
-                    ctx.get("merged_covariates")
+                    ctx.get(MERGED_TEXT_UNITS),
+                    ctx.get(MERGED_ENTITIES),
+                    ctx.get(MERGED_RELATIONSHIPS),
+                    ctx.get(MERGED_COMMUNITIES),
+                    ctx.get(MERGED_COMMUNITY_REPORTS),
+                    ctx.get(MERGED_COVARIATES)
             );
             return WorkflowFunctionOutput.builder().result("update_persist_index_done").build();
         });
 
+        // 14') update_upsert_index：delta 提升到 main 只写新增和变化的行，不清表、不为没变的行重算向量
+        factory.register("update_upsert_index", WorkflowSpec.consumes(
+                OLD_TEXT_UNITS, OLD_ENTITIES, OLD_RELATIONSHIPS, OLD_COMMUNITIES, OLD_COMMUNITY_REPORTS, OLD_COVARIATES,
+                MERGED_TEXT_UNITS, MERGED_ENTITIES, MERGED_RELATIONSHIPS, MERGED_COMMUNITIES, MERGED_COMMUNITY_REPORTS, MERGED_COVARIATES
+        ), (cfg, ctx) -> {
+            persistIndexWorkflow.runIncremental(
+                    GraphRagIndexStorage.SCOPE_MAIN,
+                    new LoadPreviousIndexWorkflow.Result(ctx.get(OLD_TEXT_UNITS), ctx.get(OLD_ENTITIES), ctx.get(OLD_RELATIONSHIPS),
+                            ctx.get(OLD_COMMUNITIES), ctx.get(OLD_COMMUNITY_REPORTS), ctx.get(OLD_COVARIATES)),
+                    new LoadPreviousIndexWorkflow.Result(ctx.get(MERGED_TEXT_UNITS), ctx.get(MERGED_ENTITIES), ctx.get(MERGED_RELATIONSHIPS),
+                            ctx.get(MERGED_COMMUNITIES), ctx.get(MERGED_COMMUNITY_REPORTS), ctx.get(MERGED_COVARIATES))
+            );
+            return WorkflowFunctionOutput.builder().result("update_upsert_index_done").build();
+        });
+
         // 15) update_clean_state
-        factory.register("update_clean_state", (cfg, ctx) -> {
+        factory.register("update_clean_state", WorkflowSpec.NONE, (cfg, ctx) -> {
             updateCleanStateWorkflow.run(ctx);
             return WorkflowFunctionOutput.builder().result("update_clean_state_done").build();
         });
 
 
         // update_load_temp_graph
-        factory.register("update_load_temp_delta_graph", (cfg, ctx) -> {
+        factory.register("update_load_temp_delta_graph", WorkflowSpec.consumes().produces(DELTA_ENTITIES, DELTA_RELATIONSHIPS), (cfg, ctx) -> {
             LoadPreviousIndexWorkflow.Result result = loadPreviousIndexWorkflow.run(GraphRagIndexStorage.SCOPE_DELTA, false, true, true, false, false, false);
-            ctx.put("delta_entities", result.getEntities());
-            ctx.put("delta_relationships", result.getRelationships());
+            ctx.put(DELTA_ENTITIES, result.getEntities());
+            ctx.put(DELTA_RELATIONSHIPS, result.getRelationships());
             return WorkflowFunctionOutput.builder().result("update_load_temp_delta_graph_done").build();
         });
 
         // update_load_temp_covariates
-        factory.register("update_load_temp_delta_covariates", (cfg, ctx) -> {
+        factory.register("update_load_temp_delta_covariates", WorkflowSpec.consumes().produces(DELTA_COVARIATES), (cfg, ctx) -> {
             LoadPreviousIndexWorkflow.Result result = loadPreviousIndexWorkflow.run(GraphRagIndexStorage.SCOPE_DELTA, false, false, false, false, false, true);
-            ctx.put("delta_covariates", result.getCovariates());
+            ctx.put(DELTA_COVARIATES, result.getCovariates());
             return WorkflowFunctionOutput.builder().result("update_load_temp_delta_covariates_done").build();
         });
 
         // update_load_temp_communities
-        factory.register("update_load_temp_delta_communities", (cfg, ctx) -> {
+        factory.register("update_load_temp_delta_communities", WorkflowSpec.consumes().produces(DELTA_COMMUNITIES), (cfg, ctx) -> {
             LoadPreviousIndexWorkflow.Result result = loadPreviousIndexWorkflow.run(GraphRagIndexStorage.SCOPE_DELTA, false, false, false, true, false, false);
-            ctx.put("delta_communities", result.getCommunities());
+            ctx.put(DELTA_COMMUNITIES, result.getCommunities());
             return WorkflowFunctionOutput.builder().result("update_load_temp_delta_communities_done").build();
         });
 
         // update_load_temp_delta_text_units
-        factory.register("update_load_temp_delta_text_units", (cfg, ctx) -> {
+        factory.register("update_load_temp_delta_text_units", WorkflowSpec.consumes().produces(DELTA_TEXT_UNITS), (cfg, ctx) -> {
             LoadPreviousIndexWorkflow.Result result = loadPreviousIndexWorkflow.run(GraphRagIndexStorage.SCOPE_DELTA, true, false, false, false, false, false);
-            ctx.put("delta_text_units", result.getTextUnits());
+            ctx.put(DELTA_TEXT_UNITS, result.getTextUnits());
             return WorkflowFunctionOutput.builder().result("update_load_temp_delta_text_units_done").build();
         });
 
         // update_load_temp_delta_index
-        factory.register("update_load_temp_delta_index", (cfg, ctx) -> {
+        factory.register("update_load_temp_delta_index", WorkflowSpec.consumes().produces(DELTA_TEXT_UNITS, DELTA_ENTITIES, DELTA_RELATIONSHIPS, DELTA_COMMUNITIES, DELTA_COMMUNITY_REPORTS, DELTA_COVARIATES), (cfg, ctx) -> {
             LoadPreviousIndexWorkflow.Result result = loadPreviousIndexWorkflow.run(GraphRagIndexStorage.SCOPE_DELTA, true, true, true, true, true, true);
-            ctx.put("delta_text_units", result.getTextUnits());
-            ctx.put("delta_entities", result.getEntities());
-            ctx.put("delta_relationships", result.getRelationships());
-            ctx.put("delta_communities", result.getCommunities());
-            ctx.put("delta_community_reports", result.getCommunityReports());
-            ctx.put("delta_covariates", result.getCovariates());
+            ctx.put(DELTA_TEXT_UNITS, result.getTextUnits());
+            ctx.put(DELTA_ENTITIES, result.getEntities());
+            ctx.put(DELTA_RELATIONSHIPS, result.getRelationships());
+            ctx.put(DELTA_COMMUNITIES, result.getCommunities());
+            ctx.put(DELTA_COMMUNITY_REPORTS, result.getCommunityReports());
+            ctx.put(DELTA_COVARIATES, result.getCovariates());
             return WorkflowFunctionOutput.builder().result("update_load_temp_delta_index_done").build();
         });
 
 
 
+        // update_clean_state 只保留 merged_*，自动释放同样不回收它们
+        List<ContextKey<?>> mergedKeys = List.of(
+                MERGED_TEXT_UNITS, MERGED_ENTITIES, MERGED_RELATIONSHIPS,
+                MERGED_COMMUNITIES, MERGED_COMMUNITY_REPORTS, MERGED_COVARIATES
+        );
         factory.registerPipeline("standard_update", List.of(
                 "update_load_delta_documents",
                 "update_extract_delta_graph",
@@ -428,9 +455,31 @@ public class StandardUpdatePipelineRegistrar {
                 "update_merge_covariates",
                 "update_merge_communities",
                 "update_community_merge_reports",
-                "update_persist_index",
+                "update_upsert_index",
                 "update_clean_state"
-        ));
+        ), mergedKeys);
+
+        // 微批索引（GraphRagIndexRunner.runStreaming）：standard_update 拆成两段，
+        // 抽取段只读知识库 + 调大模型、不落库，可与上一个窗口的合并段并行；合并段串行执行
+        factory.registerPipeline("standard_update_extract", List.of(
+                "update_load_delta_documents",
+                "update_extract_delta_graph",
+                "update_extract_delta_covariates"
+        ), List.of(DELTA_TEXT_UNITS, DELTA_ENTITIES, DELTA_RELATIONSHIPS, DELTA_COVARIATES));
+
+        factory.registerPipeline("standard_update_merge", List.of(
+                "update_create_delta_communities",
+                "update_create_delta_final_text_units",
+                "update_create_delta_community_reports",
+                "update_load_previous_index",
+                "update_merge_graph",
+                "update_merge_text_units",
+                "update_merge_covariates",
+                "update_merge_communities",
+                "update_community_merge_reports",
+                "update_upsert_index",
+                "update_clean_state"
+        ), mergedKeys);
 
         factory.registerPipeline("standard_update-test", List.of(
                 "update_load_delta_documents",
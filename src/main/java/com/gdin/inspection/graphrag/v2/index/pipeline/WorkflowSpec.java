@@ -0,0 +1,40 @@
+package com.gdin.inspection.graphrag.v2.index.pipeline;
+
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.ContextKey;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * workflow 注册时声明读写的中间表，用于推导每张表的生命周期（见 {@link Pipeline#releasePlan()}）。
+ * 运行参数（ContextKey.param）不需要声明。
+ */
+@Getter
+public final class WorkflowSpec {
+
+    /** 不读写任何中间表 */
+    public static final WorkflowSpec NONE = new WorkflowSpec(Set.of(), Set.of());
+
+    private final Set<ContextKey<?>> consumes;
+    private final Set<ContextKey<?>> produces;
+
+    private WorkflowSpec(Set<ContextKey<?>> consumes, Set<ContextKey<?>> produces) {
+        this.consumes = consumes;
+        this.produces = produces;
+    }
+
+    public static WorkflowSpec consumes(ContextKey<?>... keys) {
+        return new WorkflowSpec(toSet(keys), Set.of());
+    }
+
+    public WorkflowSpec produces(ContextKey<?>... keys) {
+        return new WorkflowSpec(consumes, toSet(keys));
+    }
+
+    private static Set<ContextKey<?>> toSet(ContextKey<?>... keys) {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(keys)));
+    }
+}
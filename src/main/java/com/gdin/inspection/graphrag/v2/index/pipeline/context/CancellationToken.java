@@ -0,0 +1,157 @@
+package com.gdin.inspection.graphrag.v2.index.pipeline.context;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 一次 pipeline run 的取消令牌（协作式取消）：
+ * - 运维侧调用 {@link #cancel(String)} 或到达截止时间后进入取消状态，已注册的回调立即执行（结束在途大模型调用、唤醒等待）
+ * - RunPipeline 执行 workflow 时设置为当前令牌；与 TokenLedger.Scope 一样放在 TransmittableThreadLocal 中，
+ *   线程池需从 TtlExecutorUtil 获取才能传递，回调线程上发起的后续调用应在入口处捕获令牌并显式传递
+ * - 抽取器 / 线程池任务 / embedding / Milvus 写入在发起前调用 {@link #checkCurrent()}，已取消则抛 {@link PipelineCancelledException}
+ * - 截止时间由共享的调度线程触发，run 结束后调用 {@link #clearDeadline()} 撤销定时任务，避免已结束的 run 被定时任务持有到超时
+ */
+@Slf4j
+public class CancellationToken {
+
+    private static final TransmittableThreadLocal<CancellationToken> CURRENT = new TransmittableThreadLocal<>();
+
+    // 所有 run 共用一个调度线程；撤销的任务立即从队列移除
+    private static final ScheduledThreadPoolExecutor DEADLINE_TIMER = newDeadlineTimer();
+
+    private final AtomicReference<String> reason = new AtomicReference<>();
+    private final Queue<Runnable> callbacks = new ConcurrentLinkedQueue<>();
+    private volatile Instant deadline;
+    private volatile ScheduledFuture<?> deadlineTimer;
+
+    // -------------------- current --------------------
+
+    public static CancellationToken current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 设置当前线程的令牌，返回之前的令牌，配合 {@link #restore(CancellationToken)} 在 finally 中还原
+     */
+    public static CancellationToken enter(CancellationToken token) {
+        CancellationToken previous = CURRENT.get();
+        if (token == null) CURRENT.remove();
+        else CURRENT.set(token);
+        return previous;
+    }
+
+    public static void restore(CancellationToken previous) {
+        if (previous == null) CURRENT.remove();
+        else CURRENT.set(previous);
+    }
+
+    /**
+     * 当前线程没有令牌时不做任何事
+     */
+    public static void checkCurrent() {
+        CancellationToken token = CURRENT.get();
+        if (token != null) token.throwIfCancelled();
+    }
+
+    // -------------------- cancel / deadline --------------------
+
+    /**
+     * @return 是否由本次调用触发取消（重复取消返回 false，以第一次的原因为准）
+     */
+    public boolean cancel(String reason) {
+        if (!this.reason.compareAndSet(null, reason == null ? "cancelled" : reason)) return false;
+        log.warn("pipeline run 已取消: {}", this.reason.get());
+        clearDeadline();
+        Runnable callback;
+        while ((callback = callbacks.poll()) != null) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                log.warn("取消回调执行失败: {}", e.getMessage(), e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 设置截止时间：timeoutMillis 后自动取消，<= 0 表示不限
+     */
+    public CancellationToken deadlineAfter(long timeoutMillis) {
+        if (timeoutMillis <= 0) return this;
+        Instant at = Instant.now().plusMillis(timeoutMillis);
+        this.deadline = at;
+        ScheduledFuture<?> previous = deadlineTimer;
+        deadlineTimer = DEADLINE_TIMER.schedule(() -> cancel("超过截止时间 " + at), timeoutMillis, TimeUnit.MILLISECONDS);
+        if (previous != null) previous.cancel(false);
+        return this;
+    }
+
+    /**
+     * 撤销截止时间定时任务（run 结束时在 finally 中调用），不影响已取消状态
+     */
+    public void clearDeadline() {
+        ScheduledFuture<?> timer = deadlineTimer;
+        if (timer != null) {
+            timer.cancel(false);
+            deadlineTimer = null;
+        }
+    }
+
+    /**
+     * 是否还有未触发的截止时间定时任务
+     */
+    public boolean hasPendingDeadline() {
+        ScheduledFuture<?> timer = deadlineTimer;
+        return timer != null && !timer.isDone();
+    }
+
+    static int pendingDeadlines() {
+        return DEADLINE_TIMER.getQueue().size();
+    }
+
+    private static ScheduledThreadPoolExecutor newDeadlineTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "pipeline-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    public boolean isCancelled() {
+        return reason.get() != null;
+    }
+
+    public String getReason() {
+        return reason.get();
+    }
+
+    public void throwIfCancelled() {
+        String r = reason.get();
+        if (r != null) throw new PipelineCancelledException(r);
+    }
+
+    /**
+     * 注册取消回调，已取消时立即在当前线程执行。
+     * @return 注销回调，调用方在正常结束后执行以免回调堆积
+     */
+    public Runnable onCancel(Runnable callback) {
+        callbacks.add(callback);
+        // cancel() 可能在 add 之前已经清空过队列：此时自己执行（remove 成功说明没被 cancel() 执行过）
+        if (isCancelled() && callbacks.remove(callback)) callback.run();
+        return () -> callbacks.remove(callback);
+    }
+}
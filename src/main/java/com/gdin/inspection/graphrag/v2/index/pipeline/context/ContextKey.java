@@ -0,0 +1,37 @@
+package com.gdin.inspection.graphrag.v2.index.pipeline.context;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * PipelineRunContext 的类型化 key：
+ * - param：runner 写入的运行参数（分隔符、并发数等），体积小，常驻到 run 结束
+ * - table：workflow 之间传递的中间表，workflow 注册时声明读写（见 WorkflowSpec），
+ *   RunPipeline 在最后一次读写它的 workflow 执行完后自动释放
+ * 底层仍按 name 存取，和字符串 key 的旧写法互通。
+ */
+@Getter
+@EqualsAndHashCode(of = "name")
+public final class ContextKey<T> {
+
+    private final String name;
+    private final boolean table;
+
+    private ContextKey(String name, boolean table) {
+        this.name = name;
+        this.table = table;
+    }
+
+    public static <T> ContextKey<T> param(String name) {
+        return new ContextKey<>(name, false);
+    }
+
+    public static <T> ContextKey<T> table(String name) {
+        return new ContextKey<>(name, true);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
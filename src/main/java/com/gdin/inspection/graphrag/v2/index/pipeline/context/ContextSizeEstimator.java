@@ -0,0 +1,108 @@
+package com.gdin.inspection.graphrag.v2.index.pipeline.context;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * context 条目 retained size 的粗略估算（字节），用于观察各 workflow 之后的常驻内存和释放效果：
+ * - String 按 UTF-16 计，不区分 compact string，偏保守
+ * - 集合 / Map / 对象数组按前 {@value #SAMPLE} 个元素的平均大小外推
+ * - 其他对象反射遍历实例字段，深度上限 {@value #MAX_DEPTH}；共享引用会被重复计算
+ * 只用于统计和日志，不参与业务判断。
+ */
+final class ContextSizeEstimator {
+
+    private static final int SAMPLE = 32;
+    private static final int MAX_DEPTH = 5;
+    private static final int HEADER = 16;
+    // 压缩指针
+    private static final int REF = 4;
+
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+
+    private ContextSizeEstimator() {
+    }
+
+    static long estimate(Object value) {
+        return estimate(value, 0);
+    }
+
+    private static long estimate(Object v, int depth) {
+        if (v == null) return 0;
+        if (v instanceof String s) return 40L + 2L * s.length();
+        if (v instanceof Number || v instanceof Boolean || v instanceof Character || v instanceof Enum<?>) return HEADER;
+        if (v instanceof TemporalAccessor) return 24;
+        if (depth >= MAX_DEPTH) return HEADER;
+
+        if (v instanceof Collection<?> c) {
+            return HEADER + 24 + (long) REF * c.size() + sampled(c, c.size(), depth);
+        }
+        if (v instanceof Map<?, ?> m) {
+            // HashMap.Node 约 32 字节
+            return HEADER + 48 + 32L * m.size() + sampled(m.keySet(), m.size(), depth) + sampled(m.values(), m.size(), depth);
+        }
+        Class<?> cls = v.getClass();
+        if (cls.isArray()) {
+            int len = Array.getLength(v);
+            Class<?> component = cls.getComponentType();
+            if (component.isPrimitive()) return HEADER + (long) len * primitiveSize(component);
+            return HEADER + (long) REF * len + sampled(Arrays.asList((Object[]) v), len, depth);
+        }
+
+        long size = HEADER;
+        for (Field f : fields(cls)) {
+            if (f.getType().isPrimitive()) {
+                size += primitiveSize(f.getType());
+                continue;
+            }
+            size += REF;
+            try {
+                size += estimate(f.get(v), depth + 1);
+            } catch (IllegalAccessException ignored) {
+            }
+        }
+        return size;
+    }
+
+    private static long sampled(Iterable<?> items, int total, int depth) {
+        if (total == 0) return 0;
+        long sum = 0;
+        int n = 0;
+        for (Object o : items) {
+            if (n == SAMPLE) break;
+            sum += estimate(o, depth + 1);
+            n++;
+        }
+        return n == 0 ? 0 : sum * total / n;
+    }
+
+    private static Field[] fields(Class<?> cls) {
+        return FIELDS.computeIfAbsent(cls, c -> {
+            List<Field> out = new ArrayList<>();
+            for (Class<?> k = c; k != null && k != Object.class; k = k.getSuperclass()) {
+                for (Field f : k.getDeclaredFields()) {
+                    if (Modifier.isStatic(f.getModifiers())) continue;
+                    try {
+                        f.setAccessible(true);
+                    } catch (RuntimeException e) {
+                        // JDK 模块内部类型不可反射，只计对象头
+                        return new Field[0];
+                    }
+                    out.add(f);
+                }
+            }
+            return out.toArray(new Field[0]);
+        });
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        return 1;
+    }
+}
@@ -0,0 +1,22 @@
+package com.gdin.inspection.graphrag.v2.index.pipeline.context;
+
+/**
+ * pipeline run 被取消或超过截止时间，见 {@link CancellationToken}
+ */
+public class PipelineCancelledException extends RuntimeException {
+
+    public PipelineCancelledException(String reason) {
+        super("pipeline 已取消: " + reason);
+    }
+
+    /**
+     * 异常链上是否有取消（CompletableFuture.join 会包一层 CompletionException）
+     */
+    public static boolean isCause(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof PipelineCancelledException) return true;
+            if (t.getCause() == t) break;
+        }
+        return false;
+    }
+}
@@ -1,27 +1,90 @@
 package com.gdin.inspection.graphrag.v2.index.pipeline.context;
 
+import lombok.AccessLevel;
 import lombok.Getter;
-import org.jetbrains.annotations.NotNull;
 
-import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.BiConsumer;
-import java.util.function.BiFunction;
-import java.util.function.Function;
 
+/**
+ * 一次 pipeline run 的共享状态：
+ * - workflow 之间通过 {@link ContextKey} 类型化存取，字符串 key 的旧写法保留
+ * - 每次 put 时粗估条目的 retained size（{@link ContextSizeEstimator}），{@link #retainedBytes()} 汇总当前常驻量
+ * - 中间表由 RunPipeline 按声明的最后读写者调用 {@link #release(String)} 释放
+ */
 @Getter
 public class PipelineRunContext {
 
     private final PipelineRunStats stats = new PipelineRunStats();
+    private final TokenLedger tokenLedger;
     private final Map<String, Object> state = new ConcurrentHashMap<>();
+    private final CancellationToken cancellation;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Long> sizes = new ConcurrentHashMap<>();
 
-    public void put(String key, Object value) { state.put(key, value); }
+    public PipelineRunContext() {
+        this(new CancellationToken());
+    }
+
+    /**
+     * 多个 context 共用一个令牌时（如微批索引的各个窗口），取消对整个 run 生效
+     */
+    public PipelineRunContext(CancellationToken cancellation) {
+        this(cancellation, null);
+    }
+
+    /**
+     * 多个 context 共用一本台账时（如微批索引的各个窗口），整个 run 只有一个 runId、一份汇总
+     */
+    public PipelineRunContext(CancellationToken cancellation, TokenLedger tokenLedger) {
+        this.cancellation = cancellation == null ? new CancellationToken() : cancellation;
+        this.tokenLedger = tokenLedger == null ? new TokenLedger() : tokenLedger;
+    }
+
+    public <T> void put(ContextKey<T> key, T value) {
+        put(key.getName(), value);
+    }
+
+    public <T> T get(ContextKey<T> key) {
+        return get(key.getName());
+    }
+
+    /**
+     * value 为 null 等同于删除（ConcurrentHashMap 不接受 null）
+     */
+    public void put(String key, Object value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        state.put(key, value);
+        sizes.put(key, ContextSizeEstimator.estimate(value));
+    }
 
     @SuppressWarnings("unchecked")
     public <T> T get(String key) { return (T) state.get(key); }
 
+    /**
+     * 释放条目，返回释放前估算的字节数
+     */
+    public long release(String key) {
+        Long bytes = sizes.remove(key);
+        state.remove(key);
+        return bytes == null ? 0L : bytes;
+    }
+
+    public long retainedBytes() {
+        long total = 0;
+        for (Long bytes : sizes.values()) total += bytes;
+        return total;
+    }
+
+    public Map<String, Long> retainedBytesByKey() {
+        return new TreeMap<>(sizes);
+    }
+
     public Set<String> keySet() {
         return state.keySet();
     }
@@ -31,6 +94,7 @@ public class PipelineRunContext {
     }
 
     public Object remove(Object key) {
+        sizes.remove(key);
         return state.remove(key);
     }
 }
@@ -12,4 +12,8 @@ public class PipelineRunResult {
     Object result;
     PipelineRunContext context;
     List<Exception> errors;
+    /** 本 workflow 的大模型 token / 费用汇总 */
+    TokenLedger.Usage tokenUsage;
+    /** 因取消 / 超过截止时间而中止（此时 errors 中是 PipelineCancelledException 或其包装） */
+    boolean cancelled;
 }
@@ -11,6 +11,26 @@ public class PipelineRunStats {
 
     private final Map<String, Double> workflowSeconds = new ConcurrentHashMap<>();
 
+    /** 各 workflow 执行完（含释放）后 context 的估算常驻字节数 */
+    private final Map<String, Long> workflowRetainedBytes = new ConcurrentHashMap<>();
+
     @Setter
     private double totalSeconds;
+
+    private long peakRetainedBytes;
+
+    private long releasedBytes;
+
+    /**
+     * @param beforeRelease workflow 刚执行完、尚未释放中间表时的常驻量（计入峰值）
+     * @param afterRelease  释放之后的常驻量
+     */
+    void recordRetained(String workflow, long beforeRelease, long afterRelease) {
+        workflowRetainedBytes.put(workflow, afterRelease);
+        peakRetainedBytes = Math.max(peakRetainedBytes, beforeRelease);
+    }
+
+    void addReleased(long bytes) {
+        releasedBytes += bytes;
+    }
 }
@@ -1,35 +1,70 @@
 package com.gdin.inspection.graphrag.v2.index.pipeline.context;
 
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
 import com.gdin.inspection.graphrag.v2.index.pipeline.Pipeline;
 import com.gdin.inspection.graphrag.v2.index.pipeline.WorkflowFunctionOutput;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 public class RunPipeline<C> {
 
+    /** 可为空：为空时只记录 PipelineRunStats */
+    private final GraphRagMetrics metrics;
+
+    public RunPipeline() {
+        this(null);
+    }
+
+    public RunPipeline(GraphRagMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public List<PipelineRunResult> run(Pipeline<C> pipeline, C config, PipelineRunContext context) {
         long start = System.nanoTime();
         List<PipelineRunResult> results = new ArrayList<>();
         String last = "<startup>";
+        long stepStart = start;
+        int ledgerMark = context.getTokenLedger().mark();
+        Map<Integer, List<String>> releasePlan = pipeline.releasePlan();
+        int index = -1;
 
         try {
             for (Pipeline.Step<C> step : pipeline) {
+                index++;
                 last = step.getName();
                 long t0 = System.nanoTime();
+                stepStart = t0;
+                ledgerMark = context.getTokenLedger().mark();
+
+                // 已取消的 run 不再开始新的 workflow
+                context.getCancellation().throwIfCancelled();
 
-                WorkflowFunctionOutput out = step.getFn().run(config, context);
+                WorkflowFunctionOutput out;
+                TokenLedger.Scope previousScope = TokenLedger.enter(context.getTokenLedger().scope(last));
+                CancellationToken previousToken = CancellationToken.enter(context.getCancellation());
+                try {
+                    out = step.getFn().run(config, context);
+                } finally {
+                    CancellationToken.restore(previousToken);
+                    TokenLedger.restore(previousScope);
+                }
 
-                double sec = (System.nanoTime() - t0) / 1_000_000_000.0;
+                long elapsed = System.nanoTime() - t0;
+                double sec = elapsed / 1_000_000_000.0;
                 context.getStats().getWorkflowSeconds().put(last, sec);
+                if (metrics != null) metrics.recordWorkflow(last, elapsed, true);
+                release(context, last, releasePlan.get(index));
 
                 results.add(PipelineRunResult.builder()
                         .workflow(last)
                         .result(out == null ? null : out.getResult())
                         .context(context)
                         .errors(null)
+                        .tokenUsage(context.getTokenLedger().usageOfWorkflow(last, ledgerMark))
                         .build());
 
                 if (out != null && out.isStop()) {
@@ -39,18 +74,43 @@ public class RunPipeline<C> {
             }
 
             context.getStats().setTotalSeconds((System.nanoTime() - start) / 1_000_000_000.0);
+            log.info("pipeline 完成: 中间表估算峰值={}MB, 累计释放={}MB",
+                    mb(context.getStats().getPeakRetainedBytes()), mb(context.getStats().getReleasedBytes()));
             return results;
 
         } catch (Exception e) {
-            log.error("error running workflow {}", last, e);
+            boolean cancelled = context.getCancellation().isCancelled() || PipelineCancelledException.isCause(e);
+            if (cancelled) log.warn("workflow {} 已取消: {}", last, context.getCancellation().getReason());
+            else log.error("error running workflow {}", last, e);
+            if (metrics != null) metrics.recordWorkflow(last, System.nanoTime() - stepStart, false);
             results.add(PipelineRunResult.builder()
                     .workflow(last)
                     .result(null)
                     .context(context)
                     .errors(List.of(e))
+                    .tokenUsage(context.getTokenLedger().usageOfWorkflow(last, ledgerMark))
+                    .cancelled(cancelled)
                     .build());
             context.getStats().setTotalSeconds((System.nanoTime() - start) / 1_000_000_000.0);
             return results;
         }
     }
+
+    /**
+     * workflow 执行完后释放已无后续读写者的中间表，并记录常驻量
+     */
+    private void release(PipelineRunContext context, String workflow, List<String> keys) {
+        long before = context.retainedBytes();
+        if (keys != null) {
+            long released = 0;
+            for (String key : keys) released += context.release(key);
+            context.getStats().addReleased(released);
+            if (released > 0) log.info("workflow {} 后释放中间表 {}, 约 {}MB", workflow, keys, mb(released));
+        }
+        context.getStats().recordRetained(workflow, before, context.retainedBytes());
+    }
+
+    private static String mb(long bytes) {
+        return String.format("%.1f", bytes / 1024.0 / 1024.0);
+    }
 }
@@ -0,0 +1,206 @@
+package com.gdin.inspection.graphrag.v2.index.pipeline.context;
+
+import cn.hutool.core.util.IdUtil;
+import com.alibaba.ttl.TransmittableThreadLocal;
+import com.gdin.inspection.graphrag.util.IOUtil;
+import lombok.Value;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 一次 pipeline run 的大模型 token / 费用台账。
+ * - RunPipeline 在执行每个 workflow 时设置当前 {@link Scope}，抽取器在发起调用的线程上读取
+ * - Scope 放在 TransmittableThreadLocal 中，线程池需从 TtlExecutorUtil 获取才能传递
+ * - 异步链路（回调线程上发起的后续调用）应在入口处捕获 Scope 并显式传递
+ */
+public class TokenLedger {
+
+    private static final TransmittableThreadLocal<Scope> CURRENT = new TransmittableThreadLocal<>();
+
+    private final String runId;
+    private final Instant startedAt = Instant.now();
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+
+    public TokenLedger() {
+        this(IdUtil.getSnowflakeNextIdStr());
+    }
+
+    public TokenLedger(String runId) {
+        this.runId = runId;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    // -------------------- scope --------------------
+
+    public static Scope currentScope() {
+        return CURRENT.get();
+    }
+
+    public static <T> T callInScope(Scope scope, Supplier<T> call) {
+        Scope previous = enter(scope);
+        try {
+            return call.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * 设置当前线程的 Scope，返回之前的 Scope，配合 {@link #restore(Scope)} 在 finally 中还原
+     */
+    public static Scope enter(Scope scope) {
+        Scope previous = CURRENT.get();
+        if (scope == null) CURRENT.remove();
+        else CURRENT.set(scope);
+        return previous;
+    }
+
+    public static void restore(Scope previous) {
+        if (previous == null) CURRENT.remove();
+        else CURRENT.set(previous);
+    }
+
+    public Scope scope(String workflow) {
+        return new Scope(this, workflow, null);
+    }
+
+    // -------------------- record / aggregate --------------------
+
+    public void record(Entry entry) {
+        entries.add(entry);
+    }
+
+    public List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    public Usage total() {
+        Usage usage = Usage.EMPTY;
+        for (Entry e : entries) usage = usage.plus(e);
+        return usage;
+    }
+
+    public Usage usageOfWorkflow(String workflow) {
+        return usageOfWorkflow(workflow, 0);
+    }
+
+    /**
+     * 当前已记录的调用数，配合 {@link #usageOfWorkflow(String, int)} 只统计之后的调用
+     */
+    public int mark() {
+        return entries.size();
+    }
+
+    /**
+     * 只统计 mark 之后记录的调用：多个 context 共用一本台账时（如微批索引的各个窗口），
+     * 同名 workflow 每次执行的用量不会把之前窗口的累加进来
+     */
+    public Usage usageOfWorkflow(String workflow, int fromMark) {
+        Usage usage = Usage.EMPTY;
+        int index = 0;
+        for (Entry e : entries) {
+            if (index++ < fromMark) continue;
+            if (Objects.equals(workflow, e.getWorkflow())) usage = usage.plus(e);
+        }
+        return usage;
+    }
+
+    public Map<String, Usage> byWorkflow() {
+        return groupBy(Entry::getWorkflow);
+    }
+
+    public Map<String, Usage> byComponent() {
+        return groupBy(Entry::getComponent);
+    }
+
+    public Map<String, Usage> byDocument() {
+        return groupBy(Entry::getDocumentId);
+    }
+
+    private Map<String, Usage> groupBy(Function<Entry, String> key) {
+        Map<String, Usage> out = new TreeMap<>();
+        for (Entry e : entries) {
+            String k = Objects.requireNonNullElse(key.apply(e), "<none>");
+            out.merge(k, Usage.EMPTY.plus(e), Usage::plus);
+        }
+        return out;
+    }
+
+    /**
+     * 落盘到 dir/token-ledger-{runId}.jsonl：每次调用一行，最后一行为汇总
+     */
+    public Path persist(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("token-ledger-" + runId + ".jsonl");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Entry e : entries) {
+                writer.write(IOUtil.simpleMapper().writeValueAsString(e));
+                writer.newLine();
+            }
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("run_id", runId);
+            summary.put("started_at", startedAt.toString());
+            summary.put("total", total());
+            summary.put("by_workflow", byWorkflow());
+            summary.put("by_component", byComponent());
+            summary.put("by_document", byDocument());
+            writer.write(IOUtil.simpleMapper().writeValueAsString(Map.of("summary", summary)));
+            writer.newLine();
+        }
+        return file;
+    }
+
+    @Value
+    public static class Scope {
+        TokenLedger ledger;
+        String workflow;
+        String documentId;
+
+        public Scope withDocument(String documentId) {
+            return new Scope(ledger, workflow, documentId);
+        }
+    }
+
+    @Value
+    public static class Entry {
+        String workflow;
+        String component;
+        String documentId;
+        long promptTokens;
+        long completionTokens;
+        /** true 表示 provider 未返回 usage，按 jtokkit 估算 */
+        boolean estimated;
+        double cost;
+        long latencyMillis;
+    }
+
+    @Value
+    public static class Usage {
+        public static final Usage EMPTY = new Usage(0, 0, 0, 0);
+
+        long calls;
+        long promptTokens;
+        long completionTokens;
+        double cost;
+
+        public Usage plus(Entry e) {
+            return new Usage(calls + 1, promptTokens + e.getPromptTokens(), completionTokens + e.getCompletionTokens(), cost + e.getCost());
+        }
+
+        public Usage plus(Usage o) {
+            return new Usage(calls + o.calls, promptTokens + o.promptTokens, completionTokens + o.completionTokens, cost + o.cost);
+        }
+    }
+}
@@ -1,15 +1,40 @@
 package com.gdin.inspection.graphrag.v2.index.run;
 
+import cn.hutool.core.collection.CollectionUtil;
 import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.config.properties.LlmProperties;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
+import com.gdin.inspection.graphrag.util.TtlExecutorUtil;
 import com.gdin.inspection.graphrag.v2.index.pipeline.Pipeline;
 import com.gdin.inspection.graphrag.v2.index.pipeline.PipelineFactory;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.CancellationToken;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.ContextKey;
 import com.gdin.inspection.graphrag.v2.index.pipeline.context.PipelineRunContext;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.PipelineRunResult;
 import com.gdin.inspection.graphrag.v2.index.pipeline.context.RunPipeline;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.TokenLedger;
+import com.gdin.inspection.graphrag.v2.index.workflows.LoadPreviousIndexWorkflow;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import static com.gdin.inspection.graphrag.v2.index.pipeline.ContextKeys.*;
+
+@Slf4j
 @Service
 public class GraphRagIndexRunner {
     @Resource
@@ -18,45 +43,56 @@ public class GraphRagIndexRunner {
     @Resource
     private PipelineFactory<Object> factory;
 
+    @Resource
+    private GraphRagMetrics graphRagMetrics;
+
+    @Resource
+    private LlmProperties llmProperties;
+
+    // 执行中的 run，应用关闭时统一取消
+    private final Set<CancellationToken> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 新 run 的取消令牌，带配置的截止时间（gdin.ai.graph.index.run-timeout-ms）。
+     * 需要从外部取消时，调用方先拿到令牌再传给 run* 的令牌重载。
+     */
+    public CancellationToken newRunToken() {
+        return new CancellationToken().deadlineAfter(graphProperties.getIndex().getRunTimeoutMs() == null ? 0 : graphProperties.getIndex().getRunTimeoutMs());
+    }
+
+    /**
+     * 取消所有执行中的 run，返回取消的个数
+     */
+    public int cancelAll(String reason) {
+        int n = 0;
+        for (CancellationToken token : running) {
+            if (token.cancel(reason)) n++;
+        }
+        return n;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        int n = cancelAll("应用关闭");
+        if (n > 0) log.warn("应用关闭，已取消 {} 个执行中的索引 run", n);
+    }
+
     public List<?> runStandard(List<String> documentIds) {
         return runStandard(documentIds, "standard");
     }
 
     public List<?> runStandard(List<String> documentIds, String piplineName) {
-        PipelineRunContext ctx = new PipelineRunContext();
+        return runStandard(documentIds, piplineName, newRunToken());
+    }
+
+    public List<?> runStandard(List<String> documentIds, String piplineName, CancellationToken cancellation) {
+        PipelineRunContext ctx = new PipelineRunContext(cancellation);
 
-        GraphProperties.Index.Standard standard = graphProperties.getIndex().getStandard();
-        ctx.put("concurrent_requests", standard.getConcurrentRequests());
         // ==============load_input_documents==============
-        ctx.put("document_ids", documentIds);
-        // ==============extract_graph==============
-        ctx.put("max_gleanings", standard.getMaxGleanings());
-        ctx.put("tuple_delimiter", standard.getTupleDelimiter());
-        ctx.put("record_delimiter", standard.getRecordDelimiter());
-        ctx.put("completion_delimiter", standard.getCompletionDelimiter());
-        if(standard.getExtractionPrompt()!=null) ctx.put("extraction_prompt", standard.getExtractionPrompt());
-        ctx.put("entity_types", standard.getEntityTypes());
-        ctx.put("entity_summary_max_words", standard.getEntitySummaryMaxWords());
-        ctx.put("relationship_summary_max_words", standard.getRelationshipSummaryMaxWords());
-        // ==============extract_covariates==============
-        ctx.put("claims_enabled", standard.getClaimsEnabled());
-        ctx.put("claims_description", standard.getClaimsDescription());
-        ctx.put("claims_max_gleanings", standard.getClaimsMaxGleanings());
-        ctx.put("claims_tuple_delimiter", standard.getClaimsTupleDelimiter());
-        ctx.put("claims_record_delimiter", standard.getClaimsRecordDelimiter());
-        ctx.put("claims_completion_delimiter", standard.getClaimsCompletionDelimiter());
-        ctx.put("claims_entity_types", standard.getClaimsEntityTypes());
-        if(standard.getClaimsExtractionPrompt()!=null) ctx.put("claims_extraction_prompt", standard.getClaimsExtractionPrompt());
-        // ==============extract_covariates==============
-        ctx.put("max_cluster_size", standard.getMaxClusterSize());
-        ctx.put("use_lcc", standard.getUseLcc());
-        ctx.put("cluster_seed", standard.getClusterSeed());
-        // ==============create_community_reports==============
-        ctx.put("max_context_tokens", standard.getMaxContextTokens());
-        ctx.put("max_report_length", standard.getMaxReportLength());
+        ctx.put(DOCUMENT_IDS, documentIds);
+        putStandardParams(ctx, graphProperties.getIndex().getStandard());
 
-        Pipeline<Object> pipeline = factory.createPipeline(piplineName);
-        return new RunPipeline<>().run(pipeline, null, ctx);
+        return runPipeline(piplineName, ctx);
     }
 
     public List<?> runStandardUpdate(List<String> documentIds) {
@@ -64,39 +100,225 @@ public class GraphRagIndexRunner {
     }
 
     public List<?> runStandardUpdate(List<String> documentIds, String piplineName) {
-        PipelineRunContext ctx = new PipelineRunContext();
+        return runStandardUpdate(documentIds, piplineName, newRunToken());
+    }
+
+    /**
+     * 默认的 standard_update 在文档数超过一个微批窗口时改走 {@link #runStreaming}（gdin.ai.graph.index.streaming.enabled），
+     * 每个窗口合并落库后即可查询；指定其它 pipeline 名（如调试用的 standard_update-test）时不拆分
+     */
+    public List<?> runStandardUpdate(List<String> documentIds, String piplineName, CancellationToken cancellation) {
+        if ("standard_update".equals(piplineName) && useStreaming(documentIds)) {
+            return runStreaming(documentIds, cancellation);
+        }
+        return runPipeline(piplineName, newStandardUpdateContext(documentIds, cancellation, null));
+    }
 
-        GraphProperties.Index.StandardUpdate standardUpdate = graphProperties.getIndex().getStandardUpdate();
-        ctx.put("concurrent_requests", standardUpdate.getConcurrentRequests());
+    private boolean useStreaming(List<String> documentIds) {
+        GraphProperties.Index.Streaming streaming = graphProperties.getIndex().getStreaming();
+        if (!Boolean.TRUE.equals(streaming.getEnabled()) || CollectionUtil.isEmpty(documentIds)) return false;
+        return new LinkedHashSet<>(documentIds).size() > Math.max(1, streaming.getWindowSize());
+    }
+
+    private List<PipelineRunResult> runPipeline(String piplineName, PipelineRunContext ctx) {
+        Pipeline<Object> pipeline = factory.createPipeline(piplineName);
+        running.add(ctx.getCancellation());
+        try {
+            return new RunPipeline<>(graphRagMetrics).run(pipeline, null, ctx);
+        } finally {
+            running.remove(ctx.getCancellation());
+            ctx.getCancellation().clearDeadline();
+            persistTokenLedger(ctx.getTokenLedger());
+        }
+    }
+
+    /**
+     * 微批索引：文档按窗口依次走 standard_update 的合并路径，每个窗口合并落库后即可查询。
+     * - standard_update_extract（加载切片 + 抽图 + 抽 claims）在单独线程上提前执行，
+     *   当前窗口做社区/报告/合并/落库时，下一个窗口已经在调大模型
+     * - standard_update_merge 串行执行（共用 delta 分区与主索引）
+     * - 第一个窗口从存储加载主索引，之后每个窗口拿上一个窗口的合并结果作为旧索引，不再重读；
+     *   落库只 upsert 新增和变化的行（update_upsert_index），每个窗口落库后即可查询
+     * - 任一窗口出错或 run 被取消即停止，后续窗口不再处理；已落库的窗口保留
+     * - 各窗口共用一本 token 台账（一个 runId），run 结束时落盘一次，末行即整个 run 的汇总
+     * 合并结果交给下一个窗口后即从本窗口的 context 中释放，返回的结果不持有主索引，
+     * 内存上限约为 (1 + prefetchWindows) 个窗口的抽取结果加主索引。
+     */
+    public List<?> runStreaming(List<String> documentIds) {
+        return runStreaming(documentIds, newRunToken());
+    }
+
+    public List<?> runStreaming(List<String> documentIds, CancellationToken cancellation) {
+        CancellationToken token = cancellation == null ? newRunToken() : cancellation;
+        GraphProperties.Index.Streaming streaming = graphProperties.getIndex().getStreaming();
+        List<List<String>> windows = windows(documentIds, Math.max(1, streaming.getWindowSize()));
+        int prefetch = Math.max(1, streaming.getPrefetchWindows());
+        List<PipelineRunResult> results = new ArrayList<>();
+        if (windows.isEmpty()) {
+            log.warn("微批索引: document_ids 为空");
+            token.clearDeadline();
+            return results;
+        }
+        log.info("微批索引开始: documents={}, windows={}, prefetch={}",
+                windows.stream().mapToInt(List::size).sum(), windows.size(), prefetch);
+
+        ExecutorService extractPool = TtlExecutorUtil.newSingleThreadExecutor();
+        Deque<Future<ExtractedWindow>> pending = new ArrayDeque<>();
+        // 上一个窗口的合并结果，作为下一个窗口的旧索引
+        LoadPreviousIndexWorkflow.Result carried = null;
+        // 各窗口共用一本台账，run 结束时落盘一次
+        TokenLedger ledger = new TokenLedger();
+        int submitted = 0;
+        running.add(token);
+        try {
+            while (submitted < windows.size() && pending.size() < prefetch) {
+                pending.add(submitExtract(extractPool, windows.get(submitted++), token, ledger));
+            }
+            for (int w = 0; !pending.isEmpty(); w++) {
+                ExtractedWindow extracted = pending.poll().get();
+                PipelineRunContext ctx = extracted.ctx();
+                // 当前窗口合并期间，下一个窗口开始抽取（已取消则不再提交）
+                if (submitted < windows.size() && !token.isCancelled()) {
+                    pending.add(submitExtract(extractPool, windows.get(submitted++), token, ledger));
+                }
+                results.addAll(extracted.results());
+                if (failed(extracted.results())) break;
+                if (CollectionUtil.isEmpty(ctx.get(DELTA_TEXT_UNITS))) {
+                    log.info("微批索引: 窗口 {}/{} 无切片，跳过", w + 1, windows.size());
+                    continue;
+                }
+
+                if (carried != null) putPreviousIndex(ctx, carried);
+                List<PipelineRunResult> mergeResults = new RunPipeline<>(graphRagMetrics)
+                        .run(factory.createPipeline("standard_update_merge"), null, ctx);
+                results.addAll(mergeResults);
+                carried = takeMergedIndex(ctx);
+                if (failed(mergeResults)) break;
+                log.info("微批索引: 窗口 {}/{} 已合并落库, documents={}", w + 1, windows.size(), windows.get(w).size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("微批索引被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("微批索引抽取失败", e.getCause());
+        } finally {
+            running.remove(token);
+            token.clearDeadline();
+            pending.forEach(f -> f.cancel(true));
+            extractPool.shutdownNow();
+            persistTokenLedger(ledger);
+        }
+        return results;
+    }
+
+    private Future<ExtractedWindow> submitExtract(ExecutorService pool, List<String> windowIds,
+                                                  CancellationToken cancellation, TokenLedger ledger) {
+        PipelineRunContext ctx = newStandardUpdateContext(windowIds, cancellation, ledger);
+        Pipeline<Object> pipeline = factory.createPipeline("standard_update_extract");
+        return pool.submit(() -> new ExtractedWindow(ctx, new RunPipeline<>(graphRagMetrics).run(pipeline, null, ctx)));
+    }
+
+    private record ExtractedWindow(PipelineRunContext ctx, List<PipelineRunResult> results) {
+    }
+
+    /**
+     * update_load_previous_index 看到 old_* 已就位时不再从存储加载
+     */
+    private static void putPreviousIndex(PipelineRunContext ctx, LoadPreviousIndexWorkflow.Result previous) {
+        ctx.put(OLD_TEXT_UNITS, previous.getTextUnits());
+        ctx.put(OLD_ENTITIES, previous.getEntities());
+        ctx.put(OLD_RELATIONSHIPS, previous.getRelationships());
+        ctx.put(OLD_COMMUNITIES, previous.getCommunities());
+        ctx.put(OLD_COMMUNITY_REPORTS, previous.getCommunityReports());
+        ctx.put(OLD_COVARIATES, previous.getCovariates());
+    }
+
+    /**
+     * 取出并释放本窗口的 merged_*：返回结果里的 context 不再持有整份主索引。
+     * 合并段没有跑完（没有 merged_entities）时返回 null
+     */
+    private static LoadPreviousIndexWorkflow.Result takeMergedIndex(PipelineRunContext ctx) {
+        LoadPreviousIndexWorkflow.Result merged = ctx.get(MERGED_ENTITIES) == null ? null : new LoadPreviousIndexWorkflow.Result(
+                ctx.get(MERGED_TEXT_UNITS),
+                ctx.get(MERGED_ENTITIES),
+                ctx.get(MERGED_RELATIONSHIPS),
+                ctx.get(MERGED_COMMUNITIES),
+                ctx.get(MERGED_COMMUNITY_REPORTS),
+                ctx.get(MERGED_COVARIATES)
+        );
+        for (ContextKey<?> key : List.of(MERGED_TEXT_UNITS, MERGED_ENTITIES, MERGED_RELATIONSHIPS,
+                MERGED_COMMUNITIES, MERGED_COMMUNITY_REPORTS, MERGED_COVARIATES)) {
+            ctx.release(key.getName());
+        }
+        return merged;
+    }
+
+    /**
+     * 去重后保持原顺序切窗口
+     */
+    private static List<List<String>> windows(List<String> documentIds, int windowSize) {
+        List<List<String>> out = new ArrayList<>();
+        if (CollectionUtil.isEmpty(documentIds)) return out;
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(documentIds));
+        for (int i = 0; i < ids.size(); i += windowSize) {
+            out.add(List.copyOf(ids.subList(i, Math.min(i + windowSize, ids.size()))));
+        }
+        return out;
+    }
+
+    private static boolean failed(List<PipelineRunResult> results) {
+        return results.stream().anyMatch(r -> CollectionUtil.isNotEmpty(r.getErrors()));
+    }
+
+    private PipelineRunContext newStandardUpdateContext(List<String> documentIds, CancellationToken cancellation, TokenLedger ledger) {
+        PipelineRunContext ctx = new PipelineRunContext(cancellation, ledger);
         // ==============update_load_delta_documents==============
-        ctx.put("update_document_ids", documentIds);
+        ctx.put(UPDATE_DOCUMENT_IDS, documentIds);
+        putStandardParams(ctx, graphProperties.getIndex().getStandardUpdate());
+        return ctx;
+    }
+
+    private static void putStandardParams(PipelineRunContext ctx, GraphProperties.Index.Standard standard) {
+        ctx.put(CONCURRENT_REQUESTS, standard.getConcurrentRequests());
         // ==============extract_graph==============
-        ctx.put("max_gleanings", standardUpdate.getMaxGleanings());
-        ctx.put("tuple_delimiter", standardUpdate.getTupleDelimiter());
-        ctx.put("record_delimiter", standardUpdate.getRecordDelimiter());
-        ctx.put("completion_delimiter", standardUpdate.getCompletionDelimiter());
-        if(standardUpdate.getExtractionPrompt()!=null) ctx.put("extraction_prompt", standardUpdate.getExtractionPrompt());
-        ctx.put("entity_types", standardUpdate.getEntityTypes());
-        ctx.put("entity_summary_max_words", standardUpdate.getEntitySummaryMaxWords());
-        ctx.put("relationship_summary_max_words", standardUpdate.getRelationshipSummaryMaxWords());
+        ctx.put(MAX_GLEANINGS, standard.getMaxGleanings());
+        ctx.put(TUPLE_DELIMITER, standard.getTupleDelimiter());
+        ctx.put(RECORD_DELIMITER, standard.getRecordDelimiter());
+        ctx.put(COMPLETION_DELIMITER, standard.getCompletionDelimiter());
+        if(standard.getExtractionPrompt()!=null) ctx.put(EXTRACTION_PROMPT, standard.getExtractionPrompt());
+        ctx.put(ENTITY_TYPES, standard.getEntityTypes());
+        ctx.put(ENTITY_SUMMARY_MAX_WORDS, standard.getEntitySummaryMaxWords());
+        ctx.put(RELATIONSHIP_SUMMARY_MAX_WORDS, standard.getRelationshipSummaryMaxWords());
         // ==============extract_covariates==============
-        ctx.put("claims_enabled", standardUpdate.getClaimsEnabled());
-        ctx.put("claims_description", standardUpdate.getClaimsDescription());
-        ctx.put("claims_max_gleanings", standardUpdate.getClaimsMaxGleanings());
-        ctx.put("claims_tuple_delimiter", standardUpdate.getClaimsTupleDelimiter());
-        ctx.put("claims_record_delimiter", standardUpdate.getClaimsRecordDelimiter());
-        ctx.put("claims_completion_delimiter", standardUpdate.getClaimsCompletionDelimiter());
-        ctx.put("claims_entity_types", standardUpdate.getClaimsEntityTypes());
-        if(standardUpdate.getClaimsExtractionPrompt()!=null) ctx.put("claims_extraction_prompt", standardUpdate.getClaimsExtractionPrompt());
+        ctx.put(CLAIMS_ENABLED, standard.getClaimsEnabled());
+        ctx.put(CLAIMS_DESCRIPTION, standard.getClaimsDescription());
+        ctx.put(CLAIMS_MAX_GLEANINGS, standard.getClaimsMaxGleanings());
+        ctx.put(CLAIMS_TUPLE_DELIMITER, standard.getClaimsTupleDelimiter());
+        ctx.put(CLAIMS_RECORD_DELIMITER, standard.getClaimsRecordDelimiter());
+        ctx.put(CLAIMS_COMPLETION_DELIMITER, standard.getClaimsCompletionDelimiter());
+        ctx.put(CLAIMS_ENTITY_TYPES, standard.getClaimsEntityTypes());
+        if(standard.getClaimsExtractionPrompt()!=null) ctx.put(CLAIMS_EXTRACTION_PROMPT, standard.getClaimsExtractionPrompt());
         // ==============extract_covariates==============
-        ctx.put("max_cluster_size", standardUpdate.getMaxClusterSize());
-        ctx.put("use_lcc", standardUpdate.getUseLcc());
-        ctx.put("cluster_seed", standardUpdate.getClusterSeed());
+        ctx.put(MAX_CLUSTER_SIZE, standard.getMaxClusterSize());
+        ctx.put(USE_LCC, standard.getUseLcc());
+        ctx.put(CLUSTER_SEED, standard.getClusterSeed());
         // ==============create_community_reports==============
-        ctx.put("max_context_tokens", standardUpdate.getMaxContextTokens());
-        ctx.put("max_report_length", standardUpdate.getMaxReportLength());
+        ctx.put(MAX_CONTEXT_TOKENS, standard.getMaxContextTokens());
+        ctx.put(MAX_REPORT_LENGTH, standard.getMaxReportLength());
+    }
 
-        Pipeline<Object> pipeline = factory.createPipeline(piplineName);
-        return new RunPipeline<>().run(pipeline, null, ctx);
+    /**
+     * token 台账落盘，失败只记日志，不影响索引结果
+     */
+    private void persistTokenLedger(TokenLedger ledger) {
+        TokenLedger.Usage total = ledger.total();
+        log.info("token 台账: runId={}, calls={}, promptTokens={}, completionTokens={}, cost={}",
+                ledger.getRunId(), total.getCalls(), total.getPromptTokens(), total.getCompletionTokens(), total.getCost());
+        try {
+            Path file = ledger.persist(Path.of(llmProperties.getLedger().getDir()));
+            log.info("token 台账已写入: {}", file.toAbsolutePath());
+        } catch (IOException e) {
+            log.warn("token 台账写入失败: {}", e.getMessage(), e);
+        }
     }
 }
@@ -3,7 +3,7 @@ package com.gdin.inspection.graphrag.v2.index.workflows;
 import cn.hutool.core.collection.CollectionUtil;
 import com.gdin.inspection.graphrag.v2.index.opertation.CreateFinalTextUnitsOperation;
 import com.gdin.inspection.graphrag.v2.models.*;
-import com.gdin.inspection.graphrag.v2.storage.KnowledgeSliceWriteBackService;
+import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -18,7 +18,7 @@ public class CreateFinalTextUnitsWorkflow {
     private CreateFinalTextUnitsOperation createFinalTextUnitsOperation;
 
     @Resource
-    private KnowledgeSliceWriteBackService writeBackService;
+    private GraphRagIndexStorage storage;
 
     public List<TextUnit> run(
             int scope,
@@ -41,8 +41,8 @@ public class CreateFinalTextUnitsWorkflow {
 
         List<TextUnit> finalTextUnits = createFinalTextUnitsOperation.createFinalTextUnits(textUnits, entities, relationships, covariates);
 
-        // 写回知识库切片
-        writeBackService.writeBackToKnowledgeBase(scope, finalTextUnits);
+        // 保存最终文本单元（Milvus 实现里回写到知识库切片）
+        storage.saveTextUnits(scope, finalTextUnits);
 
         return finalTextUnits;
     }
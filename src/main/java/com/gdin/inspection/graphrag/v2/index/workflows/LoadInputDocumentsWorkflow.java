@@ -1,11 +1,10 @@
 package com.gdin.inspection.graphrag.v2.index.workflows;
 
 import cn.hutool.core.collection.CollectionUtil;
-import com.alibaba.fastjson2.JSON;
-import com.alibaba.fastjson2.JSONArray;
-import com.alibaba.fastjson2.JSONObject;
+import cn.hutool.core.util.StrUtil;
 import com.gdin.inspection.graphrag.config.properties.GraphProperties;
 import com.gdin.inspection.graphrag.req.milvus.MilvusQueryReq;
+import com.gdin.inspection.graphrag.search.result.MilvusRow;
 import com.gdin.inspection.graphrag.service.MilvusSearchService;
 import com.gdin.inspection.graphrag.v2.models.TextUnit;
 import com.gdin.inspection.graphrag.v2.util.TokenUtil;
@@ -28,8 +27,14 @@ public class LoadInputDocumentsWorkflow {
     @Resource
     private TokenUtil tokenUtil;
 
+    private static final int DEFAULT_DOCUMENT_ID_CHUNK_SIZE = 500;
+    private static final int DEFAULT_QUERY_BATCH_SIZE = 1000;
+
     /**
      * 批量处理文档：将每个 document 的切片生成对应的 TextUnit。
+     * 文档 id 排序去重后分块查询；块内按 (document_id, page) 排序，块间 document_id 有序。
+     * QueryIterator 每批返回的原始行当场转成 TextUnit，不保留 Milvus 行（metadata 等字段）；
+     * 返回的 TextUnit 列表仍是整批的，需要限制整体内存时走 GraphRagIndexRunner.runStreaming 按窗口加载。
      * @param documentIds 待处理的文档列表
      * @return 生成的 TextUnit 列表（按文档顺序）
      */
@@ -41,51 +46,63 @@ public class LoadInputDocumentsWorkflow {
                 documentIds.size()
         );
 
-        // 从向量库获取切片
+        List<String> sortedIds = new ArrayList<>(new TreeSet<>(documentIds));
+        GraphProperties.Input input = graphProperties.getInput();
+        int chunkSize = Math.max(1, Objects.requireNonNullElse(input.getDocumentIdChunkSize(), DEFAULT_DOCUMENT_ID_CHUNK_SIZE));
+        int batchSize = Math.max(1, Objects.requireNonNullElse(input.getQueryBatchSize(), DEFAULT_QUERY_BATCH_SIZE));
+        List<TextUnit> textUnits = new ArrayList<>();
+        for (int i = 0; i < sortedIds.size(); i += chunkSize) {
+            List<String> chunk = sortedIds.subList(i, Math.min(i + chunkSize, sortedIds.size()));
+            List<Slice> slices = new ArrayList<>();
+            milvusSearchService.forEachRowBatch(MilvusQueryReq.builder()
+                    .collectionName(graphProperties.getCollectionNames().getMain().getContentCollectionName())
+                    .filter(buildFilter(input, chunk))
+                    .outputFields(List.of("metadata", "page_content"))
+                    .build(), batchSize, rows -> {
+                for (MilvusRow row : rows) slices.add(toSlice(row));
+            });
+            // 按照document, page进行排序
+            slices.sort(Comparator
+                    .comparing(Slice::documentId, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(Slice::page, Comparator.nullsLast(Comparator.naturalOrder())));
+            for (Slice slice : slices) textUnits.add(slice.textUnit());
+        }
+        return textUnits;
+    }
+
+    private Slice toSlice(MilvusRow row) {
+        String documentId = row.getJsonString("metadata", "document_id");
+        String pageContent = row.getString("page_content");
+        String docId = row.getJsonString("metadata", "doc_id");
+        TextUnit textUnit = TextUnit.builder()
+                .id(docId)
+                .humanReadableId(null)  // 按 Python 行为，finalize 阶段再统一赋值
+                .text(pageContent)
+                .nTokens(tokenUtil.getTokenCount(pageContent))
+                .documentIds(List.of(documentId))  // 目前每个 text unit 只属于一个 document
+                .entityIds(null)                  // 这三个字段后面 finalize 再填
+                .relationshipIds(null)
+                .covariateIds(null)
+                .build();
+        return new Slice(documentId, row.getJsonInteger("metadata", "page"), textUnit);
+    }
+
+    private record Slice(String documentId, Integer page, TextUnit textUnit) {
+    }
+
+    /**
+     * 优先使用提升出来的标量字段（有 INVERTED 索引），否则使用 metadata JSON 路径（由 GraphConfig 建 JSON 路径索引）
+     */
+    private String buildFilter(GraphProperties.Input input, List<String> documentIds) {
+        String documentIdExpr = StrUtil.isBlank(input.getDocumentIdField()) ? "metadata[\"document_id\"]" : input.getDocumentIdField();
+        String segmentTypeExpr = StrUtil.isBlank(input.getSegmentTypeField()) ? "metadata[\"segment_type\"]" : input.getSegmentTypeField();
         StringBuilder filter = new StringBuilder();
-        filter.append("metadata[\"segment_type\"]==\"father\" and metadata[\"document_id\"] in [");
+        filter.append(segmentTypeExpr).append("==\"father\" and ").append(documentIdExpr).append(" in [");
         for (String documentId : documentIds) {
             filter.append("\"").append(documentId).append("\"").append(",");
         }
         filter.deleteCharAt(filter.length() - 1);
         filter.append("]");
-        String queryResult = milvusSearchService.query(MilvusQueryReq.builder()
-                .collectionName(graphProperties.getCollectionNames().getMain().getContentCollectionName())
-                .filter(filter.toString())
-                .outputFields(List.of("metadata", "page_content"))
-                .build());
-        JSONArray slices = JSON.parseArray(queryResult);
-        // 按照document, page进行排序
-        slices.sort((o1, o2) -> {
-            JSONObject metadata1 = ((JSONObject) o1).getJSONObject("metadata");
-            JSONObject metadata2 = ((JSONObject) o2).getJSONObject("metadata");
-            String documentId1 = metadata1.getString("document_id");
-            String documentId2 = metadata2.getString("document_id");
-            if(Objects.equals(documentId1, documentId2)) {
-                Integer page1 = metadata1.getInteger("page");
-                Integer page2 = metadata2.getInteger("page");
-                return page1.compareTo(page2);
-            }
-            return documentId1.compareTo(documentId2);
-        });
-        List<TextUnit> textUnits = new ArrayList<>();
-        for (int i = 0; i < slices.size(); i++) {
-            JSONObject slice = slices.getJSONObject(i);
-            JSONObject metadata = slice.getJSONObject("metadata");
-            String documentId = metadata.getString("document_id");
-            String pageContent = slice.getString("page_content");
-            String docId = metadata.getString("doc_id");
-            textUnits.add(TextUnit.builder()
-                    .id(docId)
-                    .humanReadableId(null)  // 按 Python 行为，finalize 阶段再统一赋值
-                    .text(pageContent)
-                    .nTokens(tokenUtil.getTokenCount(pageContent))
-                    .documentIds(List.of(documentId))  // 目前每个 text unit 只属于一个 document
-                    .entityIds(null)                  // 这三个字段后面 finalize 再填
-                    .relationshipIds(null)
-                    .covariateIds(null)
-                    .build());
-        }
-        return textUnits;
+        return filter.toString();
     }
 }
@@ -1,32 +1,29 @@
 package com.gdin.inspection.graphrag.v2.index.workflows;
 
 import cn.hutool.core.collection.CollectionUtil;
-import com.gdin.inspection.graphrag.config.properties.GraphProperties;
-import com.gdin.inspection.graphrag.service.MilvusDeleteService;
 import com.gdin.inspection.graphrag.v2.models.*;
+import com.gdin.inspection.graphrag.v2.query.snapshot.IndexSnapshotHolder;
 import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
-import com.gdin.inspection.graphrag.v2.storage.KnowledgeSliceWriteBackService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Slf4j
 @Service
 public class PersistIndexWorkflow {
 
     @Resource
-    private GraphRagIndexStorage milvusStorage;
+    private GraphRagIndexStorage storage;
 
     @Resource
-    private MilvusDeleteService milvusDeleteService;
-
-    @Resource
-    private GraphProperties graphProperties;
-
-    @Resource
-    private KnowledgeSliceWriteBackService knowledgeSliceWriteBackService;
+    private IndexSnapshotHolder indexSnapshotHolder;
 
     public void run(
             int scope,
@@ -54,43 +51,66 @@ public class PersistIndexWorkflow {
                 CollectionUtil.isEmpty(covariates) ? 0 :covariates.size()
         );
 
-        String communityReportCollectionName;
-        String communityCollectionName;
-        String covariateCollectionName;
-        String relationshipCollectionName;
-        String entitiyCollectionName;
-        if(scope==GraphRagIndexStorage.SCOPE_MAIN) {
-            communityReportCollectionName = graphProperties.getCollectionNames().getMain().getCommunityReportCollectionName();
-            communityCollectionName = graphProperties.getCollectionNames().getMain().getCommunityCollectionName();
-            covariateCollectionName = graphProperties.getCollectionNames().getMain().getCovariateCollectionName();
-            relationshipCollectionName = graphProperties.getCollectionNames().getMain().getRelationshipCollectionName();
-            entitiyCollectionName = graphProperties.getCollectionNames().getMain().getEntityCollectionName();
+        // save 是整表覆盖写（Milvus 先清该 scope 的 collection / 分区，textUnits 先清切片上的旧标记），空表不动
+        if(scope!=GraphRagIndexStorage.SCOPE_MAIN && scope!=GraphRagIndexStorage.SCOPE_DELTA) throw new RuntimeException("Unknown scope");
+        if(CollectionUtil.isNotEmpty(entities)) storage.saveEntities(scope, entities);
+        if(CollectionUtil.isNotEmpty(relationships)) storage.saveRelationships(scope, relationships);
+        if(CollectionUtil.isNotEmpty(covariates)) storage.saveCovariates(scope, covariates);
+        if(CollectionUtil.isNotEmpty(communities)) storage.saveCommunities(scope, communities);
+        if(CollectionUtil.isNotEmpty(communityReports)) storage.saveCommunityReports(scope, communityReports);
+
+        // 回写TextUnit到知识库
+        if(CollectionUtil.isNotEmpty(textUnits)) storage.saveTextUnits(scope, textUnits);
+
+        // 主索引变更后刷新查询侧快照：防抖 + 后台线程，同一 run 的多次写入只重建一次
+        if(scope==GraphRagIndexStorage.SCOPE_MAIN) indexSnapshotHolder.requestRefresh();
+    }
+
+    /**
+     * 增量落库：merged 相对 previous 新增或内容有变化的行按 id upsert，没变的行不重写、不重算向量。
+     * 合并只会在旧表后追加、或改写同 id 的行；若某张表有旧 id 不在合并结果里，这张表退回整表覆盖写。
+     */
+    public void runIncremental(int scope, LoadPreviousIndexWorkflow.Result previous, LoadPreviousIndexWorkflow.Result merged) {
+        if(scope!=GraphRagIndexStorage.SCOPE_MAIN && scope!=GraphRagIndexStorage.SCOPE_DELTA) throw new RuntimeException("Unknown scope");
+
+        writeChanged("entities", previous.getEntities(), merged.getEntities(), Entity::getId,
+                rows -> storage.upsertEntities(scope, rows), rows -> storage.saveEntities(scope, rows));
+        writeChanged("relationships", previous.getRelationships(), merged.getRelationships(), Relationship::getId,
+                rows -> storage.upsertRelationships(scope, rows), rows -> storage.saveRelationships(scope, rows));
+        writeChanged("covariates", previous.getCovariates(), merged.getCovariates(), Covariate::getId,
+                rows -> storage.upsertCovariates(scope, rows), rows -> storage.saveCovariates(scope, rows));
+        writeChanged("communities", previous.getCommunities(), merged.getCommunities(), Community::getId,
+                rows -> storage.upsertCommunities(scope, rows), rows -> storage.saveCommunities(scope, rows));
+        writeChanged("community_reports", previous.getCommunityReports(), merged.getCommunityReports(), CommunityReport::getId,
+                rows -> storage.upsertCommunityReports(scope, rows), rows -> storage.saveCommunityReports(scope, rows));
+        writeChanged("text_units", previous.getTextUnits(), merged.getTextUnits(), TextUnit::getId,
+                rows -> storage.upsertTextUnits(scope, rows), rows -> storage.saveTextUnits(scope, rows));
+
+        if(scope==GraphRagIndexStorage.SCOPE_MAIN) indexSnapshotHolder.requestRefresh();
+    }
+
+    /**
+     * 与 run 一致：合并结果为空的表不动
+     */
+    private <T> void writeChanged(String table, List<T> previous, List<T> merged, Function<T, String> id,
+                                  Consumer<List<T>> upsert, Consumer<List<T>> save) {
+        if (CollectionUtil.isEmpty(merged)) return;
+        List<T> old = previous == null ? List.of() : previous;
+
+        Set<String> mergedIds = new HashSet<>();
+        for (T row : merged) {
+            if (row != null) mergedIds.add(id.apply(row));
         }
-        else if(scope==GraphRagIndexStorage.SCOPE_DELTA) {
-            communityReportCollectionName = graphProperties.getCollectionNames().getDelta().getCommunityReportCollectionName();
-            communityCollectionName = graphProperties.getCollectionNames().getDelta().getCommunityCollectionName();
-            covariateCollectionName = graphProperties.getCollectionNames().getDelta().getCovariateCollectionName();
-            relationshipCollectionName = graphProperties.getCollectionNames().getDelta().getRelationshipCollectionName();
-            entitiyCollectionName = graphProperties.getCollectionNames().getDelta().getEntityCollectionName();
+        boolean dropped = old.stream().filter(Objects::nonNull).anyMatch(row -> !mergedIds.contains(id.apply(row)));
+        if (dropped) {
+            log.info("增量落库 {}: 旧索引里有行不在合并结果中，整表覆盖写 {} 条", table, merged.size());
+            save.accept(merged);
+            return;
         }
-        else throw new RuntimeException("Unknown scope");
-
-        // 先清空, 注意textUnits不能清空
-        if(CollectionUtil.isNotEmpty(communityReports)) milvusDeleteService.deleteAll(communityReportCollectionName);
-        if(CollectionUtil.isNotEmpty(communities)) milvusDeleteService.deleteAll(communityCollectionName);
-        if(CollectionUtil.isNotEmpty(covariates)) milvusDeleteService.deleteAll(covariateCollectionName);
-        if(CollectionUtil.isNotEmpty(relationships)) milvusDeleteService.deleteAll(relationshipCollectionName);
-        if(CollectionUtil.isNotEmpty(entities)) milvusDeleteService.deleteAll(entitiyCollectionName);
-        if(CollectionUtil.isNotEmpty(textUnits)) knowledgeSliceWriteBackService.cleanKnowledgeSliceState(scope);
-
-        // 保存
-        if(CollectionUtil.isNotEmpty(entities)) milvusStorage.saveEntities(scope, entities);
-        if(CollectionUtil.isNotEmpty(relationships)) milvusStorage.saveRelationships(scope, relationships);
-        if(CollectionUtil.isNotEmpty(covariates)) milvusStorage.saveCovariates(scope, covariates);
-        if(CollectionUtil.isNotEmpty(communities)) milvusStorage.saveCommunities(scope, communities);
-        if(CollectionUtil.isNotEmpty(communityReports)) milvusStorage.saveCommunityReports(scope, communityReports);
 
-        // 回写TextUnit到知识库
-        if(CollectionUtil.isNotEmpty(textUnits)) knowledgeSliceWriteBackService.writeBackToKnowledgeBase(scope, textUnits);
+        Set<T> unchanged = new HashSet<>(old);
+        List<T> changed = merged.stream().filter(row -> row != null && !unchanged.contains(row)).toList();
+        log.info("增量落库 {}: merged={}, 新增或变化={}", table, merged.size(), changed.size());
+        if (!changed.isEmpty()) upsert.accept(changed);
     }
 }
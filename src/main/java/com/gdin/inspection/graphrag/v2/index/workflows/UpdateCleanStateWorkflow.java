@@ -1,8 +1,7 @@
 package com.gdin.inspection.graphrag.v2.index.workflows;
 
-import com.gdin.inspection.graphrag.config.properties.GraphProperties;
-import com.gdin.inspection.graphrag.service.MilvusDeleteService;
 import com.gdin.inspection.graphrag.v2.index.pipeline.context.PipelineRunContext;
+import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -18,10 +17,7 @@ import java.util.*;
 public class UpdateCleanStateWorkflow {
 
     @Resource
-    private MilvusDeleteService milvusDeleteService;
-
-    @Resource
-    private GraphProperties graphProperties;
+    private GraphRagIndexStorage storage;
 
     /**
      * @param ctx 你的 PipelineContext（这里按 Map 语义使用）
@@ -41,13 +37,8 @@ public class UpdateCleanStateWorkflow {
 
         for (String key : toDelete) ctx.remove(key);
 
-        // 清空所有的delta数据
-        GraphProperties.CollectionNames.Delta delta = graphProperties.getCollectionNames().getDelta();
-        milvusDeleteService.deleteAll(delta.getCommunityReportCollectionName());
-        milvusDeleteService.deleteAll(delta.getCommunityCollectionName());
-        milvusDeleteService.deleteAll(delta.getCovariateCollectionName());
-        milvusDeleteService.deleteAll(delta.getRelationshipCollectionName());
-        milvusDeleteService.deleteAll(delta.getEntityCollectionName());
+        // 清空所有的delta数据（分区模式下直接删除 delta 分区）
+        storage.clear(GraphRagIndexStorage.SCOPE_DELTA);
         return toDelete;
     }
 }
@@ -2,6 +2,7 @@ package com.gdin.inspection.graphrag.v2.index.workflows;
 
 import cn.hutool.core.collection.CollectionUtil;
 import com.gdin.inspection.graphrag.v2.models.Community;
+import com.gdin.inspection.graphrag.v2.util.StableIdUtil;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -64,9 +65,18 @@ public class UpdateCommunitiesWorkflow {
         mapping.put(-1, -1);
 
         // 3) delta.community / delta.parent apply mapping（astype(int) 的语义）
-        List<Community> deltaRemapped = new ArrayList<>(deltaCommunities.size());
-        for (Community c : deltaCommunities) {
-            if (c == null) continue;
+        //    社区 id 由 level + 成员派生，delta 中与 old 成员完全相同的社区会撞 id，这里再派生一次保证合并后唯一
+        Set<String> oldIds = new HashSet<>();
+        for (Community c : oldCommunities) {
+            if (c != null && c.getId() != null) oldIds.add(c.getId());
+        }
+        List<Community> deltaNonNull = deltaCommunities.stream().filter(Objects::nonNull).toList();
+        List<String> deltaIds = StableIdUtil.dedupeIds(deltaNonNull, Community::getId,
+                c -> StableIdUtil.communityTieKey(c.getRelationshipIds()), oldIds);
+        List<Community> deltaRemapped = new ArrayList<>(deltaNonNull.size());
+        for (int i = 0; i < deltaNonNull.size(); i++) {
+            Community c = deltaNonNull.get(i);
+            String id = deltaIds.get(i);
 
             Integer oldCommunity = safeToIntOrNull(c.getCommunity());
             Integer oldParent = safeToIntOrNull(c.getParent());
@@ -74,7 +84,7 @@ public class UpdateCommunitiesWorkflow {
             Integer newCommunity = oldCommunity == null ? null : mapping.getOrDefault(oldCommunity, oldCommunity);
             Integer newParent = oldParent == null ? null : mapping.getOrDefault(oldParent, oldParent);
 
-            deltaRemapped.add(copyCommunityWithMappedIds(c, newCommunity, newParent));
+            deltaRemapped.add(copyCommunityWithMappedIds(c, id, newCommunity, newParent));
         }
 
         // 4) old_communities["community"] astype(int) —— Java 这里等价为确保为 Integer（你本来就是 Integer）
@@ -119,9 +129,9 @@ public class UpdateCommunitiesWorkflow {
         return new Result(finalMerged, communityIdMapping);
     }
 
-    private Community copyCommunityWithMappedIds(Community c, Integer newCommunity, Integer newParent) {
+    private Community copyCommunityWithMappedIds(Community c, String id, Integer newCommunity, Integer newParent) {
         return Community.builder()
-                .id(c.getId())
+                .id(id)
                 .humanReadableId(c.getHumanReadableId()) // Python 还没重置 hrid，最后统一用 community 覆盖；这里保留原值即可
                 .community(newCommunity)
                 .level(c.getLevel())
@@ -83,7 +83,7 @@ public class UpdateGraphWorkflow {
     /**
      * 对齐 Python: _group_and_resolve_entities(old_entities_df, delta_entities_df)
      */
-    private MergeEntitiesResult groupAndResolveEntities(List<Entity> oldEntities, List<Entity> deltaEntities) {
+    MergeEntitiesResult groupAndResolveEntities(List<Entity> oldEntities, List<Entity> deltaEntities) {
         // title -> oldId
         Map<String, String> titleToOldId = oldEntities.stream()
                 .filter(e -> e != null && e.getTitle() != null && e.getId() != null)
@@ -184,7 +184,7 @@ public class UpdateGraphWorkflow {
     /**
      * 对齐 Python: _update_and_merge_relationships(old_relationships, delta_relationships)
      */
-    private List<Relationship> updateAndMergeRelationships(List<Relationship> oldRels, List<Relationship> deltaRels) {
+    List<Relationship> updateAndMergeRelationships(List<Relationship> oldRels, List<Relationship> deltaRels) {
         int oldMax = oldRels.stream()
                 .filter(Objects::nonNull)
                 .map(Relationship::getHumanReadableId)
@@ -421,7 +421,8 @@ public class UpdateGraphWorkflow {
         }
     }
 
-    private static class MergeEntitiesResult {
+    @Getter
+    static class MergeEntitiesResult {
         private final List<Entity> mergedEntities;
         private final Map<String, String> entityIdMapping;
 
@@ -2,6 +2,7 @@ package com.gdin.inspection.graphrag.v2.index.workflows;
 
 import cn.hutool.core.collection.CollectionUtil;
 import com.gdin.inspection.graphrag.v2.models.TextUnit;
+import com.gdin.inspection.graphrag.v2.util.TextUnitLinkTable;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -47,19 +48,12 @@ public class UpdateTextUnitsWorkflow {
                 entityIdMapping.size()
         );
 
-        // 1) delta: apply entity id mapping
-        List<TextUnit> deltaMapped = applyEntityIdMapping(deltaTextUnits, entityIdMapping);
-
-        // 2) delta: reassign human_readable_id
-        int oldMaxHrid = oldTextUnits.stream()
-                .filter(Objects::nonNull)
-                .map(TextUnit::getHumanReadableId)
-                .filter(Objects::nonNull)
-                .max(Integer::compareTo)
-                .orElse(-1);
-
-        int start = oldMaxHrid + 1;
-        List<TextUnit> deltaReHrid = reassignHumanReadableId(deltaMapped, start);
+        // 1) + 2) delta: apply entity id mapping & reassign human_readable_id，一趟完成
+        int oldMaxHrid = -1;
+        for (TextUnit tu : oldTextUnits) {
+            if (tu != null && tu.getHumanReadableId() != null) oldMaxHrid = Math.max(oldMaxHrid, tu.getHumanReadableId());
+        }
+        List<TextUnit> deltaReHrid = remapAndReassign(deltaTextUnits, entityIdMapping, oldMaxHrid + 1);
 
         // 3) concat old + delta
         List<TextUnit> merged = new ArrayList<>(oldTextUnits.size() + deltaReHrid.size());
@@ -71,61 +65,33 @@ public class UpdateTextUnitsWorkflow {
     /**
      * 对齐 Python:
      * delta_text_units["entity_ids"] = delta_text_units["entity_ids"].apply(lambda x: [mapping.get(i, i) for i in x] if x is not None else x)
-     */
-    private List<TextUnit> applyEntityIdMapping(List<TextUnit> deltaTextUnits, Map<String, String> entityIdMapping) {
-        if (CollectionUtil.isEmpty(deltaTextUnits) || CollectionUtil.isEmpty(entityIdMapping)) {
-            return deltaTextUnits == null ? Collections.emptyList() : deltaTextUnits;
-        }
-
-        List<TextUnit> out = new ArrayList<>(deltaTextUnits.size());
-        for (TextUnit tu : deltaTextUnits) {
-            if (tu == null) continue;
-
-            List<String> entityIds = tu.getEntityIds();
-            List<String> mapped = null;
-
-            if (entityIds != null) {
-                mapped = new ArrayList<>(entityIds.size());
-                for (String id : entityIds) {
-                    if (id == null) continue;
-                    mapped.add(entityIdMapping.getOrDefault(id, id));
-                }
-            }
-
-            out.add(TextUnit.builder()
-                    .id(tu.getId())
-                    .humanReadableId(tu.getHumanReadableId()) // 先不改，下一步统一重排
-                    .text(tu.getText())
-                    .nTokens(tu.getNTokens())
-                    .documentIds(tu.getDocumentIds())
-                    .entityIds(mapped)                         // 替换后的 entity_ids
-                    .relationshipIds(tu.getRelationshipIds())
-                    .covariateIds(tu.getCovariateIds())
-                    .build());
-        }
-        return out;
-    }
-
-    /**
-     * 对齐 Python:
      * initial_id = old_text_units["human_readable_id"].max() + 1
      * delta_text_units["human_readable_id"] = np.arange(initial_id, initial_id + len(delta_text_units))
+     * entity_ids 的替换走 TextUnitLinkTable：每个不同的 delta entity id 只查一次 mapping
      */
-    private List<TextUnit> reassignHumanReadableId(List<TextUnit> deltaTextUnits, int start) {
+    private List<TextUnit> remapAndReassign(List<TextUnit> deltaTextUnits, Map<String, String> entityIdMapping, int start) {
         if (CollectionUtil.isEmpty(deltaTextUnits)) return Collections.emptyList();
 
+        TextUnitLinkTable links = CollectionUtil.isEmpty(entityIdMapping)
+                ? null
+                : TextUnitLinkTable.forEntityIds(deltaTextUnits).remapEntityIds(entityIdMapping);
+
         List<TextUnit> out = new ArrayList<>(deltaTextUnits.size());
         int idx = 0;
-        for (TextUnit tu : deltaTextUnits) {
+        for (int i = 0; i < deltaTextUnits.size(); i++) {
+            TextUnit tu = deltaTextUnits.get(i);
             if (tu == null) continue;
 
+            List<String> entityIds = tu.getEntityIds();
+            if (links != null && entityIds != null) entityIds = links.entityIds(i);
+
             out.add(TextUnit.builder()
                     .id(tu.getId())
                     .humanReadableId(start + (idx++))
                     .text(tu.getText())
                     .nTokens(tu.getNTokens())
                     .documentIds(tu.getDocumentIds())
-                    .entityIds(tu.getEntityIds())
+                    .entityIds(entityIds)                      // 替换后的 entity_ids
                     .relationshipIds(tu.getRelationshipIds())
                     .covariateIds(tu.getCovariateIds())
                     .build());
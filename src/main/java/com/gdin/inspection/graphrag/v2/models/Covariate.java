@@ -38,6 +38,10 @@ public class Covariate {
     @JsonProperty("status")
     String status;
 
+    /**
+     * Milvus 中 start_date / end_date 为 Int64 epoch 毫秒（写入与读取见 MilvusGraphRagIndexStorage / MilvusRowMappers）。
+     * 早先的读取路径把这个数当作 epoch 秒解析，得到的时间偏大约 1000 倍；库里的数据一直按毫秒写入，不需要迁移
+     */
     @JsonProperty("start_date")
     Instant startDate;
 
@@ -2,9 +2,13 @@ package com.gdin.inspection.graphrag.v2.query.basic;
 
 import cn.hutool.core.util.IdUtil;
 import com.gdin.inspection.graphrag.assistant.ThinkAssistant;
+import com.gdin.inspection.graphrag.metrics.QueryTimings;
 import com.gdin.inspection.graphrag.service.AssistantGenerator;
 import com.gdin.inspection.graphrag.util.SseUtil;
 import com.gdin.inspection.graphrag.v2.query.SearchResult;
+import com.gdin.inspection.graphrag.v2.query.cache.AnswerReplayer;
+import com.gdin.inspection.graphrag.v2.query.cache.CachedAnswer;
+import com.gdin.inspection.graphrag.v2.query.cache.QueryAnswerCache;
 import com.gdin.inspection.graphrag.v2.query.context.BasicSearchContext;
 import com.gdin.inspection.graphrag.v2.query.context.ContextBuilderResult;
 import com.gdin.inspection.graphrag.v2.query.prompts.BasicSearchSystemPromptZh;
@@ -31,6 +35,12 @@ public class BasicSearch {
     @Resource
     private TokenUtil tokenUtil;
 
+    @Resource
+    private QueryAnswerCache queryAnswerCache;
+
+    @Resource
+    private AnswerReplayer answerReplayer;
+
     @Setter
     private String systemPromptTemplate = BasicSearchSystemPromptZh.BASIC_SEARCH_SYSTEM_PROMPT_ZH;
 
@@ -63,16 +73,13 @@ public class BasicSearch {
         Map<String, Integer> promptTokensCategories = new LinkedHashMap<>();
         Map<String, Integer> outputTokensCategories = new LinkedHashMap<>();
 
-        ContextBuilderResult contextResult = basicSearchContext.buildContext(
-                query,
-                k,
-                maxContextTokens,
-                "Sources",
-                "|",
-                "source_id",
-                "text",
-                filter
-        );
+        QueryAnswerCache.Lookup lookup = queryAnswerCache.lookup(query, cacheParamsKey(k, maxContextTokens, filter));
+        if (lookup.isHit()) return cachedResult(lookup.hit(), startNs);
+
+        ContextBuilderResult contextResult = buildContext(query, lookup.vector(), k, maxContextTokens, filter);
+        // 语义层候选：检索到的是同一批记录才复用回答，省掉生成
+        CachedAnswer confirmed = queryAnswerCache.confirm(lookup, contextResult);
+        if (confirmed != null) return cachedResult(confirmed, startNs);
 
         llmCallsCategories.put("build_context", contextResult.getLlmCalls());
         promptTokensCategories.put("build_context", contextResult.getPromptTokens());
@@ -83,10 +90,16 @@ public class BasicSearch {
 
             // LLM 调用方式按你给的范式
             String memoryId = IdUtil.getSnowflakeNextIdStr();
-            ThinkAssistant assistant = assistantGenerator.createTempAssistant(ThinkAssistant.class, searchPrompt);
-            TokenStream tokenStream = assistant.streamChat(memoryId, query);
-
-            String response = SseUtil.getResponseWithoutThink(null, tokenStream, memoryId);
+            ThinkAssistant assistant = assistantGenerator.getPooledAssistant(ThinkAssistant.class, memoryId, searchPrompt);
+            String response;
+            long llmStart = System.nanoTime();
+            try {
+                TokenStream tokenStream = assistant.streamChat(memoryId, query);
+                response = SseUtil.getResponseWithoutThink(null, tokenStream, memoryId);
+            } finally {
+                QueryTimings.addCurrent(QueryTimings.Phase.LLM, System.nanoTime() - llmStart);
+                assistantGenerator.releaseSession(memoryId);
+            }
 
             llmCallsCategories.put("response", 1);
             int promptTokens = tokenUtil.getTokenCount(searchPrompt);
@@ -100,6 +113,8 @@ public class BasicSearch {
                 cb.onContextRecords(contextResult.getContextRecords());
             }
 
+            queryAnswerCache.put(lookup, new CachedAnswer(response, contextResult, searchPrompt));
+
             double elapsed = (System.nanoTime() - startNs) / 1_000_000_000.0;
 
             // Python: output_tokens = sum(output_tokens.values())
@@ -152,31 +167,97 @@ public class BasicSearch {
             Integer maxContextTokens,
             String filter
     ) {
-        ContextBuilderResult contextResult = basicSearchContext.buildContext(
-                query,
-                k,
-                maxContextTokens,
-                "Sources",
-                "|",
-                "source_id",
-                "text",
-                filter
-        );
+        String memoryId = IdUtil.getSnowflakeNextIdStr();
+        QueryAnswerCache.Lookup lookup = queryAnswerCache.lookup(query, cacheParamsKey(k, maxContextTokens, filter));
+        if (lookup.isHit()) {
+            CachedAnswer hit = lookup.hit();
+            for (QueryCallbacks cb : callbacks) {
+                cb.onContextRecords(hit.context().getContextRecords());
+            }
+            return new BasicStreamResult(memoryId, hit.systemPrompt(), hit.context(), answerReplayer.replay(hit.response()));
+        }
+
+        ContextBuilderResult contextResult = buildContext(query, lookup.vector(), k, maxContextTokens, filter);
 
         // 对齐 Python：stream_search 在开始输出前先 callback.on_context
         for (QueryCallbacks cb : callbacks) {
             cb.onContextRecords(contextResult.getContextRecords());
         }
 
+        CachedAnswer confirmed = queryAnswerCache.confirm(lookup, contextResult);
+        if (confirmed != null) {
+            return new BasicStreamResult(memoryId, confirmed.systemPrompt(), contextResult, answerReplayer.replay(confirmed.response()));
+        }
+
         String searchPrompt = formatSystemPrompt(systemPromptTemplate, contextResult.getContextChunks(), responseType);
 
-        String memoryId = IdUtil.getSnowflakeNextIdStr();
-        ThinkAssistant assistant = assistantGenerator.createTempAssistant(ThinkAssistant.class, searchPrompt);
+        // 流式结果由调用方消费，完整回答在复用代理写入会话内存时取回写缓存，之后会话自动释放
+        ThinkAssistant assistant = assistantGenerator.getPooledAssistant(ThinkAssistant.class, memoryId, searchPrompt, answer -> {
+            if (lookup.cacheable()) {
+                queryAnswerCache.put(lookup, new CachedAnswer(SseUtil.removeThink(answer.text()).trim(), contextResult, searchPrompt));
+            }
+        });
         TokenStream tokenStream = assistant.streamChat(memoryId, query);
 
         return new BasicStreamResult(memoryId, searchPrompt, contextResult, tokenStream);
     }
 
+    /**
+     * 对齐 Python build_context 的默认参数；耗时计入 QueryTimings 的 CONTEXT 阶段（包含其中的 embedding / Milvus）
+     *
+     * @param queryVector 查询缓存已算出的问题向量，为 null 时由检索自行 embedding
+     */
+    private ContextBuilderResult buildContext(String query, float[] queryVector, Integer k, Integer maxContextTokens, String filter) {
+        long t0 = System.nanoTime();
+        try {
+            return basicSearchContext.buildContext(
+                    query,
+                    queryVector,
+                    k,
+                    maxContextTokens,
+                    "Sources",
+                    "|",
+                    "source_id",
+                    "text",
+                    filter
+            );
+        } finally {
+            QueryTimings.addCurrent(QueryTimings.Phase.CONTEXT, System.nanoTime() - t0);
+        }
+    }
+
+    /**
+     * 影响回答的参数都要进 key；提示词模板可被 setter 替换，取 hashCode 区分
+     */
+    private String cacheParamsKey(Integer k, Integer maxContextTokens, String filter) {
+        return "basic|" + k + "|" + maxContextTokens + "|" + filter + "|" + responseType + "|" + systemPromptTemplate.hashCode();
+    }
+
+    /**
+     * 命中缓存：不检索、不调 LLM，上下文原样回调，token 统计记 0
+     */
+    private SearchResult cachedResult(CachedAnswer hit, long startNs) {
+        ContextBuilderResult context = hit.context();
+        for (QueryCallbacks cb : callbacks) {
+            cb.onContextRecords(context.getContextRecords());
+        }
+        Map<String, Integer> zero = new LinkedHashMap<>();
+        zero.put("build_context", 0);
+        zero.put("response", 0);
+        return new SearchResult(
+                hit.response(),
+                context.getContextRecords(),
+                context.getContextChunks(),
+                (System.nanoTime() - startNs) / 1_000_000_000.0,
+                0,
+                0,
+                0,
+                new LinkedHashMap<>(zero),
+                new LinkedHashMap<>(zero),
+                new LinkedHashMap<>(zero)
+        );
+    }
+
     private String formatSystemPrompt(String template, String contextData, String responseType) {
         // 对齐 Python str.format 的效果（这里只用到两个占位符）
         return template
@@ -0,0 +1,85 @@
+package com.gdin.inspection.graphrag.v2.query.cache;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.TokenStream;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 把缓存的回答重新包装成 TokenStream，命中缓存时 streamSearch 的调用方（SseUtil 推送等）无需区分来源。
+ * 实现上用一个无记忆的 AiServices 代理，底层模型把收到的用户消息原样分片吐回去。
+ */
+@Component
+public class AnswerReplayer {
+
+    /**
+     * 不带 @MemoryId，AiServices 不会为回放保留任何会话内存
+     */
+    public interface ReplayAssistant {
+        TokenStream replay(@dev.langchain4j.service.UserMessage String answer);
+    }
+
+    @Resource
+    private GraphProperties graphProperties;
+
+    private ReplayAssistant assistant;
+
+    @PostConstruct
+    public void init() {
+        int chunkChars = graphProperties.getQuery().getCache().getReplayChunkChars();
+        assistant = AiServices.builder(ReplayAssistant.class)
+                .streamingChatModel(new ReplayStreamingChatModel(chunkChars))
+                .build();
+    }
+
+    public TokenStream replay(String answer) {
+        return assistant.replay(answer);
+    }
+
+    /**
+     * 在调用线程上同步吐完：回放没有网络等待，没必要再占一个线程
+     */
+    static class ReplayStreamingChatModel implements StreamingChatModel {
+
+        private final int chunkChars;
+
+        ReplayStreamingChatModel(int chunkChars) {
+            this.chunkChars = Math.max(1, chunkChars);
+        }
+
+        @Override
+        public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            String text = lastUserText(chatRequest.messages());
+            try {
+                for (int i = 0; i < text.length(); i += chunkChars) {
+                    handler.onPartialResponse(text.substring(i, Math.min(text.length(), i + chunkChars)));
+                }
+                handler.onCompleteResponse(ChatResponse.builder()
+                        .aiMessage(AiMessage.from(text))
+                        .finishReason(FinishReason.STOP)
+                        .build());
+            } catch (Exception e) {
+                handler.onError(e);
+            }
+        }
+
+        private static String lastUserText(List<ChatMessage> messages) {
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                if (messages.get(i) instanceof UserMessage user && user.hasSingleText()) return user.singleText();
+            }
+            return "";
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.gdin.inspection.graphrag.v2.query.cache;
+
+import com.gdin.inspection.graphrag.v2.query.context.ContextBuilderResult;
+
+/**
+ * 缓存的一次完整回答：回答正文（已去掉 think 段）、当时的检索上下文和系统提示。
+ * 命中时上下文原样交给 callbacks.onContextRecords，调用方看到的与未命中时一致。
+ */
+public record CachedAnswer(
+        String response,
+        ContextBuilderResult context,
+        String systemPrompt
+) {}
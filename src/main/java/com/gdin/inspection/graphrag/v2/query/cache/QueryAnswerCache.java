@@ -0,0 +1,197 @@
+package com.gdin.inspection.graphrag.v2.query.cache;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.util.StrUtil;
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
+import com.gdin.inspection.graphrag.v2.query.context.ContextBuilderResult;
+import com.gdin.inspection.graphrag.v2.query.snapshot.IndexSnapshotHolder;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 查询回答的两级缓存：
+ * - 精确层：规范化问题（NFKC、小写、折叠空白、去掉句末标点）+ 检索参数 + 索引版本，LRU
+ * - 语义层（默认关闭）：问题向量与已缓存问题的余弦相似度不低于阈值、且检索参数一致的回答只作为候选，
+ *   调用方照常检索后用 {@link #confirm} 比对两次检索到的上下文 id，一致才复用（省掉的是大模型生成）。
+ *   相近问法检索到的内容可能不同，只看问题相似度会把别的问题的回答拿来用
+ * 语义层算出的问题向量放在 {@link Lookup#vector()} 里，调用方检索时直接复用，不再 embedding 一次。
+ * 索引版本取自 IndexSnapshotHolder，PersistIndexWorkflow 刷新主索引后版本变化，两层在下一次访问时整体清空。
+ * 生成过程中索引发生变化的回答不会写入（lookup 时的版本与写入时不一致）。
+ */
+@Slf4j
+@Component
+public class QueryAnswerCache {
+
+    public static final String TIER_EXACT = "exact";
+    public static final String TIER_SEMANTIC = "semantic";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCT = Pattern.compile("[\\s?？。.!！~～,，;；]+$");
+
+    @Resource
+    private GraphProperties graphProperties;
+
+    @Resource
+    private IndexSnapshotHolder indexSnapshotHolder;
+
+    @Resource
+    private EmbeddingModel embeddingModel;
+
+    @Resource
+    private GraphRagMetrics graphRagMetrics;
+
+    private GraphProperties.Query.Cache config;
+    private LRUCache<String, CachedAnswer> exact;
+    private SemanticAnswerIndex semantic;
+    private volatile long cachedVersion = -1;
+
+    @PostConstruct
+    public void init() {
+        config = graphProperties.getQuery().getCache();
+        exact = CacheUtil.newLRUCache(config.getExactCapacity(), ttlMillis());
+        semantic = new SemanticAnswerIndex(config.getSemanticCapacity(), config.getSimilarityThreshold());
+    }
+
+    /**
+     * 一次查找的结果，同时保存写回所需的 key 与问题向量（未归一化，检索与写回都复用，不必再算一次 embedding）
+     *
+     * @param hit       精确层命中，可直接使用
+     * @param candidate 语义层候选，需经 {@link #confirm} 校验上下文后才能使用
+     */
+    public record Lookup(String exactKey, String paramsKey, long version, float[] vector, CachedAnswer hit, CachedAnswer candidate) {
+
+        public static final Lookup DISABLED = new Lookup(null, null, -1, null, null, null);
+
+        public boolean isHit() {
+            return hit != null;
+        }
+
+        public boolean cacheable() {
+            return exactKey != null;
+        }
+    }
+
+    /**
+     * @param paramsKey 影响回答的检索参数（k、上下文长度、过滤条件、提示词等）拼成的 key，由调用方决定
+     */
+    public Lookup lookup(String query, String paramsKey) {
+        if (!Boolean.TRUE.equals(config.getEnabled()) || StrUtil.isBlank(query)) return Lookup.DISABLED;
+        long version = syncVersion();
+        String exactKey = version + "|" + paramsKey + "|" + normalize(query);
+
+        CachedAnswer hit = exact.get(exactKey);
+        graphRagMetrics.countQueryCache(TIER_EXACT, hit != null);
+        if (hit != null) return new Lookup(exactKey, paramsKey, version, null, hit, null);
+
+        if (!Boolean.TRUE.equals(config.getSemanticEnabled())) return new Lookup(exactKey, paramsKey, version, null, null, null);
+
+        float[] vector = embed(query);
+        if (vector == null) return new Lookup(exactKey, paramsKey, version, null, null, null);
+        CachedAnswer candidate = semantic.find(SemanticAnswerIndex.normalize(vector), paramsKey, System.currentTimeMillis());
+        if (candidate == null) graphRagMetrics.countQueryCache(TIER_SEMANTIC, false);
+        return new Lookup(exactKey, paramsKey, version, vector, null, candidate);
+    }
+
+    /**
+     * 校验语义层候选：本次检索到的上下文与候选回答当时的上下文是同一批记录（各表 id 列一致）才复用。
+     * 复用时回填精确层，同一问法的后续请求不用再算 embedding 和检索。
+     *
+     * @return 可复用的回答；没有候选或上下文不一致时返回 null，调用方用本次上下文正常生成
+     */
+    public CachedAnswer confirm(Lookup lookup, ContextBuilderResult context) {
+        if (lookup == null || lookup.candidate() == null || context == null) return null;
+        boolean same = contextIds(lookup.candidate().context()).equals(contextIds(context));
+        graphRagMetrics.countQueryCache(TIER_SEMANTIC, same);
+        if (!same) return null;
+        if (syncVersion() == lookup.version()) exact.put(lookup.exactKey(), lookup.candidate());
+        return lookup.candidate();
+    }
+
+    public void put(Lookup lookup, CachedAnswer answer) {
+        if (lookup == null || !lookup.cacheable() || answer == null || StrUtil.isBlank(answer.response())) return;
+        if (syncVersion() != lookup.version()) {
+            log.debug("生成期间索引已刷新，回答不写入缓存");
+            return;
+        }
+        exact.put(lookup.exactKey(), answer);
+        if (lookup.vector() != null) {
+            long ttl = ttlMillis();
+            semantic.add(SemanticAnswerIndex.normalize(lookup.vector()), lookup.paramsKey(), answer, ttl > 0 ? System.currentTimeMillis() + ttl : 0);
+        }
+    }
+
+    public void invalidateAll() {
+        exact.clear();
+        semantic.clear();
+    }
+
+    /**
+     * 索引版本变化时清空两层，返回当前版本
+     */
+    private long syncVersion() {
+        long version = indexSnapshotHolder.getVersion();
+        if (version != cachedVersion) {
+            synchronized (this) {
+                if (version != cachedVersion) {
+                    if (cachedVersion >= 0) log.info("索引版本 {} -> {}，清空查询回答缓存", cachedVersion, version);
+                    invalidateAll();
+                    cachedVersion = version;
+                }
+            }
+        }
+        return version;
+    }
+
+    /**
+     * 各表 id 列（第一列）的取值集合，用来判断两次检索是否拿到同一批记录
+     */
+    static Map<String, Set<String>> contextIds(ContextBuilderResult context) {
+        Map<String, Set<String>> ids = new TreeMap<>();
+        if (context == null || context.getContextRecords() == null) return ids;
+        context.getContextRecords().forEach((name, table) -> {
+            Set<String> tableIds = new TreeSet<>();
+            if (table != null) {
+                for (List<String> row : table.getRows()) {
+                    if (!row.isEmpty() && row.get(0) != null) tableIds.add(row.get(0));
+                }
+            }
+            ids.put(name, tableIds);
+        });
+        return ids;
+    }
+
+    private float[] embed(String query) {
+        try {
+            return embeddingModel.embed(query).content().vector();
+        } catch (Exception e) {
+            log.warn("查询缓存向量化失败，跳过语义层: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private long ttlMillis() {
+        Integer minutes = config.getTtlMinutes();
+        return minutes == null || minutes <= 0 ? 0 : TimeUnit.MINUTES.toMillis(minutes);
+    }
+
+    static String normalize(String query) {
+        String s = Normalizer.normalize(query, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        s = WHITESPACE.matcher(s.trim()).replaceAll(" ");
+        return TRAILING_PUNCT.matcher(s).replaceAll("");
+    }
+}
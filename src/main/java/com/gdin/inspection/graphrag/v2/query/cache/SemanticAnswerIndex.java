@@ -0,0 +1,89 @@
+package com.gdin.inspection.graphrag.v2.query.cache;
+
+/**
+ * 语义层：定长环形数组存 (问题向量, 参数 key, 回答)，查询时线性扫描取余弦相似度最高且过阈值的一条。
+ * 容量在千级、向量 1024 维时一次扫描在毫秒以内，比起一次检索 + 生成可以忽略，所以不引入 ANN 索引。
+ * 向量写入时已 L2 归一化，相似度即点积。
+ */
+class SemanticAnswerIndex {
+
+    private final int capacity;
+    private final double threshold;
+
+    private final float[][] vectors;
+    private final String[] paramsKeys;
+    private final CachedAnswer[] answers;
+    private final long[] expireAt;
+    private int next;
+    private int size;
+
+    SemanticAnswerIndex(int capacity, double threshold) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity 必须大于 0");
+        this.capacity = capacity;
+        this.threshold = threshold;
+        this.vectors = new float[capacity][];
+        this.paramsKeys = new String[capacity];
+        this.answers = new CachedAnswer[capacity];
+        this.expireAt = new long[capacity];
+    }
+
+    /**
+     * @param vector 已归一化的问题向量
+     * @return 相似度最高且不低于阈值、参数一致、未过期的回答；没有则返回 null
+     */
+    synchronized CachedAnswer find(float[] vector, String paramsKey, long nowMillis) {
+        int best = -1;
+        double bestScore = threshold;
+        for (int i = 0; i < size; i++) {
+            if (expireAt[i] > 0 && expireAt[i] <= nowMillis) continue;
+            if (!paramsKey.equals(paramsKeys[i])) continue;
+            float[] v = vectors[i];
+            if (v.length != vector.length) continue;
+            double dot = 0;
+            for (int d = 0; d < v.length; d++) dot += v[d] * vector[d];
+            if (dot >= bestScore) {
+                bestScore = dot;
+                best = i;
+            }
+        }
+        return best < 0 ? null : answers[best];
+    }
+
+    /**
+     * 满了之后覆盖最早写入的一条
+     *
+     * @param expireAtMillis 0 表示不过期
+     */
+    synchronized void add(float[] vector, String paramsKey, CachedAnswer answer, long expireAtMillis) {
+        vectors[next] = vector;
+        paramsKeys[next] = paramsKey;
+        answers[next] = answer;
+        expireAt[next] = expireAtMillis;
+        next = (next + 1) % capacity;
+        if (size < capacity) size++;
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < capacity; i++) {
+            vectors[i] = null;
+            paramsKeys[i] = null;
+            answers[i] = null;
+        }
+        next = 0;
+        size = 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float x : vector) norm += x * x;
+        if (norm == 0) return vector.clone();
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        float[] out = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) out[i] = vector[i] * inv;
+        return out;
+    }
+}
@@ -1,11 +1,12 @@
 package com.gdin.inspection.graphrag.v2.query.context;
 
-import com.alibaba.fastjson2.JSON;
-import com.alibaba.fastjson2.JSONArray;
-import com.alibaba.fastjson2.JSONObject;
 import com.gdin.inspection.graphrag.config.properties.GraphProperties;
 import com.gdin.inspection.graphrag.req.milvus.MilvusSemanticSearchReq;
+import com.gdin.inspection.graphrag.search.result.MilvusHit;
+import com.gdin.inspection.graphrag.search.result.MilvusRow;
 import com.gdin.inspection.graphrag.service.MilvusSearchService;
+import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
+import com.gdin.inspection.graphrag.v2.storage.IndexScopeResolver;
 import com.gdin.inspection.graphrag.v2.util.CsvUtil;
 import com.gdin.inspection.graphrag.v2.util.TokenUtil;
 
@@ -28,6 +29,9 @@ public class BasicSearchContext {
     @Resource
     private TokenUtil tokenUtil;
 
+    @Resource
+    private IndexScopeResolver indexScopeResolver;
+
     /**
      * 对齐 Python build_context 的参数默认值
      */
@@ -40,6 +44,23 @@ public class BasicSearchContext {
             String textIdCol,
             String textCol,
             String filter
+    ) {
+        return buildContext(query, null, k, maxContextTokens, contextName, columnDelimiter, textIdCol, textCol, filter);
+    }
+
+    /**
+     * @param queryVector 调用方已算好的问题向量（如查询缓存查找时算过的），为 null 时由检索自行 embedding
+     */
+    public ContextBuilderResult buildContext(
+            String query,
+            float[] queryVector,
+            Integer k,
+            Integer maxContextTokens,
+            String contextName,
+            String columnDelimiter,
+            String textIdCol,
+            String textCol,
+            String filter
     ) {
         int topK = (k == null ? 10 : k);
         int maxTokens = (maxContextTokens == null ? 12_000 : maxContextTokens);
@@ -56,27 +77,25 @@ public class BasicSearchContext {
             // 只拿 basic search 必需字段：metadata/doc_id, graph_main/human_readable_id, page_content
             List<String> outputFields = List.of("metadata", "graph_main", "page_content");
 
-            String finalFilter = filter==null ? "extra[\"graph\"]==1" : "extra[\"graph\"]==1 and " + filter;
-            String json = milvusSearchService.semantic(MilvusSemanticSearchReq.builder()
+            String scopeFilter = indexScopeResolver.textUnitFilter(GraphRagIndexStorage.SCOPE_MAIN);
+            String finalFilter = filter==null ? scopeFilter : scopeFilter + " and " + filter;
+            List<MilvusHit> hits = milvusSearchService.semanticHits(MilvusSemanticSearchReq.builder()
                     .collectionName(collectionName)
                     .query(query)
+                    .queryVector(queryVector)
                     .filter(finalFilter)
                     .topK(topK)
                     .outputFields(outputFields)
                     .build());
 
-            JSONArray results = JSON.parseArray(json);
-            for (int i = 0; i < results.size(); i++) {
-                JSONObject result = results.getJSONObject(i);
-                JSONObject entity = result.getJSONObject("entity");
-                if (entity == null) continue;
+            for (MilvusHit hit : hits) {
+                MilvusRow entity = hit.row();
 
-                JSONObject graphMain = entity.getJSONObject("graph_main");
-                if (graphMain == null) {
+                if (!entity.has("graph_main")) {
                     // 对齐 Python：缺 mapping 会 KeyError，这里直接 fail-fast
                     throw new IllegalStateException("Missing graph_main in content collection entity");
                 }
-                Integer humanReadableId = graphMain.getInteger("human_readable_id");
+                Integer humanReadableId = entity.getJsonInteger("graph_main", "human_readable_id");
                 if (humanReadableId == null || humanReadableId < 0) {
                     throw new IllegalStateException("Missing or invalid graph_main.human_readable_id for basic search context");
                 }
@@ -0,0 +1,95 @@
+package com.gdin.inspection.graphrag.v2.query.drift;
+
+import cn.hutool.core.util.StrUtil;
+import com.gdin.inspection.graphrag.v2.models.CommunityReport;
+import com.gdin.inspection.graphrag.v2.query.snapshot.IndexSnapshot;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * DRIFT primer 的报告召回：问题向量与社区报告（title + summary）向量的余弦相似度取 topK。
+ * 报告向量按快照懒计算一次并缓存，快照被替换后下一次查询重新计算；
+ * 报告数量在千级，全量点积比再走一次 Milvus 更省事，也不依赖报告 collection 是否建了向量字段。
+ */
+@Slf4j
+@Component
+public class CommunityReportRanker {
+
+    private static final int EMBED_BATCH_SIZE = 32;
+
+    @Resource
+    private EmbeddingModel embeddingModel;
+
+    private volatile ReportVectors cached;
+
+    private record ReportVectors(IndexSnapshot snapshot, List<CommunityReport> reports, float[][] vectors) {}
+
+    public List<CommunityReport> topReports(IndexSnapshot snapshot, String query, int k) {
+        ReportVectors rv = vectorsOf(snapshot);
+        if (rv.reports().isEmpty() || k <= 0) return List.of();
+
+        float[] q = normalize(embeddingModel.embed(query).content().vector());
+        Integer[] order = new Integer[rv.reports().size()];
+        double[] scores = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            scores[i] = dot(q, rv.vectors()[i]);
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        List<CommunityReport> out = new ArrayList<>(Math.min(k, order.length));
+        for (int i = 0; i < order.length && out.size() < k; i++) out.add(rv.reports().get(order[i]));
+        return out;
+    }
+
+    private ReportVectors vectorsOf(IndexSnapshot snapshot) {
+        ReportVectors rv = cached;
+        if (rv != null && rv.snapshot() == snapshot) return rv;
+        synchronized (this) {
+            rv = cached;
+            if (rv != null && rv.snapshot() == snapshot) return rv;
+            long start = System.currentTimeMillis();
+            List<CommunityReport> reports = new ArrayList<>();
+            List<TextSegment> segments = new ArrayList<>();
+            for (CommunityReport r : snapshot.reports()) {
+                String text = StrUtil.nullToEmpty(r.getTitle()) + "\n" + StrUtil.nullToEmpty(r.getSummary());
+                if (StrUtil.isBlank(text)) continue;
+                reports.add(r);
+                segments.add(TextSegment.from(text));
+            }
+            float[][] vectors = new float[reports.size()][];
+            for (int from = 0; from < segments.size(); from += EMBED_BATCH_SIZE) {
+                int to = Math.min(segments.size(), from + EMBED_BATCH_SIZE);
+                List<Embedding> embeddings = embeddingModel.embedAll(segments.subList(from, to)).content();
+                for (int i = from; i < to; i++) vectors[i] = normalize(embeddings.get(i - from).vector());
+            }
+            rv = new ReportVectors(snapshot, reports, vectors);
+            cached = rv;
+            log.info("DRIFT 社区报告向量已计算: reports={}, 耗时={}ms", reports.size(), System.currentTimeMillis() - start);
+            return rv;
+        }
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) return -1;
+        double s = 0;
+        for (int i = 0; i < a.length; i++) s += a[i] * b[i];
+        return s;
+    }
+
+    private static float[] normalize(float[] v) {
+        double norm = 0;
+        for (float x : v) norm += x * x;
+        if (norm == 0) return v;
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        float[] out = new float[v.length];
+        for (int i = 0; i < v.length; i++) out[i] = v[i] * inv;
+        return out;
+    }
+}
@@ -0,0 +1,29 @@
+package com.gdin.inspection.graphrag.v2.query.drift;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 对齐 Python DriftAction：一个待回答（或已回答）的问题节点。
+ * depth=0 为 primer 的结果，之后每层由上一层的 follow_up_queries 展开；priority 取父节点的 score，决定展开顺序
+ */
+@Data
+public class DriftAction {
+
+    private final String query;
+    private final int depth;
+    private final double priority;
+
+    private String answer;
+    private Double score;
+    private List<String> followUps = List.of();
+
+    public boolean isAnswered() {
+        return answer != null;
+    }
+
+    public double scoreOrZero() {
+        return score == null ? 0 : score;
+    }
+}
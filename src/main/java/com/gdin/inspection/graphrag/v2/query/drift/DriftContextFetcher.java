@@ -0,0 +1,228 @@
+package com.gdin.inspection.graphrag.v2.query.drift;
+
+import cn.hutool.core.util.StrUtil;
+import com.gdin.inspection.graphrag.v2.models.Entity;
+import com.gdin.inspection.graphrag.v2.models.Relationship;
+import com.gdin.inspection.graphrag.v2.query.context.BasicSearchContext;
+import com.gdin.inspection.graphrag.v2.query.context.ContextBuilderResult;
+import com.gdin.inspection.graphrag.v2.query.context.TableRecords;
+import com.gdin.inspection.graphrag.v2.query.snapshot.IndexSnapshot;
+import com.gdin.inspection.graphrag.v2.util.CsvUtil;
+import com.gdin.inspection.graphrag.v2.util.TokenUtil;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次 DRIFT 检索内的局部上下文构建，对齐 Python local search 的 Entities / Relationships / Sources 三段：
+ * - 实体：问题中出现的实体标题（按 degree 取前若干个），来自内存快照
+ * - 关系：这些实体相连的关系（按 weight 排序去重），来自内存快照
+ * - 原文：BasicSearchContext 的向量检索
+ * 不同分支的后续问题常常检索到同一批原文，原文按文本单元 id 跨分支去重：已被其它分支用过的文本单元不再放进上下文，
+ * 名额和 token 留给新内容（重复的后续问题本身已由 DriftSearch 按规范化问题去重，不会到这里）。
+ * 所有分支用到的行会汇总，检索结束后作为 SearchResult 的 contextData。
+ * 每次检索新建一个实例，不跨请求共享。
+ */
+class DriftContextFetcher {
+
+    private static final String DELIM = "|";
+    private static final List<String> SOURCE_COLS = List.of("source_id", "text");
+
+    private final BasicSearchContext basicSearchContext;
+    private final IndexSnapshot snapshot;
+    private final TokenUtil tokenUtil;
+    private final String filter;
+    private final int textUnits;
+    private final int maxContextTokens;
+    private final int maxEntities;
+
+    // 标题长度 >= 2 的实体，按 degree 降序；单字标题在中文里误匹配太多
+    private final List<Entity> candidates;
+
+    // 已放进某个分支上下文的文本单元 id
+    private final Set<String> claimedSourceIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong dedupedSources = new AtomicLong();
+    private final Map<String, List<String>> usedEntities = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, List<String>> usedRelationships = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, List<String>> usedSources = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    DriftContextFetcher(
+            BasicSearchContext basicSearchContext,
+            IndexSnapshot snapshot,
+            TokenUtil tokenUtil,
+            String filter,
+            int textUnits,
+            int maxContextTokens,
+            int maxEntities
+    ) {
+        this.basicSearchContext = basicSearchContext;
+        this.snapshot = snapshot;
+        this.tokenUtil = tokenUtil;
+        this.filter = filter;
+        this.textUnits = textUnits;
+        this.maxContextTokens = maxContextTokens;
+        this.maxEntities = maxEntities;
+
+        List<Entity> list = new ArrayList<>();
+        for (Entity e : snapshot.entities()) {
+            if (e.getTitle() != null && e.getTitle().length() >= 2) list.add(e);
+        }
+        list.sort(Comparator.comparingInt((Entity e) -> e.getDegree() == null ? 0 : e.getDegree()).reversed());
+        this.candidates = list;
+    }
+
+    ContextBuilderResult build(String query) {
+        // 实体 / 关系最多占一半 token，剩余留给原文
+        int graphBudget = maxContextTokens / 2;
+
+        List<Entity> entities = matchEntities(query);
+        List<List<String>> entityRows = new ArrayList<>();
+        for (Entity e : entities) {
+            entityRows.add(List.of(
+                    String.valueOf(e.getHumanReadableId()),
+                    e.getTitle(),
+                    StrUtil.nullToEmpty(e.getDescription()),
+                    String.valueOf(e.getDegree() == null ? 0 : e.getDegree())));
+        }
+        List<String> entityCols = List.of("id", "entity", "description", "number of relationships");
+        entityRows = truncate(entityCols, entityRows, graphBudget);
+        int used = tokens(entityCols, entityRows);
+
+        List<List<String>> relRows = new ArrayList<>();
+        for (Relationship r : relationshipsOf(entities)) {
+            relRows.add(List.of(
+                    String.valueOf(r.getHumanReadableId()),
+                    StrUtil.nullToEmpty(r.getSource()),
+                    StrUtil.nullToEmpty(r.getTarget()),
+                    StrUtil.nullToEmpty(r.getDescription()),
+                    String.valueOf(r.getWeight() == null ? 1.0 : r.getWeight())));
+        }
+        List<String> relCols = List.of("id", "source", "target", "description", "weight");
+        relRows = truncate(relCols, relRows, graphBudget - used);
+        used += tokens(relCols, relRows);
+
+        List<List<String>> sourceRows = fetchSources(query, Math.max(0, maxContextTokens - used));
+
+        remember(usedEntities, entityRows);
+        remember(usedRelationships, relRows);
+        remember(usedSources, sourceRows);
+
+        StringBuilder sb = new StringBuilder();
+        if (!entityRows.isEmpty()) sb.append("-----Entities-----\n").append(csv(entityCols, entityRows)).append("\n");
+        if (!relRows.isEmpty()) sb.append("-----Relationships-----\n").append(csv(relCols, relRows)).append("\n");
+        sb.append("-----Sources-----\n").append(csv(SOURCE_COLS, sourceRows));
+
+        Map<String, TableRecords> records = new LinkedHashMap<>();
+        records.put("entities", new TableRecords(entityCols, entityRows));
+        records.put("relationships", new TableRecords(relCols, relRows));
+        records.put("sources", new TableRecords(SOURCE_COLS, sourceRows));
+        return new ContextBuilderResult(sb.toString(), records);
+    }
+
+    /**
+     * 所有分支用到的实体 / 关系 / 原文（按 id 去重，保持首次出现顺序）
+     */
+    Map<String, TableRecords> collected() {
+        Map<String, TableRecords> out = new LinkedHashMap<>();
+        out.put("entities", snapshotOf(List.of("id", "entity", "description", "number of relationships"), usedEntities));
+        out.put("relationships", snapshotOf(List.of("id", "source", "target", "description", "weight"), usedRelationships));
+        out.put("sources", snapshotOf(SOURCE_COLS, usedSources));
+        return out;
+    }
+
+    /**
+     * 因已被其它分支用过而跳过的原文行数
+     */
+    long dedupedSourceCount() {
+        return dedupedSources.get();
+    }
+
+    private List<Entity> matchEntities(String query) {
+        List<Entity> out = new ArrayList<>();
+        if (StrUtil.isBlank(query)) return out;
+        for (Entity e : candidates) {
+            if (out.size() >= maxEntities) break;
+            if (query.contains(e.getTitle())) out.add(e);
+        }
+        return out;
+    }
+
+    private List<Relationship> relationshipsOf(List<Entity> entities) {
+        Map<String, Relationship> byId = new LinkedHashMap<>();
+        for (Entity e : entities) {
+            for (Relationship r : snapshot.relationshipsOf(e.getId())) byId.putIfAbsent(r.getId(), r);
+        }
+        List<Relationship> out = new ArrayList<>(byId.values());
+        out.sort(Comparator.comparingDouble((Relationship r) -> r.getWeight() == null ? 0 : r.getWeight()).reversed());
+        return out;
+    }
+
+    /**
+     * 多取一倍候选补足被去重掉的部分，跳过已被其它分支登记的文本单元后再按 token 截断（所以检索时不截断）；
+     * 并发分支同时取到同一文本单元时只有先登记的一方保留
+     */
+    private List<List<String>> fetchSources(String query, int maxTokens) {
+        ContextBuilderResult result = basicSearchContext.buildContext(query, textUnits * 2, Integer.MAX_VALUE, "Sources", DELIM, "source_id", "text", filter);
+        TableRecords table = result.getContextRecords().get("Sources");
+        List<List<String>> out = new ArrayList<>();
+        if (table == null) return out;
+        int current = tokenUtil.getTokenCount(String.join(DELIM, SOURCE_COLS) + "\n");
+        for (List<String> row : table.getRows()) {
+            if (out.size() >= textUnits) break;
+            if (claimedSourceIds.contains(row.get(0))) {
+                dedupedSources.incrementAndGet();
+                continue;
+            }
+            int t = tokenUtil.getTokenCount(String.join(DELIM, row) + "\n");
+            if (current + t > maxTokens) break;
+            if (!claimedSourceIds.add(row.get(0))) {
+                dedupedSources.incrementAndGet();
+                continue;
+            }
+            current += t;
+            out.add(row);
+        }
+        return out;
+    }
+
+    private List<List<String>> truncate(List<String> cols, List<List<String>> rows, int maxTokens) {
+        int current = tokenUtil.getTokenCount(String.join(DELIM, cols) + "\n");
+        List<List<String>> out = new ArrayList<>();
+        for (List<String> row : rows) {
+            int t = tokenUtil.getTokenCount(String.join(DELIM, row) + "\n");
+            if (current + t > maxTokens) break;
+            current += t;
+            out.add(row);
+        }
+        return out;
+    }
+
+    private int tokens(List<String> cols, List<List<String>> rows) {
+        return rows.isEmpty() ? 0 : tokenUtil.getTokenCount(csv(cols, rows));
+    }
+
+    private static String csv(List<String> cols, List<List<String>> rows) {
+        List<Map<String, Object>> maps = new ArrayList<>(rows.size());
+        for (List<String> row : rows) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            for (int i = 0; i < cols.size(); i++) m.put(cols.get(i), row.get(i));
+            maps.add(m);
+        }
+        return CsvUtil.toCsv(maps, DELIM, '\\', false, cols);
+    }
+
+    private static void remember(Map<String, List<String>> used, List<List<String>> rows) {
+        for (List<String> row : rows) used.putIfAbsent(row.get(0), row);
+    }
+
+    private static TableRecords snapshotOf(List<String> cols, Map<String, List<String>> used) {
+        synchronized (used) {
+            return new TableRecords(cols, new ArrayList<>(used.values()));
+        }
+    }
+
+    static String key(String query) {
+        return StrUtil.trim(query).replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,371 @@
+package com.gdin.inspection.graphrag.v2.query.drift;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.gdin.inspection.graphrag.assistant.ThinkAssistant;
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.metrics.LlmCallTracker;
+import com.gdin.inspection.graphrag.service.AssistantGenerator;
+import com.gdin.inspection.graphrag.util.SseUtil;
+import com.gdin.inspection.graphrag.v2.models.CommunityReport;
+import com.gdin.inspection.graphrag.v2.query.SearchResult;
+import com.gdin.inspection.graphrag.v2.query.callbacks.QueryCallbacks;
+import com.gdin.inspection.graphrag.v2.query.context.BasicSearchContext;
+import com.gdin.inspection.graphrag.v2.query.context.ContextBuilderResult;
+import com.gdin.inspection.graphrag.v2.query.context.TableRecords;
+import com.gdin.inspection.graphrag.v2.query.prompts.DriftSearchPromptsZh;
+import com.gdin.inspection.graphrag.v2.query.snapshot.IndexSnapshot;
+import com.gdin.inspection.graphrag.v2.query.snapshot.IndexSnapshotHolder;
+import com.gdin.inspection.graphrag.v2.util.TokenUtil;
+import dev.langchain4j.service.TokenStream;
+import jakarta.annotation.Resource;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 对齐 Python DRIFTSearch：
+ * 1. primer：按问题召回社区报告，分成若干组并发让 LLM 给出初步回答、分数与后续问题
+ * 2. 展开：按父节点分数从高到低，每层取前 followUpsPerDepth 个后续问题，并发用局部上下文回答，回答里再产生下一层问题
+ * 3. reduce：把 primer 与各层回答按分数排序后合并为最终回答，reduce 的输出通过 onLlmNewToken 流式回调
+ * token 预算按估算值累计（prompt + 输出），发起调用前检查；并发在途的调用可能让总量略超预算，超出量不超过一层在途调用的输出。
+ * 并发调用派发到共享线程池 driftExecutor（见 QueryExecutorConfig），各请求合计的在途调用数受其线程数限制。
+ * 进度通过 QueryCallbacks 推送：每一轮（primer / 每层展开）对应一次 onMapResponseStart / onMapResponseEnd。
+ */
+@Slf4j
+@Service
+public class DriftSearch {
+
+    private static final String COMPONENT_PRIMER = "drift_primer";
+    private static final String COMPONENT_ACTION = "drift_action";
+    private static final String COMPONENT_REDUCE = "drift_reduce";
+
+    @Resource
+    private AssistantGenerator assistantGenerator;
+
+    @Resource
+    private LlmCallTracker llmCallTracker;
+
+    @Resource
+    private TokenUtil tokenUtil;
+
+    @Resource
+    private GraphProperties graphProperties;
+
+    @Resource
+    private IndexSnapshotHolder indexSnapshotHolder;
+
+    @Resource
+    private BasicSearchContext basicSearchContext;
+
+    @Resource
+    private CommunityReportRanker communityReportRanker;
+
+    @Resource
+    @Qualifier("driftExecutor")
+    private ExecutorService driftExecutor;
+
+    @Setter
+    private String responseType = "multiple paragraphs";
+
+    private final List<QueryCallbacks> callbacks = new ArrayList<>();
+
+    public void addCallback(QueryCallbacks callback) {
+        if (callback != null) callbacks.add(callback);
+    }
+
+    public void clearCallbacks() {
+        callbacks.clear();
+    }
+
+    public SearchResult search(String query, String filter) {
+        long startNs = System.nanoTime();
+        GraphProperties.Query.Drift cfg = graphProperties.getQuery().getDrift();
+        IndexSnapshot snapshot = indexSnapshotHolder.get();
+        Usage usage = new Usage(cfg.getTokenBudget());
+        DriftContextFetcher fetcher = new DriftContextFetcher(
+                basicSearchContext, snapshot, tokenUtil, filter,
+                cfg.getLocalTextUnits(), cfg.getLocalMaxContextTokens(), cfg.getLocalEntities());
+
+        String reduceContext = "";
+        List<CommunityReport> reports = List.of();
+        try {
+            // 1. primer
+            reports = communityReportRanker.topReports(snapshot, query, cfg.getPrimerReports());
+            List<String> foldContexts = new ArrayList<>();
+            for (List<CommunityReport> fold : split(reports, Math.max(1, cfg.getPrimerFolds()))) {
+                foldContexts.add(formatReports(fold));
+            }
+            for (QueryCallbacks cb : callbacks) cb.onMapResponseStart(foldContexts);
+            List<DriftAction> answered = runAll(driftExecutor, foldContexts, ctx -> prime(query, ctx, usage));
+            for (QueryCallbacks cb : callbacks) cb.onMapResponseEnd(toResults(answered));
+
+            // 2. 逐层展开后续问题
+            Set<String> seen = ConcurrentHashMap.newKeySet();
+            seen.add(DriftContextFetcher.key(query));
+            List<DriftAction> frontier = nextActions(answered, seen, 1, cfg.getFollowUpsPerDepth());
+            for (int depth = 1; depth <= cfg.getDepth() && !frontier.isEmpty(); depth++) {
+                if (usage.exhausted()) {
+                    log.info("DRIFT token 预算已用尽({}), 停止在第 {} 层", usage.total(), depth);
+                    break;
+                }
+                for (QueryCallbacks cb : callbacks) cb.onMapResponseStart(frontier.stream().map(DriftAction::getQuery).toList());
+                List<DriftAction> done = runAll(driftExecutor, frontier, a -> answer(query, a, fetcher, usage));
+                for (QueryCallbacks cb : callbacks) cb.onMapResponseEnd(toResults(done));
+                answered.addAll(done);
+                frontier = nextActions(done, seen, depth + 1, cfg.getFollowUpsPerDepth());
+            }
+            log.info("DRIFT 展开完成: 回答数={}, 跨分支去重的原文数={}, 估算 token={}", answered.size(), fetcher.dedupedSourceCount(), usage.total());
+
+            // 3. reduce
+            reduceContext = formatAnswers(answered, cfg.getReduceTopAnswers());
+            for (QueryCallbacks cb : callbacks) cb.onReduceResponseStart(reduceContext);
+            String response = reduce(query, reduceContext, usage);
+            for (QueryCallbacks cb : callbacks) cb.onReduceResponseEnd(response);
+
+            Map<String, TableRecords> contextData = contextData(reports, fetcher);
+            for (QueryCallbacks cb : callbacks) cb.onContextRecords(contextData);
+            return usage.toResult(response, contextData, reduceContext, elapsed(startNs));
+        } catch (Exception e) {
+            log.error("Exception in DriftSearch.search", e);
+            return usage.toResult("", contextData(reports, fetcher), reduceContext, elapsed(startNs));
+        }
+    }
+
+    // -------------------- 三个阶段的 LLM 调用 --------------------
+
+    private DriftAction prime(String query, String reportsContext, Usage usage) {
+        String prompt = DriftSearchPromptsZh.DRIFT_PRIMER_PROMPT_ZH
+                .replace("{community_reports}", reportsContext)
+                .replace("{query}", query);
+        DriftAction action = new DriftAction(query, 0, 0);
+        JSONObject json = completeJson(COMPONENT_PRIMER, prompt, usage);
+        if (json == null) return action;
+        action.setAnswer(StrUtil.nullToEmpty(json.getString("intermediate_answer")));
+        fill(action, json);
+        return action;
+    }
+
+    private DriftAction answer(String globalQuery, DriftAction action, DriftContextFetcher fetcher, Usage usage) {
+        ContextBuilderResult context = fetcher.build(action.getQuery());
+        String prompt = DriftSearchPromptsZh.DRIFT_LOCAL_PROMPT_ZH
+                .replace("{global_query}", globalQuery)
+                .replace("{context_data}", StrUtil.nullToEmpty(context.getContextChunks()))
+                .replace("{query}", action.getQuery());
+        JSONObject json = completeJson(COMPONENT_ACTION, prompt, usage);
+        if (json == null) return action;
+        action.setAnswer(StrUtil.nullToEmpty(json.getString("response")));
+        fill(action, json);
+        return action;
+    }
+
+    private String reduce(String query, String reduceContext, Usage usage) throws Exception {
+        String systemPrompt = DriftSearchPromptsZh.DRIFT_REDUCE_PROMPT_ZH
+                .replace("{response_type}", responseType == null ? "multiple paragraphs" : responseType)
+                .replace("{context_data}", reduceContext)
+                .replace("{query}", query);
+        String memoryId = IdUtil.getSnowflakeNextIdStr();
+        ThinkAssistant assistant = assistantGenerator.getPooledAssistant(ThinkAssistant.class, memoryId, systemPrompt);
+        try {
+            TokenStream tokenStream = assistant.streamChat(memoryId, query);
+            String response = SseUtil.completeWithoutThink(tokenStream, memoryId, SseUtil.DEFAULT_COMPLETION_TIMEOUT_MS, token -> {
+                for (QueryCallbacks cb : callbacks) cb.onLlmNewToken(token);
+            }).get();
+            usage.add(COMPONENT_REDUCE, tokenUtil.getTokenCount(systemPrompt) + tokenUtil.getTokenCount(query), tokenUtil.getTokenCount(response));
+            return response;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ex ? ex : e;
+        } finally {
+            assistantGenerator.releaseSession(memoryId);
+        }
+    }
+
+    /**
+     * 预算不足时不发起调用；解析失败按未回答处理（对齐 Python：单个 action 失败不影响整体）
+     */
+    private JSONObject completeJson(String component, String prompt, Usage usage) {
+        int promptTokens = tokenUtil.getTokenCount(prompt);
+        if (!usage.tryAfford(promptTokens)) return null;
+        String memoryId = IdUtil.getSnowflakeNextIdStr();
+        ThinkAssistant assistant = assistantGenerator.getPooledAssistant(ThinkAssistant.class);
+        String raw;
+        try {
+            TokenStream tokenStream = assistant.streamChat(memoryId, prompt);
+            raw = llmCallTracker.complete(component, prompt, tokenStream, memoryId).join();
+        } finally {
+            assistantGenerator.releaseSession(memoryId);
+        }
+        usage.add(component, promptTokens, tokenUtil.getTokenCount(raw));
+        try {
+            return SseUtil.getJSONResponse(raw);
+        } catch (Exception e) {
+            log.warn("DRIFT {} 输出不是合法 JSON: {}", component, StrUtil.maxLength(raw, 200));
+            return null;
+        }
+    }
+
+    private static void fill(DriftAction action, JSONObject json) {
+        Double score = json.getDouble("score");
+        action.setScore(score == null ? 0 : score);
+        JSONArray followUps = json.getJSONArray("follow_up_queries");
+        if (followUps == null) return;
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < followUps.size(); i++) {
+            String q = followUps.getString(i);
+            if (StrUtil.isNotBlank(q)) list.add(q.trim());
+        }
+        action.setFollowUps(list);
+    }
+
+    // -------------------- 展开与合并 --------------------
+
+    /**
+     * 由已回答节点的后续问题生成下一层；跨分支按规范化问题去重，按父节点分数取前 limit 个
+     */
+    private static List<DriftAction> nextActions(List<DriftAction> parents, Set<String> seen, int depth, int limit) {
+        List<DriftAction> sorted = new ArrayList<>(parents);
+        sorted.sort(Comparator.comparingDouble(DriftAction::scoreOrZero).reversed());
+        List<DriftAction> out = new ArrayList<>();
+        for (DriftAction parent : sorted) {
+            if (!parent.isAnswered()) continue;
+            for (String q : parent.getFollowUps()) {
+                if (out.size() >= limit) return out;
+                if (seen.add(DriftContextFetcher.key(q))) out.add(new DriftAction(q, depth, parent.scoreOrZero()));
+            }
+        }
+        return out;
+    }
+
+    private static <T> List<DriftAction> runAll(ExecutorService pool, List<T> inputs, Function<T, DriftAction> task) {
+        List<CompletableFuture<DriftAction>> futures = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.apply(input);
+                } catch (Exception e) {
+                    log.warn("DRIFT 子任务失败: {}", e.getMessage(), e);
+                    return null;
+                }
+            }, pool));
+        }
+        List<DriftAction> out = new ArrayList<>();
+        for (CompletableFuture<DriftAction> f : futures) {
+            DriftAction a = f.join();
+            if (a != null && a.isAnswered()) out.add(a);
+        }
+        return out;
+    }
+
+    private static String formatAnswers(List<DriftAction> answered, int topN) {
+        List<DriftAction> sorted = new ArrayList<>(answered);
+        sorted.sort(Comparator.comparingDouble(DriftAction::scoreOrZero).reversed());
+        StringBuilder sb = new StringBuilder();
+        int n = 0;
+        for (DriftAction a : sorted) {
+            if (n >= topN) break;
+            if (StrUtil.isBlank(a.getAnswer())) continue;
+            sb.append("----报告 ").append(++n).append("----\n")
+                    .append("问题: ").append(a.getQuery()).append("\n")
+                    .append("分数: ").append(a.scoreOrZero()).append("\n")
+                    .append(a.getAnswer()).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    private static String formatReports(List<CommunityReport> reports) {
+        StringBuilder sb = new StringBuilder();
+        for (CommunityReport r : reports) {
+            sb.append("----社区 ").append(r.getCommunity()).append("----\n")
+                    .append(StrUtil.nullToEmpty(r.getFullContent())).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    private static List<List<CommunityReport>> split(List<CommunityReport> reports, int folds) {
+        List<List<CommunityReport>> out = new ArrayList<>();
+        if (reports.isEmpty()) return out;
+        int size = (reports.size() + folds - 1) / folds;
+        for (int i = 0; i < reports.size(); i += size) out.add(reports.subList(i, Math.min(reports.size(), i + size)));
+        return out;
+    }
+
+    private static Map<String, TableRecords> contextData(List<CommunityReport> reports, DriftContextFetcher fetcher) {
+        List<List<String>> rows = new ArrayList<>();
+        for (CommunityReport r : reports) {
+            rows.add(List.of(String.valueOf(r.getCommunity()), StrUtil.nullToEmpty(r.getTitle()), StrUtil.nullToEmpty(r.getSummary())));
+        }
+        Map<String, TableRecords> out = new LinkedHashMap<>();
+        out.put("reports", new TableRecords(List.of("id", "title", "summary"), rows));
+        out.putAll(fetcher.collected());
+        return out;
+    }
+
+    private static List<SearchResult> toResults(List<DriftAction> actions) {
+        List<SearchResult> out = new ArrayList<>(actions.size());
+        for (DriftAction a : actions) {
+            out.add(new SearchResult(a.getAnswer(), Map.of(), a.getQuery(), 0, 1, 0, 0, Map.of(), Map.of(), Map.of()));
+        }
+        return out;
+    }
+
+    private static double elapsed(long startNs) {
+        return (System.nanoTime() - startNs) / 1_000_000_000.0;
+    }
+
+    /**
+     * 一次检索的 token 统计与预算（估算值）
+     */
+    private static final class Usage {
+        private final long budget;
+        private final AtomicLong total = new AtomicLong();
+        private final Map<String, Integer> llmCalls = new LinkedHashMap<>();
+        private final Map<String, Integer> promptTokens = new LinkedHashMap<>();
+        private final Map<String, Integer> outputTokens = new LinkedHashMap<>();
+
+        Usage(Integer budget) {
+            this.budget = budget == null || budget <= 0 ? Long.MAX_VALUE : budget;
+        }
+
+        boolean exhausted() {
+            return total.get() >= budget;
+        }
+
+        boolean tryAfford(int promptTokens) {
+            return total.get() + promptTokens <= budget;
+        }
+
+        long total() {
+            return total.get();
+        }
+
+        synchronized void add(String category, int prompt, int output) {
+            total.addAndGet(prompt + output);
+            llmCalls.merge(category, 1, Integer::sum);
+            promptTokens.merge(category, prompt, Integer::sum);
+            outputTokens.merge(category, output, Integer::sum);
+        }
+
+        synchronized SearchResult toResult(String response, Map<String, TableRecords> contextData, String contextText, double elapsed) {
+            return new SearchResult(
+                    response,
+                    contextData,
+                    contextText,
+                    elapsed,
+                    llmCalls.values().stream().mapToInt(Integer::intValue).sum(),
+                    promptTokens.values().stream().mapToInt(Integer::intValue).sum(),
+                    outputTokens.values().stream().mapToInt(Integer::intValue).sum(),
+                    new LinkedHashMap<>(llmCalls),
+                    new LinkedHashMap<>(promptTokens),
+                    new LinkedHashMap<>(outputTokens)
+            );
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.gdin.inspection.graphrag.v2.query.prompts;
+
+/**
+ * 对齐 Python graphrag.prompts.query.drift_search_system_prompt（中文版）
+ */
+public final class DriftSearchPromptsZh {
+
+    private DriftSearchPromptsZh() {}
+
+    /**
+     * primer：基于一组社区报告给出初步回答、打分，并提出需要进一步检索的后续问题
+     */
+    public static final String DRIFT_PRIMER_PROMPT_ZH = """
+你是一个智能助手，需要根据提供的社区报告回答用户问题，并给出进一步检索的方向。
+
+---社区报告---
+
+{community_reports}
+
+---用户问题---
+
+{query}
+
+---要求---
+
+1. 基于上面的社区报告给出一个初步回答（intermediate_answer），使用 markdown，不要编造报告中没有的内容。
+2. 给出 0-100 的分数（score），表示这些报告对回答该问题的帮助程度。
+3. 给出若干条后续问题（follow_up_queries），每条都应聚焦于某个具体实体、关系或事件，便于在局部范围内检索细节；不要重复用户原问题。
+
+只输出一个 JSON 对象，格式如下：
+{"intermediate_answer": "...", "score": 80, "follow_up_queries": ["...", "..."]}
+""";
+
+    /**
+     * 局部回答：基于实体 / 关系 / 原文片段回答一个后续问题，同时给出更深一层的后续问题
+     */
+    public static final String DRIFT_LOCAL_PROMPT_ZH = """
+---角色---
+
+你是一个智能助手，需要根据提供的数据表回答问题。
+
+---目标---
+
+回答下方的问题，并把数据表作为主要依据。如果数据表不足以回答，请直接说明，不要编造。
+
+所有由数据支持的观点都必须标注数据引用，格式如 [数据: Sources (record ids)] 或 [数据: Entities (ids)]，单次引用不超过 5 个 id。
+
+该问题是为回答总问题而提出的子问题，总问题是：
+
+{global_query}
+
+---数据表---
+
+{context_data}
+
+---问题---
+
+{query}
+
+---输出格式---
+
+只输出一个 JSON 对象：
+{"response": "markdown 格式的回答", "score": 0-100 的分数，表示回答对总问题的帮助程度, "follow_up_queries": ["需要进一步检索的问题", "..."]}
+""";
+
+    /**
+     * reduce：把 primer 与各层局部回答合并为最终回答
+     */
+    public static final String DRIFT_REDUCE_PROMPT_ZH = """
+---角色---
+
+你是一个智能助手，需要综合多份分析报告回答用户问题。
+
+---目标---
+
+请按照目标长度与格式生成回答，综合下方各份报告中与问题相关的内容。报告按重要性从高到低排列。
+
+如果报告不足以回答问题，请直接说明不知道，不要编造。
+
+保留报告中已有的数据引用（如 [数据: Sources (2, 7, +more)]），不要新增报告中没有的引用。
+
+---目标回答长度与格式---
+
+{response_type}
+
+---分析报告---
+
+{context_data}
+
+---用户问题---
+
+{query}
+""";
+}
@@ -0,0 +1,350 @@
+package com.gdin.inspection.graphrag.v2.query.snapshot;
+
+import com.gdin.inspection.graphrag.v2.models.*;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * 查询侧只读的内存索引快照（主索引 scope=1）。
+ * - 实体 / 关系 / 社区 / 报告 / 共变量 按数组存放，下标即内部 int id
+ * - 实体邻接、实体->社区、社区->实体、实体<->文本单元 等关系用 CSR（offsets + values）存 int 数组
+ * - 文本单元只保留 id 与关联关系，不保留正文（正文仍走知识库检索）
+ * 构建完成后不再修改，可被任意线程并发读；更新通过 {@link IndexSnapshotHolder} 整体替换。
+ */
+public final class IndexSnapshot {
+
+    public static final IndexSnapshot EMPTY = build(null, null, null, null, null, null);
+
+    @Getter
+    private final Instant loadedAt = Instant.now();
+
+    private final Entity[] entities;
+    private final Relationship[] relationships;
+    private final Community[] communities;
+    private final CommunityReport[] reports;
+    private final Covariate[] covariates;
+    private final String[] textUnitIds;
+
+    private final Map<String, Integer> entityById;
+    private final Map<String, Integer> entityByTitle;
+    private final Map<Integer, Integer> entityByHrid;
+    private final Map<String, Integer> relationshipById;
+    // community（Leiden 社区编号）-> 下标
+    private final Map<Integer, Integer> communityByNo;
+    private final Map<Integer, Integer> reportByCommunityNo;
+    private final Map<String, Integer> textUnitById;
+
+    // 关系两端实体下标，-1 表示端点不在实体表中
+    private final int[] relSource;
+    private final int[] relTarget;
+
+    private final Csr entityRelationships;
+    private final Csr entityCommunities;
+    private final Csr communityEntities;
+    private final Csr entityCovariates;
+    private final Csr entityTextUnits;
+    private final Csr textUnitEntities;
+
+    private IndexSnapshot(
+            List<String> textUnitIds,
+            List<Entity> entities,
+            List<Relationship> relationships,
+            List<Community> communities,
+            List<CommunityReport> reports,
+            List<Covariate> covariates
+    ) {
+        this.entities = entities.toArray(new Entity[0]);
+        this.relationships = relationships.toArray(new Relationship[0]);
+        this.communities = communities.toArray(new Community[0]);
+        this.reports = reports.toArray(new CommunityReport[0]);
+        this.covariates = covariates.toArray(new Covariate[0]);
+        this.textUnitIds = textUnitIds.toArray(new String[0]);
+
+        this.entityById = index(this.entities, Entity::getId);
+        this.entityByTitle = index(this.entities, Entity::getTitle);
+        this.entityByHrid = index(this.entities, Entity::getHumanReadableId);
+        this.relationshipById = index(this.relationships, Relationship::getId);
+        this.communityByNo = index(this.communities, Community::getCommunity);
+        this.reportByCommunityNo = index(this.reports, CommunityReport::getCommunity);
+        this.textUnitById = index(this.textUnitIds, s -> s);
+
+        // 关系：source/target 是实体 title（对齐 Python）
+        int nr = this.relationships.length;
+        this.relSource = new int[nr];
+        this.relTarget = new int[nr];
+        Csr.Builder entityRel = new Csr.Builder(this.entities.length);
+        for (int r = 0; r < nr; r++) {
+            relSource[r] = entityByTitle.getOrDefault(this.relationships[r].getSource(), -1);
+            relTarget[r] = entityByTitle.getOrDefault(this.relationships[r].getTarget(), -1);
+            if (relSource[r] >= 0) entityRel.add(relSource[r], r);
+            if (relTarget[r] >= 0 && relTarget[r] != relSource[r]) entityRel.add(relTarget[r], r);
+        }
+        this.entityRelationships = entityRel.build();
+
+        Csr.Builder entityComm = new Csr.Builder(this.entities.length);
+        Csr.Builder commEntity = new Csr.Builder(this.communities.length);
+        for (int c = 0; c < this.communities.length; c++) {
+            List<String> ids = this.communities[c].getEntityIds();
+            if (ids == null) continue;
+            for (String id : ids) {
+                Integer e = entityById.get(id);
+                if (e == null) continue;
+                entityComm.add(e, c);
+                commEntity.add(c, e);
+            }
+        }
+        this.entityCommunities = entityComm.build();
+        this.communityEntities = commEntity.build();
+
+        // 共变量 subject_id 是实体 title（对齐 Python claims）
+        Csr.Builder entityCov = new Csr.Builder(this.entities.length);
+        for (int v = 0; v < this.covariates.length; v++) {
+            Integer e = entityByTitle.get(this.covariates[v].getSubjectId());
+            if (e != null) entityCov.add(e, v);
+        }
+        this.entityCovariates = entityCov.build();
+
+        Csr.Builder entityTu = new Csr.Builder(this.entities.length);
+        Csr.Builder tuEntity = new Csr.Builder(this.textUnitIds.length);
+        for (int e = 0; e < this.entities.length; e++) {
+            List<String> ids = this.entities[e].getTextUnitIds();
+            if (ids == null) continue;
+            for (String id : ids) {
+                Integer t = textUnitById.get(id);
+                if (t == null) continue;
+                entityTu.add(e, t);
+                tuEntity.add(t, e);
+            }
+        }
+        this.entityTextUnits = entityTu.build();
+        this.textUnitEntities = tuEntity.build();
+    }
+
+    public static IndexSnapshot build(
+            List<String> textUnitIds,
+            List<Entity> entities,
+            List<Relationship> relationships,
+            List<Community> communities,
+            List<CommunityReport> reports,
+            List<Covariate> covariates
+    ) {
+        return new IndexSnapshot(
+                orEmpty(textUnitIds), orEmpty(entities), orEmpty(relationships),
+                orEmpty(communities), orEmpty(reports), orEmpty(covariates));
+    }
+
+    // -------------------- 点查 --------------------
+
+    public int entityCount() {
+        return entities.length;
+    }
+
+    public int relationshipCount() {
+        return relationships.length;
+    }
+
+    public int communityCount() {
+        return communities.length;
+    }
+
+    public int reportCount() {
+        return reports.length;
+    }
+
+    public int covariateCount() {
+        return covariates.length;
+    }
+
+    public int textUnitCount() {
+        return textUnitIds.length;
+    }
+
+    public Optional<Entity> entity(String id) {
+        return lookup(entities, entityById.get(id));
+    }
+
+    public Optional<Entity> entityByTitle(String title) {
+        return lookup(entities, entityByTitle.get(title));
+    }
+
+    public Optional<Entity> entityByHrid(int hrid) {
+        return lookup(entities, entityByHrid.get(hrid));
+    }
+
+    public Optional<Integer> hridOfEntity(String id) {
+        return entity(id).map(Entity::getHumanReadableId);
+    }
+
+    public Optional<Relationship> relationship(String id) {
+        return lookup(relationships, relationshipById.get(id));
+    }
+
+    public Optional<Community> community(int communityNo) {
+        return lookup(communities, communityByNo.get(communityNo));
+    }
+
+    public Optional<CommunityReport> reportOfCommunity(int communityNo) {
+        return lookup(reports, reportByCommunityNo.get(communityNo));
+    }
+
+    // -------------------- 图遍历 --------------------
+
+    /**
+     * 与实体相连的关系（按写入顺序）
+     */
+    public List<Relationship> relationshipsOf(String entityId) {
+        Integer e = entityById.get(entityId);
+        if (e == null) return List.of();
+        return pick(relationships, entityRelationships, e);
+    }
+
+    /**
+     * 一跳邻居实体（去重，按关系出现顺序）
+     */
+    public List<Entity> neighbors(String entityId) {
+        Integer e = entityById.get(entityId);
+        if (e == null) return List.of();
+        LinkedHashSet<Integer> seen = new LinkedHashSet<>();
+        entityRelationships.forEach(e, r -> {
+            int other = relSource[r] == e ? relTarget[r] : relSource[r];
+            if (other >= 0 && other != e) seen.add(other);
+        });
+        List<Entity> out = new ArrayList<>(seen.size());
+        for (int i : seen) out.add(entities[i]);
+        return out;
+    }
+
+    public List<Community> communitiesOf(String entityId) {
+        Integer e = entityById.get(entityId);
+        if (e == null) return List.of();
+        return pick(communities, entityCommunities, e);
+    }
+
+    public List<Entity> entitiesOfCommunity(int communityNo) {
+        Integer c = communityByNo.get(communityNo);
+        if (c == null) return List.of();
+        return pick(entities, communityEntities, c);
+    }
+
+    public List<Covariate> covariatesOf(String entityId) {
+        Integer e = entityById.get(entityId);
+        if (e == null) return List.of();
+        return pick(covariates, entityCovariates, e);
+    }
+
+    public List<String> textUnitIdsOf(String entityId) {
+        Integer e = entityById.get(entityId);
+        if (e == null) return List.of();
+        return pick(textUnitIds, entityTextUnits, e);
+    }
+
+    public List<Entity> entitiesOfTextUnit(String textUnitId) {
+        Integer t = textUnitById.get(textUnitId);
+        if (t == null) return List.of();
+        return pick(entities, textUnitEntities, t);
+    }
+
+    public List<Entity> entities() {
+        return Collections.unmodifiableList(Arrays.asList(entities));
+    }
+
+    public List<CommunityReport> reports() {
+        return Collections.unmodifiableList(Arrays.asList(reports));
+    }
+
+    @Override
+    public String toString() {
+        return "IndexSnapshot{entities=" + entities.length
+                + ", relationships=" + relationships.length
+                + ", communities=" + communities.length
+                + ", reports=" + reports.length
+                + ", covariates=" + covariates.length
+                + ", textUnits=" + textUnitIds.length
+                + ", loadedAt=" + loadedAt + "}";
+    }
+
+    // -------------------- 内部工具 --------------------
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+
+    private static <T> Optional<T> lookup(T[] array, Integer idx) {
+        return idx == null ? Optional.empty() : Optional.of(array[idx]);
+    }
+
+    private static <T> List<T> pick(T[] array, Csr csr, int row) {
+        List<T> out = new ArrayList<>(csr.size(row));
+        csr.forEach(row, i -> out.add(array[i]));
+        return out;
+    }
+
+    /**
+     * key -> 下标，key 为 null 时跳过，重复 key 以第一次出现为准
+     */
+    private static <T, K> Map<K, Integer> index(T[] array, Function<T, K> key) {
+        Map<K, Integer> map = new HashMap<>(Math.max(16, array.length * 4 / 3 + 1));
+        for (int i = 0; i < array.length; i++) {
+            K k = key.apply(array[i]);
+            if (k != null) map.putIfAbsent(k, i);
+        }
+        return map;
+    }
+
+    /**
+     * 压缩稀疏行：row -> values[offsets[row], offsets[row+1])
+     */
+    static final class Csr {
+        private final int[] offsets;
+        private final int[] values;
+
+        private Csr(int[] offsets, int[] values) {
+            this.offsets = offsets;
+            this.values = values;
+        }
+
+        int size(int row) {
+            return offsets[row + 1] - offsets[row];
+        }
+
+        void forEach(int row, IntConsumer consumer) {
+            for (int i = offsets[row]; i < offsets[row + 1]; i++) consumer.accept(values[i]);
+        }
+
+        static final class Builder {
+            private final int rows;
+            private int[] pairRows = new int[16];
+            private int[] pairValues = new int[16];
+            private int size;
+
+            Builder(int rows) {
+                this.rows = rows;
+            }
+
+            void add(int row, int value) {
+                if (size == pairRows.length) {
+                    pairRows = Arrays.copyOf(pairRows, size * 2);
+                    pairValues = Arrays.copyOf(pairValues, size * 2);
+                }
+                pairRows[size] = row;
+                pairValues[size] = value;
+                size++;
+            }
+
+            Csr build() {
+                int[] offsets = new int[rows + 1];
+                for (int i = 0; i < size; i++) offsets[pairRows[i] + 1]++;
+                for (int r = 0; r < rows; r++) offsets[r + 1] += offsets[r];
+                int[] cursor = Arrays.copyOf(offsets, rows);
+                int[] values = new int[size];
+                // 计数排序，保持同一行内的写入顺序
+                for (int i = 0; i < size; i++) values[cursor[pairRows[i]]++] = pairValues[i];
+                return new Csr(offsets, values);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.gdin.inspection.graphrag.v2.query.snapshot;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 持有当前生效的 {@link IndexSnapshot}：
+ * - 应用启动完成后在后台线程上预热主索引；预热完成前 {@link #get()} 返回空快照并（重新）触发预热，查询线程不承担冷加载
+ * - 文本单元只加载 id（{@link GraphRagIndexStorage#loadTextUnitIds}），不读正文
+ * - PersistIndexWorkflow 写完主索引后调用 {@link #requestRefresh()}：一次 run 会多次写主索引，
+ *   防抖窗口内的写入合并成一次重建，且重建在后台线程上执行，不占 pipeline 线程；新快照构建完成后原子替换，查询侧无锁读取
+ * - 每次替换递增 {@link #getVersion()}，查询侧缓存以此判断主索引是否已变更
+ */
+@Slf4j
+@Component
+public class IndexSnapshotHolder {
+
+    @Resource
+    private GraphRagIndexStorage storage;
+
+    @Resource
+    private GraphProperties graphProperties;
+
+    private final AtomicReference<IndexSnapshot> current = new AtomicReference<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final Object refreshLock = new Object();
+
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "index-snapshot-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean warming = new AtomicBoolean();
+
+    public IndexSnapshot get() {
+        IndexSnapshot snapshot = current.get();
+        if (snapshot != null) return snapshot;
+        warmUp();
+        return IndexSnapshot.EMPTY;
+    }
+
+    /**
+     * 后台加载首个快照；已有快照或正在预热时不重复提交。失败只记日志，下一次 get() 再触发
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (current.get() != null || !warming.compareAndSet(false, true)) return;
+        try {
+            refresher.execute(() -> {
+                try {
+                    if (current.get() == null) refresh();
+                } catch (Exception e) {
+                    log.warn("预热索引快照失败，下次查询时重试", e);
+                } finally {
+                    warming.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 关闭期间
+            warming.set(false);
+        }
+    }
+
+    /**
+     * 重新加载主索引并替换当前快照。构建期间查询继续使用旧快照。
+     */
+    public IndexSnapshot refresh() {
+        synchronized (refreshLock) {
+            // 先递增版本：即使下面加载失败，调用方刷新就意味着主索引已经变了，依赖版本的缓存也应失效
+            version.incrementAndGet();
+            long start = System.currentTimeMillis();
+            int scope = GraphRagIndexStorage.SCOPE_MAIN;
+            IndexSnapshot snapshot = IndexSnapshot.build(
+                    storage.loadTextUnitIds(scope),
+                    storage.loadEntities(scope),
+                    storage.loadRelationships(scope),
+                    storage.loadCommunities(scope),
+                    storage.loadCommunityReports(scope),
+                    storage.loadCovariates(scope)
+            );
+            current.set(snapshot);
+            log.info("索引快照已刷新: {}, 耗时={}ms", snapshot, System.currentTimeMillis() - start);
+            return snapshot;
+        }
+    }
+
+    /**
+     * 主索引已写入，防抖后在后台重建快照。
+     * 版本号立即递增，依赖版本的缓存马上失效；重建时 {@link #refresh()} 再递增一次，
+     * 窗口内基于旧快照算出的结果同样作废。重建失败只记日志，查询继续使用旧快照。
+     */
+    public void requestRefresh() {
+        version.incrementAndGet();
+        if (!refreshPending.compareAndSet(false, true)) return;
+        refresher.schedule(() -> {
+            // 先清标记：重建期间的新写入会再排一次
+            refreshPending.set(false);
+            try {
+                refresh();
+            } catch (Exception e) {
+                log.warn("刷新索引快照失败，继续使用旧快照", e);
+            }
+        }, graphProperties.getQuery().getSnapshot().getRefreshDebounceMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * 直接替换快照（离线构建 / 测试）
+     */
+    public void swap(IndexSnapshot snapshot) {
+        current.set(snapshot == null ? IndexSnapshot.EMPTY : snapshot);
+        version.incrementAndGet();
+    }
+
+    /**
+     * 主索引版本号，进程内单调递增；0 表示启动后还没有加载 / 刷新过
+     */
+    public long getVersion() {
+        return version.get();
+    }
+}
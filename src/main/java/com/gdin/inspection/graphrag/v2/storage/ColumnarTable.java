@@ -0,0 +1,340 @@
+package com.gdin.inspection.graphrag.v2.storage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 简单的列式表文件格式（对标 Python 端的 parquet 表，一张表一个文件）：
+ * <pre>
+ * magic "GRCOL" | version | compressed | rowCount | columnCount
+ * 每列：name | type | 数据
+ *   STRING       ：字典编码，dictSize + 字典 + 每行 int code（-1 表示 null）
+ *   STRING_LIST  ：共用一份字典，每行 int size（-1 表示 null）+ size 个 code
+ *   INT / DOUBLE / LONG ：null 位图 + 原始数值
+ *   INT_LIST     ：每行 int size（-1 表示 null）+ size 个 int
+ * </pre>
+ * compressed=1 时 header 之后的内容整体 gzip。
+ * 写入先落到临时文件再原子替换，读到一半不会看到半截文件。
+ */
+public class ColumnarTable {
+
+    private static final byte[] MAGIC = "GRCOL".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_STRING_LIST = 2;
+    private static final byte TYPE_INT = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_LONG = 5;
+    private static final byte TYPE_INT_LIST = 6;
+
+    private final int rowCount;
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+
+    public ColumnarTable(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public Set<String> columnNames() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    // -------------------- 写入列 --------------------
+
+    public ColumnarTable putStrings(String name, String[] values) {
+        return put(name, TYPE_STRING, values);
+    }
+
+    public ColumnarTable putStringLists(String name, List<String>[] values) {
+        return put(name, TYPE_STRING_LIST, values);
+    }
+
+    public ColumnarTable putInts(String name, Integer[] values) {
+        return put(name, TYPE_INT, values);
+    }
+
+    public ColumnarTable putDoubles(String name, Double[] values) {
+        return put(name, TYPE_DOUBLE, values);
+    }
+
+    public ColumnarTable putLongs(String name, Long[] values) {
+        return put(name, TYPE_LONG, values);
+    }
+
+    public ColumnarTable putIntLists(String name, List<Integer>[] values) {
+        return put(name, TYPE_INT_LIST, values);
+    }
+
+    private ColumnarTable put(String name, byte type, Object[] values) {
+        if (values.length != rowCount) {
+            throw new IllegalArgumentException("列 " + name + " 行数 " + values.length + " 与表行数 " + rowCount + " 不一致");
+        }
+        columns.put(name, new Column(type, values));
+        return this;
+    }
+
+    // -------------------- 读取列（缺列时返回全 null，便于表结构演进） --------------------
+
+    public String[] strings(String name) {
+        return get(name, TYPE_STRING, new String[rowCount]);
+    }
+
+    public List<String>[] stringLists(String name) {
+        @SuppressWarnings("unchecked")
+        List<String>[] empty = new List[rowCount];
+        return get(name, TYPE_STRING_LIST, empty);
+    }
+
+    public Integer[] ints(String name) {
+        return get(name, TYPE_INT, new Integer[rowCount]);
+    }
+
+    public Double[] doubles(String name) {
+        return get(name, TYPE_DOUBLE, new Double[rowCount]);
+    }
+
+    public Long[] longs(String name) {
+        return get(name, TYPE_LONG, new Long[rowCount]);
+    }
+
+    public List<Integer>[] intLists(String name) {
+        @SuppressWarnings("unchecked")
+        List<Integer>[] empty = new List[rowCount];
+        return get(name, TYPE_INT_LIST, empty);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String name, byte type, T empty) {
+        Column column = columns.get(name);
+        if (column == null) return empty;
+        if (column.type != type) throw new IllegalStateException("列 " + name + " 类型不匹配: " + column.type + " != " + type);
+        return (T) column.values;
+    }
+
+    // -------------------- 文件读写 --------------------
+
+    public void write(Path file, boolean compress) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream header = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            header.write(MAGIC);
+            header.writeInt(VERSION);
+            header.writeBoolean(compress);
+            header.flush();
+
+            OutputStream bodyStream = compress ? new GZIPOutputStream(header, 1 << 16) : header;
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bodyStream, 1 << 16));
+            out.writeInt(rowCount);
+            out.writeInt(columns.size());
+            for (Map.Entry<String, Column> e : columns.entrySet()) {
+                writeString(out, e.getKey());
+                out.writeByte(e.getValue().type);
+                writeColumn(out, e.getValue());
+            }
+            out.flush();
+            if (bodyStream instanceof GZIPOutputStream gzip) gzip.finish();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ColumnarTable read(Path file) throws IOException {
+        try (DataInputStream header = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            byte[] magic = new byte[MAGIC.length];
+            header.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("不是列式表文件: " + file);
+            int version = header.readInt();
+            if (version != VERSION) throw new IOException("不支持的列式表版本: " + version);
+            boolean compressed = header.readBoolean();
+
+            DataInputStream in = compressed
+                    ? new DataInputStream(new BufferedInputStream(new GZIPInputStream(header, 1 << 16), 1 << 16))
+                    : header;
+            int rowCount = in.readInt();
+            int columnCount = in.readInt();
+            ColumnarTable table = new ColumnarTable(rowCount);
+            for (int c = 0; c < columnCount; c++) {
+                String name = readString(in);
+                byte type = in.readByte();
+                table.columns.put(name, new Column(type, readColumn(in, type, rowCount)));
+            }
+            return table;
+        }
+    }
+
+    private static void writeColumn(DataOutputStream out, Column column) throws IOException {
+        Object[] values = column.values;
+        switch (column.type) {
+            case TYPE_STRING -> {
+                Map<String, Integer> dict = new LinkedHashMap<>();
+                for (Object v : values) if (v != null) dict.putIfAbsent((String) v, dict.size());
+                writeDictionary(out, dict);
+                for (Object v : values) out.writeInt(v == null ? -1 : dict.get((String) v));
+            }
+            case TYPE_STRING_LIST -> {
+                Map<String, Integer> dict = new LinkedHashMap<>();
+                for (Object v : values) {
+                    if (v == null) continue;
+                    for (Object s : (List<?>) v) if (s != null) dict.putIfAbsent((String) s, dict.size());
+                }
+                writeDictionary(out, dict);
+                for (Object v : values) {
+                    if (v == null) {
+                        out.writeInt(-1);
+                        continue;
+                    }
+                    List<?> list = (List<?>) v;
+                    out.writeInt(list.size());
+                    for (Object s : list) out.writeInt(s == null ? -1 : dict.get((String) s));
+                }
+            }
+            case TYPE_INT -> {
+                writeNullMask(out, values);
+                for (Object v : values) out.writeInt(v == null ? 0 : (Integer) v);
+            }
+            case TYPE_DOUBLE -> {
+                writeNullMask(out, values);
+                for (Object v : values) out.writeDouble(v == null ? 0d : (Double) v);
+            }
+            case TYPE_LONG -> {
+                writeNullMask(out, values);
+                for (Object v : values) out.writeLong(v == null ? 0L : (Long) v);
+            }
+            case TYPE_INT_LIST -> {
+                for (Object v : values) {
+                    if (v == null) {
+                        out.writeInt(-1);
+                        continue;
+                    }
+                    List<?> list = (List<?>) v;
+                    out.writeInt(list.size());
+                    // INT_LIST 不允许元素为 null（社区 children 等），null 按 -1 存
+                    for (Object i : list) out.writeInt(i == null ? -1 : (Integer) i);
+                }
+            }
+            default -> throw new IllegalStateException("未知列类型: " + column.type);
+        }
+    }
+
+    private static Object[] readColumn(DataInputStream in, byte type, int rowCount) throws IOException {
+        switch (type) {
+            case TYPE_STRING -> {
+                String[] dict = readDictionary(in);
+                String[] out = new String[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    int code = in.readInt();
+                    out[i] = code < 0 ? null : dict[code];
+                }
+                return out;
+            }
+            case TYPE_STRING_LIST -> {
+                String[] dict = readDictionary(in);
+                @SuppressWarnings("unchecked")
+                List<String>[] out = new List[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    int size = in.readInt();
+                    if (size < 0) continue;
+                    List<String> list = new ArrayList<>(size);
+                    for (int j = 0; j < size; j++) {
+                        int code = in.readInt();
+                        list.add(code < 0 ? null : dict[code]);
+                    }
+                    out[i] = list;
+                }
+                return out;
+            }
+            case TYPE_INT -> {
+                boolean[] present = readNullMask(in, rowCount);
+                Integer[] out = new Integer[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    int v = in.readInt();
+                    if (present[i]) out[i] = v;
+                }
+                return out;
+            }
+            case TYPE_DOUBLE -> {
+                boolean[] present = readNullMask(in, rowCount);
+                Double[] out = new Double[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    double v = in.readDouble();
+                    if (present[i]) out[i] = v;
+                }
+                return out;
+            }
+            case TYPE_LONG -> {
+                boolean[] present = readNullMask(in, rowCount);
+                Long[] out = new Long[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    long v = in.readLong();
+                    if (present[i]) out[i] = v;
+                }
+                return out;
+            }
+            case TYPE_INT_LIST -> {
+                @SuppressWarnings("unchecked")
+                List<Integer>[] out = new List[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    int size = in.readInt();
+                    if (size < 0) continue;
+                    List<Integer> list = new ArrayList<>(size);
+                    for (int j = 0; j < size; j++) list.add(in.readInt());
+                    out[i] = list;
+                }
+                return out;
+            }
+            default -> throw new IOException("未知列类型: " + type);
+        }
+    }
+
+    private static void writeDictionary(DataOutputStream out, Map<String, Integer> dict) throws IOException {
+        out.writeInt(dict.size());
+        for (String s : dict.keySet()) writeString(out, s);
+    }
+
+    private static String[] readDictionary(DataInputStream in) throws IOException {
+        String[] dict = new String[in.readInt()];
+        for (int i = 0; i < dict.length; i++) dict[i] = readString(in);
+        return dict;
+    }
+
+    private static void writeNullMask(DataOutputStream out, Object[] values) throws IOException {
+        BitSet present = new BitSet(values.length);
+        for (int i = 0; i < values.length; i++) if (values[i] != null) present.set(i);
+        byte[] bytes = present.toByteArray();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static boolean[] readNullMask(DataInputStream in, int rowCount) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        BitSet present = BitSet.valueOf(bytes);
+        boolean[] out = new boolean[rowCount];
+        for (int i = 0; i < rowCount; i++) out[i] = present.get(i);
+        return out;
+    }
+
+    // writeUTF 有 64KB 上限，长文本（full_content 等）用 int 长度 + UTF-8 字节
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record Column(byte type, Object[] values) {}
+}
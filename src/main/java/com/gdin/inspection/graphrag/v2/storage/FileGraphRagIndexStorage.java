@@ -0,0 +1,527 @@
+package com.gdin.inspection.graphrag.v2.storage;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.gdin.inspection.graphrag.v2.models.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本地列式文件实现，对齐 Python 端 output/*.parquet：
+ * {dir}/main|delta/{table}.gcol，一张表一个文件。
+ *
+ * - 不做 embedding、不走 Milvus RPC，适合作为中间表暂存（persist_temp_* / load_temp_*）、快照以及离线测试/基准
+ * - save 为整表覆盖写（对齐 PersistIndexWorkflow 先 deleteAll 再写的语义），空列表删除表文件，不会留下上一次的旧表
+ * - 表文件不存在时 load 返回空列表
+ */
+@Slf4j
+public class FileGraphRagIndexStorage implements GraphRagIndexStorage {
+
+    static final String TABLE_ENTITIES = "entities";
+    static final String TABLE_RELATIONSHIPS = "relationships";
+    static final String TABLE_TEXT_UNITS = "text_units";
+    static final String TABLE_COMMUNITIES = "communities";
+    static final String TABLE_COMMUNITY_REPORTS = "community_reports";
+    static final String TABLE_COVARIATES = "covariates";
+
+    private static final String SUFFIX = ".gcol";
+
+    private final Path baseDir;
+    private final boolean compress;
+
+    public FileGraphRagIndexStorage(Path baseDir, boolean compress) {
+        this.baseDir = baseDir;
+        this.compress = compress;
+    }
+
+    public Path tableFile(int scope, String table) {
+        String scopeDir;
+        if (scope == SCOPE_MAIN) scopeDir = "main";
+        else if (scope == SCOPE_DELTA) scopeDir = "delta";
+        else throw new RuntimeException("Unknown scope");
+        return baseDir.resolve(scopeDir).resolve(table + SUFFIX);
+    }
+
+    /* ========== entities ========== */
+
+    @Override
+    public void saveEntities(int scope, List<Entity> entities) {
+        if (CollectionUtil.isEmpty(entities)) {
+            delete(scope, TABLE_ENTITIES);
+            return;
+        }
+        int n = entities.size();
+        String[] id = new String[n], title = new String[n], type = new String[n], description = new String[n];
+        Integer[] hrid = new Integer[n], frequency = new Integer[n], degree = new Integer[n];
+        Double[] x = new Double[n], y = new Double[n];
+        List<String>[] textUnitIds = newListArray(n);
+        for (int i = 0; i < n; i++) {
+            Entity e = entities.get(i);
+            id[i] = e.getId();
+            hrid[i] = e.getHumanReadableId();
+            title[i] = e.getTitle();
+            type[i] = e.getType();
+            description[i] = e.getDescription();
+            textUnitIds[i] = e.getTextUnitIds();
+            frequency[i] = e.getFrequency();
+            degree[i] = e.getDegree();
+            x[i] = e.getX();
+            y[i] = e.getY();
+        }
+        write(scope, TABLE_ENTITIES, new ColumnarTable(n)
+                .putStrings("id", id)
+                .putInts("human_readable_id", hrid)
+                .putStrings("title", title)
+                .putStrings("type", type)
+                .putStrings("description", description)
+                .putStringLists("text_unit_ids", textUnitIds)
+                .putInts("frequency", frequency)
+                .putInts("degree", degree)
+                .putDoubles("x", x)
+                .putDoubles("y", y));
+    }
+
+    @Override
+    public List<Entity> loadEntities(int scope) {
+        ColumnarTable t = read(scope, TABLE_ENTITIES);
+        if (t == null) return new ArrayList<>();
+        String[] id = t.strings("id"), title = t.strings("title"), type = t.strings("type"), description = t.strings("description");
+        Integer[] hrid = t.ints("human_readable_id"), frequency = t.ints("frequency"), degree = t.ints("degree");
+        Double[] x = t.doubles("x"), y = t.doubles("y");
+        List<String>[] textUnitIds = t.stringLists("text_unit_ids");
+        List<Entity> out = new ArrayList<>(t.getRowCount());
+        for (int i = 0; i < t.getRowCount(); i++) {
+            out.add(Entity.builder()
+                    .id(id[i])
+                    .humanReadableId(hrid[i])
+                    .title(title[i])
+                    .type(type[i])
+                    .description(description[i])
+                    .textUnitIds(textUnitIds[i])
+                    .frequency(frequency[i])
+                    .degree(degree[i])
+                    .x(x[i])
+                    .y(y[i])
+                    .build());
+        }
+        return out;
+    }
+
+    /* ========== relationships ========== */
+
+    @Override
+    public void saveRelationships(int scope, List<Relationship> relationships) {
+        if (CollectionUtil.isEmpty(relationships)) {
+            delete(scope, TABLE_RELATIONSHIPS);
+            return;
+        }
+        int n = relationships.size();
+        String[] id = new String[n], source = new String[n], target = new String[n], description = new String[n];
+        Integer[] hrid = new Integer[n];
+        Double[] weight = new Double[n], combinedDegree = new Double[n];
+        List<String>[] textUnitIds = newListArray(n);
+        for (int i = 0; i < n; i++) {
+            Relationship r = relationships.get(i);
+            id[i] = r.getId();
+            hrid[i] = r.getHumanReadableId();
+            source[i] = r.getSource();
+            target[i] = r.getTarget();
+            description[i] = r.getDescription();
+            weight[i] = r.getWeight();
+            combinedDegree[i] = r.getCombinedDegree();
+            textUnitIds[i] = r.getTextUnitIds();
+        }
+        write(scope, TABLE_RELATIONSHIPS, new ColumnarTable(n)
+                .putStrings("id", id)
+                .putInts("human_readable_id", hrid)
+                .putStrings("source", source)
+                .putStrings("target", target)
+                .putStrings("description", description)
+                .putDoubles("weight", weight)
+                .putDoubles("combined_degree", combinedDegree)
+                .putStringLists("text_unit_ids", textUnitIds));
+    }
+
+    @Override
+    public List<Relationship> loadRelationships(int scope) {
+        ColumnarTable t = read(scope, TABLE_RELATIONSHIPS);
+        if (t == null) return new ArrayList<>();
+        String[] id = t.strings("id"), source = t.strings("source"), target = t.strings("target"), description = t.strings("description");
+        Integer[] hrid = t.ints("human_readable_id");
+        Double[] weight = t.doubles("weight"), combinedDegree = t.doubles("combined_degree");
+        List<String>[] textUnitIds = t.stringLists("text_unit_ids");
+        List<Relationship> out = new ArrayList<>(t.getRowCount());
+        for (int i = 0; i < t.getRowCount(); i++) {
+            out.add(Relationship.builder()
+                    .id(id[i])
+                    .humanReadableId(hrid[i])
+                    .source(source[i])
+                    .target(target[i])
+                    .description(description[i])
+                    .weight(weight[i])
+                    .combinedDegree(combinedDegree[i])
+                    .textUnitIds(textUnitIds[i])
+                    .build());
+        }
+        return out;
+    }
+
+    /* ========== text_units ========== */
+
+    @Override
+    public void saveTextUnits(int scope, List<TextUnit> textUnits) {
+        if (CollectionUtil.isEmpty(textUnits)) {
+            delete(scope, TABLE_TEXT_UNITS);
+            return;
+        }
+        int n = textUnits.size();
+        String[] id = new String[n], text = new String[n];
+        Integer[] hrid = new Integer[n], nTokens = new Integer[n];
+        List<String>[] documentIds = newListArray(n), entityIds = newListArray(n), relationshipIds = newListArray(n), covariateIds = newListArray(n);
+        for (int i = 0; i < n; i++) {
+            TextUnit tu = textUnits.get(i);
+            id[i] = tu.getId();
+            hrid[i] = tu.getHumanReadableId();
+            text[i] = tu.getText();
+            nTokens[i] = tu.getNTokens();
+            documentIds[i] = tu.getDocumentIds();
+            entityIds[i] = tu.getEntityIds();
+            relationshipIds[i] = tu.getRelationshipIds();
+            covariateIds[i] = tu.getCovariateIds();
+        }
+        write(scope, TABLE_TEXT_UNITS, new ColumnarTable(n)
+                .putStrings("id", id)
+                .putInts("human_readable_id", hrid)
+                .putStrings("text", text)
+                .putInts("n_tokens", nTokens)
+                .putStringLists("document_ids", documentIds)
+                .putStringLists("entity_ids", entityIds)
+                .putStringLists("relationship_ids", relationshipIds)
+                .putStringLists("covariate_ids", covariateIds));
+    }
+
+    @Override
+    public List<TextUnit> loadTextUnits(int scope) {
+        ColumnarTable t = read(scope, TABLE_TEXT_UNITS);
+        if (t == null) return new ArrayList<>();
+        String[] id = t.strings("id"), text = t.strings("text");
+        Integer[] hrid = t.ints("human_readable_id"), nTokens = t.ints("n_tokens");
+        List<String>[] documentIds = t.stringLists("document_ids"), entityIds = t.stringLists("entity_ids"),
+                relationshipIds = t.stringLists("relationship_ids"), covariateIds = t.stringLists("covariate_ids");
+        List<TextUnit> out = new ArrayList<>(t.getRowCount());
+        for (int i = 0; i < t.getRowCount(); i++) {
+            out.add(TextUnit.builder()
+                    .id(id[i])
+                    .humanReadableId(hrid[i])
+                    .text(text[i])
+                    .nTokens(nTokens[i])
+                    .documentIds(documentIds[i])
+                    .entityIds(entityIds[i])
+                    .relationshipIds(relationshipIds[i])
+                    .covariateIds(covariateIds[i])
+                    .build());
+        }
+        return out;
+    }
+
+    @Override
+    public List<String> loadTextUnitIds(int scope) {
+        ColumnarTable t = read(scope, TABLE_TEXT_UNITS);
+        return t == null ? new ArrayList<>() : new ArrayList<>(List.of(t.strings("id")));
+    }
+
+    /* ========== communities ========== */
+
+    @Override
+    public void saveCommunities(int scope, List<Community> communities) {
+        if (CollectionUtil.isEmpty(communities)) {
+            delete(scope, TABLE_COMMUNITIES);
+            return;
+        }
+        int n = communities.size();
+        String[] id = new String[n], title = new String[n], period = new String[n];
+        Integer[] hrid = new Integer[n], community = new Integer[n], level = new Integer[n], parent = new Integer[n], size = new Integer[n];
+        List<Integer>[] children = newListArray(n);
+        List<String>[] entityIds = newListArray(n), relationshipIds = newListArray(n), textUnitIds = newListArray(n);
+        for (int i = 0; i < n; i++) {
+            Community c = communities.get(i);
+            id[i] = c.getId();
+            hrid[i] = c.getHumanReadableId();
+            community[i] = c.getCommunity();
+            level[i] = c.getLevel();
+            parent[i] = c.getParent();
+            children[i] = c.getChildren();
+            title[i] = c.getTitle();
+            entityIds[i] = c.getEntityIds();
+            relationshipIds[i] = c.getRelationshipIds();
+            textUnitIds[i] = c.getTextUnitIds();
+            period[i] = c.getPeriod();
+            size[i] = c.getSize();
+        }
+        write(scope, TABLE_COMMUNITIES, new ColumnarTable(n)
+                .putStrings("id", id)
+                .putInts("human_readable_id", hrid)
+                .putInts("community", community)
+                .putInts("level", level)
+                .putInts("parent", parent)
+                .putIntLists("children", children)
+                .putStrings("title", title)
+                .putStringLists("entity_ids", entityIds)
+                .putStringLists("relationship_ids", relationshipIds)
+                .putStringLists("text_unit_ids", textUnitIds)
+                .putStrings("period", period)
+                .putInts("size", size));
+    }
+
+    @Override
+    public List<Community> loadCommunities(int scope) {
+        ColumnarTable t = read(scope, TABLE_COMMUNITIES);
+        if (t == null) return new ArrayList<>();
+        String[] id = t.strings("id"), title = t.strings("title"), period = t.strings("period");
+        Integer[] hrid = t.ints("human_readable_id"), community = t.ints("community"), level = t.ints("level"),
+                parent = t.ints("parent"), size = t.ints("size");
+        List<Integer>[] children = t.intLists("children");
+        List<String>[] entityIds = t.stringLists("entity_ids"), relationshipIds = t.stringLists("relationship_ids"),
+                textUnitIds = t.stringLists("text_unit_ids");
+        List<Community> out = new ArrayList<>(t.getRowCount());
+        for (int i = 0; i < t.getRowCount(); i++) {
+            out.add(Community.builder()
+                    .id(id[i])
+                    .humanReadableId(hrid[i])
+                    .community(community[i])
+                    .level(level[i])
+                    .parent(parent[i])
+                    .children(children[i])
+                    .title(title[i])
+                    .entityIds(entityIds[i])
+                    .relationshipIds(relationshipIds[i])
+                    .textUnitIds(textUnitIds[i])
+                    .period(period[i])
+                    .size(size[i])
+                    .build());
+        }
+        return out;
+    }
+
+    /* ========== community_reports ========== */
+
+    @Override
+    public void saveCommunityReports(int scope, List<CommunityReport> reports) {
+        if (CollectionUtil.isEmpty(reports)) {
+            delete(scope, TABLE_COMMUNITY_REPORTS);
+            return;
+        }
+        int n = reports.size();
+        String[] id = new String[n], title = new String[n], summary = new String[n], fullContent = new String[n],
+                ratingExplanation = new String[n], findings = new String[n], fullContentJson = new String[n], period = new String[n];
+        Integer[] hrid = new Integer[n], community = new Integer[n], level = new Integer[n], parent = new Integer[n], size = new Integer[n];
+        Double[] rank = new Double[n];
+        List<Integer>[] children = newListArray(n);
+        for (int i = 0; i < n; i++) {
+            CommunityReport r = reports.get(i);
+            id[i] = r.getId();
+            hrid[i] = r.getHumanReadableId();
+            community[i] = r.getCommunity();
+            level[i] = r.getLevel();
+            parent[i] = r.getParent();
+            children[i] = r.getChildren();
+            title[i] = r.getTitle();
+            summary[i] = r.getSummary();
+            fullContent[i] = r.getFullContent();
+            rank[i] = r.getRank();
+            ratingExplanation[i] = r.getRatingExplanation();
+            findings[i] = r.getFindings();
+            fullContentJson[i] = r.getFullContentJson();
+            period[i] = r.getPeriod();
+            size[i] = r.getSize();
+        }
+        write(scope, TABLE_COMMUNITY_REPORTS, new ColumnarTable(n)
+                .putStrings("id", id)
+                .putInts("human_readable_id", hrid)
+                .putInts("community", community)
+                .putInts("level", level)
+                .putInts("parent", parent)
+                .putIntLists("children", children)
+                .putStrings("title", title)
+                .putStrings("summary", summary)
+                .putStrings("full_content", fullContent)
+                .putDoubles("rank", rank)
+                .putStrings("rating_explanation", ratingExplanation)
+                .putStrings("findings", findings)
+                .putStrings("full_content_json", fullContentJson)
+                .putStrings("period", period)
+                .putInts("size", size));
+    }
+
+    @Override
+    public List<CommunityReport> loadCommunityReports(int scope) {
+        ColumnarTable t = read(scope, TABLE_COMMUNITY_REPORTS);
+        if (t == null) return new ArrayList<>();
+        String[] id = t.strings("id"), title = t.strings("title"), summary = t.strings("summary"), fullContent = t.strings("full_content"),
+                ratingExplanation = t.strings("rating_explanation"), findings = t.strings("findings"),
+                fullContentJson = t.strings("full_content_json"), period = t.strings("period");
+        Integer[] hrid = t.ints("human_readable_id"), community = t.ints("community"), level = t.ints("level"),
+                parent = t.ints("parent"), size = t.ints("size");
+        Double[] rank = t.doubles("rank");
+        List<Integer>[] children = t.intLists("children");
+        List<CommunityReport> out = new ArrayList<>(t.getRowCount());
+        for (int i = 0; i < t.getRowCount(); i++) {
+            out.add(CommunityReport.builder()
+                    .id(id[i])
+                    .humanReadableId(hrid[i])
+                    .community(community[i])
+                    .level(level[i])
+                    .parent(parent[i])
+                    .children(children[i])
+                    .title(title[i])
+                    .summary(summary[i])
+                    .fullContent(fullContent[i])
+                    .rank(rank[i])
+                    .ratingExplanation(ratingExplanation[i])
+                    .findings(findings[i])
+                    .fullContentJson(fullContentJson[i])
+                    .period(period[i])
+                    .size(size[i])
+                    .build());
+        }
+        return out;
+    }
+
+    /* ========== covariates ========== */
+
+    @Override
+    public void saveCovariates(int scope, List<Covariate> covariates) {
+        if (CollectionUtil.isEmpty(covariates)) {
+            delete(scope, TABLE_COVARIATES);
+            return;
+        }
+        int n = covariates.size();
+        String[] id = new String[n], covariateType = new String[n], type = new String[n], description = new String[n],
+                subjectId = new String[n], objectId = new String[n], status = new String[n], sourceText = new String[n],
+                textUnitId = new String[n], recordId = new String[n];
+        Integer[] hrid = new Integer[n];
+        Long[] startDate = new Long[n], endDate = new Long[n];
+        for (int i = 0; i < n; i++) {
+            Covariate c = covariates.get(i);
+            id[i] = c.getId();
+            hrid[i] = c.getHumanReadableId();
+            covariateType[i] = c.getCovariateType();
+            type[i] = c.getType();
+            description[i] = c.getDescription();
+            subjectId[i] = c.getSubjectId();
+            objectId[i] = c.getObjectId();
+            status[i] = c.getStatus();
+            startDate[i] = toMicros(c.getStartDate());
+            endDate[i] = toMicros(c.getEndDate());
+            sourceText[i] = c.getSourceText();
+            textUnitId[i] = c.getTextUnitId();
+            recordId[i] = c.getRecordId();
+        }
+        write(scope, TABLE_COVARIATES, new ColumnarTable(n)
+                .putStrings("id", id)
+                .putInts("human_readable_id", hrid)
+                .putStrings("covariate_type", covariateType)
+                .putStrings("type", type)
+                .putStrings("description", description)
+                .putStrings("subject_id", subjectId)
+                .putStrings("object_id", objectId)
+                .putStrings("status", status)
+                .putLongs("start_date", startDate)
+                .putLongs("end_date", endDate)
+                .putStrings("source_text", sourceText)
+                .putStrings("text_unit_id", textUnitId)
+                .putStrings("record_id", recordId));
+    }
+
+    @Override
+    public List<Covariate> loadCovariates(int scope) {
+        ColumnarTable t = read(scope, TABLE_COVARIATES);
+        if (t == null) return new ArrayList<>();
+        String[] id = t.strings("id"), covariateType = t.strings("covariate_type"), type = t.strings("type"),
+                description = t.strings("description"), subjectId = t.strings("subject_id"), objectId = t.strings("object_id"),
+                status = t.strings("status"), sourceText = t.strings("source_text"), textUnitId = t.strings("text_unit_id"),
+                recordId = t.strings("record_id");
+        Integer[] hrid = t.ints("human_readable_id");
+        Long[] startDate = t.longs("start_date"), endDate = t.longs("end_date");
+        List<Covariate> out = new ArrayList<>(t.getRowCount());
+        for (int i = 0; i < t.getRowCount(); i++) {
+            out.add(Covariate.builder()
+                    .id(id[i])
+                    .humanReadableId(hrid[i])
+                    .covariateType(covariateType[i])
+                    .type(type[i])
+                    .description(description[i])
+                    .subjectId(subjectId[i])
+                    .objectId(objectId[i])
+                    .status(status[i])
+                    .startDate(fromMicros(startDate[i]))
+                    .endDate(fromMicros(endDate[i]))
+                    .sourceText(sourceText[i])
+                    .textUnitId(textUnitId[i])
+                    .recordId(recordId[i])
+                    .build());
+        }
+        return out;
+    }
+
+    /* ========== 工具方法 ========== */
+
+    private void write(int scope, String table, ColumnarTable data) {
+        Path file = tableFile(scope, table);
+        long start = System.currentTimeMillis();
+        try {
+            data.write(file, compress);
+        } catch (IOException e) {
+            throw new RuntimeException("写入列式表失败: " + file, e);
+        }
+        log.info("写入列式表 {}: rows={}, 耗时={}ms", file, data.getRowCount(), System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void clear(int scope) {
+        for (String table : List.of(TABLE_ENTITIES, TABLE_RELATIONSHIPS, TABLE_TEXT_UNITS, TABLE_COMMUNITIES, TABLE_COMMUNITY_REPORTS, TABLE_COVARIATES)) {
+            delete(scope, table);
+        }
+    }
+
+    private void delete(int scope, String table) {
+        Path file = tableFile(scope, table);
+        try {
+            if (Files.deleteIfExists(file)) log.info("空表，删除列式表 {}", file);
+        } catch (IOException e) {
+            throw new RuntimeException("删除列式表失败: " + file, e);
+        }
+    }
+
+    private ColumnarTable read(int scope, String table) {
+        Path file = tableFile(scope, table);
+        if (!Files.exists(file)) {
+            log.info("列式表不存在，按空表处理: {}", file);
+            return null;
+        }
+        try {
+            return ColumnarTable.read(file);
+        } catch (IOException e) {
+            throw new RuntimeException("读取列式表失败: " + file, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T>[] newListArray(int n) {
+        return new List[n];
+    }
+
+    private static Long toMicros(Instant instant) {
+        return instant == null ? null : ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    private static Instant fromMicros(Long micros) {
+        return micros == null ? null : Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+}
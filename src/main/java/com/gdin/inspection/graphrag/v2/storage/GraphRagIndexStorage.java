@@ -8,14 +8,21 @@ import com.gdin.inspection.graphrag.v2.models.Entity;
 import com.gdin.inspection.graphrag.v2.models.Relationship;
 import com.gdin.inspection.graphrag.v2.models.TextUnit;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * 对齐 Python 端的 parquet 表：
  * entities / relationships / communities / community_reports /
  * text_units / documents / covariates / embeddings ...
  *
- * 这里只是抽象接口，具体用 Milvus 实现。
+ * 这里只是抽象接口，线上用 Milvus 实现，离线/暂存用列式文件实现（file-storage profile，见 FileStorageConfig）。
+ * save 均为整表覆盖写：先清掉该 scope 下这张表再写入，空列表等价于清空。
+ * upsert 按 id 写入：同 id 的行被覆盖、新 id 追加，其余行不动，空列表什么也不做。
+ * 默认实现读出整表替换后再整表写回，Milvus 实现只写传入的行（只为这些行重算向量）。
  */
 public interface GraphRagIndexStorage {
     public final int SCOPE_MAIN = 1;
@@ -33,8 +40,18 @@ public interface GraphRagIndexStorage {
 
     // ===== 文本单元 & 文档 =====
 
+    /**
+     * Milvus 实现里 text_units 回写在知识库切片上（见 KnowledgeSliceWriteBackService），不单独建 collection
+     */
+    void saveTextUnits(int scope, List<TextUnit> textUnits);
+
     List<TextUnit> loadTextUnits(int scope);
 
+    /**
+     * 只取文本单元 id（按 human_readable_id 排序），不读正文，查询侧快照用
+     */
+    List<String> loadTextUnitIds(int scope);
+
     // ===== 社区 & 报告 =====
 
     void saveCommunities(int scope, List<Community> communities);
@@ -50,4 +67,55 @@ public interface GraphRagIndexStorage {
     void saveCovariates(int scope, List<Covariate> covariates);
 
     List<Covariate> loadCovariates(int scope);
+
+    // ===== 按 id 增量写入 =====
+
+    default void upsertEntities(int scope, List<Entity> entities) {
+        if (entities == null || entities.isEmpty()) return;
+        saveEntities(scope, upsertById(loadEntities(scope), entities, Entity::getId));
+    }
+
+    default void upsertRelationships(int scope, List<Relationship> relationships) {
+        if (relationships == null || relationships.isEmpty()) return;
+        saveRelationships(scope, upsertById(loadRelationships(scope), relationships, Relationship::getId));
+    }
+
+    default void upsertTextUnits(int scope, List<TextUnit> textUnits) {
+        if (textUnits == null || textUnits.isEmpty()) return;
+        saveTextUnits(scope, upsertById(loadTextUnits(scope), textUnits, TextUnit::getId));
+    }
+
+    default void upsertCommunities(int scope, List<Community> communities) {
+        if (communities == null || communities.isEmpty()) return;
+        saveCommunities(scope, upsertById(loadCommunities(scope), communities, Community::getId));
+    }
+
+    default void upsertCommunityReports(int scope, List<CommunityReport> reports) {
+        if (reports == null || reports.isEmpty()) return;
+        saveCommunityReports(scope, upsertById(loadCommunityReports(scope), reports, CommunityReport::getId));
+    }
+
+    default void upsertCovariates(int scope, List<Covariate> covariates) {
+        if (covariates == null || covariates.isEmpty()) return;
+        saveCovariates(scope, upsertById(loadCovariates(scope), covariates, Covariate::getId));
+    }
+
+    /**
+     * 已有行保持原顺序、同 id 被替换，新 id 按传入顺序追加在后面
+     */
+    static <T> List<T> upsertById(List<T> existing, List<T> rows, Function<T, String> id) {
+        Map<String, T> byId = new LinkedHashMap<>();
+        for (T row : existing) byId.put(id.apply(row), row);
+        for (T row : rows) {
+            if (row != null) byId.put(id.apply(row), row);
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    // ===== 清理 =====
+
+    /**
+     * 清空某个 scope 下的所有表，对齐 Python update_clean_state 清掉 delta
+     */
+    void clear(int scope);
 }
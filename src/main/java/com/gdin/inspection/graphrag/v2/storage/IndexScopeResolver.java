@@ -0,0 +1,173 @@
+package com.gdin.inspection.graphrag.v2.storage;
+
+import cn.hutool.core.util.StrUtil;
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
+import com.gdin.inspection.graphrag.service.MilvusDeleteService;
+import io.milvus.v2.client.MilvusClientV2;
+import io.milvus.v2.service.partition.request.CreatePartitionReq;
+import io.milvus.v2.service.partition.request.DropPartitionReq;
+import io.milvus.v2.service.partition.request.HasPartitionReq;
+import io.milvus.v2.service.partition.request.ReleasePartitionsReq;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 把索引 scope（main / delta）解析到 Milvus 的 collection / partition：
+ * - 分区模式（默认）：delta 是主 collection 上的一个分区，main 使用默认分区；
+ *   清空 delta = release + drop 分区（元数据操作），下次写入时再建
+ * - collection 模式：沿用独立的 delta collection，清空走 deleteAll
+ * 知识库切片（text_units）的 scope 用标量字段过滤，见 {@link #textUnitFilter(int)}。
+ */
+@Slf4j
+@Component
+public class IndexScopeResolver {
+
+    public enum Table {
+        ENTITY, RELATIONSHIP, COMMUNITY, COMMUNITY_REPORT, COVARIATE
+    }
+
+    @Resource
+    private GraphProperties graphProperties;
+
+    @Resource
+    private MilvusClientV2 milvusClientV2;
+
+    private volatile boolean scopeFieldReady = true;
+
+    @Resource
+    private MilvusDeleteService milvusDeleteService;
+
+    @Resource
+    private GraphRagMetrics graphRagMetrics;
+
+    public boolean partitioned() {
+        return Boolean.TRUE.equals(graphProperties.getScope().getPartitionEnabled());
+    }
+
+    public String collection(Table table, int scope) {
+        GraphProperties.CollectionNames names = graphProperties.getCollectionNames();
+        if (scope != GraphRagIndexStorage.SCOPE_MAIN && scope != GraphRagIndexStorage.SCOPE_DELTA) {
+            throw new RuntimeException("Unknown scope");
+        }
+        if (scope == GraphRagIndexStorage.SCOPE_MAIN || partitioned()) {
+            GraphProperties.CollectionNames.Main main = names.getMain();
+            return switch (table) {
+                case ENTITY -> main.getEntityCollectionName();
+                case RELATIONSHIP -> main.getRelationshipCollectionName();
+                case COMMUNITY -> main.getCommunityCollectionName();
+                case COMMUNITY_REPORT -> main.getCommunityReportCollectionName();
+                case COVARIATE -> main.getCovariateCollectionName();
+            };
+        }
+        GraphProperties.CollectionNames.Delta delta = names.getDelta();
+        return switch (table) {
+            case ENTITY -> delta.getEntityCollectionName();
+            case RELATIONSHIP -> delta.getRelationshipCollectionName();
+            case COMMUNITY -> delta.getCommunityCollectionName();
+            case COMMUNITY_REPORT -> delta.getCommunityReportCollectionName();
+            case COVARIATE -> delta.getCovariateCollectionName();
+        };
+    }
+
+    /**
+     * 分区名，collection 模式下返回 null（不指定分区）
+     */
+    public String partition(int scope) {
+        if (!partitioned()) return null;
+        GraphProperties.Scope cfg = graphProperties.getScope();
+        if (scope == GraphRagIndexStorage.SCOPE_MAIN) return cfg.getMainPartition();
+        if (scope == GraphRagIndexStorage.SCOPE_DELTA) return cfg.getDeltaPartition();
+        throw new RuntimeException("Unknown scope");
+    }
+
+    public List<String> partitionNames(int scope) {
+        String partition = partition(scope);
+        return partition == null ? List.of() : List.of(partition);
+    }
+
+    /**
+     * scope 对应的分区是否存在（delta 分区清空后会被删除）；collection 模式恒为 true
+     */
+    public boolean exists(Table table, int scope) {
+        String partition = partition(scope);
+        if (partition == null) return true;
+        return Boolean.TRUE.equals(hasPartition(collection(table, scope), partition));
+    }
+
+    /**
+     * 写入前确保分区存在（新分区在已加载的 collection 上会自动加载）
+     */
+    public void ensurePartition(Table table, int scope) {
+        String partition = partition(scope);
+        if (partition == null) return;
+        String collectionName = collection(table, scope);
+        if (Boolean.TRUE.equals(hasPartition(collectionName, partition))) return;
+        graphRagMetrics.runMilvus("create_partition", collectionName, () -> milvusClientV2.createPartition(CreatePartitionReq.builder()
+                .collectionName(collectionName)
+                .partitionName(partition)
+                .build()));
+        log.info("已创建分区: {}.{}", collectionName, partition);
+    }
+
+    /**
+     * 清空某个 scope 下的一张表
+     */
+    public void clear(Table table, int scope) {
+        String collectionName = collection(table, scope);
+        String partition = partition(scope);
+        if (partition == null) {
+            milvusDeleteService.deleteAll(collectionName);
+            return;
+        }
+        if (scope == GraphRagIndexStorage.SCOPE_DELTA) {
+            dropPartition(collectionName, partition);
+            return;
+        }
+        // 默认分区不能 drop，只能按分区删除
+        milvusDeleteService.deleteAll(collectionName, partition);
+    }
+
+    public void clearAll(int scope) {
+        for (Table table : Table.values()) clear(table, scope);
+    }
+
+    /**
+     * scope 字段回填期间置为 false，过滤退回 extra.graph（见 KnowledgeSliceWriteBackService.backfillScopeFieldAsync）
+     */
+    public void setScopeFieldReady(boolean ready) {
+        scopeFieldReady = ready;
+    }
+
+    /**
+     * 知识库切片的 scope 过滤：配置了标量字段时走索引，否则沿用 extra["graph"] JSON 过滤
+     */
+    public String textUnitFilter(int scope) {
+        String field = graphProperties.getScope().getContentScopeField();
+        if (StrUtil.isBlank(field) || !scopeFieldReady) return "extra[\"graph\"] == " + scope;
+        return field + " == " + scope;
+    }
+
+    private Boolean hasPartition(String collectionName, String partition) {
+        return graphRagMetrics.timeMilvus("has_partition", collectionName, () -> milvusClientV2.hasPartition(HasPartitionReq.builder()
+                .collectionName(collectionName)
+                .partitionName(partition)
+                .build()));
+    }
+
+    private void dropPartition(String collectionName, String partition) {
+        if (!Boolean.TRUE.equals(hasPartition(collectionName, partition))) return;
+        graphRagMetrics.runMilvus("release_partition", collectionName, () -> milvusClientV2.releasePartitions(ReleasePartitionsReq.builder()
+                .collectionName(collectionName)
+                .partitionNames(List.of(partition))
+                .build()));
+        graphRagMetrics.runMilvus("drop_partition", collectionName, () -> milvusClientV2.dropPartition(DropPartitionReq.builder()
+                .collectionName(collectionName)
+                .partitionName(partition)
+                .build()));
+        log.info("已删除分区: {}.{}", collectionName, partition);
+    }
+}
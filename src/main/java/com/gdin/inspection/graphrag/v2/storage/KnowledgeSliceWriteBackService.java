@@ -1,19 +1,25 @@
 package com.gdin.inspection.graphrag.v2.storage;
 
 import cn.hutool.core.collection.CollectionUtil;
+import cn.hutool.core.util.StrUtil;
 import com.gdin.inspection.graphrag.config.properties.GraphProperties;
 import com.gdin.inspection.graphrag.req.milvus.MilvusQueryReq;
-import com.gdin.inspection.graphrag.req.milvus.MilvusUpsertReq;
+import com.gdin.inspection.graphrag.search.result.MilvusRow;
 import com.gdin.inspection.graphrag.service.MilvusSearchService;
 import com.gdin.inspection.graphrag.service.MilvusUpsertService;
 import com.gdin.inspection.graphrag.util.MilvusUtil;
 import com.gdin.inspection.graphrag.v2.models.TextUnit;
 import com.google.gson.*;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
@@ -31,30 +37,42 @@ public class KnowledgeSliceWriteBackService {
     @Resource
     private MilvusUpsertService milvusUpsertService;
 
+    @Resource
+    private IndexScopeResolver indexScopeResolver;
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "scope-field-backfill");
+        t.setDaemon(true);
+        return t;
+    });
+
     public void cleanKnowledgeSliceState(int scope) {
         // 将textUnits中extra.graph=1的设置成extra.graph=0(模拟清除)
         boolean hasUncleaned = true;
         while(hasUncleaned) {
-            String filter = "extra[\"graph\"]==" + scope;
-            String queryJson = milvusSearchService.query(MilvusQueryReq.builder()
+            String filter = indexScopeResolver.textUnitFilter(scope);
+            List<MilvusRow> rows = milvusSearchService.queryRows(MilvusQueryReq.builder()
                     .collectionName(graphProperties.getCollectionNames().getMain().getContentCollectionName())
                     .filter(filter.toString())
                     .outputFields(List.of("id"))
                     .build());
-            JsonArray arr = JsonParser.parseString(queryJson).getAsJsonArray();
-            if(arr.isEmpty()){
+            if(rows.isEmpty()){
                 hasUncleaned = false;
                 continue;
             }
-            List<JsonObject> upserts = new ArrayList<>(arr.size());
+            List<JsonObject> upserts = new ArrayList<>(rows.size());
             JsonObject newJsonObj = new JsonObject();
             JsonArray newJsonArr = new JsonArray();
-            for (JsonElement el : arr) {
-                JsonObject row = el.getAsJsonObject();
-                Long id = row.getAsJsonPrimitive("id").getAsLong();
+            for (MilvusRow row : rows) {
+                Long id = row.getLong("id");
                 JsonObject upsertRow = new JsonObject();
                 upsertRow.addProperty("id", id);
                 upsertRow.add("extra", newJsonObj);
+                addScopeField(upsertRow, 0);
                 upsertRow.add("graph_main", newJsonObj);
                 upsertRow.add("graph_document_ids", newJsonArr);
                 upsertRow.add("graph_entity_ids", newJsonArr);
@@ -62,13 +80,7 @@ public class KnowledgeSliceWriteBackService {
                 upsertRow.add("graph_covariate_ids", newJsonArr);
                 upserts.add(upsertRow);
             }
-            for (JsonObject upsertRow : upserts) {
-                milvusUpsertService.updateEntity(MilvusUpsertReq.builder()
-                        .collectionName(graphProperties.getCollectionNames().getMain().getContentCollectionName())
-                        .id(upsertRow.getAsJsonPrimitive("id").getAsLong())
-                        .valueMap((Map)upsertRow.asMap())
-                        .build());
-            }
+            updateByPage(upserts);
         }
     }
 
@@ -90,7 +102,7 @@ public class KnowledgeSliceWriteBackService {
         }
 
         // 2) 分批 query 原 extra
-        JsonArray arr = new JsonArray();
+        List<MilvusRow> rows = new ArrayList<>();
         List<List<String>> docIdBatches = new ArrayList<>();
         for (int i = 0; i < docIds.size(); i += 200) {
             docIdBatches.add(docIds.subList(i, Math.min(i + 200, docIds.size())));
@@ -103,33 +115,32 @@ public class KnowledgeSliceWriteBackService {
             }
             filter.deleteCharAt(filter.length() - 1);
             filter.append("]");
-            String queryJson = milvusSearchService.query(MilvusQueryReq.builder()
+            rows.addAll(milvusSearchService.queryRows(MilvusQueryReq.builder()
                     .collectionName(graphProperties.getCollectionNames().getMain().getContentCollectionName())
                     .filter(filter.toString())
                     .outputFields(List.of("id", "metadata", "extra", "graph_main", "graph_document_ids", "graph_entity_ids", "graph_relationship_ids", "graph_covariate_ids"))
-                    .build());
-            arr.addAll(JsonParser.parseString(queryJson).getAsJsonArray());
+                    .build()));
         }
 
         // 3) 组装 upsert 数据
-        List<JsonObject> upserts = new ArrayList<>(arr.size());
-        for (JsonElement el : arr) {
-            JsonObject row = el.getAsJsonObject();
-            String docId = row.getAsJsonObject("metadata").getAsJsonPrimitive("doc_id").getAsString();
+        List<JsonObject> upserts = new ArrayList<>(rows.size());
+        for (MilvusRow row : rows) {
+            String docId = row.getJsonString("metadata", "doc_id");
             TextUnit finalTu = docIdToFinal.get(docId);
             if (finalTu == null) continue;
 
-            JsonObject extra = row.has("extra") ? row.getAsJsonObject("extra") : new JsonObject();
+            JsonObject extra = row.has("extra") ? row.getJson("extra").deepCopy() : new JsonObject();
             extra.addProperty("graph", scope);
 
-            JsonObject graphMain = row.has("graph_main") ? row.getAsJsonObject("graph_main") : new JsonObject();
+            JsonObject graphMain = row.has("graph_main") ? row.getJson("graph_main").deepCopy() : new JsonObject();
             graphMain.addProperty("human_readable_id", finalTu.getHumanReadableId() == null ? -1 : finalTu.getHumanReadableId());
             graphMain.addProperty("n_tokens", finalTu.getNTokens());
 
-            Long id = row.getAsJsonPrimitive("id").getAsLong();
+            Long id = row.getLong("id");
             JsonObject upsertRow = new JsonObject();
             upsertRow.addProperty("id", id);
             upsertRow.add("extra", extra);
+            addScopeField(upsertRow, scope);
             upsertRow.add("graph_main", graphMain);
             upsertRow.add("graph_document_ids", toJsonArray(finalTu.getDocumentIds()));
             upsertRow.add("graph_entity_ids", toJsonArray(finalTu.getEntityIds()));
@@ -144,17 +155,92 @@ public class KnowledgeSliceWriteBackService {
         }
 
         // 4) upsert 回去
-        for (JsonObject upsertRow : upserts) {
-            milvusUpsertService.updateEntity(MilvusUpsertReq.builder()
-                    .collectionName(graphProperties.getCollectionNames().getMain().getContentCollectionName())
-                    .id(upsertRow.getAsJsonPrimitive("id").getAsLong())
-                    .valueMap((Map)upsertRow.asMap())
-                    .build());
-        }
+        updateByPage(upserts);
 
         log.info("writeBackToKnowledgeBase: 已写回 {} 条切片 metadata 到 {}", upserts.size(), graphProperties.getCollectionNames().getMain().getContentCollectionName());
     }
 
+    /**
+     * 后台回填 scope 字段，不阻塞启动。回填完成前 {@link IndexScopeResolver#textUnitFilter(int)} 仍按 extra.graph 过滤，
+     * 避免还没回填的切片被漏掉。同一时间只跑一个回填任务，重复调用返回 null。
+     */
+    public CompletableFuture<Integer> backfillScopeFieldAsync() {
+        if (!backfillRunning.compareAndSet(false, true)) return null;
+        indexScopeResolver.setScopeFieldReady(false);
+        return CompletableFuture.supplyAsync(this::backfillScopeField, backfillExecutor)
+                .whenComplete((total, e) -> {
+                    backfillRunning.set(false);
+                    if (e != null) {
+                        log.error("backfillScopeField 失败，切片 scope 过滤继续使用 extra.graph", e);
+                        return;
+                    }
+                    indexScopeResolver.setScopeFieldReady(true);
+                });
+    }
+
+    /**
+     * 把 extra.graph 的值写到 scope 标量字段上，按页查出未回填的 id 后整页批量更新。
+     * 字段新加时由 GraphConfig 在后台触发；上次回填中断（字段已存在但仍有空值）时启动后也会补齐，也可手动调用。
+     * 某一页全是已经处理过的 id 说明写入没有生效（如字段类型不匹配），停止回填而不是空转。
+     */
+    public int backfillScopeField() {
+        String field = graphProperties.getScope().getContentScopeField();
+        if (StrUtil.isBlank(field)) return 0;
+        String collectionName = graphProperties.getCollectionNames().getMain().getContentCollectionName();
+        int total = 0;
+        for (int scope : List.of(GraphRagIndexStorage.SCOPE_MAIN, GraphRagIndexStorage.SCOPE_DELTA)) {
+            Set<Long> attempted = new HashSet<>();
+            while (true) {
+                List<MilvusRow> rows = milvusSearchService.queryRows(MilvusQueryReq.builder()
+                        .collectionName(collectionName)
+                        .filter("extra[\"graph\"] == " + scope + " and " + field + " is null")
+                        .outputFields(List.of("id"))
+                        .limit(PAGE_SIZE)
+                        .build());
+                if (rows.isEmpty()) break;
+                Map<Long, Map<String, Object>> page = new LinkedHashMap<>();
+                for (MilvusRow row : rows) {
+                    Long id = row.getLong("id");
+                    if (attempted.add(id)) page.put(id, Map.of(field, scope));
+                }
+                if (page.isEmpty()) {
+                    throw new IllegalStateException("回填 " + field + " 无进展，scope=" + scope + " 仍有 " + rows.size() + " 条切片未写入");
+                }
+                milvusUpsertService.updateEntities(collectionName, page);
+                total += page.size();
+            }
+        }
+        log.info("backfillScopeField: 已回填 {} 条切片的 {}", total, field);
+        return total;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        backfillExecutor.shutdownNow();
+    }
+
+    /**
+     * 按页批量局部更新，每页一次 get + 一次 upsert
+     */
+    private void updateByPage(List<JsonObject> upserts) {
+        String collectionName = graphProperties.getCollectionNames().getMain().getContentCollectionName();
+        for (int i = 0; i < upserts.size(); i += PAGE_SIZE) {
+            Map<Long, Map<String, Object>> page = new LinkedHashMap<>();
+            for (JsonObject upsertRow : upserts.subList(i, Math.min(i + PAGE_SIZE, upserts.size()))) {
+                page.put(upsertRow.getAsJsonPrimitive("id").getAsLong(), (Map) upsertRow.asMap());
+            }
+            milvusUpsertService.updateEntities(collectionName, page);
+        }
+    }
+
+    /**
+     * 同时写 scope 标量字段（带索引），extra.graph 保留以兼容旧过滤
+     */
+    private void addScopeField(JsonObject upsertRow, int scope) {
+        String field = graphProperties.getScope().getContentScopeField();
+        if (!StrUtil.isBlank(field)) upsertRow.addProperty(field, scope);
+    }
+
     private JsonArray toJsonArray(List<String> list) {
         JsonArray arr = new JsonArray();
         if (list == null) return arr;
@@ -2,9 +2,9 @@ package com.gdin.inspection.graphrag.v2.storage;
 
 import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.util.StrUtil;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.gdin.inspection.graphrag.config.properties.GraphProperties;
-import com.gdin.inspection.graphrag.util.IOUtil;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
+import com.gdin.inspection.graphrag.search.result.MilvusRow;
 import com.gdin.inspection.graphrag.util.MilvusUtil;
 import com.gdin.inspection.graphrag.v2.models.*;
 import com.gdin.inspection.graphrag.v2.util.TokenUtil;
@@ -19,14 +19,16 @@ import io.milvus.v2.client.MilvusClientV2;
 import io.milvus.v2.service.vector.request.QueryIteratorReq;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * 把 GraphRAG 的几个“表”写入 Milvus：
@@ -39,7 +41,9 @@ import java.util.Map;
  * 字段严格对齐 Python 的 data_model.schemas 中的 *_FINAL_COLUMNS。
  */
 @Slf4j
+@Primary
 @Component
+@Profile("!offline & !file-storage")
 public class MilvusGraphRagIndexStorage implements GraphRagIndexStorage {
     @Resource
     private EmbeddingModel embeddingModel;
@@ -53,372 +57,410 @@ public class MilvusGraphRagIndexStorage implements GraphRagIndexStorage {
     @Resource
     private MilvusClientV2 milvusClientV2;
 
+    @Resource
+    private GraphRagMetrics graphRagMetrics;
+
     @Resource
     private TokenUtil tokenUtil;
 
+    @Resource
+    private IndexScopeResolver indexScopeResolver;
+
+    @Resource
+    private KnowledgeSliceWriteBackService knowledgeSliceWriteBackService;
+
     private final Gson gson = new Gson();
 
 
     /* ========== entities.parquet -> ENTITY_COLLECTION ========== */
 
     public void saveEntities(int scope, List<Entity> entities) {
+        indexScopeResolver.clear(IndexScopeResolver.Table.ENTITY, scope);
         if (CollectionUtil.isEmpty(entities)) {
             log.info("saveEntities: 没有实体需要写入");
             return;
         }
-        List<JsonObject> rows = new ArrayList<>(entities.size());
-        for (Entity e : entities) {
-            if (e == null) continue;
-            JsonObject obj = new JsonObject();
-
-            safeAddString(obj, "id", e.getId());
-            safeAddInt(obj, "human_readable_id", e.getHumanReadableId());
-            safeAddString(obj, "title", e.getTitle());
-            safeAddString(obj, "type", e.getType());
-            safeAddString(obj, "description", e.getDescription());
-            addStringList(obj, "text_unit_ids", e.getTextUnitIds());
-            safeAddInt(obj, "frequency", e.getFrequency());
-            safeAddInt(obj, "degree", e.getDegree());
-            safeAddDouble(obj, "x", e.getX());
-            safeAddDouble(obj, "y", e.getY());
-            safeAddEmbedding(obj, "embedding", e.getDescription());
-
-            rows.add(obj);
-        }
-
-        String collectionName;
-        if(scope==SCOPE_MAIN) collectionName = graphProperties.getCollectionNames().getMain().getEntityCollectionName();
-        else if(scope==SCOPE_DELTA) collectionName = graphProperties.getCollectionNames().getDelta().getEntityCollectionName();
-        else throw new RuntimeException("Unknown scope");
-        try {
-            milvusUtil.insertByBatch(collectionName, rows);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        List<JsonObject> rows = rows(entities, this::entityRow);
+        String collectionName = insert(IndexScopeResolver.Table.ENTITY, scope, rows);
         log.info("saveEntities: 已写入 {} 条实体到 {} ", rows.size(), collectionName);
     }
 
+    @Override
+    public void upsertEntities(int scope, List<Entity> entities) {
+        if (CollectionUtil.isEmpty(entities)) return;
+        String collectionName = upsert(IndexScopeResolver.Table.ENTITY, scope, rows(entities, this::entityRow));
+        log.info("upsertEntities: 已按 id 写入 {} 条到 {}", entities.size(), collectionName);
+    }
+
     @Override
     public List<Entity> loadEntities(int scope) {
-        String collectionName;
-        if(scope==SCOPE_MAIN) collectionName = graphProperties.getCollectionNames().getMain().getEntityCollectionName();
-        else if(scope==SCOPE_DELTA) collectionName = graphProperties.getCollectionNames().getDelta().getEntityCollectionName();
-        else throw new RuntimeException("Unknown scope");
-        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(collectionName, List.of("id", "human_readable_id", "title", "type", "description", "text_unit_ids", "frequency", "degree", "x", "y"));
-        try {
-            List<Entity> entities = rowRecordsToModels(rowRecords, Entity.class);
-            entities.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
-            return entities;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        IndexScopeResolver.Table table = IndexScopeResolver.Table.ENTITY;
+        String collectionName = indexScopeResolver.collection(table, scope);
+        if (!indexScopeResolver.exists(table, scope)) return new ArrayList<>();
+        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(collectionName, indexScopeResolver.partitionNames(scope), List.of("id", "human_readable_id", "title", "type", "description", "text_unit_ids", "frequency", "degree", "x", "y"));
+        List<Entity> entities = MilvusRowMappers.map(rowRecords, MilvusRowMappers.ENTITY);
+        entities.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
+        return entities;
     }
 
     /* ========== relationships.parquet -> RELATIONSHIP_COLLECTION ========== */
 
     public void saveRelationships(int scope, List<Relationship> relationships) {
+        indexScopeResolver.clear(IndexScopeResolver.Table.RELATIONSHIP, scope);
         if (CollectionUtil.isEmpty(relationships)) {
             log.info("saveRelationships: 没有关系需要写入");
             return;
         }
-        List<JsonObject> rows = new ArrayList<>(relationships.size());
-        for (Relationship r : relationships) {
-            if (r == null) continue;
-            JsonObject obj = new JsonObject();
-
-            safeAddString(obj, "id", r.getId());
-            safeAddInt(obj, "human_readable_id", r.getHumanReadableId());
-            safeAddString(obj, "source", r.getSource());
-            safeAddString(obj, "target", r.getTarget());
-            safeAddString(obj, "description", r.getDescription());
-            safeAddDouble(obj, "weight", r.getWeight());
-            safeAddDouble(obj, "combined_degree", r.getCombinedDegree());
-            addStringList(obj, "text_unit_ids", r.getTextUnitIds());
-            safeAddEmbedding(obj, "embedding", r.getDescription());
-
-            rows.add(obj);
-        }
-
-        String collectionName;
-        if(scope==SCOPE_MAIN) collectionName = graphProperties.getCollectionNames().getMain().getRelationshipCollectionName();
-        else if(scope==SCOPE_DELTA) collectionName = graphProperties.getCollectionNames().getDelta().getRelationshipCollectionName();
-        else throw new RuntimeException("Unknown scope");
-        try {
-            milvusUtil.insertByBatch(collectionName, rows);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        List<JsonObject> rows = rows(relationships, this::relationshipRow);
+        String collectionName = insert(IndexScopeResolver.Table.RELATIONSHIP, scope, rows);
         log.info("saveRelationships: 已写入 {} 条关系到 {}", rows.size(), collectionName);
     }
 
+    @Override
+    public void upsertRelationships(int scope, List<Relationship> relationships) {
+        if (CollectionUtil.isEmpty(relationships)) return;
+        String collectionName = upsert(IndexScopeResolver.Table.RELATIONSHIP, scope, rows(relationships, this::relationshipRow));
+        log.info("upsertRelationships: 已按 id 写入 {} 条到 {}", relationships.size(), collectionName);
+    }
+
     @Override
     public List<Relationship> loadRelationships(int scope) {
-        String collectionName;
-        if(scope==SCOPE_MAIN) collectionName = graphProperties.getCollectionNames().getMain().getRelationshipCollectionName();
-        else if(scope==SCOPE_DELTA) collectionName = graphProperties.getCollectionNames().getDelta().getRelationshipCollectionName();
-        else throw new RuntimeException("Unknown scope");
-        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(collectionName, List.of("id", "human_readable_id", "source", "target", "description", "weight", "combined_degree", "text_unit_ids"));
-        try {
-            List<Relationship> relationships = rowRecordsToModels(rowRecords, Relationship.class);
-            relationships.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
-            return relationships;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        IndexScopeResolver.Table table = IndexScopeResolver.Table.RELATIONSHIP;
+        String collectionName = indexScopeResolver.collection(table, scope);
+        if (!indexScopeResolver.exists(table, scope)) return new ArrayList<>();
+        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(collectionName, indexScopeResolver.partitionNames(scope), List.of("id", "human_readable_id", "source", "target", "description", "weight", "combined_degree", "text_unit_ids"));
+        List<Relationship> relationships = MilvusRowMappers.map(rowRecords, MilvusRowMappers.RELATIONSHIP);
+        relationships.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
+        return relationships;
+    }
+
+    /**
+     * text_units 不单独建 collection，状态回写在知识库切片上：先清掉该 scope 的旧标记再整表回写
+     */
+    @Override
+    public void saveTextUnits(int scope, List<TextUnit> textUnits) {
+        knowledgeSliceWriteBackService.cleanKnowledgeSliceState(scope);
+        if (CollectionUtil.isEmpty(textUnits)) {
+            log.info("saveTextUnits: 没有文本单元需要回写");
+            return;
         }
+        knowledgeSliceWriteBackService.writeBackToKnowledgeBase(scope, textUnits);
     }
 
+    /**
+     * 只回写传入的切片，不清该 scope 下其它切片的标记
+     */
     @Override
-    public List<TextUnit> loadTextUnits(int scope) {
-        try {
-            List<TextUnit> textUnits = new ArrayList<>();
-            String filter = "extra[\"graph\"] == " + scope;
-            List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(graphProperties.getCollectionNames().getMain().getContentCollectionName(), List.of("metadata", "page_content", "graph_main", "graph_document_ids", "graph_entity_ids", "graph_relationship_ids", "graph_covariate_ids"), filter);
-            for (QueryResultsWrapper.RowRecord rowRecord : rowRecords) {
-                Map<String, Object> fieldValues = rowRecord.getFieldValues();
-                String pageContent = (String) fieldValues.get("page_content");
-                JsonObject metadata = (JsonObject) fieldValues.get("metadata");
-                JsonObject graphMain = (JsonObject) fieldValues.get("graph_main");
-                Integer humanReadableId = graphMain.has("human_readable_id") ? graphMain.getAsJsonPrimitive("human_readable_id").getAsInt() : null;
-                int nTokens = graphMain.has("n_tokens")? graphMain.getAsJsonPrimitive("n_tokens").getAsInt() : tokenUtil.getTokenCount(pageContent);
-                String docId = metadata.getAsJsonPrimitive("doc_id").getAsString();
-                List<String> documentIds = IOUtil.simpleMapper().readValue(gson.toJson(fieldValues.get("graph_document_ids")), new TypeReference<>() {});
-                List<String> entityIds = IOUtil.simpleMapper().readValue(gson.toJson(fieldValues.get("graph_entity_ids")), new TypeReference<>() {});
-                List<String> relationshipIds = IOUtil.simpleMapper().readValue(gson.toJson(fieldValues.get("graph_relationship_ids")), new TypeReference<>() {});
-                List<String> covariateIds = IOUtil.simpleMapper().readValue(gson.toJson(fieldValues.get("graph_covariate_ids")), new TypeReference<>() {});
-                textUnits.add(TextUnit.builder()
-                        .id(docId)
-                        .humanReadableId(humanReadableId)
-                        .text(pageContent)
-                        .nTokens(nTokens)
-                        .documentIds(documentIds)
-                        .entityIds(entityIds)
-                        .relationshipIds(relationshipIds)
-                        .covariateIds(covariateIds)
-                        .build());
-            }
-            // 对齐 Python：上一轮 human_readable_id 是连续的，所以这里也按 hrid 排序，避免后续 max() 被乱序影响
-            textUnits.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
+    public void upsertTextUnits(int scope, List<TextUnit> textUnits) {
+        if (CollectionUtil.isEmpty(textUnits)) return;
+        knowledgeSliceWriteBackService.writeBackToKnowledgeBase(scope, textUnits);
+    }
 
-            return textUnits;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    @Override
+    public List<TextUnit> loadTextUnits(int scope) {
+        List<TextUnit> textUnits = new ArrayList<>();
+        String filter = indexScopeResolver.textUnitFilter(scope);
+        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(graphProperties.getCollectionNames().getMain().getContentCollectionName(), List.of(), List.of("metadata", "page_content", "graph_main", "graph_document_ids", "graph_entity_ids", "graph_relationship_ids", "graph_covariate_ids"), filter);
+        for (QueryResultsWrapper.RowRecord rowRecord : rowRecords) {
+            MilvusRow row = new MilvusRow(rowRecord.getFieldValues());
+            String pageContent = row.getString("page_content");
+            Integer humanReadableId = row.getJsonInteger("graph_main", "human_readable_id");
+            Integer nTokens = row.getJsonInteger("graph_main", "n_tokens");
+            if (nTokens == null) nTokens = tokenUtil.getTokenCount(pageContent);
+            textUnits.add(TextUnit.builder()
+                    .id(row.getJsonString("metadata", "doc_id"))
+                    .humanReadableId(humanReadableId)
+                    .text(pageContent)
+                    .nTokens(nTokens)
+                    .documentIds(row.getStringList("graph_document_ids"))
+                    .entityIds(row.getStringList("graph_entity_ids"))
+                    .relationshipIds(row.getStringList("graph_relationship_ids"))
+                    .covariateIds(row.getStringList("graph_covariate_ids"))
+                    .build());
         }
+        // 对齐 Python：上一轮 human_readable_id 是连续的，所以这里也按 hrid 排序，避免后续 max() 被乱序影响
+        textUnits.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
+
+        return textUnits;
+    }
+
+    @Override
+    public List<String> loadTextUnitIds(int scope) {
+        String filter = indexScopeResolver.textUnitFilter(scope);
+        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(graphProperties.getCollectionNames().getMain().getContentCollectionName(), List.of(), List.of("metadata", "graph_main"), filter);
+        List<MilvusRow> rows = new ArrayList<>(rowRecords.size());
+        for (QueryResultsWrapper.RowRecord rowRecord : rowRecords) rows.add(new MilvusRow(rowRecord.getFieldValues()));
+        rows.sort(Comparator.comparingInt(r -> {
+            Integer hrid = r.getJsonInteger("graph_main", "human_readable_id");
+            return hrid == null ? -1 : hrid;
+        }));
+        List<String> ids = new ArrayList<>(rows.size());
+        for (MilvusRow row : rows) ids.add(row.getJsonString("metadata", "doc_id"));
+        return ids;
     }
 
     /* ========== communities.parquet -> COMMUNITY_COLLECTION ========== */
 
     public void saveCommunities(int scope, List<Community> communities) {
+        indexScopeResolver.clear(IndexScopeResolver.Table.COMMUNITY, scope);
         if (CollectionUtil.isEmpty(communities)) {
             log.info("saveCommunities: 没有社区需要写入");
             return;
         }
-        List<JsonObject> rows = new ArrayList<>(communities.size());
-        for (Community c : communities) {
-            if (c == null) continue;
-            JsonObject obj = new JsonObject();
-
-            safeAddString(obj, "id", c.getId());
-            safeAddInt(obj, "human_readable_id", c.getHumanReadableId());
-            safeAddInt(obj, "community", c.getCommunity());
-            safeAddInt(obj, "level", c.getLevel());
-            safeAddInt(obj, "parent", c.getParent());
-            addIntList(obj, "children", c.getChildren());
-            safeAddString(obj, "title", c.getTitle());
-            addStringList(obj, "entity_ids", c.getEntityIds());
-            addStringList(obj, "relationship_ids", c.getRelationshipIds());
-            addStringList(obj, "text_unit_ids", c.getTextUnitIds());
-            safeAddString(obj, "period", c.getPeriod());
-            safeAddInt(obj, "size", c.getSize());
-            safeAddEmbedding(obj, "embedding", c.getTitle());
-
-            rows.add(obj);
-        }
-
-        String collectionName;
-        if(scope==SCOPE_MAIN) collectionName = graphProperties.getCollectionNames().getMain().getCommunityCollectionName();
-        else if(scope==SCOPE_DELTA) collectionName = graphProperties.getCollectionNames().getDelta().getCommunityCollectionName();
-        else throw new RuntimeException("Unknown scope");
-        try {
-            milvusUtil.insertByBatch(collectionName, rows);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        List<JsonObject> rows = rows(communities, this::communityRow);
+        String collectionName = insert(IndexScopeResolver.Table.COMMUNITY, scope, rows);
         log.info("saveCommunities: 已写入 {} 条社区到 {}", rows.size(), collectionName);
     }
 
+    @Override
+    public void upsertCommunities(int scope, List<Community> communities) {
+        if (CollectionUtil.isEmpty(communities)) return;
+        String collectionName = upsert(IndexScopeResolver.Table.COMMUNITY, scope, rows(communities, this::communityRow));
+        log.info("upsertCommunities: 已按 id 写入 {} 条到 {}", communities.size(), collectionName);
+    }
+
     @Override
     public List<Community> loadCommunities(int scope) {
-        String collectionName;
-        if(scope==SCOPE_MAIN) collectionName = graphProperties.getCollectionNames().getMain().getCommunityCollectionName();
-        else if(scope==SCOPE_DELTA) collectionName = graphProperties.getCollectionNames().getDelta().getCommunityCollectionName();
-        else throw new RuntimeException("Unknown scope");
-        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(collectionName, List.of("id", "human_readable_id", "community", "level", "parent", "children", "title", "entity_ids", "relationship_ids", "text_unit_ids", "period", "size"));
-        try {
-            List<Community> communities = rowRecordsToModels(rowRecords, Community.class);
-            communities.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
-            return communities;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        IndexScopeResolver.Table table = IndexScopeResolver.Table.COMMUNITY;
+        String collectionName = indexScopeResolver.collection(table, scope);
+        if (!indexScopeResolver.exists(table, scope)) return new ArrayList<>();
+        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(collectionName, indexScopeResolver.partitionNames(scope), List.of("id", "human_readable_id", "community", "level", "parent", "children", "title", "entity_ids", "relationship_ids", "text_unit_ids", "period", "size"));
+        List<Community> communities = MilvusRowMappers.map(rowRecords, MilvusRowMappers.COMMUNITY);
+        communities.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
+        return communities;
     }
 
     /* ========== community_reports.parquet -> COMMUNITY_REPORT_COLLECTION ========== */
 
     public void saveCommunityReports(int scope, List<CommunityReport> reports) {
+        indexScopeResolver.clear(IndexScopeResolver.Table.COMMUNITY_REPORT, scope);
         if (CollectionUtil.isEmpty(reports)) {
             log.info("saveCommunityReports: 没有社区报告需要写入");
             return;
         }
-        List<JsonObject> rows = new ArrayList<>(reports.size());
-        for (CommunityReport r : reports) {
-            if (r == null) continue;
-            JsonObject obj = new JsonObject();
-
-            safeAddString(obj, "id", r.getId());
-            safeAddInt(obj, "human_readable_id", r.getHumanReadableId());
-            safeAddInt(obj, "community", r.getCommunity());
-            safeAddInt(obj, "level", r.getLevel());
-            safeAddInt(obj, "parent", r.getParent());
-            addIntList(obj, "children", r.getChildren());
-            safeAddString(obj, "title", r.getTitle());
-            safeAddString(obj, "summary", r.getSummary());
-            safeAddString(obj, "full_content", r.getFullContent());
-            safeAddDouble(obj, "rank", r.getRank());
-            safeAddString(obj, "rating_explanation", r.getRatingExplanation());
-            // 这里的 findings / full_content_json 在 Java 模型里已经是 JSON 字符串
-            safeAddString(obj, "findings", r.getFindings());
-            safeAddString(obj, "full_content_json", r.getFullContentJson());
-            safeAddString(obj, "period", r.getPeriod());
-            safeAddInt(obj, "size", r.getSize());
-            safeAddEmbedding(obj, "embedding", r.getSummary());
-
-            rows.add(obj);
-        }
-
-        String collectionName;
-        if(scope==SCOPE_MAIN) collectionName = graphProperties.getCollectionNames().getMain().getCommunityReportCollectionName();
-        else if(scope==SCOPE_DELTA) collectionName = graphProperties.getCollectionNames().getDelta().getCommunityReportCollectionName();
-        else throw new RuntimeException("Unknown scope");
-        try {
-            milvusUtil.insertByBatch(collectionName, rows);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        List<JsonObject> rows = rows(reports, this::communityReportRow);
+        String collectionName = insert(IndexScopeResolver.Table.COMMUNITY_REPORT, scope, rows);
         log.info("saveCommunityReports: 已写入 {} 条社区报告到 {}", rows.size(), collectionName);
     }
 
+    @Override
+    public void upsertCommunityReports(int scope, List<CommunityReport> reports) {
+        if (CollectionUtil.isEmpty(reports)) return;
+        String collectionName = upsert(IndexScopeResolver.Table.COMMUNITY_REPORT, scope, rows(reports, this::communityReportRow));
+        log.info("upsertCommunityReports: 已按 id 写入 {} 条到 {}", reports.size(), collectionName);
+    }
+
     @Override
     public List<CommunityReport> loadCommunityReports(int scope) {
-        String collectionName;
-        if(scope==SCOPE_MAIN) collectionName = graphProperties.getCollectionNames().getMain().getCommunityReportCollectionName();
-        else if(scope==SCOPE_DELTA) collectionName = graphProperties.getCollectionNames().getDelta().getCommunityReportCollectionName();
-        else throw new RuntimeException("Unknown scope");
-        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(collectionName, List.of("id", "human_readable_id", "community", "level", "parent", "children", "title", "summary", "full_content", "rank", "rating_explanation", "findings", "full_content_json", "period", "size"));
-        try {
-            List<CommunityReport> communityReports = rowRecordsToModels(rowRecords, CommunityReport.class);
-            communityReports.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
-            return communityReports;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        IndexScopeResolver.Table table = IndexScopeResolver.Table.COMMUNITY_REPORT;
+        String collectionName = indexScopeResolver.collection(table, scope);
+        if (!indexScopeResolver.exists(table, scope)) return new ArrayList<>();
+        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(collectionName, indexScopeResolver.partitionNames(scope), List.of("id", "human_readable_id", "community", "level", "parent", "children", "title", "summary", "full_content", "rank", "rating_explanation", "findings", "full_content_json", "period", "size"));
+        List<CommunityReport> communityReports = MilvusRowMappers.map(rowRecords, MilvusRowMappers.COMMUNITY_REPORT);
+        communityReports.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
+        return communityReports;
     }
 
     public void saveCovariates(int scope, List<Covariate> covariates) {
+        indexScopeResolver.clear(IndexScopeResolver.Table.COVARIATE, scope);
         if (CollectionUtil.isEmpty(covariates)) {
             log.info("saveCovariates: 没有 covariates 需要写入");
             return;
         }
 
-        List<JsonObject> rows = new ArrayList<>(covariates.size());
-        for (Covariate c : covariates) {
-            if (c == null) continue;
-            JsonObject obj = new JsonObject();
-
-            safeAddString(obj, "id", c.getId());
-            safeAddInt(obj, "human_readable_id", c.getHumanReadableId());
-            safeAddString(obj, "covariate_type", c.getCovariateType());
-            safeAddString(obj, "type", c.getType());
-            safeAddString(obj, "description", c.getDescription());
-            safeAddString(obj, "subject_id", c.getSubjectId());
-            safeAddString(obj, "object_id", c.getObjectId());
-            safeAddString(obj, "status", c.getStatus());
-            safeAddInstant(obj, "start_date", c.getStartDate());
-            safeAddInstant(obj, "end_date", c.getEndDate());
-            safeAddString(obj, "source_text", c.getSourceText());
-            safeAddString(obj, "text_unit_id", c.getTextUnitId());
-
-            // 向量：description 优先，其次 source_text
-            String embedText = !StrUtil.isBlank(c.getDescription()) ? c.getDescription() : c.getSourceText();
-            safeAddEmbedding(obj, "embedding", embedText);
-
-            rows.add(obj);
-        }
-
-        String collectionName;
-        if(scope==SCOPE_MAIN) collectionName = graphProperties.getCollectionNames().getMain().getCovariateCollectionName();
-        else if(scope==SCOPE_DELTA) collectionName = graphProperties.getCollectionNames().getDelta().getCovariateCollectionName();
-        else throw new RuntimeException("Unknown scope");
-        try {
-            milvusUtil.insertByBatch(collectionName, rows);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        List<JsonObject> rows = rows(covariates, this::covariateRow);
+        String collectionName = insert(IndexScopeResolver.Table.COVARIATE, scope, rows);
         log.info("saveCovariates: 已写入 {} 条到 {}", rows.size(), collectionName);
     }
 
+    @Override
+    public void upsertCovariates(int scope, List<Covariate> covariates) {
+        if (CollectionUtil.isEmpty(covariates)) return;
+        String collectionName = upsert(IndexScopeResolver.Table.COVARIATE, scope, rows(covariates, this::covariateRow));
+        log.info("upsertCovariates: 已按 id 写入 {} 条到 {}", covariates.size(), collectionName);
+    }
+
     @Override
     public List<Covariate> loadCovariates(int scope) {
-        String collectionName;
-        if(scope==SCOPE_MAIN) collectionName = graphProperties.getCollectionNames().getMain().getCovariateCollectionName();
-        else if(scope==SCOPE_DELTA) collectionName = graphProperties.getCollectionNames().getDelta().getCovariateCollectionName();
-        else throw new RuntimeException("Unknown scope");
-        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(collectionName, List.of("id", "human_readable_id", "covariate_type", "type", "description", "subject_id", "object_id", "status", "start_date", "end_date", "source_text", "text_unit_id"));
+        IndexScopeResolver.Table table = IndexScopeResolver.Table.COVARIATE;
+        String collectionName = indexScopeResolver.collection(table, scope);
+        if (!indexScopeResolver.exists(table, scope)) return new ArrayList<>();
+        List<QueryResultsWrapper.RowRecord> rowRecords = queryAllData(collectionName, indexScopeResolver.partitionNames(scope), List.of("id", "human_readable_id", "covariate_type", "type", "description", "subject_id", "object_id", "status", "start_date", "end_date", "source_text", "text_unit_id"));
+        List<Covariate> covariates = MilvusRowMappers.map(rowRecords, MilvusRowMappers.COVARIATE);
+        covariates.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
+        return covariates;
+    }
+
+    /**
+     * 分区模式下 delta 直接 drop 分区；知识库切片上的 text_units 标记由下一次 saveTextUnits 覆盖，这里不动
+     */
+    @Override
+    public void clear(int scope) {
+        indexScopeResolver.clearAll(scope);
+    }
+
+
+    /* =================== 行转换 =================== */
+
+    private JsonObject entityRow(Entity e) {
+        JsonObject obj = new JsonObject();
+        safeAddString(obj, "id", e.getId());
+        safeAddInt(obj, "human_readable_id", e.getHumanReadableId());
+        safeAddString(obj, "title", e.getTitle());
+        safeAddString(obj, "type", e.getType());
+        safeAddString(obj, "description", e.getDescription());
+        addStringList(obj, "text_unit_ids", e.getTextUnitIds());
+        safeAddInt(obj, "frequency", e.getFrequency());
+        safeAddInt(obj, "degree", e.getDegree());
+        safeAddDouble(obj, "x", e.getX());
+        safeAddDouble(obj, "y", e.getY());
+        safeAddEmbedding(obj, "embedding", e.getDescription());
+        return obj;
+    }
+
+    private JsonObject relationshipRow(Relationship r) {
+        JsonObject obj = new JsonObject();
+        safeAddString(obj, "id", r.getId());
+        safeAddInt(obj, "human_readable_id", r.getHumanReadableId());
+        safeAddString(obj, "source", r.getSource());
+        safeAddString(obj, "target", r.getTarget());
+        safeAddString(obj, "description", r.getDescription());
+        safeAddDouble(obj, "weight", r.getWeight());
+        safeAddDouble(obj, "combined_degree", r.getCombinedDegree());
+        addStringList(obj, "text_unit_ids", r.getTextUnitIds());
+        safeAddEmbedding(obj, "embedding", r.getDescription());
+        return obj;
+    }
+
+    private JsonObject communityRow(Community c) {
+        JsonObject obj = new JsonObject();
+        safeAddString(obj, "id", c.getId());
+        safeAddInt(obj, "human_readable_id", c.getHumanReadableId());
+        safeAddInt(obj, "community", c.getCommunity());
+        safeAddInt(obj, "level", c.getLevel());
+        safeAddInt(obj, "parent", c.getParent());
+        addIntList(obj, "children", c.getChildren());
+        safeAddString(obj, "title", c.getTitle());
+        addStringList(obj, "entity_ids", c.getEntityIds());
+        addStringList(obj, "relationship_ids", c.getRelationshipIds());
+        addStringList(obj, "text_unit_ids", c.getTextUnitIds());
+        safeAddString(obj, "period", c.getPeriod());
+        safeAddInt(obj, "size", c.getSize());
+        safeAddEmbedding(obj, "embedding", c.getTitle());
+        return obj;
+    }
+
+    private JsonObject communityReportRow(CommunityReport r) {
+        JsonObject obj = new JsonObject();
+        safeAddString(obj, "id", r.getId());
+        safeAddInt(obj, "human_readable_id", r.getHumanReadableId());
+        safeAddInt(obj, "community", r.getCommunity());
+        safeAddInt(obj, "level", r.getLevel());
+        safeAddInt(obj, "parent", r.getParent());
+        addIntList(obj, "children", r.getChildren());
+        safeAddString(obj, "title", r.getTitle());
+        safeAddString(obj, "summary", r.getSummary());
+        safeAddString(obj, "full_content", r.getFullContent());
+        safeAddDouble(obj, "rank", r.getRank());
+        safeAddString(obj, "rating_explanation", r.getRatingExplanation());
+        // 这里的 findings / full_content_json 在 Java 模型里已经是 JSON 字符串
+        safeAddString(obj, "findings", r.getFindings());
+        safeAddString(obj, "full_content_json", r.getFullContentJson());
+        safeAddString(obj, "period", r.getPeriod());
+        safeAddInt(obj, "size", r.getSize());
+        safeAddEmbedding(obj, "embedding", r.getSummary());
+        return obj;
+    }
+
+    private JsonObject covariateRow(Covariate c) {
+        JsonObject obj = new JsonObject();
+        safeAddString(obj, "id", c.getId());
+        safeAddInt(obj, "human_readable_id", c.getHumanReadableId());
+        safeAddString(obj, "covariate_type", c.getCovariateType());
+        safeAddString(obj, "type", c.getType());
+        safeAddString(obj, "description", c.getDescription());
+        safeAddString(obj, "subject_id", c.getSubjectId());
+        safeAddString(obj, "object_id", c.getObjectId());
+        safeAddString(obj, "status", c.getStatus());
+        safeAddInstant(obj, "start_date", c.getStartDate());
+        safeAddInstant(obj, "end_date", c.getEndDate());
+        safeAddString(obj, "source_text", c.getSourceText());
+        safeAddString(obj, "text_unit_id", c.getTextUnitId());
+
+        // 向量：description 优先，其次 source_text
+        String embedText = !StrUtil.isBlank(c.getDescription()) ? c.getDescription() : c.getSourceText();
+        safeAddEmbedding(obj, "embedding", embedText);
+        return obj;
+    }
+
+    /* =================== 小工具方法 =================== */
+
+    private static <T> List<JsonObject> rows(List<T> items, Function<T, JsonObject> toRow) {
+        List<JsonObject> rows = new ArrayList<>(items.size());
+        for (T item : items) {
+            if (item != null) rows.add(toRow.apply(item));
+        }
+        return rows;
+    }
+
+    /**
+     * 写入该 scope 对应的 collection / 分区，返回 collection 名
+     */
+    private String insert(IndexScopeResolver.Table table, int scope, List<JsonObject> rows) {
+        String collectionName = indexScopeResolver.collection(table, scope);
         try {
-            List<Covariate> covariates = rowRecordsToModels(rowRecords, Covariate.class);
-            covariates.sort(Comparator.comparingInt(t -> t.getHumanReadableId() == null ? -1 : t.getHumanReadableId()));
-            return covariates;
-        } catch (IOException e) {
+            indexScopeResolver.ensurePartition(table, scope);
+            milvusUtil.insertByBatch(collectionName, indexScopeResolver.partition(scope), rows);
+        } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
+        return collectionName;
     }
 
+    /**
+     * 按主键 id 覆盖写入该 scope 对应的 collection / 分区，返回 collection 名
+     */
+    private String upsert(IndexScopeResolver.Table table, int scope, List<JsonObject> rows) {
+        String collectionName = indexScopeResolver.collection(table, scope);
+        indexScopeResolver.ensurePartition(table, scope);
+        milvusUtil.upsertByBatch(collectionName, indexScopeResolver.partition(scope), rows);
+        return collectionName;
+    }
 
-    /* =================== 小工具方法 =================== */
-
-    private List<QueryResultsWrapper.RowRecord> queryAllData(String collectionName, List<String> outputFields) {
-        return queryAllData(collectionName, outputFields, null);
+    private List<QueryResultsWrapper.RowRecord> queryAllData(String collectionName, List<String> partitionNames, List<String> outputFields) {
+        return queryAllData(collectionName, partitionNames, outputFields, null);
     }
 
-    private List<QueryResultsWrapper.RowRecord> queryAllData(String collectionName, List<String> outputFields, String filter) {
+    private List<QueryResultsWrapper.RowRecord> queryAllData(String collectionName, List<String> partitionNames, List<String> outputFields, String filter) {
         List<QueryResultsWrapper.RowRecord> allRows = new ArrayList<>();
         QueryIteratorReq.QueryIteratorReqBuilder queryIteratorReqBuilder = QueryIteratorReq.builder()
                 .collectionName(collectionName)
                 .batchSize(2000)
                 .outputFields(outputFields);
         if(!StrUtil.isBlank(filter)) queryIteratorReqBuilder.expr(filter);
+        if(CollectionUtil.isNotEmpty(partitionNames)) queryIteratorReqBuilder.partitionNames(partitionNames);
         QueryIteratorReq iteratorReq = queryIteratorReqBuilder.build();
 
-        QueryIterator iterator = milvusClientV2.queryIterator(iteratorReq);
-        while (true) {
-            List<QueryResultsWrapper.RowRecord> rows = iterator.next();
-            if (CollectionUtil.isEmpty(rows)) {
-                iterator.close();
-                break;
+        long t0 = System.nanoTime();
+        boolean success = false;
+        try {
+            QueryIterator iterator = milvusClientV2.queryIterator(iteratorReq);
+            while (true) {
+                List<QueryResultsWrapper.RowRecord> rows = iterator.next();
+                if (CollectionUtil.isEmpty(rows)) {
+                    iterator.close();
+                    break;
+                }
+                allRows.addAll(rows);
             }
-            allRows.addAll(rows);
+            success = true;
+        } finally {
+            graphRagMetrics.recordMilvus("query_iterator", collectionName, System.nanoTime() - t0, success);
         }
+        graphRagMetrics.recordMilvusRows("query_iterator", collectionName, allRows.size());
         return allRows;
     }
 
-    private <T> List<T> rowRecordsToModels(List<QueryResultsWrapper.RowRecord> rowRecordList, Class<T> modelClass) throws IOException {
-        List<T> modelList = new ArrayList<>();
-        for (QueryResultsWrapper.RowRecord rowRecord : rowRecordList) {
-            String jsonStr = gson.toJson(rowRecord.getFieldValues());
-            modelList.add(IOUtil.jsonDeserializeWithNoType(jsonStr, modelClass));
-        }
-        return modelList;
-    }
-
     private void safeAddString(JsonObject obj, String field, String value) {
         if (value != null) obj.addProperty(field, value);
     }
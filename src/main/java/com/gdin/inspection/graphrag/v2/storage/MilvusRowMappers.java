@@ -0,0 +1,109 @@
+package com.gdin.inspection.graphrag.v2.storage;
+
+import com.gdin.inspection.graphrag.search.result.MilvusRow;
+import com.gdin.inspection.graphrag.v2.models.*;
+import io.milvus.response.QueryResultsWrapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Milvus 行记录 -> v2.models 的直接映射，每个模型一个 mapper：
+ * 按 GraphConfig 中的字段类型逐列取值填 builder，不经过 gson -> JSON 字符串 -> Jackson 的中转。
+ * 字段名与 MilvusGraphRagIndexStorage 写入时保持一致（对齐 Python *_FINAL_COLUMNS）。
+ */
+public final class MilvusRowMappers {
+
+    private MilvusRowMappers() {
+    }
+
+    public static final Function<MilvusRow, Entity> ENTITY = row -> Entity.builder()
+            .id(row.getString("id"))
+            .humanReadableId(row.getInteger("human_readable_id"))
+            .title(row.getString("title"))
+            .type(row.getString("type"))
+            .description(row.getString("description"))
+            .textUnitIds(row.getStringList("text_unit_ids"))
+            .frequency(row.getInteger("frequency"))
+            .degree(row.getInteger("degree"))
+            .x(row.getDouble("x"))
+            .y(row.getDouble("y"))
+            .build();
+
+    public static final Function<MilvusRow, Relationship> RELATIONSHIP = row -> Relationship.builder()
+            .id(row.getString("id"))
+            .humanReadableId(row.getInteger("human_readable_id"))
+            .source(row.getString("source"))
+            .target(row.getString("target"))
+            .description(row.getString("description"))
+            .weight(row.getDouble("weight"))
+            .combinedDegree(row.getDouble("combined_degree"))
+            .textUnitIds(row.getStringList("text_unit_ids"))
+            .build();
+
+    public static final Function<MilvusRow, Community> COMMUNITY = row -> Community.builder()
+            .id(row.getString("id"))
+            .humanReadableId(row.getInteger("human_readable_id"))
+            .community(row.getInteger("community"))
+            .level(row.getInteger("level"))
+            .parent(row.getInteger("parent"))
+            .children(row.getIntegerList("children"))
+            .title(row.getString("title"))
+            .entityIds(row.getStringList("entity_ids"))
+            .relationshipIds(row.getStringList("relationship_ids"))
+            .textUnitIds(row.getStringList("text_unit_ids"))
+            .period(row.getString("period"))
+            .size(row.getInteger("size"))
+            .build();
+
+    public static final Function<MilvusRow, CommunityReport> COMMUNITY_REPORT = row -> CommunityReport.builder()
+            .id(row.getString("id"))
+            .humanReadableId(row.getInteger("human_readable_id"))
+            .community(row.getInteger("community"))
+            .level(row.getInteger("level"))
+            .parent(row.getInteger("parent"))
+            .children(row.getIntegerList("children"))
+            .title(row.getString("title"))
+            .summary(row.getString("summary"))
+            .fullContent(row.getString("full_content"))
+            .rank(row.getDouble("rank"))
+            .ratingExplanation(row.getString("rating_explanation"))
+            // findings / full_content_json 是 JSON 字段，模型里保存为 JSON 字符串
+            .findings(row.getString("findings"))
+            .fullContentJson(row.getString("full_content_json"))
+            .period(row.getString("period"))
+            .size(row.getInteger("size"))
+            .build();
+
+    public static final Function<MilvusRow, Covariate> COVARIATE = row -> Covariate.builder()
+            .id(row.getString("id"))
+            .humanReadableId(row.getInteger("human_readable_id"))
+            .covariateType(row.getString("covariate_type"))
+            .type(row.getString("type"))
+            .description(row.getString("description"))
+            .subjectId(row.getString("subject_id"))
+            .objectId(row.getString("object_id"))
+            .status(row.getString("status"))
+            .startDate(millisToInstant(row.getLong("start_date")))
+            .endDate(millisToInstant(row.getLong("end_date")))
+            .sourceText(row.getString("source_text"))
+            .textUnitId(row.getString("text_unit_id"))
+            .build();
+
+    public static <T> List<T> map(List<QueryResultsWrapper.RowRecord> rowRecords, Function<MilvusRow, T> mapper) {
+        List<T> out = new ArrayList<>(rowRecords.size());
+        for (QueryResultsWrapper.RowRecord rowRecord : rowRecords) {
+            out.add(mapper.apply(new MilvusRow(rowRecord.getFieldValues())));
+        }
+        return out;
+    }
+
+    /**
+     * start_date / end_date 写入时是 epoch 毫秒（见 MilvusGraphRagIndexStorage.instantToMillis）
+     */
+    private static Instant millisToInstant(Long millis) {
+        return millis == null ? null : Instant.ofEpochMilli(millis);
+    }
+}
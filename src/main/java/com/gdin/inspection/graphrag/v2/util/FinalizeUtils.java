@@ -13,6 +13,7 @@ import java.util.stream.Collectors;
 /**
  * 对齐 Python finalize 阶段：
  * - 为 entity / relationship / text_unit 分配 id & human_readable_id
+ *   （entity / relationship 的 id 由内容派生，见 {@link StableIdUtil}；Python 用的是随机 uuid4）
  * - 根据实体 / 关系 / 协变量，反向填充 text_unit_ids 上的引用字段
  */
 public class FinalizeUtils {
@@ -24,9 +25,12 @@ public class FinalizeUtils {
      */
     public static List<Entity> finalizeEntities(List<Entity> dedupedEntities) {
         AtomicInteger idx = new AtomicInteger(0);
+        List<String> ids = StableIdUtil.dedupeIds(dedupedEntities,
+                e -> StableIdUtil.entityId(e.getTitle(), e.getType()),
+                e -> StableIdUtil.entityTieKey(e.getTitle(), e.getType()), null);
         return dedupedEntities.stream()
                 .map(e -> Entity.builder()
-                        .id(UUID.randomUUID().toString())
+                        .id(ids.get(idx.get()))
                         .humanReadableId(idx.getAndIncrement())
                         .title(e.getTitle())
                         .type(e.getType())
@@ -47,9 +51,12 @@ public class FinalizeUtils {
      */
     public static List<Relationship> finalizeRelationships(List<Relationship> relationships) {
         AtomicInteger idx = new AtomicInteger(0);
+        List<String> ids = StableIdUtil.dedupeIds(relationships,
+                r -> StableIdUtil.relationshipId(r.getSource(), r.getTarget()),
+                r -> StableIdUtil.relationshipTieKey(r.getSource(), r.getTarget(), r.getDescription()), null);
         return relationships.stream()
                 .map(r -> Relationship.builder()
-                        .id(UUID.randomUUID().toString())
+                        .id(ids.get(idx.get()))
                         .humanReadableId(idx.getAndIncrement())
                         .source(r.getSource())
                         .target(r.getTarget())
@@ -0,0 +1,127 @@
+package com.gdin.inspection.graphrag.v2.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 由内容派生的稳定 id，替代每次索引都重新生成的随机 UUID：
+ * - 实体：规范化后的 title + type
+ * - 关系：规范化后的 source + target（有向）
+ * - 社区：level + 排序后的成员 entity_ids
+ * - 社区报告：所属社区的 id
+ * 内容不变的行在多次索引之间 id 不变，Milvus 可按 id 差量写入，按 id 做 key 的缓存也不会整体失效。
+ * 输出格式与原来一致（36 位 UUID 字符串），取 SHA-1 的 name-based UUID（version 5），不同种类的 id 用命名空间前缀区分。
+ */
+public final class StableIdUtil {
+
+    private static final char SEP = '\u001F';
+
+    private StableIdUtil() {}
+
+    public static String entityId(String title, String type) {
+        return uuid("entity", normalize(title), normalize(type));
+    }
+
+    public static String relationshipId(String source, String target) {
+        return uuid("relationship", normalize(source), normalize(target));
+    }
+
+    public static String communityId(Integer level, Collection<String> entityIds) {
+        List<String> members = entityIds == null ? new ArrayList<>() : new ArrayList<>(new TreeSet<>(entityIds));
+        members.add(0, String.valueOf(level));
+        return uuid("community", members.toArray(new String[0]));
+    }
+
+    public static String communityReportId(String communityId) {
+        return uuid("community_report", communityId);
+    }
+
+    /**
+     * 规范化：全半角统一（NFKC）、去首尾空白、连续空白合并、英文转大写（对齐 Python 抽取阶段对 title 的大写处理）
+     */
+    public static String normalize(String s) {
+        if (s == null) return "";
+        String n = Normalizer.normalize(s, Normalizer.Form.NFKC).trim().replaceAll("\\s+", " ");
+        return n.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * 同一批内规范化后撞 key 的行（如仅大小写不同的两个 title）再派生一次，保证批内 id 唯一，且结果与行的先后顺序无关：
+     * - 同一 id 的行按 tieKey（未规范化的原始内容）排序，最小的保留原 id（已在 reserved 中则不保留），其余由 id + tieKey 派生
+     * - tieKey 也相同（内容完全相同的重复行）时才按出现次序编号
+     * @param reserved 已占用的 id（如增量合并时主索引里的社区 id），可为 null
+     * @return 与 rows 一一对应的 id；idOf 返回 null 的行仍为 null
+     */
+    public static <T> List<String> dedupeIds(List<T> rows, Function<T, String> idOf, Function<T, String> tieKeyOf, Set<String> reserved) {
+        List<String> ids = new ArrayList<>(rows.size());
+        Map<String, List<Integer>> groups = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            String id = idOf.apply(rows.get(i));
+            ids.add(id);
+            if (id != null) groups.computeIfAbsent(id, k -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            String base = group.getKey();
+            List<Integer> members = group.getValue();
+            boolean taken = reserved != null && reserved.contains(base);
+            if (members.size() == 1 && !taken) continue;
+
+            Map<Integer, String> keys = new HashMap<>();
+            for (Integer i : members) keys.put(i, Objects.toString(tieKeyOf.apply(rows.get(i)), ""));
+            members.sort(Comparator.comparing((Integer i) -> keys.get(i)).thenComparing(Comparator.naturalOrder()));
+            Map<String, Integer> keyCounts = new HashMap<>();
+            for (int j = taken ? 0 : 1; j < members.size(); j++) {
+                int i = members.get(j);
+                String key = keys.get(i);
+                int n = keyCounts.merge(key, 1, Integer::sum);
+                ids.set(i, n == 1 ? uuid("dup", base, key) : uuid("dup", base, key, String.valueOf(n - 1)));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 实体撞 id 时的排序键：原始 title + type
+     */
+    public static String entityTieKey(String title, String type) {
+        return Objects.toString(title, "") + SEP + Objects.toString(type, "");
+    }
+
+    /**
+     * 关系撞 id 时的排序键：原始 source + target + description
+     */
+    public static String relationshipTieKey(String source, String target, String description) {
+        return Objects.toString(source, "") + SEP + Objects.toString(target, "") + SEP + Objects.toString(description, "");
+    }
+
+    /**
+     * 社区撞 id（同 level 同成员）时的排序键：排序后的 relationship_ids
+     */
+    public static String communityTieKey(Collection<String> relationshipIds) {
+        return relationshipIds == null ? "" : String.join(String.valueOf(SEP), new TreeSet<>(relationshipIds));
+    }
+
+    private static String uuid(String namespace, String... parts) {
+        MessageDigest sha1;
+        try {
+            sha1 = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前 JVM 不支持 SHA-1", e);
+        }
+        sha1.update(namespace.getBytes(StandardCharsets.UTF_8));
+        for (String part : parts) {
+            sha1.update((byte) SEP);
+            sha1.update((part == null ? "" : part).getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] hash = sha1.digest();
+        hash[6] = (byte) ((hash[6] & 0x0f) | 0x50); // version 5
+        hash[8] = (byte) ((hash[8] & 0x3f) | 0x80); // IETF variant
+        ByteBuffer buf = ByteBuffer.wrap(hash, 0, 16);
+        return new UUID(buf.getLong(), buf.getLong()).toString();
+    }
+}
@@ -0,0 +1,276 @@
+package com.gdin.inspection.graphrag.v2.util;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.gdin.inspection.graphrag.v2.models.Covariate;
+import com.gdin.inspection.graphrag.v2.models.Entity;
+import com.gdin.inspection.graphrag.v2.models.Relationship;
+import com.gdin.inspection.graphrag.v2.models.TextUnit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * text unit 与 entity / relationship / covariate 之间的链接表，create_final_text_units 和 update_text_units 共用：
+ * - id 字符串入表时各编码一次为 int，链接存成按行分段的 int 数组（offsets + values），
+ *   不再为每个 text unit 维护一个 LinkedHashSet&lt;String&gt;
+ * - 三个反向索引各自在来源列表上一趟扫描建好，行内按首次出现顺序去重（对齐原先 LinkedHashSet 的语义）
+ * - id 重映射作用在字典上：每个不同的 id 只查一次 mapping，而不是每条链接查一次
+ */
+public final class TextUnitLinkTable {
+
+    /** finalize 模式下 text unit id -> 行号；按下标建表时为 null */
+    private final StringIntIndex textUnitIndex;
+    private final Column entities;
+    private final Column relationships;
+    private final Column covariates;
+
+    private TextUnitLinkTable(StringIntIndex textUnitIndex, Column entities, Column relationships, Column covariates) {
+        this.textUnitIndex = textUnitIndex;
+        this.entities = entities;
+        this.relationships = relationships;
+        this.covariates = covariates;
+    }
+
+    /**
+     * 对齐 Python create_final_text_units 的三个 join：
+     * text_unit_id -> entity_ids / relationship_ids / covariate_ids（各自去重，保持首次出现顺序）。
+     * 行号按 text unit id 编码，同 id 的多个 text unit 共享一行。
+     */
+    public static TextUnitLinkTable forFinalize(
+            List<TextUnit> textUnits,
+            List<Entity> entities,
+            List<Relationship> relationships,
+            List<Covariate> covariates // 允许为 null
+    ) {
+        StringIntIndex tuIndex = new StringIntIndex(textUnits.size());
+        for (TextUnit tu : textUnits) {
+            if (tu != null && tu.getId() != null) tuIndex.add(tu.getId());
+        }
+        int rows = tuIndex.size();
+
+        ColumnBuilder e = new ColumnBuilder(entities.size());
+        for (Entity x : entities) {
+            if (x == null || x.getId() == null || CollectionUtil.isEmpty(x.getTextUnitIds())) continue;
+            e.link(tuIndex, x.getTextUnitIds(), x.getId());
+        }
+
+        ColumnBuilder r = new ColumnBuilder(relationships.size());
+        for (Relationship x : relationships) {
+            if (x == null || x.getId() == null || CollectionUtil.isEmpty(x.getTextUnitIds())) continue;
+            r.link(tuIndex, x.getTextUnitIds(), x.getId());
+        }
+
+        ColumnBuilder c = new ColumnBuilder(covariates == null ? 0 : covariates.size());
+        if (covariates != null) {
+            for (Covariate x : covariates) {
+                if (x == null || x.getId() == null || x.getTextUnitId() == null) continue;
+                int row = tuIndex.get(x.getTextUnitId());
+                if (row >= 0) c.push(row, c.ids.add(x.getId()));
+            }
+        }
+
+        return new TextUnitLinkTable(tuIndex, e.build(rows, true), r.build(rows, true), c.build(rows, true));
+    }
+
+    /**
+     * 按 text unit 在列表中的下标建 entity_ids 链接（保留原顺序和重复，跳过 null），用于 update_text_units 的 id 重映射
+     */
+    public static TextUnitLinkTable forEntityIds(List<TextUnit> textUnits) {
+        ColumnBuilder e = new ColumnBuilder(textUnits.size());
+        for (int i = 0; i < textUnits.size(); i++) {
+            TextUnit tu = textUnits.get(i);
+            if (tu == null || tu.getEntityIds() == null) continue;
+            for (String id : tu.getEntityIds()) {
+                if (id != null) e.push(i, e.ids.add(id));
+            }
+        }
+        return new TextUnitLinkTable(null, e.build(textUnits.size(), false), null, null);
+    }
+
+    /**
+     * 对齐 Python: [mapping.get(i, i) for i in x]，在字典上一次性替换
+     */
+    public TextUnitLinkTable remapEntityIds(Map<String, String> mapping) {
+        if (CollectionUtil.isNotEmpty(mapping)) entities.remap(mapping);
+        return this;
+    }
+
+    /**
+     * finalize 模式下 text unit id 对应的行号，不存在返回 -1
+     */
+    public int rowOf(String textUnitId) {
+        if (textUnitIndex == null) throw new IllegalStateException("按下标建的链接表没有 text unit id 索引");
+        return textUnitId == null ? -1 : textUnitIndex.get(textUnitId);
+    }
+
+    public List<String> entityIds(int row) {
+        return entities.row(row);
+    }
+
+    public List<String> relationshipIds(int row) {
+        return relationships.row(row);
+    }
+
+    public List<String> covariateIds(int row) {
+        return covariates.row(row);
+    }
+
+    /**
+     * 一列链接：第 row 行的 id 编码为 values[offsets[row] .. offsets[row + 1])，dict 把编码还原成 id
+     */
+    private static final class Column {
+        private final String[] dict;
+        private final int[] offsets;
+        private final int[] values;
+
+        Column(String[] dict, int[] offsets, int[] values) {
+            this.dict = dict;
+            this.offsets = offsets;
+            this.values = values;
+        }
+
+        List<String> row(int row) {
+            if (row < 0 || row + 1 >= offsets.length) return new ArrayList<>();
+            int from = offsets[row], to = offsets[row + 1];
+            List<String> out = new ArrayList<>(to - from);
+            for (int k = from; k < to; k++) out.add(dict[values[k]]);
+            return out;
+        }
+
+        void remap(Map<String, String> mapping) {
+            for (int c = 0; c < dict.length; c++) dict[c] = mapping.getOrDefault(dict[c], dict[c]);
+        }
+    }
+
+    /**
+     * 先把 (row, code) 追加到两个并行的 int 数组，最后按行做一次计数排序（稳定，保持追加顺序）
+     */
+    private static final class ColumnBuilder {
+        final StringIntIndex ids;
+        private int[] rows;
+        private int[] codes;
+        private int size;
+
+        ColumnBuilder(int expectedIds) {
+            this.ids = new StringIntIndex(expectedIds);
+            this.rows = new int[Math.max(16, expectedIds)];
+            this.codes = new int[rows.length];
+        }
+
+        void link(StringIntIndex tuIndex, List<String> textUnitIds, String id) {
+            int code = -1;
+            for (String tuId : textUnitIds) {
+                if (tuId == null) continue;
+                int row = tuIndex.get(tuId);
+                if (row < 0) continue;
+                if (code < 0) code = ids.add(id);
+                push(row, code);
+            }
+        }
+
+        void push(int row, int code) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            rows[size] = row;
+            codes[size] = code;
+            size++;
+        }
+
+        Column build(int rowCount, boolean distinct) {
+            int[] offsets = new int[rowCount + 1];
+            for (int k = 0; k < size; k++) offsets[rows[k] + 1]++;
+            for (int r = 0; r < rowCount; r++) offsets[r + 1] += offsets[r];
+
+            int[] values = new int[size];
+            int[] cursor = Arrays.copyOf(offsets, rowCount);
+            for (int k = 0; k < size; k++) values[cursor[rows[k]]++] = codes[k];
+
+            if (distinct) {
+                // 行内去重：stamp[code] 记录该 id 上一次出现的行号 + 1，原地压缩
+                int[] stamp = new int[ids.size()];
+                int w = 0;
+                for (int r = 0; r < rowCount; r++) {
+                    int from = offsets[r], to = offsets[r + 1];
+                    offsets[r] = w;
+                    for (int k = from; k < to; k++) {
+                        int code = values[k];
+                        if (stamp[code] == r + 1) continue;
+                        stamp[code] = r + 1;
+                        values[w++] = code;
+                    }
+                }
+                offsets[rowCount] = w;
+                if (w < size) values = Arrays.copyOf(values, w);
+            }
+            return new Column(ids.keys(), offsets, values);
+        }
+    }
+
+    /**
+     * String -> 连续 int 编码（按首次加入顺序），开放寻址，避免 HashMap&lt;String, Integer&gt; 的装箱和节点开销
+     */
+    private static final class StringIntIndex {
+        private String[] slots;
+        private int[] slotCodes;
+        private String[] keys;
+        private int size;
+
+        StringIntIndex(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1;
+            this.slots = new String[capacity];
+            this.slotCodes = new int[capacity];
+            this.keys = new String[Math.max(16, expected)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(String key) {
+            int i = find(slots, key);
+            return slots[i] == null ? -1 : slotCodes[i];
+        }
+
+        int add(String key) {
+            int i = find(slots, key);
+            if (slots[i] != null) return slotCodes[i];
+
+            int code = size++;
+            if (code == keys.length) keys = Arrays.copyOf(keys, code * 2);
+            keys[code] = key;
+            slots[i] = key;
+            slotCodes[i] = code;
+            // 负载因子 0.5
+            if (size * 2 > slots.length) rehash();
+            return code;
+        }
+
+        String[] keys() {
+            return Arrays.copyOf(keys, size);
+        }
+
+        private void rehash() {
+            String[] newSlots = new String[slots.length * 2];
+            int[] newCodes = new int[newSlots.length];
+            for (int code = 0; code < size; code++) {
+                int i = find(newSlots, keys[code]);
+                newSlots[i] = keys[code];
+                newCodes[i] = code;
+            }
+            slots = newSlots;
+            slotCodes = newCodes;
+        }
+
+        private static int find(String[] table, String key) {
+            int mask = table.length - 1;
+            int h = key.hashCode();
+            int i = (h ^ (h >>> 16)) & mask;
+            while (table[i] != null && !table[i].equals(key)) i = (i + 1) & mask;
+            return i;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gdin.inspection.graphrag.doc.tokenizer;
+
+import com.gdin.inspection.graphrag.config.properties.DocProperties;
+import com.gdin.inspection.graphrag.pojo.Token;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DictionaryTokenizerTest {
+
+    private static DictionaryTokenizer tokenizer() throws Exception {
+        DocProperties props = new DocProperties();
+        props.getDictionaryTokenizer().setUserDictionaries(List.of("classpath:tokenizer/user-dict.txt"));
+        DictionaryTokenizer t = new DictionaryTokenizer();
+        ReflectionTestUtils.setField(t, "docProperties", props);
+        ReflectionTestUtils.setField(t, "resourceLoader", new DefaultResourceLoader());
+        t.init();
+        return t;
+    }
+
+    @Test
+    void keepsUserDictionaryWordsAndTagsPos() throws Exception {
+        List<Token> tokens = tokenizer().parse("配网自动化终端需要按巡检周期检查");
+
+        assertTrue(tokens.stream().anyMatch(t -> "配网自动化终端".equals(t.getWord())));
+        Token userWord = tokens.stream().filter(t -> "巡检周期".equals(t.getWord())).findFirst().orElseThrow();
+        assertEquals("n", userWord.getPos());
+        for (Token t : tokens) {
+            assertNotNull(t.getPos());
+            assertFalse(t.getWord().isBlank());
+        }
+        assertEquals("配网自动化终端需要按巡检周期检查", tokens.stream().map(Token::getWord).reduce("", String::concat));
+    }
+
+    @Test
+    void agreementComparesSpans() {
+        String text = "变电站巡检周期";
+        SegmentationAgreement agreement = new SegmentationAgreement();
+        agreement.add(text,
+                List.of(tok("变电站", "n"), tok("巡检", "v"), tok("周期", "n")),
+                List.of(tok("变电站", "n"), tok("巡检周期", "n")));
+
+        assertEquals(0.5, agreement.precision(), 1e-9);
+        assertEquals(1.0 / 3, agreement.recall(), 1e-9);
+        assertEquals(1.0, agreement.posAgreement(), 1e-9);
+    }
+
+    private static Token tok(String word, String pos) {
+        return Token.builder().word(word).pos(pos).build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.gdin.inspection.graphrag.doc.tokenizer;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.gdin.inspection.graphrag.config.properties.DocProperties;
+import com.gdin.inspection.graphrag.config.properties.HttpProperties;
+import com.gdin.inspection.graphrag.pojo.Token;
+import com.gdin.inspection.graphrag.util.HttpClientUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 本地起一个假的 HanLP 服务：按字切分，pos 固定为 "x"；统计 /parse 与 /parse_batch 的请求次数
+ */
+public class HanlpTokenizerTest {
+
+    private HttpServer server;
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private final AtomicInteger batchCalls = new AtomicInteger();
+    private HanlpTokenizer tokenizer;
+    private CloseableHttpClient httpClient;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/parse", ex -> {
+            singleCalls.incrementAndGet();
+            JSONObject req = JSONObject.parseObject(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            reply(ex, new JSONObject().fluentPut("tokens", tokens(req.getString("text"))));
+        });
+        server.createContext("/parse_batch", ex -> {
+            batchCalls.incrementAndGet();
+            JSONObject req = JSONObject.parseObject(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            JSONArray results = new JSONArray();
+            for (String text : req.getList("texts", String.class)) results.add(new JSONObject().fluentPut("tokens", tokens(text)));
+            reply(ex, new JSONObject().fluentPut("results", results));
+        });
+        server.start();
+        httpClient = HttpClientUtil.createPooledClient(new HttpProperties());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (tokenizer != null) tokenizer.destroy();
+        httpClient.close();
+        server.stop(0);
+    }
+
+    private HanlpTokenizer tokenizer(String batchPath, int batchSize) throws Exception {
+        DocProperties props = new DocProperties();
+        DocProperties.HanlpTokenizerProperties hanlp = props.getHanlpTokenizer();
+        hanlp.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        hanlp.setTimeoutInSeconds(5L);
+        hanlp.setBatchPath(batchPath);
+        hanlp.setBatchSize(batchSize);
+        HanlpTokenizer t = new HanlpTokenizer();
+        ReflectionTestUtils.setField(t, "docProperties", props);
+        ReflectionTestUtils.setField(t, "httpClient", httpClient);
+        t.init();
+        return t;
+    }
+
+    @Test
+    void batchesDistinctTextsAndCachesResults() throws Exception {
+        tokenizer = tokenizer("/parse_batch", 2);
+
+        List<List<Token>> out = tokenizer.parseBatch(List.of("变电站", "巡检", "变电站", "", "周期"));
+        assertEquals(5, out.size());
+        assertEquals(3, out.get(0).size());
+        assertEquals("变", out.get(2).get(0).getWord());
+        assertEquals(0, out.get(3).size());
+        assertEquals(2, out.get(4).size());
+        // 3 条不同文本，每批 2 条 => 2 次批量请求
+        assertEquals(2, batchCalls.get());
+
+        assertEquals(2, tokenizer.parse("巡检").size());
+        assertEquals(2, batchCalls.get());
+        assertEquals(0, singleCalls.get());
+    }
+
+    @Test
+    void fallsBackToSingleParseWithoutBatchPath() throws Exception {
+        tokenizer = tokenizer(null, 64);
+
+        List<List<Token>> out = tokenizer.parseBatch(List.of("设备", "缺陷", "设备"));
+        assertEquals(2, out.get(0).size());
+        assertEquals(2, singleCalls.get());
+        assertEquals(0, batchCalls.get());
+    }
+
+    private static JSONArray tokens(String text) {
+        JSONArray arr = new JSONArray();
+        text.codePoints().forEach(cp -> arr.add(new JSONObject().fluentPut("word", new String(Character.toChars(cp))).fluentPut("pos", "x")));
+        return arr;
+    }
+
+    private static void reply(HttpExchange ex, JSONObject body) throws IOException {
+        byte[] bytes = body.toJSONString().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().add("Content-Type", "application/json");
+        ex.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
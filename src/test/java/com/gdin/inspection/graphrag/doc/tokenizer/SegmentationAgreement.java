@@ -0,0 +1,76 @@
+package com.gdin.inspection.graphrag.doc.tokenizer;
+
+import com.gdin.inspection.graphrag.pojo.Token;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 两种分词结果的一致性：把每个词换成 [start, end) 字符区间后比较。
+ * - 切分：以 reference 为基准的词级 precision / recall / F1（区间完全相同才算一致，SIGHAN 口径）
+ * - 词性：切分一致的词里词性相同的比例
+ * 两边丢弃空白的规则不同时区间会错位，所以按词在原文中的位置顺序查找，而不是累加长度。
+ */
+public final class SegmentationAgreement {
+
+    private long referenceWords;
+    private long candidateWords;
+    private long matchedWords;
+    private long matchedPos;
+
+    public void add(String text, List<Token> reference, List<Token> candidate) {
+        Map<Long, String> ref = spans(text, reference);
+        Map<Long, String> cand = spans(text, candidate);
+        referenceWords += ref.size();
+        candidateWords += cand.size();
+        for (Map.Entry<Long, String> e : cand.entrySet()) {
+            if (!ref.containsKey(e.getKey())) continue;
+            matchedWords++;
+            if (Objects.equals(ref.get(e.getKey()), e.getValue())) matchedPos++;
+        }
+    }
+
+    public double precision() {
+        return candidateWords == 0 ? 0 : (double) matchedWords / candidateWords;
+    }
+
+    public double recall() {
+        return referenceWords == 0 ? 0 : (double) matchedWords / referenceWords;
+    }
+
+    public double f1() {
+        double p = precision();
+        double r = recall();
+        return p + r == 0 ? 0 : 2 * p * r / (p + r);
+    }
+
+    public double posAgreement() {
+        return matchedWords == 0 ? 0 : (double) matchedPos / matchedWords;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("切分 P=%.4f R=%.4f F1=%.4f, 词性一致率=%.4f (参考词数=%d, 候选词数=%d)",
+                precision(), recall(), f1(), posAgreement(), referenceWords, candidateWords);
+    }
+
+    /**
+     * (start << 32 | end) -> pos；在原文里找不到的词（如被规范化过）跳过
+     */
+    private static Map<Long, String> spans(String text, List<Token> tokens) {
+        Map<Long, String> out = new HashMap<>(tokens.size() * 2);
+        int cursor = 0;
+        for (Token t : tokens) {
+            String word = t.getWord();
+            if (word == null || word.isEmpty()) continue;
+            int start = text.indexOf(word, cursor);
+            if (start < 0) continue;
+            int end = start + word.length();
+            out.put(((long) start << 32) | end, t.getPos());
+            cursor = end;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,131 @@
+package com.gdin.inspection.graphrag.doc.tokenizer;
+
+import com.gdin.inspection.graphrag.config.properties.DocProperties;
+import com.gdin.inspection.graphrag.config.properties.HttpProperties;
+import com.gdin.inspection.graphrag.loadtest.LatencySummary;
+import com.gdin.inspection.graphrag.pojo.Token;
+import com.gdin.inspection.graphrag.util.HttpClientUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 词典分词与远程 HanLP 分词的速度 / 一致性比对，默认不跑，需要指定远程服务地址：
+ * <pre>
+ * mvn test -Dtest=TokenizerComparisonTest -Dtokenizer.compare.url=http://172.169.77.60:8610
+ * mvn test -Dtest=TokenizerComparisonTest -Dtokenizer.compare.url=... -Dtokenizer.compare.corpus=/data/slices.txt -Dtokenizer.compare.rounds=5
+ * </pre>
+ * - 语料每行一条（# 开头为注释），默认 classpath:tokenizer/samples.txt
+ * - 速度：两边都逐条调用 parse（远程侧关闭结果缓存），统计单条延迟分位数与字符吞吐；远程侧另测一次 parseBatch
+ * - 一致性：以远程 HanLP 为参考，输出切分 P/R/F1 与词性一致率
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "tokenizer.compare.url", matches = ".+")
+public class TokenizerComparisonTest {
+
+    @Test
+    void compare() throws Exception {
+        List<String> corpus = loadCorpus();
+        int rounds = Integer.getInteger("tokenizer.compare.rounds", 3);
+        long chars = corpus.stream().mapToLong(String::length).sum() * rounds;
+
+        DocProperties props = new DocProperties();
+        props.getHanlpTokenizer().setBaseUrl(System.getProperty("tokenizer.compare.url"));
+        props.getHanlpTokenizer().setTimeoutInSeconds(30L);
+        props.getHanlpTokenizer().setBatchPath(System.getProperty("tokenizer.compare.batchPath"));
+        props.getHanlpTokenizer().setCacheSize(0);
+
+        CloseableHttpClient httpClient = HttpClientUtil.createPooledClient(new HttpProperties());
+        HanlpTokenizer remote = new HanlpTokenizer();
+        ReflectionTestUtils.setField(remote, "docProperties", props);
+        ReflectionTestUtils.setField(remote, "httpClient", httpClient);
+        remote.init();
+        DictionaryTokenizer local = new DictionaryTokenizer();
+        ReflectionTestUtils.setField(local, "docProperties", props);
+        ReflectionTestUtils.setField(local, "resourceLoader", new DefaultResourceLoader());
+        local.init();
+
+        try {
+            // 预热（JIT / 连接建立），不计入统计
+            for (String text : corpus.subList(0, Math.min(20, corpus.size()))) {
+                remote.parse(text);
+                local.parse(text);
+            }
+
+            SegmentationAgreement agreement = new SegmentationAgreement();
+            long[] remoteNanos = new long[corpus.size() * rounds];
+            long[] localNanos = new long[corpus.size() * rounds];
+            long remoteTotal = 0;
+            long localTotal = 0;
+            for (int r = 0; r < rounds; r++) {
+                for (int i = 0; i < corpus.size(); i++) {
+                    String text = corpus.get(i);
+                    long t0 = System.nanoTime();
+                    List<Token> ref = remote.parse(text);
+                    long t1 = System.nanoTime();
+                    List<Token> cand = local.parse(text);
+                    long t2 = System.nanoTime();
+                    remoteNanos[r * corpus.size() + i] = t1 - t0;
+                    localNanos[r * corpus.size() + i] = t2 - t1;
+                    remoteTotal += t1 - t0;
+                    localTotal += t2 - t1;
+                    if (r == 0) agreement.add(text, ref, cand);
+                }
+            }
+
+            long b0 = System.nanoTime();
+            remote.parseBatch(corpus);
+            long batchNanos = System.nanoTime() - b0;
+
+            log.info("""
+
+                            分词比对: 语料 {} 条 x {} 轮, 共 {} 字
+                            远程 HanLP 逐条: {}, 吞吐 {} 字/s
+                            远程 HanLP 批量: 单轮 {} ms (batchPath={})
+                            词典分词:        {}, 吞吐 {} 字/s
+                            一致性（以远程为参考）: {}""",
+                    corpus.size(), rounds, chars,
+                    LatencySummary.of(remoteNanos), throughput(chars, remoteTotal),
+                    batchNanos / 1_000_000, props.getHanlpTokenizer().getBatchPath(),
+                    LatencySummary.of(localNanos), throughput(chars, localTotal),
+                    agreement);
+        } finally {
+            remote.destroy();
+            httpClient.close();
+        }
+    }
+
+    private static long throughput(long chars, long nanos) {
+        return nanos == 0 ? 0 : Math.round(chars / (nanos / 1_000_000_000.0));
+    }
+
+    private static List<String> loadCorpus() throws Exception {
+        String path = System.getProperty("tokenizer.compare.corpus");
+        InputStream in = path == null
+                ? TokenizerComparisonTest.class.getClassLoader().getResourceAsStream("tokenizer/samples.txt")
+                : Files.newInputStream(Path.of(path));
+        if (in == null) throw new IllegalStateException("找不到分词比对语料");
+        List<String> out = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) out.add(line);
+            }
+        }
+        if (out.isEmpty()) throw new IllegalStateException("分词比对语料为空");
+        return out;
+    }
+}
@@ -0,0 +1,38 @@
+package com.gdin.inspection.graphrag.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * 一组延迟的分位数摘要（毫秒），分位数取 nearest-rank，与 HdrHistogram / wrk 的口径一致
+ */
+public record LatencySummary(int count, double mean, double p50, double p95, double p99, double max) {
+
+    public static final LatencySummary EMPTY = new LatencySummary(0, 0, 0, 0, 0, 0);
+
+    /**
+     * @param nanos 纳秒；负数表示该样本没有这一项（如非流式请求的 TTFT），不参与统计
+     */
+    public static LatencySummary of(long[] nanos) {
+        long[] sorted = Arrays.stream(nanos).filter(n -> n >= 0).sorted().toArray();
+        if (sorted.length == 0) return EMPTY;
+        double sum = 0;
+        for (long n : sorted) sum += n;
+        return new LatencySummary(
+                sorted.length,
+                millis(sum / sorted.length),
+                millis(percentile(sorted, 50)),
+                millis(percentile(sorted, 95)),
+                millis(percentile(sorted, 99)),
+                millis(sorted[sorted.length - 1])
+        );
+    }
+
+    static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,38 @@
+package com.gdin.inspection.graphrag.loadtest;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 压测参数：
+ * - ratePerSecond <= 0：闭环，concurrency 个虚拟用户各自串行发请求，测的是该并发下的最大吞吐
+ * - ratePerSecond > 0：开环，按泊松到达以该速率发起，concurrency 是同时在途的上限，超出的请求排队（排队时间计入延迟）
+ */
+@Value
+@Builder
+public class LoadProfile {
+
+    @Builder.Default
+    int concurrency = 4;
+
+    @Builder.Default
+    double ratePerSecond = 0;
+
+    /** 计入统计的请求数，语料按顺序循环使用 */
+    @Builder.Default
+    int requests = 100;
+
+    /** 正式开始前的预热请求数，不计入统计 */
+    @Builder.Default
+    int warmupRequests = 0;
+
+    /** 泊松到达间隔的随机种子 */
+    @Builder.Default
+    long seed = 42L;
+
+    @Override
+    public String toString() {
+        return (ratePerSecond > 0 ? "open-loop rate=" + ratePerSecond + "/s maxInFlight=" : "closed-loop users=")
+                + concurrency + " requests=" + requests + " warmup=" + warmupRequests;
+    }
+}
@@ -0,0 +1,93 @@
+package com.gdin.inspection.graphrag.loadtest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * 一轮压测的汇总：吞吐、错误数，以及总耗时 / TTFT / 排队 / 各阶段的分位数。
+ * 分阶段只统计成功请求；context 为去掉 embedding 和 Milvus 之后的纯构建时间。
+ */
+public class LoadReport {
+
+    private final String name;
+    private final LoadProfile profile;
+    private final List<QuerySample> samples;
+    private final long wallNanos;
+    private final Map<String, LatencySummary> summaries = new LinkedHashMap<>();
+
+    LoadReport(String name, LoadProfile profile, List<QuerySample> samples, long wallNanos) {
+        this.name = name;
+        this.profile = profile;
+        this.samples = samples;
+        this.wallNanos = wallNanos;
+        summaries.put("total", summarize(QuerySample::totalNanos));
+        summaries.put("ttft", summarize(QuerySample::ttftNanos));
+        summaries.put("queue", summarize(QuerySample::queueNanos));
+        summaries.put("embedding", summarize(QuerySample::embeddingNanos));
+        summaries.put("milvus", summarize(QuerySample::milvusNanos));
+        summaries.put("context", summarize(QuerySample::contextNanos));
+        summaries.put("llm", summarize(QuerySample::llmNanos));
+    }
+
+    private LatencySummary summarize(ToLongFunction<QuerySample> field) {
+        return LatencySummary.of(samples.stream().filter(QuerySample::success).mapToLong(field).toArray());
+    }
+
+    public List<QuerySample> getSamples() {
+        return samples;
+    }
+
+    public LatencySummary summary(String metric) {
+        return summaries.getOrDefault(metric, LatencySummary.EMPTY);
+    }
+
+    public long errors() {
+        return samples.stream().filter(s -> !s.success()).count();
+    }
+
+    public double throughputPerSecond() {
+        long ok = samples.size() - errors();
+        return wallNanos <= 0 ? 0 : ok / (wallNanos / 1_000_000_000.0);
+    }
+
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%n[%s] %s%n", name, profile));
+        sb.append(String.format("requests=%d errors=%d wall=%.1fs throughput=%.2f req/s%n",
+                samples.size(), errors(), wallNanos / 1_000_000_000.0, throughputPerSecond()));
+        sb.append(String.format("%-10s %7s %10s %10s %10s %10s %10s%n", "metric(ms)", "n", "mean", "p50", "p95", "p99", "max"));
+        summaries.forEach((metric, s) -> {
+            if (s.count() == 0) return;
+            sb.append(String.format("%-10s %7d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    metric, s.count(), s.mean(), s.p50(), s.p95(), s.p99(), s.max()));
+        });
+        return sb.toString();
+    }
+
+    /**
+     * 逐请求明细，方便导入表格或 notebook 画分布
+     */
+    public void writeCsv(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("seq,queue_ms,total_ms,ttft_ms,embedding_ms,milvus_ms,context_ms,llm_ms,output_chars,error\n");
+            for (QuerySample s : samples) {
+                w.write(s.seq() + "," + ms(s.queueNanos()) + "," + ms(s.totalNanos()) + "," + ms(s.ttftNanos()) + ","
+                        + ms(s.embeddingNanos()) + "," + ms(s.milvusNanos()) + "," + ms(s.contextNanos()) + ","
+                        + ms(s.llmNanos()) + "," + s.outputChars() + ","
+                        + (s.error() == null ? "" : "\"" + s.error().replace("\"", "'").replace("\n", " ") + "\"") + "\n");
+            }
+        }
+    }
+
+    private static String ms(long nanos) {
+        return nanos < 0 ? "" : String.format("%.3f", nanos / 1_000_000.0);
+    }
+}
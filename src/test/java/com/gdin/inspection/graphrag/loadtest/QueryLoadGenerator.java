@@ -0,0 +1,125 @@
+package com.gdin.inspection.graphrag.loadtest;
+
+import com.gdin.inspection.graphrag.metrics.QueryTimings;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 查询压测发生器：按 LoadProfile 回放查询语料，逐请求记录总耗时、排队、TTFT 和各阶段耗时。
+ * 与具体后端无关，真实模型 / Milvus 和 offline 替身都通过 QueryTarget 接入。
+ */
+@Slf4j
+public class QueryLoadGenerator {
+
+    private final LoadProfile profile;
+
+    public QueryLoadGenerator(LoadProfile profile) {
+        if (profile.getConcurrency() <= 0) throw new IllegalArgumentException("concurrency 必须大于 0");
+        this.profile = profile;
+    }
+
+    public LoadReport run(String name, List<String> corpus, QueryTarget target) throws InterruptedException {
+        if (corpus == null || corpus.isEmpty()) throw new IllegalArgumentException("查询语料为空");
+
+        AtomicInteger threadSeq = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(profile.getConcurrency(), r -> {
+            Thread t = new Thread(r, "loadtest-" + name + "-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            if (profile.getWarmupRequests() > 0) {
+                log.info("[{}] 预热 {} 个请求", name, profile.getWarmupRequests());
+                closedLoop(pool, corpus, target, profile.getWarmupRequests(), new ConcurrentLinkedQueue<>());
+            }
+
+            ConcurrentLinkedQueue<QuerySample> samples = new ConcurrentLinkedQueue<>();
+            long t0 = System.nanoTime();
+            if (profile.getRatePerSecond() > 0) openLoop(pool, corpus, target, samples);
+            else closedLoop(pool, corpus, target, profile.getRequests(), samples);
+            long wall = System.nanoTime() - t0;
+
+            List<QuerySample> sorted = new ArrayList<>(samples);
+            sorted.sort(Comparator.comparingInt(QuerySample::seq));
+            return new LoadReport(name, profile, sorted, wall);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void closedLoop(ExecutorService pool, List<String> corpus, QueryTarget target, int requests,
+                            ConcurrentLinkedQueue<QuerySample> out) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(profile.getConcurrency());
+        for (int u = 0; u < profile.getConcurrency(); u++) {
+            pool.execute(() -> {
+                try {
+                    int seq;
+                    while ((seq = next.getAndIncrement()) < requests) {
+                        out.add(execute(seq, corpus.get(seq % corpus.size()), System.nanoTime(), target));
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    /**
+     * 开环：调度线程按泊松过程算出每个请求的计划发起时刻，到点投递给线程池；
+     * 线程池满时请求在队列里等，等待时间从计划时刻起算进延迟
+     */
+    private void openLoop(ExecutorService pool, List<String> corpus, QueryTarget target,
+                          ConcurrentLinkedQueue<QuerySample> out) throws InterruptedException {
+        Random random = new Random(profile.getSeed());
+        double meanGapNanos = 1_000_000_000.0 / profile.getRatePerSecond();
+        CountDownLatch done = new CountDownLatch(profile.getRequests());
+        long scheduledAt = System.nanoTime();
+        for (int seq = 0; seq < profile.getRequests(); seq++) {
+            scheduledAt += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+            long wait;
+            while ((wait = scheduledAt - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+            int s = seq;
+            long at = scheduledAt;
+            pool.execute(() -> {
+                try {
+                    out.add(execute(s, corpus.get(s % corpus.size()), at, target));
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private static QuerySample execute(int seq, String query, long scheduledAt, QueryTarget target) {
+        QueryTimings timings = new QueryTimings();
+        long started = System.nanoTime();
+        QueryTimings previous = QueryTimings.enter(timings);
+        int outputChars = 0;
+        String error = null;
+        try {
+            outputChars = target.execute(query, timings);
+        } catch (Exception e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            log.debug("请求 {} 失败: {}", seq, error);
+        } finally {
+            QueryTimings.restore(previous);
+        }
+        return QuerySample.of(seq, query, scheduledAt, started, System.nanoTime(), timings, outputChars, error);
+    }
+}
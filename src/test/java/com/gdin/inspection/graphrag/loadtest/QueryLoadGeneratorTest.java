@@ -0,0 +1,77 @@
+package com.gdin.inspection.graphrag.loadtest;
+
+import com.gdin.inspection.graphrag.metrics.QueryTimings;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryLoadGeneratorTest {
+
+    @Test
+    void nearestRankPercentiles() {
+        long[] nanos = new long[100];
+        for (int i = 0; i < 100; i++) nanos[i] = (i + 1) * 1_000_000L;
+        LatencySummary s = LatencySummary.of(nanos);
+        assertEquals(100, s.count());
+        assertEquals(50.0, s.p50());
+        assertEquals(95.0, s.p95());
+        assertEquals(99.0, s.p99());
+        assertEquals(100.0, s.max());
+        // 负数表示没有该项，不参与统计
+        assertEquals(0, LatencySummary.of(new long[]{-1, -1}).count());
+    }
+
+    @Test
+    void closedLoopRecordsEveryRequestWithPhasesAndTtft() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        QueryTarget target = (query, timings) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                // 模拟检索链路：当前线程上的累加器由发生器挂好
+                QueryTimings.addCurrent(QueryTimings.Phase.EMBEDDING, 1_000_000);
+                QueryTimings.addCurrent(QueryTimings.Phase.MILVUS, 2_000_000);
+                QueryTimings.addCurrent(QueryTimings.Phase.CONTEXT, 5_000_000);
+                TimeUnit.MILLISECONDS.sleep(2);
+                timings.markFirstToken();
+                if (query.equals("坏问题")) throw new IllegalStateException("boom");
+                return query.length();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+
+        LoadReport report = new QueryLoadGenerator(LoadProfile.builder().concurrency(3).requests(30).build())
+                .run("unit", List.of("问题一", "问题二", "坏问题"), target);
+
+        assertEquals(30, report.getSamples().size());
+        assertEquals(10, report.errors());
+        assertTrue(maxInFlight.get() <= 3);
+        QuerySample first = report.getSamples().get(0);
+        assertEquals(0, first.seq());
+        assertEquals(2_000_000, first.contextNanos());
+        assertTrue(first.ttftNanos() >= TimeUnit.MILLISECONDS.toNanos(2));
+        assertEquals(20, report.summary("ttft").count());
+        assertNull(QueryTimings.current());
+    }
+
+    @Test
+    void openLoopCountsQueueingFromScheduledTime() throws Exception {
+        QueryTarget slow = (query, timings) -> {
+            TimeUnit.MILLISECONDS.sleep(20);
+            return 1;
+        };
+        // 200 req/s 远超单线程 50 req/s 的处理能力，后面的请求必然排队
+        LoadReport report = new QueryLoadGenerator(LoadProfile.builder().concurrency(1).ratePerSecond(200).requests(20).build())
+                .run("open", List.of("q"), slow);
+
+        assertEquals(0, report.errors());
+        QuerySample last = report.getSamples().get(19);
+        assertTrue(last.queueNanos() > TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(last.totalNanos() >= last.queueNanos());
+    }
+}
@@ -0,0 +1,103 @@
+package com.gdin.inspection.graphrag.loadtest;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.offline.OfflineModelConfig;
+import com.gdin.inspection.graphrag.service.MilvusSearchService;
+import com.gdin.inspection.graphrag.util.SseUtil;
+import com.gdin.inspection.graphrag.v2.query.basic.BasicSearch;
+import com.gdin.inspection.graphrag.v2.query.drift.DriftSearch;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ActiveProfilesResolver;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 查询压测入口，默认不跑，需显式指定目标：
+ * <pre>
+ * mvn test -Dtest=QueryLoadTest -Dloadtest.target=basic-stream -Dloadtest.concurrency=16 -Dloadtest.requests=500
+ * mvn test -Dtest=QueryLoadTest -Dloadtest.target=basic -Dloadtest.rate=5 -Dloadtest.profiles=dev,offline
+ * </pre>
+ * - loadtest.target：basic（BasicSearch.search）/ basic-stream（streamSearch，带 TTFT）/ drift（DriftSearch.search）/ hybrid（MilvusSearch.hybridSearch）
+ * - loadtest.profiles：默认 dev 打真实后端；加上 offline 时外部依赖全部换成 OfflineModelConfig 的替身，知识库与索引起始为空
+ * - loadtest.rate：> 0 为开环泊松到达（req/s），否则为闭环
+ * - loadtest.corpus：查询语料文件（每行一条，# 开头为注释），默认 classpath:loadtest/queries.txt
+ * 汇总打印到日志，逐请求明细写到 target/loadtest/&lt;target&gt;.csv。
+ */
+@Slf4j
+@SpringBootTest
+@Import(OfflineModelConfig.class)
+@ActiveProfiles(resolver = QueryLoadTest.ProfilesFromSystemProperty.class)
+@TestPropertySource(properties = "environment.test=true")
+@EnabledIfSystemProperty(named = "loadtest.target", matches = ".+")
+public class QueryLoadTest {
+
+    @Resource
+    private BasicSearch basicSearch;
+
+    @Resource
+    private DriftSearch driftSearch;
+
+    @Resource
+    private MilvusSearchService milvusSearchService;
+
+    @Resource
+    private GraphProperties graphProperties;
+
+    @Test
+    void run() throws Exception {
+        String targetName = System.getProperty("loadtest.target");
+        int k = Integer.getInteger("loadtest.k", 10);
+        int maxContextTokens = Integer.getInteger("loadtest.maxContextTokens", 12_000);
+
+        QueryTarget target = switch (targetName) {
+            case "basic" -> QueryTarget.basicSearch(basicSearch, k, maxContextTokens);
+            case "basic-stream" -> QueryTarget.basicStreamSearch(basicSearch, k, maxContextTokens,
+                    Long.getLong("loadtest.timeoutMillis", SseUtil.DEFAULT_COMPLETION_TIMEOUT_MS));
+            case "drift" -> QueryTarget.driftSearch(driftSearch);
+            case "hybrid" -> QueryTarget.hybridSearch(milvusSearchService, graphProperties, k);
+            default -> throw new IllegalArgumentException("未知的 loadtest.target: " + targetName);
+        };
+
+        LoadProfile profile = LoadProfile.builder()
+                .concurrency(Integer.getInteger("loadtest.concurrency", 4))
+                .ratePerSecond(Double.parseDouble(System.getProperty("loadtest.rate", "0")))
+                .requests(Integer.getInteger("loadtest.requests", 100))
+                .warmupRequests(Integer.getInteger("loadtest.warmup", 5))
+                .build();
+
+        LoadReport report = new QueryLoadGenerator(profile).run(targetName, loadCorpus(), target);
+        log.info(report.format());
+        report.writeCsv(Path.of("target", "loadtest", targetName + ".csv"));
+    }
+
+    private static List<String> loadCorpus() throws Exception {
+        String path = System.getProperty("loadtest.corpus");
+        try (InputStream in = path != null
+                ? Files.newInputStream(Path.of(path))
+                : QueryLoadTest.class.getClassLoader().getResourceAsStream("loadtest/queries.txt")) {
+            if (in == null) throw new IllegalStateException("找不到查询语料 loadtest/queries.txt");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            return reader.lines().map(String::trim).filter(l -> !l.isEmpty() && !l.startsWith("#")).toList();
+        }
+    }
+
+    public static class ProfilesFromSystemProperty implements ActiveProfilesResolver {
+        @Override
+        public String[] resolve(Class<?> testClass) {
+            return System.getProperty("loadtest.profiles", "dev").split(",");
+        }
+    }
+}
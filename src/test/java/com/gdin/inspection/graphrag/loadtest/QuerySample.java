@@ -0,0 +1,49 @@
+package com.gdin.inspection.graphrag.loadtest;
+
+import com.gdin.inspection.graphrag.metrics.QueryTimings;
+
+/**
+ * 单个请求的测量结果，时间单位均为纳秒。
+ * totalNanos 从计划发起时刻算起（开环模式下包含排队等待，避免 coordinated omission 把尾延迟藏掉）。
+ *
+ * @param ttftNanos 首个可见 token 时间，非流式请求为 -1
+ */
+public record QuerySample(
+        int seq,
+        String query,
+        long scheduledAtNanos,
+        long queueNanos,
+        long totalNanos,
+        long ttftNanos,
+        long embeddingNanos,
+        long milvusNanos,
+        long contextNanos,
+        long llmNanos,
+        int outputChars,
+        String error
+) {
+
+    public boolean success() {
+        return error == null;
+    }
+
+    static QuerySample of(int seq, String query, long scheduledAtNanos, long startedAtNanos, long finishedAtNanos,
+                          QueryTimings timings, int outputChars, String error) {
+        long ttft = timings.firstTokenNanos();
+        return new QuerySample(
+                seq,
+                query,
+                scheduledAtNanos,
+                startedAtNanos - scheduledAtNanos,
+                finishedAtNanos - scheduledAtNanos,
+                // 首 token 时间同样从计划发起时刻算
+                ttft < 0 ? -1 : ttft + (startedAtNanos - scheduledAtNanos),
+                timings.nanos(QueryTimings.Phase.EMBEDDING),
+                timings.nanos(QueryTimings.Phase.MILVUS),
+                timings.contextOnlyNanos(),
+                timings.nanos(QueryTimings.Phase.LLM),
+                outputChars,
+                error
+        );
+    }
+}
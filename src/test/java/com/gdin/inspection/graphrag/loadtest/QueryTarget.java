@@ -0,0 +1,77 @@
+package com.gdin.inspection.graphrag.loadtest;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.metrics.QueryTimings;
+import com.gdin.inspection.graphrag.req.milvus.MilvusHybridSearchReq;
+import com.gdin.inspection.graphrag.service.MilvusSearchService;
+import com.gdin.inspection.graphrag.util.SseUtil;
+import com.gdin.inspection.graphrag.v2.query.basic.BasicSearch;
+import com.gdin.inspection.graphrag.v2.query.drift.DriftSearch;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测目标：执行一次查询，返回输出的字符数（或命中行数）。
+ * 调用时当前线程已挂上 timings，embedding / Milvus / 上下文构建会自动计入；
+ * 流式目标需在收到首个可见 token 时调用 {@link QueryTimings#markFirstToken()}。
+ */
+@FunctionalInterface
+public interface QueryTarget {
+
+    int execute(String query, QueryTimings timings) throws Exception;
+
+    /**
+     * BasicSearch.search：阻塞拿到完整回答
+     */
+    static QueryTarget basicSearch(BasicSearch basicSearch, int k, int maxContextTokens) {
+        return (query, timings) -> {
+            String response = basicSearch.search(query, k, maxContextTokens, null).getResponse();
+            // search 内部吞掉异常返回空串，这里当失败计
+            if (response == null || response.isEmpty()) throw new IllegalStateException("回答为空");
+            return response.length();
+        };
+    }
+
+    /**
+     * BasicSearch.streamSearch：上下文构建同步完成，之后按流式消费并记录首 token 时间
+     */
+    static QueryTarget basicStreamSearch(BasicSearch basicSearch, int k, int maxContextTokens, long timeoutMillis) {
+        return (query, timings) -> {
+            BasicSearch.BasicStreamResult r = basicSearch.streamSearch(query, k, maxContextTokens, null);
+            long llmStart = System.nanoTime();
+            try {
+                String response = SseUtil.completeWithoutThink(r.tokenStream(), r.memoryId(), timeoutMillis,
+                                visible -> timings.markFirstToken())
+                        .get(timeoutMillis + 1000, TimeUnit.MILLISECONDS);
+                return response.length();
+            } finally {
+                timings.add(QueryTimings.Phase.LLM, System.nanoTime() - llmStart);
+            }
+        };
+    }
+
+    /**
+     * DriftSearch.search：primer + 逐层展开 + reduce，阻塞拿到完整回答
+     */
+    static QueryTarget driftSearch(DriftSearch driftSearch) {
+        return (query, timings) -> {
+            String response = driftSearch.search(query, null).getResponse();
+            if (response == null || response.isEmpty()) throw new IllegalStateException("回答为空");
+            return response.length();
+        };
+    }
+
+    /**
+     * MilvusSearch.hybridSearch（经 MilvusSearchService，稠密 + BM25）直接打知识库内容集合，只测检索
+     */
+    static QueryTarget hybridSearch(MilvusSearchService milvusSearchService, GraphProperties graphProperties, int topK) {
+        String collectionName = graphProperties.getCollectionNames().getMain().getContentCollectionName();
+        return (query, timings) -> milvusSearchService.hybridHits(MilvusHybridSearchReq.builder()
+                .collectionName(collectionName)
+                .query(query)
+                .topK(topK)
+                .outputFields(List.of("page_content"))
+                .build()).size();
+    }
+}
@@ -0,0 +1,43 @@
+package com.gdin.inspection.graphrag.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GraphRagMetricsTest {
+
+    @Test
+    void recordsWorkflowAndLlmMeters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GraphRagMetrics metrics = new GraphRagMetrics(registry);
+
+        metrics.recordWorkflow("extract_graph", TimeUnit.MILLISECONDS.toNanos(20), true);
+        metrics.recordLlmTokens("graph_extractor", 100, 30);
+        metrics.countGleaning("graph_extractor");
+        metrics.inFlight("graph_extractor").incrementAndGet();
+
+        assertEquals(1, registry.get("graphrag.pipeline.workflow").tag("workflow", "extract_graph").timer().count());
+        assertEquals(100, registry.get("graphrag.llm.tokens").tag("type", "prompt").summary().totalAmount());
+        assertEquals(30, registry.get("graphrag.llm.tokens").tag("type", "completion").summary().totalAmount());
+        assertEquals(1, registry.get("graphrag.llm.gleanings").counter().count());
+        assertEquals(1, registry.get("graphrag.llm.inflight").gauge().value());
+    }
+
+    @Test
+    void timesMilvusCallsIncludingFailures() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GraphRagMetrics metrics = new GraphRagMetrics(registry);
+
+        assertEquals("ok", metrics.timeMilvus("query", "GRAPH_RAG_ENTITY", () -> "ok"));
+        assertThrows(IllegalStateException.class, () -> metrics.runMilvus("delete", "GRAPH_RAG_ENTITY", () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(1, registry.get("graphrag.milvus.call").tag("op", "query").tag("outcome", GraphRagMetrics.OUTCOME_SUCCESS).timer().count());
+        assertEquals(1, registry.get("graphrag.milvus.call").tag("op", "delete").tag("outcome", GraphRagMetrics.OUTCOME_ERROR).timer().count());
+    }
+}
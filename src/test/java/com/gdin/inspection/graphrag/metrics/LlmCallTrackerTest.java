@@ -0,0 +1,76 @@
+package com.gdin.inspection.graphrag.metrics;
+
+import com.gdin.inspection.graphrag.config.properties.LlmProperties;
+import com.gdin.inspection.graphrag.store.MapChatMemoryStore;
+import com.gdin.inspection.graphrag.v2.util.TokenUtil;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LlmCallTrackerTest {
+
+    private TokenUtil tokenUtil;
+    private MapChatMemoryStore store;
+    private LlmCallTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        LlmProperties props = new LlmProperties();
+        tokenUtil = new TokenUtil();
+        ReflectionTestUtils.invokeMethod(tokenUtil, "init");
+        store = new MapChatMemoryStore();
+        ReflectionTestUtils.setField(store, "llmProperties", props);
+
+        tracker = new LlmCallTracker();
+        ReflectionTestUtils.setField(tracker, "graphRagMetrics", new GraphRagMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(tracker, "tokenUtil", tokenUtil);
+        ReflectionTestUtils.setField(tracker, "llmProperties", props);
+        ReflectionTestUtils.setField(tracker, "mapChatMemoryStore", store);
+    }
+
+    private long tokens(String... texts) {
+        long n = 0;
+        for (String t : texts) n += tokenUtil.getTokenCount(t);
+        return n;
+    }
+
+    @Test
+    void countsSystemPromptAndHistoryButNotCurrentAnswer() {
+        String sys = "你是电力设备知识图谱抽取助手，按给定格式输出实体与关系。";
+        String first = "抽取下面文本中的实体：主变压器 1 号由 GIS 变电站供电。";
+        String firstAnswer = "(\"entity\"<|>主变压器<|>EQUIPMENT<|>一号主变)";
+        String gleaning = "上一轮遗漏了很多实体，请继续补充。";
+        String gleaningAnswer = "(\"entity\"<|>GIS 变电站<|>FACILITY<|>供电站点)";
+        store.updateMessages("m1", List.of(
+                SystemMessage.from(sys),
+                UserMessage.from(first),
+                AiMessage.from(firstAnswer),
+                UserMessage.from(gleaning),
+                AiMessage.from(gleaningAnswer)));
+
+        assertEquals(tokens(sys, first, firstAnswer, gleaning), tracker.estimatePrompt("m1", gleaning));
+    }
+
+    @Test
+    void addsPromptWhenMemoryDoesNotHoldIt() {
+        String sys = "系统提示";
+        store.updateMessages("m2", List.of(SystemMessage.from(sys)));
+        // 调用在写入用户消息前失败
+        assertEquals(tokens(sys, "问题"), tracker.estimatePrompt("m2", "问题"));
+    }
+
+    @Test
+    void fallsBackToPromptWithoutMemory() {
+        assertEquals(tokens("只有本轮"), tracker.estimatePrompt("missing", "只有本轮"));
+        assertEquals(tokens("只有本轮"), tracker.estimatePrompt(null, "只有本轮"));
+        assertEquals(0, tracker.estimatePrompt(null, null));
+    }
+}
@@ -0,0 +1,220 @@
+package com.gdin.inspection.graphrag.offline;
+
+import cn.hutool.core.util.StrUtil;
+import com.gdin.inspection.graphrag.v2.index.opertation.extract.GraphExtractor;
+import com.gdin.inspection.graphrag.v2.index.prompts.ExtractClaimsPromptsZh;
+import com.gdin.inspection.graphrag.v2.index.prompts.ExtractGraphPromptsZh;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 离线替身的“剧本”：按最后一条用户消息识别是哪类 prompt，返回格式合法、内容只由输入决定的回答。
+ * <ul>
+ *     <li>图抽取：从 Text 里切出若干词当实体，相邻实体两两连边；CONTINUE 只回完成符，LOOP 回 N</li>
+ *     <li>claim 抽取：给第一个实体造一条 claim</li>
+ *     <li>描述汇总：实体名 + 描述列表前一段</li>
+ *     <li>社区报告：合法的报告 JSON</li>
+ *     <li>其它（查询问答等）：固定模板的回答</li>
+ * </ul>
+ * 分隔符用 GraphExtractor 的默认值，与 strategy 未配置分隔符时一致。
+ */
+public class ChatScript {
+
+    public enum Kind { GRAPH_EXTRACTION, CLAIM_EXTRACTION, CONTINUE, LOOP, SUMMARIZE, COMMUNITY_REPORT, ANSWER }
+
+    private static final Pattern WORD_SPLIT = Pattern.compile("[\\s\\p{Punct}，。、；：？！“”‘’（）《》【】·…—]+");
+    private static final int MAX_TITLE_LENGTH = 8;
+
+    private final int maxEntitiesPerUnit;
+    private final String tupleDelimiter = GraphExtractor.DEFAULT_TUPLE_DELIMITER;
+    private final String recordDelimiter = GraphExtractor.DEFAULT_RECORD_DELIMITER;
+    private final String completionDelimiter = GraphExtractor.DEFAULT_COMPLETION_DELIMITER;
+    private final Map<Kind, AtomicLong> calls = new EnumMap<>(Kind.class);
+
+    public ChatScript() {
+        this(8);
+    }
+
+    public ChatScript(int maxEntitiesPerUnit) {
+        this.maxEntitiesPerUnit = maxEntitiesPerUnit;
+        for (Kind kind : Kind.values()) calls.put(kind, new AtomicLong());
+    }
+
+    /**
+     * 各类 prompt 被调用的次数，测试里用来断言 gleaning / summarize 等是否按预期发生
+     */
+    public long calls(Kind kind) {
+        return calls.get(kind).get();
+    }
+
+    public Kind classify(String prompt) {
+        if (prompt == null) return Kind.ANSWER;
+        if (prompt.equals(ExtractGraphPromptsZh.CONTINUE_PROMPT) || prompt.equals(ExtractClaimsPromptsZh.CONTINUE_PROMPT)) {
+            return Kind.CONTINUE;
+        }
+        if (prompt.equals(ExtractGraphPromptsZh.LOOP_PROMPT) || prompt.equals(ExtractClaimsPromptsZh.LOOP_PROMPT)) {
+            return Kind.LOOP;
+        }
+        if (prompt.contains("Claim description:")) return Kind.CLAIM_EXTRACTION;
+        if (prompt.contains("Entity_types:") && prompt.contains("Text:")) return Kind.GRAPH_EXTRACTION;
+        if (prompt.contains("# 报告结构")) return Kind.COMMUNITY_REPORT;
+        if (prompt.contains("描述列表:")) return Kind.SUMMARIZE;
+        return Kind.ANSWER;
+    }
+
+    public String reply(String prompt) {
+        Kind kind = classify(prompt);
+        calls.get(kind).incrementAndGet();
+        switch (kind) {
+            case GRAPH_EXTRACTION:
+                return graphExtraction(lastSection(prompt, "Text:"), entityTypes(prompt));
+            case CLAIM_EXTRACTION:
+                return claimExtraction(lastSection(prompt, "Text:"));
+            case CONTINUE:
+                // SseUtil 把空回答当失败，这里回一个完成符，解析时会被当成空记录跳过
+                return completionDelimiter;
+            case LOOP:
+                return "N";
+            case SUMMARIZE:
+                return summarize(lastLineValue(prompt, "实体:"), lastSection(prompt, "描述列表:"));
+            case COMMUNITY_REPORT:
+                return communityReport(prompt);
+            default:
+                return answer(prompt);
+        }
+    }
+
+    // ----------------------------------------------------------------------
+
+    private String graphExtraction(String text, List<String> types) {
+        List<String> titles = titles(text);
+        List<String> records = new ArrayList<>();
+        for (String title : titles) {
+            String type = types.get(Math.floorMod(title.hashCode(), types.size()));
+            records.add("(\"entity\"" + tupleDelimiter + title + tupleDelimiter + type
+                    + tupleDelimiter + title + " 是文本中出现的" + type + "，" + excerpt(text, 40) + ")");
+        }
+        for (int i = 1; i < titles.size(); i++) {
+            String source = titles.get(i - 1);
+            String target = titles.get(i);
+            int strength = 1 + Math.floorMod((source + target).hashCode(), 9);
+            records.add("(\"relationship\"" + tupleDelimiter + source + tupleDelimiter + target
+                    + tupleDelimiter + source + " 与 " + target + " 在同一段文本中相邻出现" + tupleDelimiter + strength + ")");
+        }
+        return String.join("\n" + recordDelimiter + "\n", records) + "\n" + completionDelimiter;
+    }
+
+    private String claimExtraction(String text) {
+        List<String> titles = titles(text);
+        if (titles.isEmpty()) return completionDelimiter;
+        String subject = titles.get(0);
+        String object = titles.size() > 1 ? titles.get(1) : "NONE";
+        return "(" + String.join(tupleDelimiter,
+                subject, object, "离线测试", "SUSPECTED",
+                "2024-01-01T00:00:00", "2024-01-01T00:00:00",
+                subject + " 在文本中涉及一项待核实的事项",
+                excerpt(text, 60))
+                + ")\n" + completionDelimiter;
+    }
+
+    private String summarize(String entity, String descriptions) {
+        return StrUtil.blankToDefault(entity, "该实体") + " 的综合描述：" + excerpt(descriptions, 120);
+    }
+
+    private String communityReport(String prompt) {
+        // 社区上下文是带表头的 CSV，跳过表头行
+        String body = lastSection(prompt, "Text:");
+        int nl = body.indexOf('\n');
+        List<String> titles = titles(nl < 0 ? body : body.substring(nl + 1));
+        String head = titles.isEmpty() ? "离线社区" : titles.get(0);
+        double rating = Math.floorMod(prompt.hashCode(), 100) / 10.0;
+        StringBuilder findings = new StringBuilder();
+        for (int i = 0; i < Math.min(3, Math.max(1, titles.size())); i++) {
+            String t = titles.isEmpty() ? head : titles.get(i);
+            if (i > 0) findings.append(",\n");
+            findings.append("        {\"summary\": \"").append(jsonEscape(t)).append(" 是社区中的关键实体\", ")
+                    .append("\"explanation\": \"").append(jsonEscape(t)).append(" 与社区内其它实体存在多条关系。\"}");
+        }
+        return "{\n"
+                + "    \"title\": \"" + jsonEscape(head) + " 相关社区\",\n"
+                + "    \"summary\": \"该社区围绕 " + jsonEscape(head) + " 展开。\",\n"
+                + "    \"rating\": " + rating + ",\n"
+                + "    \"rating_explanation\": \"离线剧本按输入哈希给出的评分。\",\n"
+                + "    \"findings\": [\n" + findings + "\n    ]\n"
+                + "}";
+    }
+
+    private String answer(String prompt) {
+        return "根据已有数据，" + excerpt(prompt, 80) + "（离线回答）";
+    }
+
+    // ----------------------------------------------------------------------
+
+    List<String> titles(String text) {
+        Set<String> titles = new LinkedHashSet<>();
+        if (StrUtil.isBlank(text)) return new ArrayList<>();
+        for (String word : WORD_SPLIT.split(text)) {
+            if (word.length() < 2) continue;
+            titles.add(word.length() > MAX_TITLE_LENGTH ? word.substring(0, MAX_TITLE_LENGTH) : word);
+            if (titles.size() >= maxEntitiesPerUnit) break;
+        }
+        return new ArrayList<>(titles);
+    }
+
+    private static List<String> entityTypes(String prompt) {
+        List<String> types = new ArrayList<>();
+        String line = lastLineValue(prompt, "Entity_types:");
+        if (line != null) {
+            for (String t : line.replace("[", "").replace("]", "").split("[,，]")) {
+                if (StrUtil.isNotBlank(t)) types.add(t.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        if (types.isEmpty()) types.add("ORGANIZATION");
+        return types;
+    }
+
+    /**
+     * 取最后一次出现的 marker 之后、下一个分隔行之前的内容（prompt 里 few-shot 示例也带同样的 marker）
+     */
+    private static String lastSection(String prompt, String marker) {
+        int idx = prompt.lastIndexOf(marker);
+        if (idx < 0) return "";
+        String rest = prompt.substring(idx + marker.length());
+        int end = rest.length();
+        for (String stop : new String[]{"\n######", "\nOutput:", "\n输出", "\n报告应包含"}) {
+            int i = rest.indexOf(stop);
+            if (i >= 0 && i < end) end = i;
+        }
+        return rest.substring(0, end).trim();
+    }
+
+    private static String lastLineValue(String prompt, String marker) {
+        int idx = prompt.lastIndexOf(marker);
+        return idx < 0 ? null : firstLine(prompt.substring(idx + marker.length()));
+    }
+
+    private static String firstLine(String s) {
+        int nl = s.indexOf('\n');
+        return (nl < 0 ? s : s.substring(0, nl)).trim();
+    }
+
+    private static String excerpt(String text, int maxChars) {
+        String flat = StrUtil.blankToDefault(text, "").replaceAll("\\s+", " ")
+                .replace(GraphExtractor.DEFAULT_TUPLE_DELIMITER, " ")
+                .replace(GraphExtractor.DEFAULT_RECORD_DELIMITER, " ")
+                .trim();
+        return flat.length() > maxChars ? flat.substring(0, maxChars) : flat;
+    }
+
+    private static String jsonEscape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,82 @@
+package com.gdin.inspection.graphrag.offline;
+
+import com.gdin.inspection.graphrag.v2.index.cluster.GraphClusterClient;
+import com.gdin.inspection.graphrag.v2.index.cluster.LeidenCluster;
+import com.gdin.inspection.graphrag.v2.models.Relationship;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 离线的 GraphClusterClient，替代 Python Leiden 服务：按连通分量分社区，超过 maxClusterSize 的分量按标题顺序切块。
+ * 只产出 level 0、parent 为 -1 的一层社区，结果只由关系表决定，与 seed 无关。
+ */
+public class ComponentGraphClusterClient implements GraphClusterClient {
+
+    @Override
+    public List<LeidenCluster> clusterGraph(
+            List<Relationship> relationships,
+            int maxClusterSize,
+            boolean useLargestComponent,
+            Integer seed
+    ) {
+        if (relationships == null || relationships.isEmpty()) return Collections.emptyList();
+
+        // 并查集，节点按标题排序保证结果稳定
+        Map<String, String> parent = new TreeMap<>();
+        for (Relationship rel : relationships) {
+            if (rel.getSource() == null || rel.getTarget() == null) continue;
+            union(parent, rel.getSource(), rel.getTarget());
+        }
+        Map<String, TreeSet<String>> components = new TreeMap<>();
+        for (String node : parent.keySet()) {
+            components.computeIfAbsent(find(parent, node), k -> new TreeSet<>()).add(node);
+        }
+
+        List<List<String>> ordered = new ArrayList<>();
+        for (TreeSet<String> component : components.values()) ordered.add(new ArrayList<>(component));
+        ordered.sort(Comparator.<List<String>>comparingInt(List::size).reversed().thenComparing(c -> c.get(0)));
+        if (useLargestComponent && !ordered.isEmpty()) ordered = ordered.subList(0, 1);
+
+        int size = Math.max(1, maxClusterSize);
+        List<LeidenCluster> clusters = new ArrayList<>();
+        for (List<String> component : ordered) {
+            for (int i = 0; i < component.size(); i += size) {
+                clusters.add(LeidenCluster.builder()
+                        .level(0)
+                        .communityId(clusters.size())
+                        .parentCommunityId(-1)
+                        .nodeTitles(new ArrayList<>(component.subList(i, Math.min(i + size, component.size()))))
+                        .build());
+            }
+        }
+        return clusters;
+    }
+
+    private static void union(Map<String, String> parent, String a, String b) {
+        parent.putIfAbsent(a, a);
+        parent.putIfAbsent(b, b);
+        String ra = find(parent, a);
+        String rb = find(parent, b);
+        if (ra.equals(rb)) return;
+        // 字典序小的作根
+        if (ra.compareTo(rb) < 0) parent.put(rb, ra);
+        else parent.put(ra, rb);
+    }
+
+    private static String find(Map<String, String> parent, String node) {
+        String root = node;
+        while (!root.equals(parent.get(root))) root = parent.get(root);
+        while (!node.equals(root)) {
+            String next = parent.get(node);
+            parent.put(node, root);
+            node = next;
+        }
+        return root;
+    }
+}
@@ -0,0 +1,90 @@
+package com.gdin.inspection.graphrag.offline;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 离线的 EmbeddingModel：字符 unigram + bigram 做特征哈希，再 L2 归一化。
+ * 同一文本永远得到同一向量，字面相近的文本余弦相似度也高，足够让向量检索的排序有意义。
+ * 默认 1024 维，与线上 bge-large-zh 一致，Milvus / 本地索引的维度校验不用改。
+ */
+public class HashEmbeddingModel implements EmbeddingModel {
+
+    public static final int DEFAULT_DIMENSION = 1024;
+
+    private final int dimension;
+    private final LatencyModel latency;
+
+    public HashEmbeddingModel() {
+        this(DEFAULT_DIMENSION, LatencyModel.NONE);
+    }
+
+    public HashEmbeddingModel(int dimension, LatencyModel latency) {
+        if (dimension <= 0) throw new IllegalArgumentException("dimension 必须大于 0");
+        this.dimension = dimension;
+        this.latency = latency;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        latency.sleep();
+        List<Embedding> embeddings = new ArrayList<>(textSegments.size());
+        int tokens = 0;
+        for (TextSegment segment : textSegments) {
+            String text = segment.text();
+            embeddings.add(Embedding.from(vector(text)));
+            tokens += ScriptedChatModel.estimateTokens(text);
+        }
+        return Response.from(embeddings, new TokenUsage(tokens));
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    float[] vector(String text) {
+        float[] v = new float[dimension];
+        int n = text == null ? 0 : text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) continue;
+            add(v, mix(c), 1f);
+            if (i + 1 < n && !Character.isWhitespace(text.charAt(i + 1))) {
+                add(v, mix(c * 31 + text.charAt(i + 1) + 0x9E3779B9), 2f);
+            }
+        }
+        double norm = 0;
+        for (float x : v) norm += x * x;
+        if (norm == 0) {
+            // 空文本给一个固定的单位向量，避免下游算余弦时除零
+            v[0] = 1f;
+            return v;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) v[i] *= inv;
+        return v;
+    }
+
+    /**
+     * 低位选桶，最高位选符号，减少哈希碰撞带来的系统性偏差
+     */
+    private void add(float[] v, int h, float weight) {
+        v[(h >>> 1) % dimension] += (h < 0 ? -weight : weight);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,134 @@
+package com.gdin.inspection.graphrag.offline;
+
+import cn.hutool.core.collection.CollectionUtil;
+import com.gdin.inspection.graphrag.v2.models.Community;
+import com.gdin.inspection.graphrag.v2.models.CommunityReport;
+import com.gdin.inspection.graphrag.v2.models.Covariate;
+import com.gdin.inspection.graphrag.v2.models.Entity;
+import com.gdin.inspection.graphrag.v2.models.Relationship;
+import com.gdin.inspection.graphrag.v2.models.TextUnit;
+import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 纯内存的 GraphRagIndexStorage，离线压测 / 端到端测试用。
+ * 每个 scope 每张表一份；save 与 Milvus / 文件实现一致是整表覆盖写，同一批里重复的 id 后者覆盖前者，保持首次出现的顺序。
+ */
+public class InMemoryGraphRagIndexStorage implements GraphRagIndexStorage {
+
+    private final Map<Integer, Table<Entity>> entities = new ConcurrentHashMap<>();
+    private final Map<Integer, Table<Relationship>> relationships = new ConcurrentHashMap<>();
+    private final Map<Integer, Table<TextUnit>> textUnits = new ConcurrentHashMap<>();
+    private final Map<Integer, Table<Community>> communities = new ConcurrentHashMap<>();
+    private final Map<Integer, Table<CommunityReport>> reports = new ConcurrentHashMap<>();
+    private final Map<Integer, Table<Covariate>> covariates = new ConcurrentHashMap<>();
+
+    @Override
+    public void saveEntities(int scope, List<Entity> rows) {
+        table(entities, scope, Entity::getId).replaceAll(rows);
+    }
+
+    @Override
+    public List<Entity> loadEntities(int scope) {
+        return table(entities, scope, Entity::getId).list();
+    }
+
+    @Override
+    public void saveRelationships(int scope, List<Relationship> rows) {
+        table(relationships, scope, Relationship::getId).replaceAll(rows);
+    }
+
+    @Override
+    public List<Relationship> loadRelationships(int scope) {
+        return table(relationships, scope, Relationship::getId).list();
+    }
+
+    @Override
+    public void saveTextUnits(int scope, List<TextUnit> rows) {
+        table(textUnits, scope, TextUnit::getId).replaceAll(rows);
+    }
+
+    @Override
+    public List<TextUnit> loadTextUnits(int scope) {
+        return table(textUnits, scope, TextUnit::getId).list();
+    }
+
+    @Override
+    public List<String> loadTextUnitIds(int scope) {
+        return loadTextUnits(scope).stream().map(TextUnit::getId).toList();
+    }
+
+    @Override
+    public void saveCommunities(int scope, List<Community> rows) {
+        table(communities, scope, Community::getId).replaceAll(rows);
+    }
+
+    @Override
+    public List<Community> loadCommunities(int scope) {
+        return table(communities, scope, Community::getId).list();
+    }
+
+    @Override
+    public void saveCommunityReports(int scope, List<CommunityReport> rows) {
+        table(reports, scope, CommunityReport::getId).replaceAll(rows);
+    }
+
+    @Override
+    public List<CommunityReport> loadCommunityReports(int scope) {
+        return table(reports, scope, CommunityReport::getId).list();
+    }
+
+    @Override
+    public void saveCovariates(int scope, List<Covariate> rows) {
+        table(covariates, scope, Covariate::getId).replaceAll(rows);
+    }
+
+    @Override
+    public List<Covariate> loadCovariates(int scope) {
+        return table(covariates, scope, Covariate::getId).list();
+    }
+
+    @Override
+    public void clear(int scope) {
+        entities.remove(scope);
+        relationships.remove(scope);
+        textUnits.remove(scope);
+        communities.remove(scope);
+        reports.remove(scope);
+        covariates.remove(scope);
+    }
+
+    private static <T> Table<T> table(Map<Integer, Table<T>> tables, int scope, Function<T, String> idOf) {
+        if (scope != SCOPE_MAIN && scope != SCOPE_DELTA) throw new RuntimeException("Unknown scope");
+        return tables.computeIfAbsent(scope, s -> new Table<>(idOf));
+    }
+
+    private static final class Table<T> {
+        private final Function<T, String> idOf;
+        private final LinkedHashMap<String, T> rows = new LinkedHashMap<>();
+
+        private Table(Function<T, String> idOf) {
+            this.idOf = idOf;
+        }
+
+        synchronized void replaceAll(List<T> list) {
+            rows.clear();
+            if (CollectionUtil.isEmpty(list)) return;
+            for (T row : list) {
+                String id = idOf.apply(row);
+                if (id == null) throw new IllegalStateException("写入内存索引的行缺少 id: " + row);
+                rows.put(id, row);
+            }
+        }
+
+        synchronized List<T> list() {
+            return new ArrayList<>(rows.values());
+        }
+    }
+}
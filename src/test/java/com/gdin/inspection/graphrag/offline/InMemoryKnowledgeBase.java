@@ -0,0 +1,135 @@
+package com.gdin.inspection.graphrag.offline;
+
+import com.gdin.inspection.graphrag.req.milvus.MilvusHybridSearchReq;
+import com.gdin.inspection.graphrag.req.milvus.MilvusQueryReq;
+import com.gdin.inspection.graphrag.req.milvus.MilvusSemanticSearchReq;
+import com.gdin.inspection.graphrag.search.result.MilvusHit;
+import com.gdin.inspection.graphrag.search.result.MilvusRow;
+import com.gdin.inspection.graphrag.service.MilvusSearchService;
+import com.google.gson.JsonObject;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 纯内存的知识库内容集合，替换 MilvusSearchService 里离线链路会用到的几个方法：
+ * <ul>
+ *     <li>forEachRowBatch：load_input_documents 按文档 id 加载父切片，只认过滤条件末尾的 {@code in [...]}</li>
+ *     <li>semanticHits / hybridHits：basic search 与压测的原文检索，按向量余弦排序，不做标量过滤</li>
+ * </ul>
+ * 切片字段与线上一致（metadata / page_content / graph_main），graph_main.human_readable_id 按插入顺序给出，
+ * 相当于这些切片已经被主索引回写过。其余方法仍走父类，离线下没有连接的 Milvus 客户端，调用会直接失败。
+ */
+public class InMemoryKnowledgeBase extends MilvusSearchService {
+
+    private static final Pattern IN_LIST = Pattern.compile("in \\[(.*)]$");
+    private static final int DEFAULT_TOP_K = 10;
+
+    private final EmbeddingModel embeddingModel;
+    private final List<Slice> slices = new CopyOnWriteArrayList<>();
+
+    public InMemoryKnowledgeBase(EmbeddingModel embeddingModel) {
+        this.embeddingModel = embeddingModel;
+    }
+
+    /**
+     * 追加一个父切片，doc_id 为 {documentId}-{page}
+     */
+    public void addSlice(String documentId, int page, String content) {
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("document_id", documentId);
+        metadata.addProperty("doc_id", documentId + "-" + page);
+        metadata.addProperty("page", page);
+        metadata.addProperty("segment_type", "father");
+        JsonObject graphMain = new JsonObject();
+        graphMain.addProperty("human_readable_id", slices.size());
+
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("metadata", metadata);
+        fields.put("page_content", content);
+        fields.put("graph_main", graphMain);
+        slices.add(new Slice(documentId, new MilvusRow(fields), embeddingModel.embed(content).content().vector()));
+    }
+
+    public void clear() {
+        slices.clear();
+    }
+
+    @Override
+    public long forEachRowBatch(MilvusQueryReq milvusQueryReq, int batchSize, Consumer<List<MilvusRow>> consumer) {
+        Set<String> documentIds = documentIds(milvusQueryReq.getFilter());
+        List<MilvusRow> matched = new ArrayList<>();
+        for (Slice slice : slices) {
+            if (documentIds == null || documentIds.contains(slice.documentId())) matched.add(slice.row());
+        }
+        for (int i = 0; i < matched.size(); i += batchSize) {
+            consumer.accept(matched.subList(i, Math.min(i + batchSize, matched.size())));
+        }
+        return matched.size();
+    }
+
+    @Override
+    public List<MilvusHit> semanticHits(MilvusSemanticSearchReq semanticSearchReq) {
+        float[] queryVector = semanticSearchReq.getQueryVector() != null
+                ? semanticSearchReq.getQueryVector()
+                : embeddingModel.embed(semanticSearchReq.getQuery()).content().vector();
+        return search(queryVector, semanticSearchReq.getTopK(), semanticSearchReq.getOutputFields());
+    }
+
+    @Override
+    public List<MilvusHit> hybridHits(MilvusHybridSearchReq hybridSearchReq) {
+        float[] queryVector = embeddingModel.embed(hybridSearchReq.getQuery()).content().vector();
+        return search(queryVector, hybridSearchReq.getTopK(), hybridSearchReq.getOutputFields());
+    }
+
+    private List<MilvusHit> search(float[] queryVector, Integer topK, List<String> outputFields) {
+        int k = topK == null || topK <= 0 ? DEFAULT_TOP_K : topK;
+        List<MilvusHit> hits = new ArrayList<>();
+        for (Slice slice : slices) {
+            String id = slice.row().getJsonString("metadata", "doc_id");
+            hits.add(new MilvusHit(id, dot(queryVector, slice.vector()), project(slice.row(), outputFields)));
+        }
+        hits.sort(Comparator.comparingDouble(MilvusHit::score).reversed());
+        return new ArrayList<>(hits.subList(0, Math.min(k, hits.size())));
+    }
+
+    private static MilvusRow project(MilvusRow row, List<String> outputFields) {
+        if (outputFields == null || outputFields.isEmpty()) return row;
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (String field : outputFields) {
+            if (row.has(field)) fields.put(field, row.get(field));
+        }
+        return new MilvusRow(fields);
+    }
+
+    /**
+     * 过滤条件里没有 in 列表时返回 null，表示不按文档过滤
+     */
+    private static Set<String> documentIds(String filter) {
+        if (filter == null) return null;
+        Matcher m = IN_LIST.matcher(filter);
+        if (!m.find()) return null;
+        Set<String> ids = new HashSet<>();
+        for (String quoted : m.group(1).split(",")) ids.add(quoted.trim().replace("\"", ""));
+        return ids;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < Math.min(a.length, b.length); i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    private record Slice(String documentId, MilvusRow row, float[] vector) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.gdin.inspection.graphrag.offline;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离线替身的延迟分布：固定 / 均匀 / 对数正态（真实大模型的首 token 延迟大致是长尾的对数正态）。
+ * 同一个种子得到同一串延迟，压测结果可复现。
+ */
+public final class LatencyModel {
+
+    public static final LatencyModel NONE = fixed(0);
+
+    private enum Kind { FIXED, UNIFORM, LOG_NORMAL }
+
+    private final Kind kind;
+    private final double a;
+    private final double b;
+    private final Random random;
+
+    private LatencyModel(Kind kind, double a, double b, long seed) {
+        this.kind = kind;
+        this.a = a;
+        this.b = b;
+        this.random = new Random(seed);
+    }
+
+    public static LatencyModel fixed(long millis) {
+        return new LatencyModel(Kind.FIXED, millis, 0, 0L);
+    }
+
+    public static LatencyModel uniform(long minMillis, long maxMillis, long seed) {
+        if (maxMillis < minMillis) throw new IllegalArgumentException("maxMillis 不能小于 minMillis");
+        return new LatencyModel(Kind.UNIFORM, minMillis, maxMillis, seed);
+    }
+
+    /**
+     * @param medianMillis 中位数
+     * @param sigma        ln 空间的标准差，0.5 左右时 p99 约为中位数的 3 倍
+     */
+    public static LatencyModel logNormal(long medianMillis, double sigma, long seed) {
+        if (medianMillis <= 0) throw new IllegalArgumentException("medianMillis 必须大于 0");
+        return new LatencyModel(Kind.LOG_NORMAL, Math.log(medianMillis), sigma, seed);
+    }
+
+    public long sampleMillis() {
+        switch (kind) {
+            case UNIFORM:
+                synchronized (random) {
+                    return (long) (a + random.nextDouble() * (b - a));
+                }
+            case LOG_NORMAL:
+                synchronized (random) {
+                    return Math.round(Math.exp(a + b * random.nextGaussian()));
+                }
+            default:
+                return (long) a;
+        }
+    }
+
+    /**
+     * 按分布睡一段时间；被中断时恢复中断标记并立即返回
+     */
+    public void sleep() {
+        long millis = sampleMillis();
+        if (millis <= 0) return;
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.gdin.inspection.graphrag.offline;
+
+import com.gdin.inspection.graphrag.req.milvus.MilvusQueryReq;
+import com.gdin.inspection.graphrag.req.milvus.MilvusSemanticSearchReq;
+import com.gdin.inspection.graphrag.search.result.MilvusHit;
+import com.gdin.inspection.graphrag.search.result.MilvusRow;
+import com.gdin.inspection.graphrag.v2.index.cluster.LeidenCluster;
+import com.gdin.inspection.graphrag.v2.index.opertation.extract.GraphExtractor;
+import com.gdin.inspection.graphrag.v2.index.prompts.ExtractGraphPromptsZh;
+import com.gdin.inspection.graphrag.v2.models.Entity;
+import com.gdin.inspection.graphrag.v2.models.Relationship;
+import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OfflineDoublesTest {
+
+    private static final String TEXT = "广东省应急管理厅 组织 佛山市消防支队 开展 危化品仓库 专项检查";
+
+    private static String extractionPrompt() {
+        return ExtractGraphPromptsZh.GRAPH_EXTRACTION_PROMPT
+                .replace("{input_text}", TEXT)
+                .replace("{entity_types}", "组织,地点,人物")
+                .replace("{tuple_delimiter}", GraphExtractor.DEFAULT_TUPLE_DELIMITER)
+                .replace("{record_delimiter}", GraphExtractor.DEFAULT_RECORD_DELIMITER)
+                .replace("{completion_delimiter}", GraphExtractor.DEFAULT_COMPLETION_DELIMITER);
+    }
+
+    @Test
+    void scriptRepliesAreDeterministicAndWellFormed() {
+        ChatScript script = new ChatScript(4);
+        String prompt = extractionPrompt();
+
+        assertEquals(ChatScript.Kind.GRAPH_EXTRACTION, script.classify(prompt));
+        String reply = script.reply(prompt);
+        assertEquals(reply, new ChatScript(4).reply(prompt));
+        assertTrue(reply.endsWith(GraphExtractor.DEFAULT_COMPLETION_DELIMITER));
+        // 只从真实数据段取实体，few-shot 示例里的名字不会混进来
+        assertTrue(reply.contains("(\"entity\"<|>广东省应急管理厅<|>"));
+        assertFalse(reply.contains("Firuzabad"));
+        assertEquals(3, reply.split("\"relationship\"").length - 1);
+
+        assertEquals("N", script.reply(ExtractGraphPromptsZh.LOOP_PROMPT));
+        assertEquals(GraphExtractor.DEFAULT_COMPLETION_DELIMITER, script.reply(ExtractGraphPromptsZh.CONTINUE_PROMPT));
+        assertEquals(1, script.calls(ChatScript.Kind.GRAPH_EXTRACTION));
+        assertEquals(1, script.calls(ChatScript.Kind.LOOP));
+    }
+
+    @Test
+    void streamingModelDeliversChunksThenCompleteResponse() throws Exception {
+        ChatScript script = new ChatScript();
+        ScriptedStreamingChatModel model = new ScriptedStreamingChatModel(script, LatencyModel.fixed(5), LatencyModel.NONE, 7);
+        try {
+            StringBuilder partials = new StringBuilder();
+            CompletableFuture<ChatResponse> done = new CompletableFuture<>();
+            model.chat(ChatRequest.builder().messages(UserMessage.from(extractionPrompt())).build(),
+                    new StreamingChatResponseHandler() {
+                        @Override
+                        public void onPartialResponse(String partialResponse) {
+                            partials.append(partialResponse);
+                        }
+
+                        @Override
+                        public void onCompleteResponse(ChatResponse completeResponse) {
+                            done.complete(completeResponse);
+                        }
+
+                        @Override
+                        public void onError(Throwable error) {
+                            done.completeExceptionally(error);
+                        }
+                    });
+
+            ChatResponse response = done.get(5, TimeUnit.SECONDS);
+            assertEquals(response.aiMessage().text(), partials.toString());
+            assertTrue(response.tokenUsage().inputTokenCount() > 0);
+        } finally {
+            model.shutdown();
+        }
+    }
+
+    @Test
+    void hashEmbeddingsAreStableNormalizedAndSimilarityPreserving() {
+        HashEmbeddingModel model = new HashEmbeddingModel();
+        Embedding a = model.embed("危化品仓库专项检查").content();
+        Embedding b = model.embed("危化品仓库专项检查").content();
+        Embedding near = model.embed("危化品仓库安全检查").content();
+        Embedding far = model.embed("台风天气预警发布").content();
+
+        assertEquals(HashEmbeddingModel.DEFAULT_DIMENSION, a.dimension());
+        assertArrayEquals(a.vector(), b.vector());
+        assertEquals(1.0, dot(a, a), 1e-4);
+        assertTrue(dot(a, near) > dot(a, far));
+    }
+
+    @Test
+    void inMemoryStorageOverwritesTablePerScope() {
+        InMemoryGraphRagIndexStorage storage = new InMemoryGraphRagIndexStorage();
+        storage.saveEntities(GraphRagIndexStorage.SCOPE_MAIN, List.of(
+                Entity.builder().id("e1").title("张三").build(),
+                Entity.builder().id("e2").title("广东").build(),
+                Entity.builder().id("e1").title("张三丰").build()));
+        List<Entity> loaded = storage.loadEntities(GraphRagIndexStorage.SCOPE_MAIN);
+        assertEquals(List.of("张三丰", "广东"), loaded.stream().map(Entity::getTitle).toList());
+
+        // 与 Milvus / 文件实现一致，再次保存整表覆盖
+        storage.saveEntities(GraphRagIndexStorage.SCOPE_MAIN, List.of(Entity.builder().id("e3").title("李四").build()));
+        assertEquals(List.of("李四"), storage.loadEntities(GraphRagIndexStorage.SCOPE_MAIN).stream().map(Entity::getTitle).toList());
+        assertTrue(storage.loadEntities(GraphRagIndexStorage.SCOPE_DELTA).isEmpty());
+
+        storage.clear(GraphRagIndexStorage.SCOPE_MAIN);
+        assertTrue(storage.loadEntities(GraphRagIndexStorage.SCOPE_MAIN).isEmpty());
+    }
+
+    @Test
+    void componentClusterSplitsByComponentAndSize() {
+        List<Relationship> relationships = List.of(
+                Relationship.builder().source("A").target("B").build(),
+                Relationship.builder().source("B").target("C").build(),
+                Relationship.builder().source("X").target("Y").build());
+        ComponentGraphClusterClient client = new ComponentGraphClusterClient();
+
+        List<LeidenCluster> clusters = client.clusterGraph(relationships, 2, false, 42);
+        assertEquals(List.of(List.of("A", "B"), List.of("C"), List.of("X", "Y")), clusters.stream().map(LeidenCluster::getNodeTitles).toList());
+        assertEquals(List.of(0, 1, 2), clusters.stream().map(LeidenCluster::getCommunityId).toList());
+
+        // 只保留最大连通分量
+        assertEquals(List.of(List.of("A", "B", "C")),
+                client.clusterGraph(relationships, 10, true, null).stream().map(LeidenCluster::getNodeTitles).toList());
+    }
+
+    @Test
+    void knowledgeBaseFiltersByDocumentAndRanksByVector() {
+        InMemoryKnowledgeBase knowledgeBase = new InMemoryKnowledgeBase(new HashEmbeddingModel());
+        knowledgeBase.addSlice("d1", 1, "主变压器 巡检周期");
+        knowledgeBase.addSlice("d2", 1, "带薪假期 天数");
+        knowledgeBase.addSlice("d1", 2, "断路器 巡视");
+
+        List<MilvusRow> rows = new ArrayList<>();
+        long total = knowledgeBase.forEachRowBatch(MilvusQueryReq.builder()
+                .filter("metadata[\"segment_type\"]==\"father\" and metadata[\"document_id\"] in [\"d1\"]")
+                .build(), 1, rows::addAll);
+        assertEquals(2, total);
+        assertEquals(List.of("d1-1", "d1-2"), rows.stream().map(r -> r.getJsonString("metadata", "doc_id")).toList());
+
+        List<MilvusHit> hits = knowledgeBase.semanticHits(MilvusSemanticSearchReq.builder()
+                .query("带薪假期").topK(1).outputFields(List.of("graph_main", "page_content")).build());
+        assertEquals(1, hits.size());
+        assertEquals("带薪假期 天数", hits.get(0).row().getString("page_content"));
+        assertEquals(1, hits.get(0).row().getJsonInteger("graph_main", "human_readable_id"));
+        assertFalse(hits.get(0).row().has("metadata"));
+    }
+
+    private static double dot(Embedding a, Embedding b) {
+        double s = 0;
+        for (int i = 0; i < a.dimension(); i++) s += a.vector()[i] * b.vector()[i];
+        return s;
+    }
+}
@@ -0,0 +1,119 @@
+package com.gdin.inspection.graphrag.offline;
+
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
+import com.gdin.inspection.graphrag.metrics.MeteredEmbeddingModel;
+import com.gdin.inspection.graphrag.v2.index.cluster.GraphClusterClient;
+import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.milvus.v2.client.MilvusClientV2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * offline profile 下替换所有外部依赖，bean 名保持一致，业务代码里的 @Qualifier / @Resource 不用动：
+ * <ul>
+ *     <li>大模型、向量化：AIConfig 的模型 bean</li>
+ *     <li>索引读写：MilvusGraphRagIndexStorage，清表、知识库切片回写都在存储实现里，内存实现一并覆盖</li>
+ *     <li>知识库内容集合：MilvusSearchService（文档加载与原文检索），用 {@link InMemoryKnowledgeBase} 预先灌入切片</li>
+ *     <li>Leiden 聚类：HttpGraphClusterClient</li>
+ *     <li>Milvus 连接：MilvusConfig 的客户端，GraphConfig 启动建 collection 整个跳过</li>
+ * </ul>
+ * 上面几处在主代码里都标了 @Profile("!offline")。用法：
+ * <pre>
+ * &#64;SpringBootTest
+ * &#64;ActiveProfiles({"dev", "offline"})
+ * &#64;Import(OfflineModelConfig.class)
+ * </pre>
+ * 延迟通过 offline.llm.* 配置，单位毫秒；sigma 为 0 时退化成固定延迟。
+ */
+@Profile("offline")
+@TestConfiguration
+public class OfflineModelConfig {
+
+    @Value("${offline.llm.seed:42}")
+    private long seed;
+
+    @Value("${offline.llm.ttft-median-ms:0}")
+    private long ttftMedianMs;
+
+    @Value("${offline.llm.ttft-sigma:0.5}")
+    private double ttftSigma;
+
+    @Value("${offline.llm.chunk-interval-ms:0}")
+    private long chunkIntervalMs;
+
+    @Value("${offline.llm.chunk-chars:16}")
+    private int chunkChars;
+
+    @Value("${offline.embedding.latency-ms:0}")
+    private long embeddingLatencyMs;
+
+    @Bean
+    public ChatScript chatScript() {
+        return new ChatScript();
+    }
+
+    @Bean("thinkCm")
+    public ChatModel thinkChatModel(ChatScript chatScript) {
+        return new ScriptedChatModel(chatScript, firstTokenLatency(1));
+    }
+
+    @Bean("commonCm")
+    public ChatModel commonChatModel(ChatScript chatScript) {
+        return new ScriptedChatModel(chatScript, firstTokenLatency(2));
+    }
+
+    @Bean(value = "thinkScm", destroyMethod = "shutdown")
+    public StreamingChatModel thinkStreamingChatModel(ChatScript chatScript) {
+        return new ScriptedStreamingChatModel(chatScript, firstTokenLatency(3), LatencyModel.fixed(chunkIntervalMs), chunkChars);
+    }
+
+    @Bean(value = "commonScm", destroyMethod = "shutdown")
+    public StreamingChatModel commonStreamingChatModel(ChatScript chatScript) {
+        return new ScriptedStreamingChatModel(chatScript, firstTokenLatency(4), LatencyModel.fixed(chunkIntervalMs), chunkChars);
+    }
+
+    @Bean
+    public EmbeddingModel embeddingModel(GraphRagMetrics graphRagMetrics) {
+        HashEmbeddingModel embeddingModel = new HashEmbeddingModel(HashEmbeddingModel.DEFAULT_DIMENSION, LatencyModel.fixed(embeddingLatencyMs));
+        return new MeteredEmbeddingModel(embeddingModel, graphRagMetrics);
+    }
+
+    @Bean
+    @Primary
+    public GraphRagIndexStorage inMemoryGraphRagIndexStorage() {
+        return new InMemoryGraphRagIndexStorage();
+    }
+
+    @Bean
+    public InMemoryKnowledgeBase milvusSearchService(EmbeddingModel embeddingModel) {
+        return new InMemoryKnowledgeBase(embeddingModel);
+    }
+
+    @Bean
+    public GraphClusterClient graphClusterClient() {
+        return new ComponentGraphClusterClient();
+    }
+
+    /**
+     * ConnectConfig 为空时不建连；离线链路上不应再有直接的 Milvus 调用，误用会直接抛错
+     */
+    @Bean(destroyMethod = "")
+    public MilvusClientV2 milvusClientV2() {
+        return new MilvusClientV2(null);
+    }
+
+    /**
+     * 每个模型 bean 用不同的种子，四路延迟序列互不相关
+     */
+    private LatencyModel firstTokenLatency(int stream) {
+        if (ttftMedianMs <= 0) return LatencyModel.NONE;
+        if (ttftSigma <= 0) return LatencyModel.fixed(ttftMedianMs);
+        return LatencyModel.logNormal(ttftMedianMs, ttftSigma, seed + stream);
+    }
+}
@@ -0,0 +1,67 @@
+package com.gdin.inspection.graphrag.offline;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.List;
+
+/**
+ * 离线的同步 ChatModel：按 ChatScript 回答，整段回答前睡一次 latency
+ */
+public class ScriptedChatModel implements ChatModel {
+
+    private final ChatScript script;
+    private final LatencyModel latency;
+
+    public ScriptedChatModel(ChatScript script, LatencyModel latency) {
+        this.script = script;
+        this.latency = latency;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        String prompt = lastUserText(chatRequest.messages());
+        String reply = script.reply(prompt);
+        latency.sleep();
+        return response(chatRequest.messages(), reply);
+    }
+
+    static String lastUserText(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage user && user.hasSingleText()) {
+                return user.singleText();
+            }
+        }
+        return "";
+    }
+
+    static ChatResponse response(List<ChatMessage> messages, String reply) {
+        return ChatResponse.builder()
+                .aiMessage(AiMessage.from(reply))
+                .tokenUsage(new TokenUsage(estimateTokens(messages), estimateTokens(reply)))
+                .finishReason(FinishReason.STOP)
+                .build();
+    }
+
+    /**
+     * 中文大致 1.5~2 字一个 token，这里按 2 字估，只用于让 token 账本有数可记
+     */
+    static int estimateTokens(String text) {
+        return text == null ? 0 : Math.max(1, text.length() / 2);
+    }
+
+    private static int estimateTokens(List<ChatMessage> messages) {
+        int total = 0;
+        for (ChatMessage message : messages) {
+            if (message instanceof UserMessage user && user.hasSingleText()) total += estimateTokens(user.singleText());
+            else if (message instanceof AiMessage ai) total += estimateTokens(ai.text());
+        }
+        return total;
+    }
+}
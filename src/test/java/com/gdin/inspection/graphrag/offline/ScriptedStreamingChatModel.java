@@ -0,0 +1,80 @@
+package com.gdin.inspection.graphrag.offline;
+
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 离线的流式 ChatModel：首 token 延迟（TTFT）和分片间隔分别取自两个 LatencyModel。
+ * 分片用调度器串起来而不是 sleep，几百路并发流也只占 scheduler 的几个线程，
+ * 压测时瓶颈留在被测代码上。
+ */
+public class ScriptedStreamingChatModel implements StreamingChatModel {
+
+    private static final AtomicInteger THREAD_SEQ = new AtomicInteger();
+
+    private final ChatScript script;
+    private final LatencyModel firstToken;
+    private final LatencyModel interChunk;
+    private final int chunkChars;
+    private final ScheduledExecutorService scheduler;
+
+    public ScriptedStreamingChatModel(ChatScript script, LatencyModel firstToken, LatencyModel interChunk, int chunkChars) {
+        if (chunkChars <= 0) throw new IllegalArgumentException("chunkChars 必须大于 0");
+        this.script = script;
+        this.firstToken = firstToken;
+        this.interChunk = interChunk;
+        this.chunkChars = chunkChars;
+        this.scheduler = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+                r -> {
+                    Thread t = new Thread(r, "scripted-scm-" + THREAD_SEQ.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * 无延迟版本，单测用
+     */
+    public static ScriptedStreamingChatModel instant(ChatScript script) {
+        return new ScriptedStreamingChatModel(script, LatencyModel.NONE, LatencyModel.NONE, 64);
+    }
+
+    @Override
+    public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        String reply;
+        try {
+            reply = script.reply(ScriptedChatModel.lastUserText(chatRequest.messages()));
+        } catch (Exception e) {
+            handler.onError(e);
+            return;
+        }
+        scheduler.schedule(() -> emit(chatRequest, handler, reply, 0), firstToken.sampleMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void emit(ChatRequest chatRequest, StreamingChatResponseHandler handler, String reply, int offset) {
+        try {
+            if (offset < reply.length()) {
+                int end = Math.min(reply.length(), offset + chunkChars);
+                handler.onPartialResponse(reply.substring(offset, end));
+                if (end < reply.length()) {
+                    scheduler.schedule(() -> emit(chatRequest, handler, reply, end), interChunk.sampleMillis(), TimeUnit.MILLISECONDS);
+                    return;
+                }
+            }
+            handler.onCompleteResponse(ScriptedChatModel.response(chatRequest.messages(), reply));
+        } catch (Exception e) {
+            handler.onError(e);
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
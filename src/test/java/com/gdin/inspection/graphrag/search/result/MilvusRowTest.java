@@ -0,0 +1,86 @@
+package com.gdin.inspection.graphrag.search.result;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MilvusRowTest {
+
+    @Test
+    void readsScalarsFromSdkAndJsonShapes() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("id", "e1");
+        fields.put("hrid_long", 7L);
+        fields.put("hrid_json", new JsonPrimitive(8));
+        fields.put("hrid_text", "9");
+        fields.put("weight", 1.5f);
+        fields.put("weight_json", new JsonPrimitive(2.5));
+        fields.put("title_json", new JsonPrimitive("主变压器"));
+        MilvusRow row = new MilvusRow(fields);
+
+        assertEquals("e1", row.getString("id"));
+        assertEquals(7, row.getInteger("hrid_long"));
+        assertEquals(8L, row.getLong("hrid_json"));
+        assertEquals(9, row.getInteger("hrid_text"));
+        assertEquals(1.5, row.getDouble("weight"));
+        assertEquals(2.5, row.getDouble("weight_json"));
+        // JSON 字符串原样取出，不带引号
+        assertEquals("主变压器", row.getString("title_json"));
+
+        assertFalse(row.has("missing"));
+        assertNull(row.getString("missing"));
+        assertNull(row.getInteger("missing"));
+        assertNull(row.getDouble("missing"));
+        assertNull(row.getStringList("missing"));
+    }
+
+    @Test
+    void readsListsFromArrayAndJsonFields() {
+        JsonArray jsonIds = new JsonArray();
+        jsonIds.add("t1");
+        jsonIds.add("t2");
+        JsonArray jsonChildren = new JsonArray();
+        jsonChildren.add(3);
+        jsonChildren.add(4);
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("json_ids", jsonIds);
+        fields.put("array_ids", List.of("t3"));
+        fields.put("json_children", jsonChildren);
+        fields.put("array_children", List.of(5L, 6L));
+        fields.put("scalar", "x");
+        MilvusRow row = new MilvusRow(fields);
+
+        assertEquals(List.of("t1", "t2"), row.getStringList("json_ids"));
+        assertEquals(List.of("t3"), row.getStringList("array_ids"));
+        assertEquals(List.of(3, 4), row.getIntegerList("json_children"));
+        assertEquals(List.of(5, 6), row.getIntegerList("array_children"));
+        // 非数组字段不强转
+        assertNull(row.getStringList("scalar"));
+    }
+
+    @Test
+    void readsJsonObjectFieldsIncludingStringEncoded() {
+        JsonObject graphMain = new JsonObject();
+        graphMain.addProperty("human_readable_id", 12);
+        graphMain.addProperty("n_tokens", 300);
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("graph_main", graphMain);
+        fields.put("metadata", "{\"doc_id\":\"d-1\",\"page\":null}");
+        MilvusRow row = new MilvusRow(fields);
+
+        assertEquals(12, row.getJsonInteger("graph_main", "human_readable_id"));
+        assertEquals(300, row.getJsonInteger("graph_main", "n_tokens"));
+        assertNull(row.getJsonInteger("graph_main", "missing"));
+        assertEquals("d-1", row.getJsonString("metadata", "doc_id"));
+        assertNull(row.getJsonString("metadata", "page"));
+        assertNull(row.getJson("absent"));
+        assertThrows(UnsupportedOperationException.class, () -> row.asMap().put("x", 1));
+    }
+}
@@ -0,0 +1,140 @@
+package com.gdin.inspection.graphrag.service;
+
+import com.gdin.inspection.graphrag.assistant.CommonAssistant;
+import com.gdin.inspection.graphrag.config.properties.LlmProperties;
+import com.gdin.inspection.graphrag.offline.ChatScript;
+import com.gdin.inspection.graphrag.offline.ScriptedStreamingChatModel;
+import com.gdin.inspection.graphrag.store.MapChatMemoryStore;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模型把收到的整段上下文（系统提示 + 历史用户消息）原样回出来，据此判断会话之间有没有串内存
+ */
+public class AssistantGeneratorTest {
+
+    private AssistantGenerator generator;
+    private MapChatMemoryStore store;
+    private ScriptedStreamingChatModel streamingModel;
+
+    @BeforeEach
+    void setUp() {
+        store = new MapChatMemoryStore();
+        ReflectionTestUtils.setField(store, "llmProperties", new LlmProperties());
+        streamingModel = ScriptedStreamingChatModel.instant(new ChatScript());
+        ChatModel echo = new EchoContextChatModel();
+
+        generator = new AssistantGenerator();
+        ReflectionTestUtils.setField(generator, "commonChatModel", echo);
+        ReflectionTestUtils.setField(generator, "thinkChatModel", echo);
+        ReflectionTestUtils.setField(generator, "commonStreamingChatModel", streamingModel);
+        ReflectionTestUtils.setField(generator, "thinkStreamingChatModel", streamingModel);
+        ReflectionTestUtils.setField(generator, "mapChatMemoryStore", store);
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamingModel.shutdown();
+    }
+
+    @Test
+    void concurrentSessionsOnSharedProxyKeepSeparateMemory() throws Exception {
+        int sessions = 16;
+        int turns = 5;
+        CommonAssistant shared = generator.getPooledAssistant(CommonAssistant.class);
+        assertSame(shared, generator.getPooledAssistant(CommonAssistant.class));
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> lastReplies = new ArrayList<>();
+        for (int s = 0; s < sessions; s++) {
+            String memoryId = "session-" + s;
+            lastReplies.add(pool.submit(() -> {
+                start.await();
+                CommonAssistant assistant = generator.getPooledAssistant(CommonAssistant.class, memoryId, "SYS-" + memoryId);
+                String reply = null;
+                for (int t = 0; t < turns; t++) reply = assistant.chat(memoryId, memoryId + "/turn-" + t);
+                return reply;
+            }));
+        }
+        start.countDown();
+        try {
+            for (int s = 0; s < sessions; s++) {
+                String memoryId = "session-" + s;
+                String reply = lastReplies.get(s).get(30, TimeUnit.SECONDS);
+                List<String> parts = List.of(reply.split("\\|"));
+                assertEquals("S:SYS-" + memoryId, parts.get(0));
+                // 本会话的 5 轮用户消息都在，且没有别的会话的消息
+                assertEquals(turns, parts.stream().filter(p -> p.startsWith("U:")).count());
+                assertTrue(parts.stream().filter(p -> p.startsWith("U:")).allMatch(p -> p.startsWith("U:" + memoryId + "/")), reply);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(sessions, store.footprint().sessions());
+    }
+
+    @Test
+    void releaseSessionDropsMemoryAndSystemMessage() {
+        CommonAssistant assistant = generator.getPooledAssistant(CommonAssistant.class, "a", "SYS-a");
+        assistant.chat("a", "第一轮");
+        assertFalse(store.getMessages("a").isEmpty());
+
+        generator.releaseSession("a");
+        assertTrue(store.getMessages("a").isEmpty());
+
+        // 同一个 memoryId 重新开始：没有旧历史，也没有旧的系统提示
+        assertEquals("U:第二轮", assistant.chat("a", "第二轮"));
+    }
+
+    @Test
+    void completionSinkReceivesStreamedAnswerThenReleasesSession() throws Exception {
+        CompletableFuture<String> captured = new CompletableFuture<>();
+        CompletableFuture<String> completed = new CompletableFuture<>();
+        CommonAssistant assistant = generator.getPooledAssistant(CommonAssistant.class, "s", "SYS-s", answer -> {
+            // 完成回调先于 TokenStream 的完成回调，此时回答已在会话内存里
+            captured.complete(answer.text() + "|" + store.getMessages("s").size());
+        });
+        assertSame(generator.getPooledAssistant(CommonAssistant.class), assistant);
+
+        assistant.streamChat("s", "巡检周期是多久")
+                .onPartialResponse(p -> {})
+                .onCompleteResponse(r -> completed.complete(r.aiMessage().text()))
+                .onError(completed::completeExceptionally)
+                .start();
+
+        String reply = completed.get(10, TimeUnit.SECONDS);
+        assertEquals(reply + "|3", captured.get(10, TimeUnit.SECONDS));
+        assertTrue(store.getMessages("s").isEmpty());
+
+        // 会话已释放：同一个 memoryId 再用不带回调的方式对话，没有旧的系统提示，也不会再触发回调
+        assertEquals("U:第二轮", assistant.chat("s", "第二轮"));
+    }
+
+    private static class EchoContextChatModel implements ChatModel {
+        @Override
+        public ChatResponse doChat(ChatRequest chatRequest) {
+            List<String> parts = new ArrayList<>();
+            for (ChatMessage m : chatRequest.messages()) {
+                if (m instanceof SystemMessage sys) parts.add("S:" + sys.text());
+                else if (m instanceof UserMessage user) parts.add("U:" + user.singleText());
+            }
+            return ChatResponse.builder().aiMessage(AiMessage.from(String.join("|", parts))).build();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.gdin.inspection.graphrag.store;
+
+import com.gdin.inspection.graphrag.config.properties.LlmProperties;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MapChatMemoryStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private LlmProperties props;
+    private MapChatMemoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        props = new LlmProperties();
+        store = new MapChatMemoryStore();
+        ReflectionTestUtils.setField(store, "llmProperties", props);
+        ReflectionTestUtils.setField(store, "clock", (LongSupplier) now::get);
+    }
+
+    private static List<ChatMessage> msg(String text) {
+        return List.of(UserMessage.from(text));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBatchWhenOversize() {
+        props.getChatMemory().setMaxSessions(10);
+        for (int i = 0; i < 10; i++) {
+            now.incrementAndGet();
+            store.updateMessages("s" + i, msg("m" + i));
+        }
+        // 读一次 s0，使它变成最近访问
+        now.incrementAndGet();
+        store.getMessages("s0");
+
+        now.incrementAndGet();
+        store.updateMessages("s10", msg("m10"));
+
+        // 超出 1 个 => 淘汰 1 + max/10 = 2 个最久未访问的：s1、s2
+        assertEquals(9, store.size());
+        assertEquals(2, store.evictedCount());
+        assertFalse(store.getMessages("s0").isEmpty());
+        assertTrue(store.getMessages("s1").isEmpty());
+        assertTrue(store.getMessages("s2").isEmpty());
+        assertFalse(store.getMessages("s3").isEmpty());
+    }
+
+    @Test
+    void evictsSessionsIdleLongerThanTtl() {
+        props.getChatMemory().setExpireAfterAccessMinutes(60L);
+        store.updateMessages("old", msg("a"));
+        now.addAndGet(TimeUnit.MINUTES.toMillis(30));
+        store.updateMessages("fresh", msg("b"));
+        now.addAndGet(TimeUnit.MINUTES.toMillis(31));
+
+        store.evictExpired();
+
+        assertTrue(store.getMessages("old").isEmpty());
+        assertFalse(store.getMessages("fresh").isEmpty());
+        assertEquals(1, store.evictedCount());
+    }
+
+    @Test
+    void oversizeEvictionSurvivesConcurrentTouches() throws Exception {
+        props.getChatMemory().setMaxSessions(50);
+        ReflectionTestUtils.setField(store, "clock", (LongSupplier) System::nanoTime);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int t = 0; t < futures.length; t++) {
+                int thread = t;
+                futures[t] = pool.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        store.updateMessages("s" + ((i * 7 + thread) % 200), msg("x"));
+                        store.getMessages("s" + (i % 60));
+                    }
+                });
+            }
+            for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        // 并发期间其它线程会跳过淘汰，单线程再写一次后回到上限以内
+        store.updateMessages("final", msg("x"));
+        assertTrue(store.size() <= 50, "size=" + store.size());
+        assertTrue(store.evictedCount() > 0);
+    }
+
+    @Test
+    void exportsFootprintGauges() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        store.updateMessages("a", List.of(UserMessage.from("12345"), UserMessage.from("678")));
+        new GraphRagMetrics(registry).gaugeChatMemory(store);
+
+        assertEquals(1, registry.get("graphrag.chat_memory.sessions").gauge().value());
+        assertEquals(2, registry.get("graphrag.chat_memory.messages").gauge().value());
+        assertEquals(store.footprint().chars(), (long) registry.get("graphrag.chat_memory.chars").gauge().value());
+        assertEquals(0, registry.get("graphrag.chat_memory.evicted").functionCounter().count());
+    }
+}
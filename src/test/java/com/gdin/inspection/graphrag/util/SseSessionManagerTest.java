@@ -0,0 +1,71 @@
+package com.gdin.inspection.graphrag.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 未接入 servlet 容器的 emitter：重写 send 记录事件，或模拟客户端断开
+ */
+public class SseSessionManagerTest {
+
+    private final SseSessionManager manager = new SseSessionManager(1, 0L, 10_000L, 8);
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void mergesTokensUntilFlush() {
+        RecordingEmitter emitter = new RecordingEmitter(false);
+        SseSession session = manager.register(emitter, null, null, null);
+
+        assertTrue(session.sendToken("q1", "变电"));
+        assertTrue(session.sendToken("q1", "站"));
+        assertEquals(0, emitter.events.size());
+
+        // 攒够 8 字立即推送
+        assertTrue(session.sendToken("q1", "巡检周期规定"));
+        assertEquals(1, emitter.events.size());
+
+        // 普通事件先冲掉缓冲的分片
+        session.sendToken("q1", "结束");
+        session.send("done");
+        assertEquals(3, emitter.events.size());
+        assertEquals(1, manager.size());
+    }
+
+    @Test
+    void removesSessionWhenClientDisconnects() {
+        RecordingEmitter emitter = new RecordingEmitter(true);
+        SseSession session = manager.register(emitter, null, null, null);
+
+        assertFalse(session.send("x"));
+        assertFalse(session.isAlive());
+        assertEquals(0, manager.size());
+        assertNull(manager.get(emitter));
+        assertFalse(session.sendToken("q1", "后续分片"));
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final boolean broken;
+        private final List<SseEventBuilder> events = new CopyOnWriteArrayList<>();
+
+        RecordingEmitter(boolean broken) {
+            this.broken = broken;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (broken) throw new IOException("Broken pipe");
+            events.add(builder);
+        }
+    }
+}
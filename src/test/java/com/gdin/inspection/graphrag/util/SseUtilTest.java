@@ -0,0 +1,81 @@
+package com.gdin.inspection.graphrag.util;
+
+import com.gdin.inspection.graphrag.resp.BaseSseResp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 经 SseUtil 的全局会话管理器注册未接入 servlet 容器的 emitter，重写 send 记录事件或模拟客户端断开
+ */
+public class SseUtilTest {
+
+    private final List<SseSession> sessions = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        sessions.forEach(SseSession::close);
+    }
+
+    private RecordingEmitter register(boolean broken) {
+        RecordingEmitter emitter = new RecordingEmitter(broken);
+        sessions.add(SseUtil.getSessionManager().register(emitter, null, null, null));
+        return emitter;
+    }
+
+    @Test
+    void sendThrowsWhenSessionDisconnected() throws Exception {
+        RecordingEmitter emitter = register(true);
+        assertThrows(IOException.class, () -> SseUtil.send(emitter, BaseSseResp.builder().text("x").build()));
+
+        // 会话已移除，仍按断开处理而不是静默丢弃
+        emitter.broken = false;
+        assertThrows(IOException.class, () -> SseUtil.send(emitter, BaseSseResp.builder().text("y").build()));
+        assertTrue(emitter.events.isEmpty());
+    }
+
+    @Test
+    void sendReportsSerializationFailureAsIOException() throws Exception {
+        RecordingEmitter emitter = register(false);
+        assertThrows(IOException.class, () -> SseUtil.send(emitter, new Object()));
+        // 序列化失败不影响连接
+        SseUtil.send(emitter, BaseSseResp.builder().text("ok").build());
+        assertEquals(1, emitter.events.size());
+    }
+
+    @Test
+    void tokenSenderBuffersThroughSession() {
+        RecordingEmitter emitter = register(false);
+        Consumer<String> sender = SseUtil.tokenSender(emitter, "q1");
+
+        sender.accept("变电");
+        sender.accept("站");
+        SseUtil.flush(emitter);
+        // 两个分片合并成一条事件
+        assertEquals(1, emitter.events.size());
+        assertNull(SseUtil.tokenSender(null, "q1"));
+    }
+
+    private static class RecordingEmitter extends SessionSseEmitter {
+        private volatile boolean broken;
+        private final List<SseEventBuilder> events = new CopyOnWriteArrayList<>();
+
+        RecordingEmitter(boolean broken) {
+            super(60_000L);
+            this.broken = broken;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (broken) throw new IOException("Broken pipe");
+            events.add(builder);
+        }
+    }
+}
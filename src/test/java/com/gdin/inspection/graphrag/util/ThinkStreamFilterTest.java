@@ -0,0 +1,56 @@
+package com.gdin.inspection.graphrag.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ThinkStreamFilterTest {
+
+    private static String run(List<String> chunks) {
+        ThinkStreamFilter filter = new ThinkStreamFilter();
+        StringBuilder out = new StringBuilder();
+        for (String chunk : chunks) out.append(filter.accept(chunk));
+        out.append(filter.finish());
+        return out.toString();
+    }
+
+    @Test
+    void stripsThinkInSingleChunk() {
+        assertEquals("答案", run(List.of("<think>推理过程</think>答案")));
+    }
+
+    @Test
+    void stripsTagsSplitAcrossChunks() {
+        assertEquals("前缀答案", run(List.of("前缀<th", "ink>推", "理</th", "ink>答", "案")));
+        // 标签逐字到达
+        assertEquals("ok", run(List.of("<", "t", "h", "i", "n", "k", ">", "x", "<", "/", "t", "h", "i", "n", "k", ">", "o", "k")));
+    }
+
+    @Test
+    void matchesRemoveThinkForEverySplitPoint() {
+        String text = "a<think>b</think>c<think>d</think>e";
+        String expected = SseUtil.removeThink(text);
+        for (int i = 0; i <= text.length(); i++) {
+            for (int j = i; j <= text.length(); j++) {
+                assertEquals(expected, run(List.of(text.substring(0, i), text.substring(i, j), text.substring(j))), "split " + i + "," + j);
+            }
+        }
+    }
+
+    @Test
+    void holdsBackPossibleTagPrefixUntilDisambiguated() {
+        ThinkStreamFilter filter = new ThinkStreamFilter();
+        assertEquals("a", filter.accept("a<thi"));
+        // 不是标签，暂存的内容原样吐出
+        assertEquals("<thiz", filter.accept("z"));
+        assertEquals("", filter.finish());
+    }
+
+    @Test
+    void dropsUnclosedThinkAndFlushesPendingTail() {
+        assertEquals("答", run(List.of("答<think>没有结束")));
+        assertEquals("答<th", run(List.of("答<th")));
+    }
+}
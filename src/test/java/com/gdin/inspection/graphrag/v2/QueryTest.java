@@ -1,7 +1,9 @@
 package com.gdin.inspection.graphrag.v2;
 
 import com.gdin.inspection.graphrag.util.SseUtil;
+import com.gdin.inspection.graphrag.v2.query.SearchResult;
 import com.gdin.inspection.graphrag.v2.query.basic.BasicSearch;
+import com.gdin.inspection.graphrag.v2.query.drift.DriftSearch;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
@@ -17,6 +19,9 @@ public class QueryTest {
     @Resource
     private BasicSearch basicSearch;
 
+    @Resource
+    private DriftSearch driftSearch;
+
     @Test
     void basicSearchTest() throws InterruptedException {
         BasicSearch.BasicStreamResult r = basicSearch.streamSearch(
@@ -29,4 +34,11 @@ public class QueryTest {
         String answer = SseUtil.getResponseWithoutThink(null, r.tokenStream(), r.memoryId());
         log.info(answer);
     }
+
+    @Test
+    void driftSearchTest() {
+        SearchResult r = driftSearch.search("陪产假和看护假的区别是什么？", null);
+        log.info("llmCalls={}, promptTokens={}, outputTokens={}", r.getLlmCallsCategories(), r.getPromptTokens(), r.getOutputTokens());
+        log.info(r.getResponse());
+    }
 }
@@ -0,0 +1,92 @@
+package com.gdin.inspection.graphrag.v2.index.pipeline.context;
+
+import com.gdin.inspection.graphrag.v2.index.pipeline.Pipeline;
+import com.gdin.inspection.graphrag.v2.index.pipeline.WorkflowFunctionOutput;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunPipelineCancellationTest {
+
+    @Test
+    void stopsAtNextWorkflowAndReportsCancelled() {
+        PipelineRunContext ctx = new PipelineRunContext();
+        AtomicBoolean secondRan = new AtomicBoolean();
+        Pipeline<Object> pipeline = new Pipeline<>()
+                .add("first", (cfg, c) -> {
+                    // workflow 内部能拿到当前令牌
+                    assertSame(c.getCancellation(), CancellationToken.current());
+                    c.getCancellation().cancel("operator");
+                    return WorkflowFunctionOutput.builder().result("first_done").build();
+                })
+                .add("second", (cfg, c) -> {
+                    secondRan.set(true);
+                    return WorkflowFunctionOutput.builder().result("second_done").build();
+                });
+
+        List<PipelineRunResult> results = new RunPipeline<>().run(pipeline, null, ctx);
+
+        assertFalse(secondRan.get());
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).isCancelled());
+        assertTrue(results.get(1).isCancelled());
+        assertInstanceOf(PipelineCancelledException.class, results.get(1).getErrors().get(0));
+        assertNull(CancellationToken.current());
+    }
+
+    @Test
+    void callbacksRunOnceIncludingLateRegistration() {
+        CancellationToken token = new CancellationToken();
+        AtomicInteger calls = new AtomicInteger();
+        Runnable unregister = token.onCancel(calls::incrementAndGet);
+        token.onCancel(calls::incrementAndGet);
+        unregister.run();
+
+        assertTrue(token.cancel("stop"));
+        assertFalse(token.cancel("again"));
+        assertEquals(1, calls.get());
+
+        token.onCancel(calls::incrementAndGet);
+        assertEquals(2, calls.get());
+        assertEquals("stop", token.getReason());
+        assertThrows(PipelineCancelledException.class, token::throwIfCancelled);
+    }
+
+    @Test
+    void deadlineCancelsOnSharedTimer() throws Exception {
+        CancellationToken token = new CancellationToken().deadlineAfter(50);
+        assertTrue(token.hasPendingDeadline());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!token.isCancelled() || token.hasPendingDeadline()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+        assertTrue(token.getReason().startsWith("超过截止时间"));
+    }
+
+    @Test
+    void clearDeadlineRemovesTimerTask() throws Exception {
+        int before = CancellationToken.pendingDeadlines();
+        CancellationToken token = new CancellationToken().deadlineAfter(200);
+        assertEquals(before + 1, CancellationToken.pendingDeadlines());
+
+        token.clearDeadline();
+        // 撤销后立即出队，不再持有已结束的 run
+        assertEquals(before, CancellationToken.pendingDeadlines());
+        assertFalse(token.hasPendingDeadline());
+        Thread.sleep(300);
+        assertFalse(token.isCancelled());
+    }
+
+    @Test
+    void explicitCancelClearsDeadline() {
+        CancellationToken token = new CancellationToken().deadlineAfter(60_000);
+        token.cancel("operator");
+        assertFalse(token.hasPendingDeadline());
+        assertEquals("operator", token.getReason());
+    }
+}
@@ -0,0 +1,71 @@
+package com.gdin.inspection.graphrag.v2.index.pipeline.context;
+
+import com.gdin.inspection.graphrag.v2.index.pipeline.Pipeline;
+import com.gdin.inspection.graphrag.v2.index.pipeline.WorkflowFunctionOutput;
+import com.gdin.inspection.graphrag.v2.index.pipeline.WorkflowSpec;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunPipelineReleaseTest {
+
+    private static final ContextKey<List<String>> RAW = ContextKey.table("raw");
+    private static final ContextKey<List<String>> FINAL = ContextKey.table("final");
+    private static final ContextKey<Integer> LIMIT = ContextKey.param("limit");
+
+    private static List<String> rows(int n) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) out.add("row-" + i);
+        return out;
+    }
+
+    @Test
+    void releasesTablesAfterLastDeclaredUse() {
+        PipelineRunContext ctx = new PipelineRunContext();
+        ctx.put(LIMIT, 10);
+        List<Long> retainedAfterConsume = new ArrayList<>();
+        Pipeline<Object> pipeline = new Pipeline<>()
+                .add("produce", (cfg, c) -> {
+                    c.put(RAW, rows(1000));
+                    return WorkflowFunctionOutput.builder().result("produce_done").build();
+                }, WorkflowSpec.consumes().produces(RAW))
+                .add("consume", (cfg, c) -> {
+                    c.put(FINAL, c.get(RAW).subList(0, c.get(LIMIT)));
+                    return WorkflowFunctionOutput.builder().result("consume_done").build();
+                }, WorkflowSpec.consumes(RAW).produces(FINAL))
+                .add("check", (cfg, c) -> {
+                    retainedAfterConsume.add(c.retainedBytes());
+                    assertNull(c.get(RAW));
+                    return WorkflowFunctionOutput.builder().result("check_done").build();
+                }, WorkflowSpec.NONE)
+                .retain(List.of(FINAL));
+
+        new RunPipeline<>().run(pipeline, null, ctx);
+
+        assertNull(ctx.get(RAW));
+        assertEquals(10, ctx.get(FINAL).size());
+        // param 不参与自动释放
+        assertEquals(10, ctx.get(LIMIT));
+        assertTrue(ctx.getStats().getReleasedBytes() > 0);
+        assertTrue(ctx.getStats().getPeakRetainedBytes() > retainedAfterConsume.get(0));
+    }
+
+    @Test
+    void undeclaredStepDisablesRelease() {
+        PipelineRunContext ctx = new PipelineRunContext();
+        Pipeline<Object> pipeline = new Pipeline<>()
+                .add("produce", (cfg, c) -> {
+                    c.put(RAW, rows(10));
+                    return WorkflowFunctionOutput.builder().result("produce_done").build();
+                }, WorkflowSpec.consumes().produces(RAW))
+                .add("legacy", (cfg, c) -> WorkflowFunctionOutput.builder().result("legacy_done").build());
+
+        new RunPipeline<>().run(pipeline, null, ctx);
+
+        assertNotNull(ctx.get(RAW));
+        assertEquals(0, ctx.getStats().getReleasedBytes());
+    }
+}
@@ -0,0 +1,138 @@
+package com.gdin.inspection.graphrag.v2.index.pipeline.context;
+
+import com.gdin.inspection.graphrag.util.TtlExecutorUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenLedgerTest {
+
+    private static TokenLedger.Entry entry(String workflow, String component, String documentId, long prompt, long completion) {
+        return new TokenLedger.Entry(workflow, component, documentId, prompt, completion, false, prompt + completion, 1);
+    }
+
+    @Test
+    void aggregatesByWorkflowComponentAndDocument() {
+        TokenLedger ledger = new TokenLedger("run-1");
+        ledger.record(entry("extract_graph", "graph_extractor", "d1", 100, 10));
+        ledger.record(entry("extract_graph", "graph_extractor", "d2", 200, 20));
+        ledger.record(entry("extract_graph", "description_summary", null, 50, 5));
+        ledger.record(entry("create_community_reports", "community_reports", null, 300, 30));
+
+        assertEquals(new TokenLedger.Usage(4, 650, 65, 715), ledger.total());
+        assertEquals(new TokenLedger.Usage(3, 350, 35, 385), ledger.usageOfWorkflow("extract_graph"));
+        assertEquals(TokenLedger.Usage.EMPTY, ledger.usageOfWorkflow("missing"));
+
+        Map<String, TokenLedger.Usage> byWorkflow = ledger.byWorkflow();
+        assertEquals(List.of("create_community_reports", "extract_graph"), List.copyOf(byWorkflow.keySet()));
+        assertEquals(new TokenLedger.Usage(1, 300, 30, 330), byWorkflow.get("create_community_reports"));
+
+        Map<String, TokenLedger.Usage> byComponent = ledger.byComponent();
+        assertEquals(new TokenLedger.Usage(2, 300, 30, 330), byComponent.get("graph_extractor"));
+        assertEquals(3, byComponent.size());
+
+        // 没有 document 的调用归到 <none>
+        Map<String, TokenLedger.Usage> byDocument = ledger.byDocument();
+        assertEquals(new TokenLedger.Usage(2, 350, 35, 385), byDocument.get("<none>"));
+        assertEquals(new TokenLedger.Usage(1, 100, 10, 110), byDocument.get("d1"));
+    }
+
+    @Test
+    void usageFromMarkSkipsEarlierCalls() {
+        TokenLedger ledger = new TokenLedger("run-3");
+        ledger.record(entry("extract_graph", "graph_extractor", "d1", 100, 10));
+        int mark = ledger.mark();
+        ledger.record(entry("create_community_reports", "community_reports", null, 300, 30));
+        ledger.record(entry("extract_graph", "graph_extractor", "d2", 200, 20));
+
+        assertEquals(1, mark);
+        assertEquals(new TokenLedger.Usage(1, 200, 20, 220), ledger.usageOfWorkflow("extract_graph", mark));
+        assertEquals(new TokenLedger.Usage(2, 300, 30, 330), ledger.usageOfWorkflow("extract_graph"));
+    }
+
+    @Test
+    void persistWritesOneLinePerCallPlusSummary() throws Exception {
+        TokenLedger ledger = new TokenLedger("run-2");
+        ledger.record(entry("extract_graph", "graph_extractor", "d1", 100, 10));
+        ledger.record(entry("extract_graph", "graph_extractor", "d2", 200, 20));
+
+        Path dir = Files.createTempDirectory("ledger");
+        Path file = ledger.persist(dir);
+
+        assertEquals("token-ledger-run-2.jsonl", file.getFileName().toString());
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(2).contains("\"summary\""));
+        assertTrue(lines.get(2).contains("run-2"));
+    }
+
+    @Test
+    void callInScopeRestoresPreviousScope() {
+        TokenLedger ledger = new TokenLedger();
+        TokenLedger.Scope outer = ledger.scope("outer");
+        TokenLedger.Scope inner = outer.withDocument("d1");
+
+        TokenLedger.Scope previous = TokenLedger.enter(outer);
+        try {
+            String seen = TokenLedger.callInScope(inner, () -> TokenLedger.currentScope().getDocumentId());
+            assertEquals("d1", seen);
+            assertSame(outer, TokenLedger.currentScope());
+
+            // 异常时同样还原
+            assertThrows(IllegalStateException.class, () -> TokenLedger.callInScope(inner, () -> {
+                throw new IllegalStateException("boom");
+            }));
+            assertSame(outer, TokenLedger.currentScope());
+        } finally {
+            TokenLedger.restore(previous);
+        }
+        assertNull(TokenLedger.currentScope());
+    }
+
+    @Test
+    void scopePropagatesThroughTtlPoolButNotPlainPool() throws Exception {
+        TokenLedger ledger = new TokenLedger();
+        ExecutorService ttlPool = TtlExecutorUtil.newFixedThreadPool(1);
+        ExecutorService plainPool = Executors.newFixedThreadPool(1);
+        try {
+            // 先让工作线程建出来，确认不是靠创建线程时的 InheritableThreadLocal 继承
+            ttlPool.submit(() -> {}).get();
+            plainPool.submit(() -> {}).get();
+
+            for (String workflow : List.of("w1", "w2")) {
+                TokenLedger.Scope scope = ledger.scope(workflow).withDocument("doc-" + workflow);
+                TokenLedger.Scope seen = TokenLedger.callInScope(scope, () -> {
+                    try {
+                        return ttlPool.submit(TokenLedger::currentScope).get();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                assertSame(scope, seen);
+
+                TokenLedger.Scope plainSeen = TokenLedger.callInScope(scope, () -> {
+                    try {
+                        return plainPool.submit(TokenLedger::currentScope).get();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                assertNotSame(scope, plainSeen);
+            }
+            // 任务结束后工作线程上的 Scope 被还原
+            assertNull(ttlPool.submit(TokenLedger::currentScope).get());
+        } finally {
+            ttlPool.shutdownNow();
+            plainPool.shutdownNow();
+            ttlPool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
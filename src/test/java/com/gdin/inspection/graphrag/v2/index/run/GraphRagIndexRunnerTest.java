@@ -0,0 +1,173 @@
+package com.gdin.inspection.graphrag.v2.index.run;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.config.properties.LlmProperties;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
+import com.gdin.inspection.graphrag.v2.index.pipeline.Pipeline;
+import com.gdin.inspection.graphrag.v2.index.pipeline.PipelineFactory;
+import com.gdin.inspection.graphrag.v2.index.pipeline.WorkflowFunctionOutput;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.CancellationToken;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.PipelineRunResult;
+import com.gdin.inspection.graphrag.v2.models.Entity;
+import com.gdin.inspection.graphrag.v2.models.TextUnit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.gdin.inspection.graphrag.v2.index.pipeline.ContextKeys.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用记录调用顺序的假 workflow 替换 standard_update 的各段 pipeline
+ */
+public class GraphRagIndexRunnerTest {
+
+    private static final List<String> DOCS = List.of("d1", "d2", "d3", "d4", "d5");
+
+    @TempDir
+    Path ledgerDir;
+
+    /** 主线程上的事件：提交抽取 / 合并窗口 / 整段 standard_update */
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    /** 抽取线程上的窗口顺序 */
+    private final List<List<String>> extracted = new CopyOnWriteArrayList<>();
+    /** 每个窗口合并时看到的旧索引（null 表示要从存储加载） */
+    private final List<List<String>> previous = new CopyOnWriteArrayList<>();
+    private String failOn;
+
+    private GraphProperties props;
+    private GraphRagIndexRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        PipelineFactory<Object> factory = new PipelineFactory<>() {
+            @Override
+            public Pipeline<Object> createPipeline(String pipelineName) {
+                if (pipelineName.equals("standard_update_extract")) events.add("submit");
+                return super.createPipeline(pipelineName);
+            }
+        };
+        factory.register("extract", (cfg, ctx) -> {
+            List<String> ids = ctx.get(UPDATE_DOCUMENT_IDS);
+            extracted.add(ids);
+            if (failOn != null && ids.contains(failOn)) throw new IllegalStateException("抽取失败: " + failOn);
+            ctx.put(DELTA_TEXT_UNITS, ids.stream().map(id -> TextUnit.builder().id(id).build()).toList());
+            return WorkflowFunctionOutput.builder().result("extract_done").build();
+        });
+        factory.register("merge", (cfg, ctx) -> {
+            events.add("merge:" + ctx.get(UPDATE_DOCUMENT_IDS));
+            List<Entity> old = ctx.get(OLD_ENTITIES);
+            previous.add(old == null ? null : old.stream().map(Entity::getId).toList());
+            List<Entity> merged = new ArrayList<>(old == null ? List.of() : old);
+            for (TextUnit t : ctx.get(DELTA_TEXT_UNITS)) merged.add(Entity.builder().id(t.getId()).build());
+            ctx.put(MERGED_ENTITIES, merged);
+            return WorkflowFunctionOutput.builder().result("merge_done").build();
+        });
+        factory.register("update", (cfg, ctx) -> {
+            events.add("standard_update:" + ctx.get(UPDATE_DOCUMENT_IDS));
+            return WorkflowFunctionOutput.builder().result("update_done").build();
+        });
+        factory.registerPipeline("standard_update_extract", List.of("extract"));
+        factory.registerPipeline("standard_update_merge", List.of("merge"));
+        factory.registerPipeline("standard_update", List.of("update"));
+        factory.registerPipeline("standard_update-test", List.of("update"));
+
+        props = new GraphProperties();
+        props.getIndex().getStreaming().setWindowSize(2);
+        props.getIndex().getStreaming().setPrefetchWindows(1);
+        LlmProperties llmProperties = new LlmProperties();
+        llmProperties.getLedger().setDir(ledgerDir.toString());
+
+        runner = new GraphRagIndexRunner();
+        ReflectionTestUtils.setField(runner, "graphProperties", props);
+        ReflectionTestUtils.setField(runner, "factory", factory);
+        ReflectionTestUtils.setField(runner, "graphRagMetrics", new GraphRagMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(runner, "llmProperties", llmProperties);
+    }
+
+    @Test
+    void extractsNextWindowBeforeMergingCurrent() {
+        runner.runStreaming(DOCS);
+
+        // 预取 1 个窗口：合并第 k 个窗口前已提交第 k+1 个窗口的抽取
+        assertEquals(List.of("submit", "submit", "merge:[d1, d2]", "submit", "merge:[d3, d4]", "merge:[d5]"), events);
+        assertEquals(List.of(List.of("d1", "d2"), List.of("d3", "d4"), List.of("d5")), extracted);
+    }
+
+    @Test
+    void carriesMergedIndexIntoNextWindow() {
+        List<?> results = runner.runStreaming(DOCS);
+
+        // 只有第一个窗口从存储加载，之后拿上一个窗口的合并结果作为旧索引
+        assertEquals(Arrays.asList(null, List.of("d1", "d2"), List.of("d1", "d2", "d3", "d4")), previous);
+        // 返回的结果不再持有合并后的整份索引
+        assertTrue(results.stream().map(PipelineRunResult.class::cast)
+                .allMatch(r -> r.getContext() == null || r.getContext().get(MERGED_ENTITIES) == null));
+    }
+
+    @Test
+    void windowsShareOneLedgerPersistedOnce() throws Exception {
+        List<?> results = runner.runStreaming(DOCS);
+
+        Set<String> runIds = results.stream().map(PipelineRunResult.class::cast)
+                .map(r -> r.getContext().getTokenLedger().getRunId()).collect(Collectors.toSet());
+        assertEquals(1, runIds.size());
+        try (Stream<Path> files = Files.list(ledgerDir)) {
+            assertEquals(List.of("token-ledger-" + runIds.iterator().next() + ".jsonl"),
+                    files.map(f -> f.getFileName().toString()).toList());
+        }
+    }
+
+    @Test
+    void prefetchBoundsWindowsAhead() {
+        props.getIndex().getStreaming().setPrefetchWindows(2);
+        runner.runStreaming(DOCS);
+
+        assertEquals(List.of("submit", "submit", "submit", "merge:[d1, d2]", "merge:[d3, d4]", "merge:[d5]"), events);
+    }
+
+    @Test
+    void stopsAtFirstFailedWindow() {
+        failOn = "d3";
+        props.getIndex().setRunTimeoutMs(60_000L);
+        CancellationToken token = runner.newRunToken();
+
+        List<?> results = runner.runStreaming(DOCS, token);
+
+        assertEquals(List.of("merge:[d1, d2]"), events.stream().filter(e -> e.startsWith("merge")).toList());
+        assertTrue(results.stream().map(PipelineRunResult.class::cast).anyMatch(r -> r.getErrors() != null && !r.getErrors().isEmpty()));
+        // 结束后截止时间定时任务已撤销
+        assertFalse(token.hasPendingDeadline());
+    }
+
+    @Test
+    void updateEntryPointStreamsOnlyBeyondOneWindow() {
+        runner.runStandardUpdate(List.of("d1", "d2", "d1"));
+        assertEquals(List.of("standard_update:[d1, d2, d1]"), events);
+
+        events.clear();
+        runner.runStandardUpdate(DOCS);
+        assertEquals(3, events.stream().filter(e -> e.startsWith("merge")).count());
+        assertTrue(events.stream().noneMatch(e -> e.startsWith("standard_update")));
+
+        // 指定其它 pipeline 或关闭微批时不拆分
+        events.clear();
+        runner.runStandardUpdate(DOCS, "standard_update-test");
+        props.getIndex().getStreaming().setEnabled(false);
+        runner.runStandardUpdate(DOCS);
+        assertEquals(2, events.stream().filter(e -> e.startsWith("standard_update")).count());
+        assertTrue(events.stream().noneMatch(e -> e.startsWith("merge")));
+    }
+}
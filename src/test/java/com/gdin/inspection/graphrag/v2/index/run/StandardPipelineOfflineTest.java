@@ -0,0 +1,80 @@
+package com.gdin.inspection.graphrag.v2.index.run;
+
+import com.gdin.inspection.graphrag.offline.ChatScript;
+import com.gdin.inspection.graphrag.offline.InMemoryKnowledgeBase;
+import com.gdin.inspection.graphrag.offline.OfflineModelConfig;
+import com.gdin.inspection.graphrag.v2.index.pipeline.context.PipelineRunResult;
+import com.gdin.inspection.graphrag.v2.models.TextUnit;
+import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * offline profile 下整条 standard pipeline 跑通：知识库、模型、聚类、索引存储全部是替身，不连任何外部服务
+ */
+@SpringBootTest
+@ActiveProfiles({"dev", "offline"})
+@Import(OfflineModelConfig.class)
+@TestPropertySource(properties = "environment.test=true")
+public class StandardPipelineOfflineTest {
+
+    @Resource
+    private GraphRagIndexRunner graphRagIndexRunner;
+
+    @Resource
+    private InMemoryKnowledgeBase knowledgeBase;
+
+    @Resource
+    private GraphRagIndexStorage storage;
+
+    @Resource
+    private ChatScript chatScript;
+
+    @AfterEach
+    void tearDown() {
+        knowledgeBase.clear();
+        storage.clear(GraphRagIndexStorage.SCOPE_MAIN);
+        storage.clear(GraphRagIndexStorage.SCOPE_DELTA);
+    }
+
+    @Test
+    void standardPipelineRunsOffline() {
+        knowledgeBase.addSlice("d1", 2, "断路器 隔离开关 每季度 巡视 一次，发现 异常 及时 上报 调度");
+        knowledgeBase.addSlice("d1", 1, "变电站 运维人员 按 巡检周期 对 主变压器 断路器 进行 巡视检查");
+        knowledgeBase.addSlice("d2", 1, "主变压器 油温 超过 限值 时 运维人员 应 立即 通知 调度");
+        // 不在本次文档范围内的切片不应被加载
+        knowledgeBase.addSlice("d3", 1, "职工 在 法定休假日 期间 依法 享受 带薪假期");
+
+        List<?> results = graphRagIndexRunner.runStandard(List.of("d2", "d1"));
+
+        assertEquals(List.of("load_input_documents", "extract_graph", "extract_covariates", "create_communities",
+                        "create_final_text_units", "create_community_reports", "persist_index"),
+                results.stream().map(r -> ((PipelineRunResult) r).getWorkflow()).toList());
+        for (Object r : results) {
+            PipelineRunResult run = (PipelineRunResult) r;
+            assertTrue(run.getErrors() == null || run.getErrors().isEmpty(), run.getWorkflow() + ": " + run.getErrors());
+        }
+
+        int main = GraphRagIndexStorage.SCOPE_MAIN;
+        List<TextUnit> textUnits = storage.loadTextUnits(main);
+        assertEquals(List.of("d1-1", "d1-2", "d2-1"), textUnits.stream().map(TextUnit::getId).toList());
+        assertTrue(textUnits.stream().allMatch(t -> t.getEntityIds() != null && !t.getEntityIds().isEmpty()));
+        assertFalse(storage.loadEntities(main).isEmpty());
+        assertFalse(storage.loadRelationships(main).isEmpty());
+        assertFalse(storage.loadCommunities(main).isEmpty());
+        assertFalse(storage.loadCommunityReports(main).isEmpty());
+        assertTrue(storage.loadEntities(GraphRagIndexStorage.SCOPE_DELTA).isEmpty());
+
+        assertEquals(3, chatScript.calls(ChatScript.Kind.GRAPH_EXTRACTION));
+        assertTrue(chatScript.calls(ChatScript.Kind.COMMUNITY_REPORT) > 0);
+    }
+}
@@ -0,0 +1,134 @@
+package com.gdin.inspection.graphrag.v2.index.workflows;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.req.milvus.MilvusQueryReq;
+import com.gdin.inspection.graphrag.search.result.MilvusRow;
+import com.gdin.inspection.graphrag.service.MilvusSearchService;
+import com.gdin.inspection.graphrag.v2.models.TextUnit;
+import com.gdin.inspection.graphrag.v2.util.TokenUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadInputDocumentsWorkflowTest {
+
+    private static final Pattern IN_LIST = Pattern.compile("in \\[(.*)]$");
+
+    /** 知识库切片：按插入顺序返回，故意打乱 document / page 顺序 */
+    private final List<MilvusRow> rows = new ArrayList<>();
+    private final List<String> filters = new ArrayList<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    private GraphProperties props;
+    private LoadInputDocumentsWorkflow workflow;
+
+    @BeforeEach
+    void setUp() {
+        props = new GraphProperties();
+        TokenUtil tokenUtil = new TokenUtil();
+        ReflectionTestUtils.invokeMethod(tokenUtil, "init");
+
+        MilvusSearchService search = new MilvusSearchService() {
+            @Override
+            public long forEachRowBatch(MilvusQueryReq req, int batchSize, Consumer<List<MilvusRow>> consumer) {
+                filters.add(req.getFilter());
+                batchSizes.add(batchSize);
+                Matcher m = IN_LIST.matcher(req.getFilter());
+                assertTrue(m.find(), req.getFilter());
+                Set<String> ids = new HashSet<>();
+                for (String quoted : m.group(1).split(",")) ids.add(quoted.replace("\"", ""));
+
+                List<MilvusRow> matched = new ArrayList<>();
+                for (MilvusRow row : rows) {
+                    if (ids.contains(row.getJsonString("metadata", "document_id"))) matched.add(row);
+                }
+                for (int i = 0; i < matched.size(); i += batchSize) {
+                    consumer.accept(matched.subList(i, Math.min(i + batchSize, matched.size())));
+                }
+                return matched.size();
+            }
+        };
+
+        workflow = new LoadInputDocumentsWorkflow();
+        ReflectionTestUtils.setField(workflow, "graphProperties", props);
+        ReflectionTestUtils.setField(workflow, "milvusSearchService", search);
+        ReflectionTestUtils.setField(workflow, "tokenUtil", tokenUtil);
+    }
+
+    private void slice(String documentId, int page) {
+        String metadata = "{\"document_id\":\"" + documentId + "\",\"doc_id\":\"" + documentId + "-" + page
+                + "\",\"page\":" + page + ",\"segment_type\":\"father\"}";
+        rows.add(new MilvusRow(Map.of("metadata", metadata, "page_content", documentId + " 第" + page + "页")));
+    }
+
+    private static List<String> ids(List<TextUnit> textUnits) {
+        return textUnits.stream().map(TextUnit::getId).toList();
+    }
+
+    @Test
+    void queriesSortedDistinctIdsInChunks() throws Exception {
+        props.getInput().setDocumentIdChunkSize(2);
+        props.getInput().setQueryBatchSize(1);
+        slice("d3", 1);
+        slice("d1", 2);
+        slice("d2", 1);
+        slice("d1", 1);
+        slice("d4", 1);
+
+        List<TextUnit> textUnits = workflow.run(List.of("d4", "d1", "d3", "d1", "d2", "d4"));
+
+        // 去重排序后 [d1,d2] [d3,d4] 两次查询，每次批大小取配置
+        assertEquals(2, filters.size());
+        assertTrue(filters.get(0).endsWith("in [\"d1\",\"d2\"]"), filters.get(0));
+        assertTrue(filters.get(1).endsWith("in [\"d3\",\"d4\"]"), filters.get(1));
+        assertEquals(List.of(1, 1), batchSizes);
+        assertEquals(List.of("d1-1", "d1-2", "d2-1", "d3-1", "d4-1"), ids(textUnits));
+        assertEquals(List.of("d1"), textUnits.get(0).getDocumentIds());
+        assertTrue(textUnits.get(0).getNTokens() > 0);
+    }
+
+    @Test
+    void sortsWithinEachChunk() throws Exception {
+        props.getInput().setDocumentIdChunkSize(1);
+        slice("d2", 1);
+        slice("d1", 2);
+        slice("d1", 1);
+
+        assertEquals(List.of("d1-1", "d1-2", "d2-1"), ids(workflow.run(Set.of("d1", "d2"))));
+        assertEquals(2, filters.size());
+    }
+
+    @Test
+    void filtersOnJsonPathUnlessScalarFieldsConfigured() throws Exception {
+        slice("d1", 1);
+        workflow.run(List.of("d1"));
+        assertEquals("metadata[\"segment_type\"]==\"father\" and metadata[\"document_id\"] in [\"d1\"]", filters.get(0));
+
+        props.getInput().setDocumentIdField("document_id");
+        props.getInput().setSegmentTypeField("segment_type");
+        workflow.run(List.of("d1"));
+        assertEquals("segment_type==\"father\" and document_id in [\"d1\"]", filters.get(1));
+    }
+
+    @Test
+    void nullBatchConfigFallsBackToDefaults() throws Exception {
+        props.getInput().setDocumentIdChunkSize(null);
+        props.getInput().setQueryBatchSize(null);
+        slice("d1", 1);
+
+        assertEquals(List.of("d1-1"), ids(workflow.run(List.of("d1"))));
+        assertEquals(List.of(1000), batchSizes);
+    }
+
+    @Test
+    void rejectsEmptyDocumentIds() {
+        assertThrows(IllegalStateException.class, () -> workflow.run(List.of()));
+    }
+}
@@ -0,0 +1,115 @@
+package com.gdin.inspection.graphrag.v2.index.workflows;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.offline.InMemoryGraphRagIndexStorage;
+import com.gdin.inspection.graphrag.v2.models.Entity;
+import com.gdin.inspection.graphrag.v2.models.Relationship;
+import com.gdin.inspection.graphrag.v2.models.TextUnit;
+import com.gdin.inspection.graphrag.v2.query.snapshot.IndexSnapshotHolder;
+import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistIndexWorkflowTest {
+
+    private static final int MAIN = GraphRagIndexStorage.SCOPE_MAIN;
+
+    /** 每次写入记一条 "操作:表:行数" */
+    private final List<String> writes = new CopyOnWriteArrayList<>();
+    private InMemoryGraphRagIndexStorage storage;
+    private IndexSnapshotHolder holder;
+    private PersistIndexWorkflow workflow;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryGraphRagIndexStorage() {
+            @Override
+            public void saveEntities(int scope, List<Entity> rows) {
+                writes.add("save:entities:" + rows.size());
+                super.saveEntities(scope, rows);
+            }
+
+            @Override
+            public void upsertEntities(int scope, List<Entity> rows) {
+                writes.add("upsert:entities:" + rows.size());
+                super.upsertEntities(scope, rows);
+            }
+
+            @Override
+            public void saveRelationships(int scope, List<Relationship> rows) {
+                writes.add("save:relationships:" + rows.size());
+                super.saveRelationships(scope, rows);
+            }
+
+            @Override
+            public void upsertRelationships(int scope, List<Relationship> rows) {
+                writes.add("upsert:relationships:" + rows.size());
+                super.upsertRelationships(scope, rows);
+            }
+
+            @Override
+            public void upsertTextUnits(int scope, List<TextUnit> rows) {
+                writes.add("upsert:text_units:" + rows.size());
+                super.upsertTextUnits(scope, rows);
+            }
+        };
+        holder = new IndexSnapshotHolder();
+        ReflectionTestUtils.setField(holder, "storage", storage);
+        ReflectionTestUtils.setField(holder, "graphProperties", new GraphProperties());
+        workflow = new PersistIndexWorkflow();
+        ReflectionTestUtils.setField(workflow, "storage", storage);
+        ReflectionTestUtils.setField(workflow, "indexSnapshotHolder", holder);
+    }
+
+    @AfterEach
+    void tearDown() {
+        holder.destroy();
+    }
+
+    @Test
+    void writesOnlyNewAndChangedRows() {
+        Entity a = Entity.builder().id("a").title("断路器").description("旧").build();
+        Entity b = Entity.builder().id("b").title("隔离开关").build();
+        Relationship ab = Relationship.builder().id("ab").source("断路器").target("隔离开关").weight(1.0).build();
+        TextUnit t1 = TextUnit.builder().id("t1").humanReadableId(0).text("巡视").build();
+        storage.saveEntities(MAIN, List.of(a, b));
+        storage.saveRelationships(MAIN, List.of(ab));
+        storage.saveTextUnits(MAIN, List.of(t1));
+        writes.clear();
+
+        Entity aMerged = Entity.builder().id("a").title("断路器").description("旧\n\n新").build();
+        Entity c = Entity.builder().id("c").title("主变压器").build();
+        TextUnit t2 = TextUnit.builder().id("t2").humanReadableId(1).text("油温").build();
+        workflow.runIncremental(MAIN,
+                new LoadPreviousIndexWorkflow.Result(List.of(t1), List.of(a, b), List.of(ab), null, null, null),
+                new LoadPreviousIndexWorkflow.Result(List.of(t1, t2), List.of(aMerged, b, c), List.of(ab), null, null, null));
+
+        // 关系没变，不写；实体只写变化的 a 和新增的 c
+        assertEquals(List.of("upsert:entities:2", "upsert:text_units:1"), writes);
+        assertEquals(List.of(aMerged, b, c), storage.loadEntities(MAIN));
+        assertEquals(List.of("t1", "t2"), storage.loadTextUnitIds(MAIN));
+        assertEquals(1, holder.getVersion());
+    }
+
+    @Test
+    void fallsBackToFullSaveWhenRowsDisappear() {
+        Entity a = Entity.builder().id("a").title("断路器").build();
+        Entity b = Entity.builder().id("b").title("隔离开关").build();
+        storage.saveEntities(MAIN, List.of(a, b));
+        writes.clear();
+
+        workflow.runIncremental(MAIN,
+                new LoadPreviousIndexWorkflow.Result(null, List.of(a, b), null, null, null, null),
+                new LoadPreviousIndexWorkflow.Result(null, List.of(a), null, null, null, null));
+
+        assertEquals(List.of("save:entities:1"), writes);
+        assertEquals(List.of(a), storage.loadEntities(MAIN));
+    }
+}
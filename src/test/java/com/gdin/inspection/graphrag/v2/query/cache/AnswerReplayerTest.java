@@ -0,0 +1,41 @@
+package com.gdin.inspection.graphrag.v2.query.cache;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnswerReplayerTest {
+
+    @Test
+    void replaysAnswerInChunksOnCallingThread() {
+        GraphProperties props = new GraphProperties();
+        props.getQuery().getCache().setReplayChunkChars(4);
+        AnswerReplayer replayer = new AnswerReplayer();
+        ReflectionTestUtils.setField(replayer, "graphProperties", props);
+        replayer.init();
+
+        String answer = "变电站巡检周期为每月一次，特殊天气加巡。";
+        List<String> chunks = new ArrayList<>();
+        AtomicReference<ChatResponse> complete = new AtomicReference<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        replayer.replay(answer)
+                .onPartialResponse(chunks::add)
+                .onCompleteResponse(complete::set)
+                .onError(error::set)
+                .start();
+
+        // 同步回放：start 返回时已全部吐完
+        assertNull(error.get());
+        assertEquals(answer, String.join("", chunks));
+        assertTrue(chunks.stream().allMatch(c -> c.length() <= 4));
+        assertEquals(answer, complete.get().aiMessage().text());
+    }
+}
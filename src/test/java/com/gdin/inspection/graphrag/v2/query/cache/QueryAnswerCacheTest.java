@@ -0,0 +1,145 @@
+package com.gdin.inspection.graphrag.v2.query.cache;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
+import com.gdin.inspection.graphrag.offline.HashEmbeddingModel;
+import com.gdin.inspection.graphrag.v2.query.context.ContextBuilderResult;
+import com.gdin.inspection.graphrag.v2.query.context.TableRecords;
+import com.gdin.inspection.graphrag.v2.query.snapshot.IndexSnapshotHolder;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用可手动设置版本号的 IndexSnapshotHolder 模拟主索引刷新，HashEmbeddingModel 代替线上 embedding
+ */
+public class QueryAnswerCacheTest {
+
+    private static final String PARAMS = "basic|10|12000|null";
+
+    private final AtomicInteger embedCalls = new AtomicInteger();
+    private volatile long version = 1;
+
+    private GraphProperties props;
+    private QueryAnswerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        props = new GraphProperties();
+        IndexSnapshotHolder holder = new IndexSnapshotHolder() {
+            @Override
+            public long getVersion() {
+                return version;
+            }
+        };
+        HashEmbeddingModel embeddingModel = new HashEmbeddingModel() {
+            @Override
+            public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+                embedCalls.incrementAndGet();
+                return super.embedAll(textSegments);
+            }
+        };
+        cache = new QueryAnswerCache();
+        ReflectionTestUtils.setField(cache, "graphProperties", props);
+        ReflectionTestUtils.setField(cache, "indexSnapshotHolder", holder);
+        ReflectionTestUtils.setField(cache, "embeddingModel", embeddingModel);
+        ReflectionTestUtils.setField(cache, "graphRagMetrics", new GraphRagMetrics(new SimpleMeterRegistry()));
+    }
+
+    private void enableSemantic() {
+        props.getQuery().getCache().setSemanticEnabled(true);
+        props.getQuery().getCache().setSimilarityThreshold(0.5);
+    }
+
+    private static ContextBuilderResult context(String... sourceIds) {
+        List<List<String>> rows = Arrays.stream(sourceIds).map(id -> List.of(id, "正文 " + id)).toList();
+        return new ContextBuilderResult("csv", Map.of("sources", new TableRecords(List.of("source_id", "text"), rows)));
+    }
+
+    private static CachedAnswer answer(String text, ContextBuilderResult context) {
+        return new CachedAnswer(text, context, "prompt");
+    }
+
+    @Test
+    void exactHitUntilIndexVersionChanges() {
+        cache.init();
+        QueryAnswerCache.Lookup miss = cache.lookup("变电站巡检周期？", PARAMS);
+        assertFalse(miss.isHit());
+        cache.put(miss, answer("每月一次", context("s1")));
+
+        QueryAnswerCache.Lookup hit = cache.lookup("  变电站巡检周期 ", PARAMS);
+        assertTrue(hit.isHit());
+        assertEquals("每月一次", hit.hit().response());
+        assertFalse(cache.lookup("变电站巡检周期", "basic|5|12000|null").isHit());
+
+        // 主索引刷新后整体失效
+        version = 2;
+        assertFalse(cache.lookup("变电站巡检周期", PARAMS).isHit());
+    }
+
+    @Test
+    void answerGeneratedAcrossVersionBumpIsNotStored() {
+        cache.init();
+        QueryAnswerCache.Lookup lookup = cache.lookup("变电站巡检周期", PARAMS);
+        version = 2;
+        cache.put(lookup, answer("旧索引上的回答", context("s1")));
+
+        assertFalse(cache.lookup("变电站巡检周期", PARAMS).isHit());
+    }
+
+    @Test
+    void semanticTierOffByDefault() {
+        cache.init();
+        QueryAnswerCache.Lookup lookup = cache.lookup("变电站巡检周期", PARAMS);
+        cache.put(lookup, answer("每月一次", context("s1")));
+
+        QueryAnswerCache.Lookup other = cache.lookup("变电站的巡检周期是多久", PARAMS);
+        assertNull(other.candidate());
+        assertNull(other.vector());
+        assertEquals(0, embedCalls.get());
+    }
+
+    @Test
+    void semanticCandidateReusedOnlyWhenContextMatches() {
+        enableSemantic();
+        cache.init();
+        QueryAnswerCache.Lookup first = cache.lookup("变电站巡检周期", PARAMS);
+        assertNotNull(first.vector());
+        cache.put(first, answer("每月一次", context("s1", "s2")));
+
+        QueryAnswerCache.Lookup paraphrase = cache.lookup("变电站的巡检周期", PARAMS);
+        assertFalse(paraphrase.isHit());
+        assertNotNull(paraphrase.candidate());
+        // 检索到的记录不同：不复用
+        assertNull(cache.confirm(paraphrase, context("s1", "s3")));
+        assertFalse(cache.lookup("变电站的巡检周期", PARAMS).isHit());
+
+        // 同一批记录（顺序无关）：复用并回填精确层
+        QueryAnswerCache.Lookup again = cache.lookup("变电站的巡检周期", PARAMS);
+        CachedAnswer confirmed = cache.confirm(again, context("s2", "s1"));
+        assertNotNull(confirmed);
+        assertEquals("每月一次", confirmed.response());
+        assertTrue(cache.lookup("变电站的巡检周期", PARAMS).isHit());
+    }
+
+    @Test
+    void lookupVectorIsRawEmbeddingForRetrieval() {
+        enableSemantic();
+        cache.init();
+        QueryAnswerCache.Lookup lookup = cache.lookup("变电站巡检周期", PARAMS);
+
+        assertArrayEquals(new HashEmbeddingModel().embed("变电站巡检周期").content().vector(), lookup.vector());
+        assertEquals(1, embedCalls.get());
+    }
+}
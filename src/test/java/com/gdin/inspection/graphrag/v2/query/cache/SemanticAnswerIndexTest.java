@@ -0,0 +1,55 @@
+package com.gdin.inspection.graphrag.v2.query.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SemanticAnswerIndexTest {
+
+    private static CachedAnswer answer(String text) {
+        return new CachedAnswer(text, null, "");
+    }
+
+    private static float[] vec(float... v) {
+        return SemanticAnswerIndex.normalize(v);
+    }
+
+    @Test
+    void returnsBestMatchAboveThresholdWithSameParams() {
+        SemanticAnswerIndex index = new SemanticAnswerIndex(4, 0.95);
+        CachedAnswer a = answer("a");
+        CachedAnswer b = answer("b");
+        index.add(vec(1, 0, 0), "p", a, 0);
+        index.add(vec(1, 0.1f, 0), "p", b, 0);
+
+        assertSame(a, index.find(vec(1, 0.01f, 0), "p", 0));
+        assertNull(index.find(vec(1, 0.01f, 0), "other", 0));
+        assertNull(index.find(vec(0, 1, 0), "p", 0));
+    }
+
+    @Test
+    void skipsExpiredAndEvictsOldest() {
+        SemanticAnswerIndex index = new SemanticAnswerIndex(2, 0.9);
+        index.add(vec(1, 0), "p", answer("x"), 100);
+        assertNull(index.find(vec(1, 0), "p", 100));
+
+        CachedAnswer y = answer("y");
+        index.add(vec(0, 1), "p", y, 0);
+        index.add(vec(1, 1), "p", answer("z"), 0);
+        assertEquals(2, index.size());
+        // 最早写入的 x 被覆盖，y 仍在
+        assertSame(y, index.find(vec(0, 1), "p", 0));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.find(vec(0, 1), "p", 0));
+    }
+
+    @Test
+    void normalizesQueryForExactTier() {
+        assertEquals("变电站 巡检周期", QueryAnswerCache.normalize("  变电站\t巡检周期？？ "));
+        assertEquals("what is graphrag", QueryAnswerCache.normalize("What  is ＧraphRAG?"));
+    }
+}
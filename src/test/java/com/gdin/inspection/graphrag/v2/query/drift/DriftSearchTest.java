@@ -0,0 +1,196 @@
+package com.gdin.inspection.graphrag.v2.query.drift;
+
+import com.gdin.inspection.graphrag.config.QueryExecutorConfig;
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.config.properties.LlmProperties;
+import com.gdin.inspection.graphrag.metrics.GraphRagMetrics;
+import com.gdin.inspection.graphrag.metrics.LlmCallTracker;
+import com.gdin.inspection.graphrag.offline.ChatScript;
+import com.gdin.inspection.graphrag.offline.LatencyModel;
+import com.gdin.inspection.graphrag.offline.ScriptedChatModel;
+import com.gdin.inspection.graphrag.offline.ScriptedStreamingChatModel;
+import com.gdin.inspection.graphrag.service.AssistantGenerator;
+import com.gdin.inspection.graphrag.store.MapChatMemoryStore;
+import com.gdin.inspection.graphrag.v2.models.CommunityReport;
+import com.gdin.inspection.graphrag.v2.query.SearchResult;
+import com.gdin.inspection.graphrag.v2.query.context.BasicSearchContext;
+import com.gdin.inspection.graphrag.v2.query.context.ContextBuilderResult;
+import com.gdin.inspection.graphrag.v2.query.context.TableRecords;
+import com.gdin.inspection.graphrag.v2.query.snapshot.IndexSnapshot;
+import com.gdin.inspection.graphrag.v2.query.snapshot.IndexSnapshotHolder;
+import com.gdin.inspection.graphrag.v2.util.TokenUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * primer 固定给出两个后续问题，每个局部回答再给出一个下一层问题（问题后缀 /1）；
+ * 原文检索对任何问题都返回同一批 4 个文本单元，用来观察跨分支去重
+ */
+public class DriftSearchTest {
+
+    private static final Pattern LOCAL_QUESTION = Pattern.compile("---问题---\\s*\\n\\s*(.+?)\\s*\\n");
+    private static final Pattern SOURCE_ID = Pattern.compile("原文片段-(s\\d+)");
+
+    /** 局部回答收到的问题与 prompt */
+    private final Map<String, String> localPrompts = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final List<String> primerPrompts = new CopyOnWriteArrayList<>();
+    private volatile String primerPadding = "";
+
+    private GraphProperties props;
+    private ScriptedStreamingChatModel streamingModel;
+    private ExecutorService driftExecutor;
+    private DriftSearch driftSearch;
+
+    @BeforeEach
+    void setUp() {
+        props = new GraphProperties();
+        GraphProperties.Query.Drift cfg = props.getQuery().getDrift();
+        cfg.setPrimerFolds(1);
+        cfg.setLocalTextUnits(2);
+        cfg.setConcurrency(4);
+
+        TokenUtil tokenUtil = new TokenUtil();
+        ReflectionTestUtils.invokeMethod(tokenUtil, "init");
+        LlmProperties llmProperties = new LlmProperties();
+        MapChatMemoryStore store = new MapChatMemoryStore();
+        ReflectionTestUtils.setField(store, "llmProperties", llmProperties);
+
+        DriftScript script = new DriftScript();
+        streamingModel = ScriptedStreamingChatModel.instant(script);
+        ScriptedChatModel chatModel = new ScriptedChatModel(script, LatencyModel.NONE);
+        AssistantGenerator generator = new AssistantGenerator();
+        ReflectionTestUtils.setField(generator, "thinkChatModel", chatModel);
+        ReflectionTestUtils.setField(generator, "commonChatModel", chatModel);
+        ReflectionTestUtils.setField(generator, "thinkStreamingChatModel", streamingModel);
+        ReflectionTestUtils.setField(generator, "commonStreamingChatModel", streamingModel);
+        ReflectionTestUtils.setField(generator, "mapChatMemoryStore", store);
+
+        LlmCallTracker tracker = new LlmCallTracker();
+        ReflectionTestUtils.setField(tracker, "graphRagMetrics", new GraphRagMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(tracker, "tokenUtil", tokenUtil);
+        ReflectionTestUtils.setField(tracker, "llmProperties", llmProperties);
+        ReflectionTestUtils.setField(tracker, "mapChatMemoryStore", store);
+
+        List<CommunityReport> reports = List.of(
+                CommunityReport.builder().community(1).title("主变压器").summary("主变巡检").fullContent("主变压器每月巡检一次").build(),
+                CommunityReport.builder().community(2).title("GIS").summary("GIS 巡检").fullContent("GIS 设备每季度巡检一次").build());
+        IndexSnapshot snapshot = IndexSnapshot.build(null, null, null, null, reports, null);
+        IndexSnapshotHolder holder = new IndexSnapshotHolder() {
+            @Override
+            public IndexSnapshot get() {
+                return snapshot;
+            }
+        };
+        CommunityReportRanker ranker = new CommunityReportRanker() {
+            @Override
+            public List<CommunityReport> topReports(IndexSnapshot s, String query, int k) {
+                return s.reports();
+            }
+        };
+        BasicSearchContext sources = new BasicSearchContext() {
+            @Override
+            public ContextBuilderResult buildContext(String query, Integer k, Integer maxContextTokens, String contextName,
+                                                     String columnDelimiter, String textIdCol, String textCol, String filter) {
+                List<List<String>> rows = new ArrayList<>();
+                for (int i = 1; i <= Math.min(4, k); i++) rows.add(List.of("s" + i, "原文片段-s" + i));
+                return new ContextBuilderResult("", Map.of(contextName, new TableRecords(List.of(textIdCol, textCol), rows)));
+            }
+        };
+
+        driftExecutor = new QueryExecutorConfig().driftExecutor(props);
+        driftSearch = new DriftSearch();
+        ReflectionTestUtils.setField(driftSearch, "assistantGenerator", generator);
+        ReflectionTestUtils.setField(driftSearch, "llmCallTracker", tracker);
+        ReflectionTestUtils.setField(driftSearch, "tokenUtil", tokenUtil);
+        ReflectionTestUtils.setField(driftSearch, "graphProperties", props);
+        ReflectionTestUtils.setField(driftSearch, "indexSnapshotHolder", holder);
+        ReflectionTestUtils.setField(driftSearch, "basicSearchContext", sources);
+        ReflectionTestUtils.setField(driftSearch, "communityReportRanker", ranker);
+        ReflectionTestUtils.setField(driftSearch, "driftExecutor", driftExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamingModel.shutdown();
+        driftExecutor.shutdown();
+    }
+
+    @Test
+    void expandsUpToConfiguredDepth() {
+        props.getQuery().getDrift().setDepth(2);
+
+        SearchResult result = driftSearch.search("变电站巡检周期", null);
+
+        assertEquals("最终回答", result.getResponse());
+        assertEquals(1, primerPrompts.size());
+        // 第 1 层 A、B，第 2 层 A/1、B/1；第 3 层不再展开
+        assertEquals(Set.of("A", "B", "A/1", "B/1"), localPrompts.keySet());
+        assertEquals(4, result.getLlmCallsCategories().get("drift_action"));
+        assertEquals(1, result.getLlmCallsCategories().get("drift_reduce"));
+    }
+
+    @Test
+    void stopsExpandingOnceBudgetIsSpent() {
+        GraphProperties.Query.Drift cfg = props.getQuery().getDrift();
+        cfg.setTokenBudget(5_000);
+        // primer 输出本身就超过预算，后续问题不再展开，直接 reduce
+        primerPadding = "巡检".repeat(6_000);
+
+        SearchResult result = driftSearch.search("变电站巡检周期", null);
+
+        assertEquals(1, primerPrompts.size());
+        assertTrue(localPrompts.isEmpty());
+        assertNull(result.getLlmCallsCategories().get("drift_action"));
+        assertEquals(1, result.getLlmCallsCategories().get("drift_reduce"));
+        assertEquals("最终回答", result.getResponse());
+    }
+
+    @Test
+    void textUnitsAreNotRepeatedAcrossBranches() {
+        props.getQuery().getDrift().setDepth(2);
+
+        SearchResult result = driftSearch.search("变电站巡检周期", null);
+
+        Map<String, String> owner = new HashMap<>();
+        for (Map.Entry<String, String> e : localPrompts.entrySet()) {
+            Matcher m = SOURCE_ID.matcher(e.getValue());
+            while (m.find()) {
+                String previous = owner.putIfAbsent(m.group(1), e.getKey());
+                assertNull(previous, m.group(1) + " 同时出现在 " + previous + " 与 " + e.getKey());
+            }
+        }
+        // 4 个文本单元分给第 1 层的两个分支（每个分支最多 2 个），第 2 层分支没有新的原文
+        assertEquals(Set.of("s1", "s2", "s3", "s4"), owner.keySet());
+        assertEquals(Set.of("A", "B"), new HashSet<>(owner.values()));
+        assertEquals(4, result.getContextData().get("sources").size());
+    }
+
+    private class DriftScript extends ChatScript {
+        @Override
+        public String reply(String prompt) {
+            if (prompt.contains("---社区报告---")) {
+                primerPrompts.add(prompt);
+                return "{\"intermediate_answer\": \"初步回答" + primerPadding + "\", \"score\": 60, \"follow_up_queries\": [\"A\", \"B\"]}";
+            }
+            if (prompt.contains("---数据表---")) {
+                Matcher m = LOCAL_QUESTION.matcher(prompt);
+                assertTrue(m.find(), prompt);
+                String question = m.group(1);
+                localPrompts.put(question, prompt);
+                return "{\"response\": \"" + question + " 的回答\", \"score\": 50, \"follow_up_queries\": [\"" + question + "/1\"]}";
+            }
+            return "最终回答";
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.gdin.inspection.graphrag.v2.query.snapshot;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.offline.InMemoryGraphRagIndexStorage;
+import com.gdin.inspection.graphrag.v2.models.Entity;
+import com.gdin.inspection.graphrag.v2.storage.GraphRagIndexStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexSnapshotHolderTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final List<String> loadThreads = new CopyOnWriteArrayList<>();
+    private InMemoryGraphRagIndexStorage storage;
+    private IndexSnapshotHolder holder;
+
+    @BeforeEach
+    void setUp() {
+        storage = new InMemoryGraphRagIndexStorage() {
+            @Override
+            public List<Entity> loadEntities(int scope) {
+                loads.incrementAndGet();
+                loadThreads.add(Thread.currentThread().getName());
+                return super.loadEntities(scope);
+            }
+        };
+        GraphProperties props = new GraphProperties();
+        props.getQuery().getSnapshot().setRefreshDebounceMillis(100L);
+        holder = new IndexSnapshotHolder();
+        ReflectionTestUtils.setField(holder, "storage", storage);
+        ReflectionTestUtils.setField(holder, "graphProperties", props);
+    }
+
+    @AfterEach
+    void tearDown() {
+        holder.destroy();
+    }
+
+    @Test
+    void coalescesWritesIntoOneBackgroundRefresh() throws Exception {
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // save 是整表覆盖写，每次写入截至目前的全部实体
+            entities.add(Entity.builder().id("e" + i).title("T" + i).build());
+            storage.saveEntities(GraphRagIndexStorage.SCOPE_MAIN, entities);
+            holder.requestRefresh();
+        }
+        // 版本立即变化，重建还没发生
+        assertEquals(5, holder.getVersion());
+        assertEquals(0, loads.get());
+
+        waitFor(() -> loads.get() == 1);
+        Thread.sleep(300);
+        assertEquals(1, loads.get());
+        assertEquals(6, holder.getVersion());
+        assertEquals(5, holder.get().entityCount());
+    }
+
+    @Test
+    void coldGetWarmsUpInBackground() throws Exception {
+        storage.saveEntities(GraphRagIndexStorage.SCOPE_MAIN, List.of(Entity.builder().id("e1").title("T1").build()));
+
+        // 预热完成前返回空快照，查询线程不做加载
+        assertSame(IndexSnapshot.EMPTY, holder.get());
+        waitFor(() -> holder.get().entityCount() == 1);
+        assertEquals(1, loads.get());
+        assertEquals(List.of("index-snapshot-refresh"), loadThreads);
+    }
+
+    @Test
+    void writeDuringRefreshSchedulesAnotherOne() throws Exception {
+        holder.requestRefresh();
+        waitFor(() -> loads.get() == 1);
+        holder.requestRefresh();
+        waitFor(() -> loads.get() == 2);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+}
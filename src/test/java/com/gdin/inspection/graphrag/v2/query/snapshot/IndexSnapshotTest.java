@@ -0,0 +1,36 @@
+package com.gdin.inspection.graphrag.v2.query.snapshot;
+
+import com.gdin.inspection.graphrag.v2.models.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexSnapshotTest {
+
+    @Test
+    void traversesGraphInProcess() {
+        List<Entity> entities = List.of(
+                Entity.builder().id("e1").humanReadableId(0).title("张三").textUnitIds(List.of("t1")).build(),
+                Entity.builder().id("e2").humanReadableId(1).title("李四").textUnitIds(List.of("t1", "t2")).build(),
+                Entity.builder().id("e3").humanReadableId(2).title("广东").build());
+        List<Relationship> relationships = List.of(
+                Relationship.builder().id("r1").source("张三").target("李四").build(),
+                Relationship.builder().id("r2").source("广东").target("张三").build());
+        List<Community> communities = List.of(
+                Community.builder().id("c1").community(7).level(0).entityIds(List.of("e1", "e2")).build());
+        List<CommunityReport> reports = List.of(
+                CommunityReport.builder().id("cr1").community(7).title("报告").build());
+        IndexSnapshot snapshot = IndexSnapshot.build(List.of("t1", "t2"), entities, relationships, communities, reports, null);
+
+        assertEquals(List.of("李四", "广东"), snapshot.neighbors("e1").stream().map(Entity::getTitle).toList());
+        assertEquals(2, snapshot.relationshipsOf("e1").size());
+        assertEquals("c1", snapshot.communitiesOf("e2").get(0).getId());
+        assertEquals(List.of("e1", "e2"), snapshot.entitiesOfCommunity(7).stream().map(Entity::getId).toList());
+        assertEquals("报告", snapshot.reportOfCommunity(7).orElseThrow().getTitle());
+        assertEquals(List.of("e1", "e2"), snapshot.entitiesOfTextUnit("t1").stream().map(Entity::getId).toList());
+        assertEquals("e3", snapshot.entityByHrid(2).orElseThrow().getId());
+        assertTrue(snapshot.neighbors("missing").isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+package com.gdin.inspection.graphrag.v2.storage;
+
+import com.gdin.inspection.graphrag.v2.models.Community;
+import com.gdin.inspection.graphrag.v2.models.Covariate;
+import com.gdin.inspection.graphrag.v2.models.Entity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileGraphRagIndexStorageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsTablesPerScope() {
+        FileGraphRagIndexStorage storage = new FileGraphRagIndexStorage(dir, true);
+        List<Entity> entities = List.of(
+                Entity.builder().id("e1").humanReadableId(0).title("张三").type("人员").description("描述")
+                        .textUnitIds(List.of("t1", "t2")).frequency(2).degree(1).build(),
+                Entity.builder().id("e2").humanReadableId(1).title("广东").type("地理位置")
+                        .textUnitIds(List.of("t1")).x(1.5).build());
+        storage.saveEntities(GraphRagIndexStorage.SCOPE_MAIN, entities);
+
+        assertEquals(entities, storage.loadEntities(GraphRagIndexStorage.SCOPE_MAIN));
+        assertTrue(storage.loadEntities(GraphRagIndexStorage.SCOPE_DELTA).isEmpty());
+    }
+
+    @Test
+    void keepsNullsListsAndInstants() {
+        FileGraphRagIndexStorage storage = new FileGraphRagIndexStorage(dir, false);
+        Community community = Community.builder().id("c1").community(3).level(0).parent(-1)
+                .children(List.of(4, 5)).entityIds(List.of("e1")).build();
+        Covariate covariate = Covariate.builder().id("v1").subjectId("张三")
+                .startDate(Instant.parse("2024-01-01T00:00:00Z")).build();
+        storage.saveCommunities(GraphRagIndexStorage.SCOPE_DELTA, List.of(community));
+        storage.saveCovariates(GraphRagIndexStorage.SCOPE_DELTA, List.of(covariate));
+
+        assertEquals(List.of(community), storage.loadCommunities(GraphRagIndexStorage.SCOPE_DELTA));
+        Covariate loaded = storage.loadCovariates(GraphRagIndexStorage.SCOPE_DELTA).get(0);
+        assertEquals(covariate, loaded);
+        assertNull(loaded.getEndDate());
+    }
+
+    @Test
+    void emptySaveRemovesPreviousTable() {
+        FileGraphRagIndexStorage storage = new FileGraphRagIndexStorage(dir, true);
+        storage.saveEntities(GraphRagIndexStorage.SCOPE_MAIN, List.of(Entity.builder().id("e1").title("张三").build()));
+        assertTrue(Files.exists(storage.tableFile(GraphRagIndexStorage.SCOPE_MAIN, FileGraphRagIndexStorage.TABLE_ENTITIES)));
+
+        storage.saveEntities(GraphRagIndexStorage.SCOPE_MAIN, List.of());
+
+        assertFalse(Files.exists(storage.tableFile(GraphRagIndexStorage.SCOPE_MAIN, FileGraphRagIndexStorage.TABLE_ENTITIES)));
+        assertTrue(storage.loadEntities(GraphRagIndexStorage.SCOPE_MAIN).isEmpty());
+        // 表本来就不存在时也不报错
+        storage.saveTextUnits(GraphRagIndexStorage.SCOPE_DELTA, null);
+    }
+
+    @Test
+    void clearOnlyDropsGivenScope() {
+        FileGraphRagIndexStorage storage = new FileGraphRagIndexStorage(dir, false);
+        storage.saveEntities(GraphRagIndexStorage.SCOPE_MAIN, List.of(Entity.builder().id("e1").title("张三").build()));
+        storage.saveEntities(GraphRagIndexStorage.SCOPE_DELTA, List.of(Entity.builder().id("e2").title("李四").build()));
+
+        storage.clear(GraphRagIndexStorage.SCOPE_DELTA);
+
+        assertTrue(storage.loadEntities(GraphRagIndexStorage.SCOPE_DELTA).isEmpty());
+        assertEquals(1, storage.loadEntities(GraphRagIndexStorage.SCOPE_MAIN).size());
+    }
+
+    @Test
+    void upsertReplacesByIdAndKeepsOtherRows() {
+        FileGraphRagIndexStorage storage = new FileGraphRagIndexStorage(dir, false);
+        Entity e1 = Entity.builder().id("e1").title("张三").description("旧").build();
+        Entity e2 = Entity.builder().id("e2").title("李四").build();
+        storage.saveEntities(GraphRagIndexStorage.SCOPE_MAIN, List.of(e1, e2));
+
+        Entity e1Changed = Entity.builder().id("e1").title("张三").description("新").build();
+        Entity e3 = Entity.builder().id("e3").title("王五").build();
+        storage.upsertEntities(GraphRagIndexStorage.SCOPE_MAIN, List.of(e3, e1Changed));
+
+        assertEquals(List.of(e1Changed, e2, e3), storage.loadEntities(GraphRagIndexStorage.SCOPE_MAIN));
+        // 空列表什么也不做
+        storage.upsertEntities(GraphRagIndexStorage.SCOPE_MAIN, List.of());
+        assertEquals(3, storage.loadEntities(GraphRagIndexStorage.SCOPE_MAIN).size());
+    }
+}
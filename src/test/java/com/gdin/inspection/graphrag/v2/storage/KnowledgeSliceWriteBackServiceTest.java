@@ -0,0 +1,115 @@
+package com.gdin.inspection.graphrag.v2.storage;
+
+import com.gdin.inspection.graphrag.config.properties.GraphProperties;
+import com.gdin.inspection.graphrag.req.milvus.MilvusQueryReq;
+import com.gdin.inspection.graphrag.search.result.MilvusRow;
+import com.gdin.inspection.graphrag.service.MilvusSearchService;
+import com.gdin.inspection.graphrag.service.MilvusUpsertService;
+import io.milvus.v2.service.vector.response.UpsertResp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KnowledgeSliceWriteBackServiceTest {
+
+    private static final Pattern BACKFILL_FILTER = Pattern.compile("extra\\[\"graph\"] == (\\d+) and (\\w+) is null");
+
+    /** id -> extra.graph；scopeField 存 id -> 标量字段值 */
+    private final Map<Long, Integer> extraGraph = new TreeMap<>();
+    private final Map<Long, Integer> scopeField = new HashMap<>();
+    private final List<Integer> pageSizes = new ArrayList<>();
+    private boolean dropWrites;
+
+    private KnowledgeSliceWriteBackService service;
+    private IndexScopeResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        GraphProperties props = new GraphProperties();
+        resolver = new IndexScopeResolver();
+        ReflectionTestUtils.setField(resolver, "graphProperties", props);
+
+        MilvusSearchService search = new MilvusSearchService() {
+            @Override
+            public List<MilvusRow> queryRows(MilvusQueryReq req) {
+                Matcher m = BACKFILL_FILTER.matcher(req.getFilter());
+                assertTrue(m.matches(), req.getFilter());
+                int scope = Integer.parseInt(m.group(1));
+                List<MilvusRow> rows = new ArrayList<>();
+                for (Map.Entry<Long, Integer> e : extraGraph.entrySet()) {
+                    if (e.getValue() == scope && scopeField.get(e.getKey()) == null) rows.add(new MilvusRow(Map.of("id", e.getKey())));
+                    if (rows.size() == req.getLimit()) break;
+                }
+                return rows;
+            }
+        };
+        MilvusUpsertService upsert = new MilvusUpsertService() {
+            @Override
+            public UpsertResp updateEntities(String collectionName, Map<Long, Map<String, Object>> valueMapsById) {
+                pageSizes.add(valueMapsById.size());
+                if (!dropWrites) valueMapsById.forEach((id, values) -> scopeField.put(id, (Integer) values.get("graph_scope")));
+                return null;
+            }
+        };
+
+        service = new KnowledgeSliceWriteBackService();
+        ReflectionTestUtils.setField(service, "graphProperties", props);
+        ReflectionTestUtils.setField(service, "milvusSearchService", search);
+        ReflectionTestUtils.setField(service, "milvusUpsertService", upsert);
+        ReflectionTestUtils.setField(service, "indexScopeResolver", resolver);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    private void slices(int scope, int count) {
+        long base = extraGraph.size();
+        for (long i = 0; i < count; i++) extraGraph.put(base + i, scope);
+    }
+
+    @Test
+    void backfillsWholePagesPerScope() {
+        slices(GraphRagIndexStorage.SCOPE_MAIN, 2500);
+        slices(GraphRagIndexStorage.SCOPE_DELTA, 10);
+
+        assertEquals(2510, service.backfillScopeField());
+
+        // 每页一次批量写，而不是每行一次
+        assertEquals(List.of(1000, 1000, 500, 10), pageSizes);
+        extraGraph.forEach((id, scope) -> assertEquals(scope, scopeField.get(id)));
+    }
+
+    @Test
+    void stopsWhenAPageMakesNoProgress() {
+        slices(GraphRagIndexStorage.SCOPE_MAIN, 5);
+        dropWrites = true;
+
+        assertThrows(IllegalStateException.class, service::backfillScopeField);
+        assertEquals(List.of(5), pageSizes);
+    }
+
+    @Test
+    void asyncBackfillFallsBackToJsonFilterUntilDone() throws Exception {
+        slices(GraphRagIndexStorage.SCOPE_MAIN, 3);
+        assertEquals("graph_scope == 1", resolver.textUnitFilter(GraphRagIndexStorage.SCOPE_MAIN));
+
+        assertEquals(3, service.backfillScopeFieldAsync().get(5, TimeUnit.SECONDS));
+        assertEquals("graph_scope == 1", resolver.textUnitFilter(GraphRagIndexStorage.SCOPE_MAIN));
+
+        // 回填失败时保持 JSON 过滤
+        scopeField.clear();
+        dropWrites = true;
+        assertThrows(Exception.class, () -> service.backfillScopeFieldAsync().get(5, TimeUnit.SECONDS));
+        assertEquals("extra[\"graph\"] == 1", resolver.textUnitFilter(GraphRagIndexStorage.SCOPE_MAIN));
+    }
+}
@@ -0,0 +1,156 @@
+package com.gdin.inspection.graphrag.v2.storage;
+
+import com.gdin.inspection.graphrag.search.result.MilvusRow;
+import com.gdin.inspection.graphrag.v2.models.*;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模型 -> 按 MilvusGraphRagIndexStorage 的写法构造 SDK 返回的字段 Map（VarChar=String、Int64=Long、Double=Double、JSON=JsonElement）
+ * -> MilvusRowMappers -> 模型，两端应一致
+ */
+public class MilvusRowMappersTest {
+
+    private static JsonArray strings(List<String> list) {
+        JsonArray arr = new JsonArray();
+        list.forEach(arr::add);
+        return arr;
+    }
+
+    private static JsonArray ints(List<Integer> list) {
+        JsonArray arr = new JsonArray();
+        list.forEach(arr::add);
+        return arr;
+    }
+
+    @Test
+    void entityRoundTrip() {
+        Entity entity = Entity.builder().id("e1").humanReadableId(3).title("主变压器").type("EQUIPMENT")
+                .description("一号主变").textUnitIds(List.of("t1", "t2")).frequency(2).degree(5).x(1.25).y(-0.5).build();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("id", "e1");
+        fields.put("human_readable_id", 3L);
+        fields.put("title", "主变压器");
+        fields.put("type", "EQUIPMENT");
+        fields.put("description", "一号主变");
+        fields.put("text_unit_ids", strings(entity.getTextUnitIds()));
+        fields.put("frequency", 2L);
+        fields.put("degree", 5L);
+        fields.put("x", 1.25);
+        fields.put("y", -0.5);
+
+        assertEquals(entity, MilvusRowMappers.ENTITY.apply(new MilvusRow(fields)));
+    }
+
+    @Test
+    void nullableColumnsStayNull() {
+        // 写入时 null 字段直接不写，读回来也应是 null 而不是 0 / 空列表
+        Entity entity = MilvusRowMappers.ENTITY.apply(new MilvusRow(Map.of("id", "e2", "title", "GIS")));
+        assertEquals(Entity.builder().id("e2").title("GIS").build(), entity);
+    }
+
+    @Test
+    void relationshipRoundTrip() {
+        Relationship rel = Relationship.builder().id("r1").humanReadableId(0).source("A").target("B")
+                .description("供电").weight(2.0).combinedDegree(7.0).textUnitIds(List.of("t1")).build();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("id", "r1");
+        fields.put("human_readable_id", 0L);
+        fields.put("source", "A");
+        fields.put("target", "B");
+        fields.put("description", "供电");
+        fields.put("weight", 2.0);
+        fields.put("combined_degree", 7.0);
+        fields.put("text_unit_ids", strings(rel.getTextUnitIds()));
+
+        assertEquals(rel, MilvusRowMappers.RELATIONSHIP.apply(new MilvusRow(fields)));
+    }
+
+    @Test
+    void communityRoundTrip() {
+        Community community = Community.builder().id("c1").humanReadableId(1).community(4).level(0).parent(-1)
+                .children(List.of(5, 6)).title("Community 4").entityIds(List.of("e1")).relationshipIds(List.of("r1"))
+                .textUnitIds(List.of("t1")).period("2024-01-01").size(1).build();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("id", "c1");
+        fields.put("human_readable_id", 1L);
+        fields.put("community", 4L);
+        fields.put("level", 0L);
+        fields.put("parent", -1L);
+        fields.put("children", ints(community.getChildren()));
+        fields.put("title", "Community 4");
+        fields.put("entity_ids", strings(community.getEntityIds()));
+        fields.put("relationship_ids", strings(community.getRelationshipIds()));
+        fields.put("text_unit_ids", strings(community.getTextUnitIds()));
+        fields.put("period", "2024-01-01");
+        fields.put("size", 1L);
+
+        assertEquals(community, MilvusRowMappers.COMMUNITY.apply(new MilvusRow(fields)));
+    }
+
+    @Test
+    void communityReportKeepsJsonColumnsAsStrings() {
+        String findings = "[{\"summary\":\"s\",\"explanation\":\"e\"}]";
+        CommunityReport report = CommunityReport.builder().id("cr1").humanReadableId(1).community(4).level(0).parent(-1)
+                .children(List.of()).title("报告").summary("摘要").fullContent("全文").rank(7.5).ratingExplanation("说明")
+                .findings(findings).fullContentJson("{\"title\":\"报告\"}").period("2024-01-01").size(3).build();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("id", "cr1");
+        fields.put("human_readable_id", 1L);
+        fields.put("community", 4L);
+        fields.put("level", 0L);
+        fields.put("parent", -1L);
+        fields.put("children", new JsonArray());
+        fields.put("title", "报告");
+        fields.put("summary", "摘要");
+        fields.put("full_content", "全文");
+        fields.put("rank", 7.5);
+        fields.put("rating_explanation", "说明");
+        // 写入的是 JSON 字符串，SDK 可能原样返回字符串，也可能返回解析后的 JSON
+        fields.put("findings", new JsonPrimitive(findings));
+        fields.put("full_content_json", JsonParser.parseString("{\"title\":\"报告\"}"));
+        fields.put("period", "2024-01-01");
+        fields.put("size", 3L);
+
+        assertEquals(report, MilvusRowMappers.COMMUNITY_REPORT.apply(new MilvusRow(fields)));
+        fields.put("findings", JsonParser.parseString(findings));
+        assertEquals(findings, MilvusRowMappers.COMMUNITY_REPORT.apply(new MilvusRow(fields)).getFindings());
+    }
+
+    @Test
+    void covariateDatesAreEpochMillis() {
+        // start_date / end_date 在 Milvus 中是 Int64 epoch 毫秒，亚毫秒部分在写入时截断
+        Instant start = Instant.parse("2024-03-01T08:30:00.123456Z");
+        Instant end = Instant.parse("2024-03-02T00:00:00Z");
+        Covariate covariate = Covariate.builder().id("v1").humanReadableId(0).covariateType("claim").type("FAULT")
+                .description("跳闸").subjectId("主变压器").objectId("NONE").status("TRUE")
+                .startDate(start.truncatedTo(ChronoUnit.MILLIS)).endDate(end).sourceText("原文").textUnitId("t1").build();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("id", "v1");
+        fields.put("human_readable_id", 0L);
+        fields.put("covariate_type", "claim");
+        fields.put("type", "FAULT");
+        fields.put("description", "跳闸");
+        fields.put("subject_id", "主变压器");
+        fields.put("object_id", "NONE");
+        fields.put("status", "TRUE");
+        fields.put("start_date", MilvusGraphRagIndexStorage.instantToMillis(start));
+        fields.put("end_date", MilvusGraphRagIndexStorage.instantToMillis(end));
+        fields.put("source_text", "原文");
+        fields.put("text_unit_id", "t1");
+
+        Covariate loaded = MilvusRowMappers.COVARIATE.apply(new MilvusRow(fields));
+        assertEquals(covariate, loaded);
+        assertEquals(Instant.ofEpochMilli(1709337600000L), loaded.getEndDate());
+    }
+}
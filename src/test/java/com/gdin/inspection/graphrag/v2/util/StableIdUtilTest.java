@@ -0,0 +1,97 @@
+package com.gdin.inspection.graphrag.v2.util;
+
+import com.gdin.inspection.graphrag.v2.models.Entity;
+import com.gdin.inspection.graphrag.v2.models.Relationship;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StableIdUtilTest {
+
+    @Test
+    void entityIdIgnoresCaseWidthAndWhitespace() {
+        String id = StableIdUtil.entityId("Gis 变电站", "ORGANIZATION");
+        assertEquals(id, StableIdUtil.entityId("  ＧＩＳ   变电站 ", "organization"));
+        assertNotEquals(id, StableIdUtil.entityId("Gis 变电站", "GEO"));
+        assertEquals(36, id.length());
+        assertEquals('5', id.charAt(14));
+    }
+
+    @Test
+    void relationshipIdIsDirected() {
+        assertNotEquals(StableIdUtil.relationshipId("A", "B"), StableIdUtil.relationshipId("B", "A"));
+        // 不同种类的 id 不会相同
+        assertNotEquals(StableIdUtil.relationshipId("A", "B"), StableIdUtil.entityId("A", "B"));
+    }
+
+    @Test
+    void communityIdDependsOnMembershipAndLevelOnly() {
+        String id = StableIdUtil.communityId(0, List.of("e2", "e1"));
+        assertEquals(id, StableIdUtil.communityId(0, List.of("e1", "e2", "e1")));
+        assertNotEquals(id, StableIdUtil.communityId(1, List.of("e1", "e2")));
+        assertNotEquals(id, StableIdUtil.communityId(0, List.of("e1")));
+    }
+
+    @Test
+    void finalizeIsStableAcrossRunsAndUniqueWithinRun() {
+        List<Entity> entities = List.of(
+                Entity.builder().title("主变压器").type("EQUIPMENT").build(),
+                Entity.builder().title("abc").type("EQUIPMENT").build(),
+                // 规范化后与上一条相同
+                Entity.builder().title("ABC").type("EQUIPMENT").build()
+        );
+        List<Entity> first = FinalizeUtils.finalizeEntities(entities);
+        List<Entity> second = FinalizeUtils.finalizeEntities(entities);
+        for (int i = 0; i < first.size(); i++) assertEquals(first.get(i).getId(), second.get(i).getId());
+        assertEquals(3, new HashSet<>(first.stream().map(Entity::getId).toList()).size());
+
+        List<Relationship> rels = FinalizeUtils.finalizeRelationships(List.of(
+                Relationship.builder().source("主变压器").target("ABC").build()));
+        assertEquals(StableIdUtil.relationshipId("主变压器", "abc"), rels.get(0).getId());
+    }
+
+    private static Map<String, String> idByTitle(List<Entity> finalized) {
+        return finalized.stream().collect(Collectors.toMap(Entity::getTitle, Entity::getId));
+    }
+
+    @Test
+    void collidingIdsDoNotDependOnEncounterOrder() {
+        Entity lower = Entity.builder().title("abc").type("EQUIPMENT").build();
+        Entity upper = Entity.builder().title("ABC").type("EQUIPMENT").build();
+        Entity spaced = Entity.builder().title(" abc ").type("EQUIPMENT").build();
+
+        Map<String, String> forward = idByTitle(FinalizeUtils.finalizeEntities(List.of(lower, upper, spaced)));
+        Map<String, String> reversed = idByTitle(FinalizeUtils.finalizeEntities(List.of(spaced, upper, lower)));
+        assertEquals(forward, reversed);
+        assertEquals(3, new HashSet<>(forward.values()).size());
+        // 原始内容最小的一行保留原 id
+        assertEquals(StableIdUtil.entityId("abc", "EQUIPMENT"), forward.get(" abc "));
+
+        Relationship r1 = Relationship.builder().source("a").target("B").description("供电").build();
+        Relationship r2 = Relationship.builder().source("A").target("b").description("供电").build();
+        assertEquals(
+                FinalizeUtils.finalizeRelationships(List.of(r1, r2)).get(0).getId(),
+                FinalizeUtils.finalizeRelationships(List.of(r2, r1)).get(1).getId());
+    }
+
+    @Test
+    void reservedIdsAndExactDuplicatesAreRederived() {
+        Function<String, String> id = s -> "base";
+        List<String> ids = StableIdUtil.dedupeIds(List.of("y", "x", "x"), id, Function.identity(), Set.of("base"));
+        assertEquals(3, new HashSet<>(ids).size());
+        assertFalse(ids.contains("base"));
+        assertEquals(ids.get(0), StableIdUtil.dedupeIds(List.of("x", "y"), id, Function.identity(), Set.of("base")).get(1));
+
+        // idOf 为 null 的行不参与
+        List<String> withNull = StableIdUtil.dedupeIds(List.of("a", "b"), s -> s.equals("a") ? null : s, Function.identity(), null);
+        assertNull(withNull.get(0));
+        assertEquals("b", withNull.get(1));
+    }
+}
@@ -0,0 +1,81 @@
+package com.gdin.inspection.graphrag.v2.util;
+
+import com.gdin.inspection.graphrag.v2.models.Covariate;
+import com.gdin.inspection.graphrag.v2.models.Entity;
+import com.gdin.inspection.graphrag.v2.models.Relationship;
+import com.gdin.inspection.graphrag.v2.models.TextUnit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextUnitLinkTableTest {
+
+    private static TextUnit tu(String id, String... entityIds) {
+        return TextUnit.builder().id(id).entityIds(entityIds.length == 0 ? null : Arrays.asList(entityIds)).build();
+    }
+
+    @Test
+    void finalizeKeepsFirstOccurrenceOrderAndDedups() {
+        List<TextUnit> textUnits = List.of(tu("t1"), tu("t2"), tu("t3"));
+        List<Entity> entities = List.of(
+                Entity.builder().id("e1").textUnitIds(List.of("t2", "t1", "t2")).build(),
+                Entity.builder().id("e2").textUnitIds(List.of("t1", "missing")).build(),
+                // 重复 id 的实体只算一次
+                Entity.builder().id("e1").textUnitIds(List.of("t1")).build()
+        );
+        List<Relationship> relationships = List.of(
+                Relationship.builder().id("r1").textUnitIds(List.of("t3")).build()
+        );
+        List<Covariate> covariates = List.of(
+                Covariate.builder().id("c1").textUnitId("t1").build(),
+                Covariate.builder().id("c2").textUnitId("t1").build()
+        );
+
+        TextUnitLinkTable links = TextUnitLinkTable.forFinalize(textUnits, entities, relationships, covariates);
+
+        assertEquals(List.of("e1", "e2"), links.entityIds(links.rowOf("t1")));
+        assertEquals(List.of("e1"), links.entityIds(links.rowOf("t2")));
+        assertEquals(List.of(), links.entityIds(links.rowOf("t3")));
+        assertEquals(List.of("r1"), links.relationshipIds(links.rowOf("t3")));
+        assertEquals(List.of("c1", "c2"), links.covariateIds(links.rowOf("t1")));
+        assertEquals(-1, links.rowOf("missing"));
+        assertEquals(List.of(), links.entityIds(-1));
+    }
+
+    @Test
+    void remapAppliesToEveryRowAndKeepsDuplicates() {
+        List<TextUnit> delta = new ArrayList<>();
+        delta.add(tu("t1", "d1", "d2"));
+        delta.add(null);
+        delta.add(tu("t2", "d2", "d3"));
+
+        TextUnitLinkTable links = TextUnitLinkTable.forEntityIds(delta)
+                .remapEntityIds(Map.of("d1", "o1", "d3", "o1"));
+
+        assertEquals(List.of("o1", "d2"), links.entityIds(0));
+        assertEquals(List.of(), links.entityIds(1));
+        assertEquals(List.of("d2", "o1"), links.entityIds(2));
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        List<TextUnit> textUnits = new ArrayList<>();
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            textUnits.add(tu("t" + i));
+            entities.add(Entity.builder().id("e" + i).textUnitIds(List.of("t" + i, "t" + (i / 2))).build());
+        }
+
+        TextUnitLinkTable links = TextUnitLinkTable.forFinalize(textUnits, entities, List.of(), null);
+
+        assertEquals(List.of("e0", "e1"), links.entityIds(links.rowOf("t0")));
+        assertEquals(List.of("e10", "e20", "e21"), links.entityIds(links.rowOf("t10")));
+        assertEquals(List.of("e4999"), links.entityIds(links.rowOf("t4999")));
+        assertEquals(List.of(), links.covariateIds(links.rowOf("t1")));
+    }
+}